@@ -0,0 +1,450 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.archetype.component.processor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link BatchProcessor} that processes items in parallel.
+ * <p/>
+ * Items are read from an iterator by the thread invoking {@link #process()}, and grouped into partitions that are
+ * processed on a fixed size thread pool. At most two partitions per thread are queued at any time, so the iterator
+ * isn't read any faster than the items can be processed.
+ * <p/>
+ * If a transaction manager is supplied, each item is processed in its own transaction, so a failure only rolls back
+ * the changes made for that item. Failures are logged and collected, and processing continues with the next item.
+ * <p/>
+ * As partitions may complete out of order, {@link #getCheckpoint()} returns the last item for which it and all
+ * prior items have been successfully processed. The checkpoint never advances past an item that failed, so an
+ * interrupted run can be resumed by processing the items after the checkpoint. Items following the first failure
+ * may be processed again on resumption, so the processor must be able to handle this.
+ * <p/>
+ * The processing thread's security context is propagated to the worker threads.
+ *
+ * @author Tim Anderson
+ */
+public class ParallelBatchProcessor<T> extends AbstractBatchProcessor {
+
+    /**
+     * The items to process.
+     */
+    private final Iterator<T> iterator;
+
+    /**
+     * The processor.
+     */
+    private final Processor<T> processor;
+
+    /**
+     * The transaction template, or {@code null} if items aren't processed within a transaction.
+     */
+    private final TransactionTemplate template;
+
+    /**
+     * The no. of threads to process items on.
+     */
+    private final int threads;
+
+    /**
+     * The no. of items in a partition.
+     */
+    private final int partitionSize;
+
+    /**
+     * The no. of items successfully processed.
+     */
+    private final AtomicInteger processed = new AtomicInteger();
+
+    /**
+     * The items that failed to be processed, and their exceptions.
+     */
+    private final Map<T, Throwable> failures = new LinkedHashMap<>();
+
+    /**
+     * Partitions that have completed ahead of a partition that precedes them, keyed on partition index.
+     */
+    private final Map<Integer, Partition<T>> completed = new TreeMap<>();
+
+    /**
+     * The index of the next partition required to advance the checkpoint.
+     */
+    private int next;
+
+    /**
+     * The last item for which it and all prior items have been successfully processed.
+     */
+    private T checkpoint;
+
+    /**
+     * Determines if the checkpoint has stopped advancing, due to a partition containing a failed item.
+     */
+    private boolean stopped;
+
+    /**
+     * Determines if processing has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * The time when processing started, or {@code 0} if it hasn't started.
+     */
+    private volatile long start;
+
+    /**
+     * The time when processing finished, or {@code 0} if it hasn't finished.
+     */
+    private volatile long end;
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(ParallelBatchProcessor.class);
+
+
+    /**
+     * Constructs a {@link ParallelBatchProcessor}.
+     *
+     * @param iterator           the items to process. Only accessed by the thread invoking {@link #process()}
+     * @param processor          the processor. Must be thread safe
+     * @param transactionManager the transaction manager. If {@code null}, items won't be processed in a transaction
+     * @param threads            the no. of threads to process items on
+     * @param partitionSize      the no. of items to process in a partition
+     */
+    public ParallelBatchProcessor(Iterator<T> iterator, Processor<T> processor,
+                                  PlatformTransactionManager transactionManager, int threads, int partitionSize) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Argument 'threads' must be > 0");
+        }
+        if (partitionSize <= 0) {
+            throw new IllegalArgumentException("Argument 'partitionSize' must be > 0");
+        }
+        this.iterator = iterator;
+        this.processor = processor;
+        this.template = (transactionManager != null) ? new TransactionTemplate(transactionManager) : null;
+        this.threads = threads;
+        this.partitionSize = partitionSize;
+    }
+
+    /**
+     * Processes the batch.
+     * <p/>
+     * This blocks until all items have been processed, or processing is cancelled.
+     * On completion, the listener is notified. Failures of individual items don't terminate processing, and must be
+     * checked via {@link #getFailures()}.
+     */
+    @Override
+    public void process() {
+        start = System.currentTimeMillis();
+        Throwable error = null;
+        ExecutorService executor = Executors.newFixedThreadPool(
+                threads, new CustomizableThreadFactory(ParallelBatchProcessor.class.getSimpleName() + "-"));
+        Semaphore queued = new Semaphore(threads * 2);
+        SecurityContext context = SecurityContextHolder.getContext();
+        try {
+            int index = 0;
+            while (!cancelled && iterator.hasNext()) {
+                List<T> partition = new ArrayList<>(partitionSize);
+                while (partition.size() < partitionSize && iterator.hasNext()) {
+                    partition.add(iterator.next());
+                }
+                queued.acquire();
+                int id = index++;
+                try {
+                    executor.execute(() -> {
+                        try {
+                            process(id, partition, context);
+                        } finally {
+                            queued.release();
+                        }
+                    });
+                } catch (Throwable exception) {
+                    queued.release();
+                    throw exception;
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } catch (Throwable exception) {
+            cancelled = true;
+            error = exception;
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+            end = System.currentTimeMillis();
+        }
+        if (error != null) {
+            notifyError(error);
+        } else {
+            notifyCompleted();
+        }
+    }
+
+    /**
+     * Cancels processing.
+     * <p/>
+     * No more partitions will be started, and partitions being processed will stop after their current item.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Determines if processing has been cancelled.
+     *
+     * @return {@code true} if processing has been cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Determines if processing has finished, either due to completion, cancellation or error.
+     *
+     * @return {@code true} if processing has finished
+     */
+    public boolean isFinished() {
+        return end != 0;
+    }
+
+    /**
+     * Returns the no. of items successfully processed.
+     *
+     * @return the no. of items processed
+     */
+    @Override
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * Returns the no. of items that failed to be processed.
+     *
+     * @return the no. of failed items
+     */
+    public int getFailed() {
+        synchronized (failures) {
+            return failures.size();
+        }
+    }
+
+    /**
+     * Returns the items that failed to be processed, and the reason for their failure.
+     *
+     * @return the failed items, in the order of failure
+     */
+    public Map<T, Throwable> getFailures() {
+        synchronized (failures) {
+            return new LinkedHashMap<>(failures);
+        }
+    }
+
+    /**
+     * Returns the last item for which it and all prior items have been successfully processed.
+     * <p/>
+     * The checkpoint stops before the first item that failed, so that it is processed again if the run is resumed.
+     *
+     * @return the checkpoint, or {@code null} if no item has been processed
+     */
+    public T getCheckpoint() {
+        synchronized (completed) {
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Returns the time elapsed since processing started.
+     *
+     * @return the elapsed time, in milliseconds
+     */
+    public long getElapsed() {
+        if (start == 0) {
+            return 0;
+        }
+        return ((end != 0) ? end : System.currentTimeMillis()) - start;
+    }
+
+    /**
+     * Estimates the time remaining to process the batch, based on the rate that items have been processed so far.
+     *
+     * @param total the expected total no. of items
+     * @return the estimated time remaining in milliseconds, or {@code -1} if no items have been processed yet
+     */
+    public long getEstimatedRemaining(int total) {
+        long done = getProcessed() + getFailed();
+        if (done == 0) {
+            return -1;
+        }
+        long remaining = total - done;
+        return (remaining > 0) ? getElapsed() * remaining / done : 0;
+    }
+
+    /**
+     * Processes an item.
+     * <p/>
+     * This implementation processes the item in a transaction, if a transaction manager has been specified.
+     *
+     * @param item the item to process
+     */
+    protected void process(T item) {
+        if (template != null) {
+            template.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    processor.process(item);
+                }
+            });
+        } else {
+            processor.process(item);
+        }
+    }
+
+    /**
+     * Processes a partition.
+     *
+     * @param index     the partition index
+     * @param partition the items to process
+     * @param context   the security context to process the items in
+     */
+    private void process(int index, List<T> partition, SecurityContext context) {
+        SecurityContext existing = SecurityContextHolder.getContext();
+        SecurityContextHolder.setContext(context);
+        try {
+            T last = null;
+            boolean failed = false;
+            for (T item : partition) {
+                if (cancelled) {
+                    return;
+                }
+                try {
+                    process(item);
+                    processed.incrementAndGet();
+                    if (!failed) {
+                        last = item;
+                    }
+                } catch (Throwable exception) {
+                    log.error("Failed to process " + item + ": " + exception.getMessage(), exception);
+                    failed = true;
+                    synchronized (failures) {
+                        failures.put(item, exception);
+                    }
+                }
+            }
+            completed(index, new Partition<>(last, !failed));
+        } finally {
+            SecurityContextHolder.setContext(existing);
+        }
+    }
+
+    /**
+     * Invoked when a partition completes, to advance the checkpoint.
+     * <p/>
+     * Once a partition with a failed item is reached, the checkpoint is moved to the item preceding the failure,
+     * and stops advancing.
+     *
+     * @param index     the partition index
+     * @param partition the partition state
+     */
+    private void completed(int index, Partition<T> partition) {
+        synchronized (completed) {
+            completed.put(index, partition);
+            Partition<T> state;
+            while (!stopped && (state = completed.remove(next)) != null) {
+                if (state.last != null) {
+                    checkpoint = state.last;
+                }
+                if (state.complete) {
+                    next++;
+                } else {
+                    stopped = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the executor to terminate.
+     * <p/>
+     * If the thread is interrupted while waiting, processing is cancelled and the wait continues, as the workers
+     * will stop after their current item.
+     *
+     * @param executor the executor
+     */
+    private void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                interrupted = true;
+                cancelled = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The state of a processed partition.
+     */
+    private static class Partition<T> {
+
+        /**
+         * The last item processed before any failure, or {@code null} if the first item failed.
+         */
+        private final T last;
+
+        /**
+         * Determines if all items in the partition were successfully processed.
+         */
+        private final boolean complete;
+
+        /**
+         * Constructs a {@link Partition}.
+         *
+         * @param last     the last item processed before any failure. May be {@code null}
+         * @param complete if {@code true}, all items were successfully processed
+         */
+        Partition(T last, boolean complete) {
+            this.last = last;
+            this.complete = complete;
+        }
+    }
+
+}
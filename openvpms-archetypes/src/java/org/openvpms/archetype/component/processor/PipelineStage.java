@@ -0,0 +1,210 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.archetype.component.processor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openvpms.component.exception.OpenVPMSException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ProcessorListener} that hands events to another listener, on its own thread pool.
+ * <p/>
+ * This allows the stages of a pipeline (e.g. rendering and emailing documents) to run concurrently with the
+ * stage that produces their events.
+ * <p/>
+ * The stage is bounded: once {@code capacity} events are queued or in progress, {@link #process} blocks until
+ * one completes, so that a slow stage throttles the stages that feed it.
+ * <p/>
+ * Failures are logged and collected; they don't prevent subsequent events from being processed.
+ * <p/>
+ * The security context of the thread submitting an event is propagated to the thread that processes it.
+ *
+ * @author Tim Anderson
+ */
+public class PipelineStage<T> implements ProcessorListener<T> {
+
+    /**
+     * The listener to delegate to.
+     */
+    private final ProcessorListener<T> listener;
+
+    /**
+     * The executor.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The maximum no. of events that may be queued or in progress.
+     */
+    private final int capacity;
+
+    /**
+     * Limits the no. of events queued or in progress.
+     */
+    private final Semaphore available;
+
+    /**
+     * The no. of events successfully processed.
+     */
+    private final AtomicInteger processed = new AtomicInteger();
+
+    /**
+     * The events that failed to be processed, and their exceptions.
+     */
+    private final Map<T, Throwable> failures = new LinkedHashMap<>();
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(PipelineStage.class);
+
+
+    /**
+     * Constructs a {@link PipelineStage}.
+     *
+     * @param name     the stage name, used to name its threads
+     * @param listener the listener to delegate to. Must be thread safe if {@code threads > 1}
+     * @param threads  the no. of threads to process events on
+     * @param capacity the maximum no. of events that may be queued or in progress
+     */
+    public PipelineStage(String name, ProcessorListener<T> listener, int threads, int capacity) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Argument 'threads' must be > 0");
+        }
+        if (capacity < threads) {
+            throw new IllegalArgumentException("Argument 'capacity' must be >= threads");
+        }
+        this.listener = listener;
+        executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory(name + "-"));
+        this.capacity = capacity;
+        available = new Semaphore(capacity);
+    }
+
+    /**
+     * Queues an event for processing, blocking if the stage is at capacity.
+     *
+     * @param event the event to process
+     * @throws OpenVPMSException for any error
+     */
+    @Override
+    public void process(T event) {
+        try {
+            available.acquire();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting to queue " + event, exception);
+        }
+        SecurityContext context = SecurityContextHolder.getContext();
+        try {
+            executor.execute(() -> {
+                try {
+                    process(event, context);
+                } finally {
+                    available.release();
+                }
+            });
+        } catch (RuntimeException exception) {
+            available.release();
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the no. of events successfully processed.
+     *
+     * @return the no. of events processed
+     */
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * Returns the no. of events queued or in progress.
+     *
+     * @return the no. of pending events
+     */
+    public int getPending() {
+        return capacity - available.availablePermits();
+    }
+
+    /**
+     * Returns the events that failed to be processed, and the reason for their failure.
+     *
+     * @return the failed events, in the order of failure
+     */
+    public Map<T, Throwable> getFailures() {
+        synchronized (failures) {
+            return new LinkedHashMap<>(failures);
+        }
+    }
+
+    /**
+     * Waits for queued events to be processed, and shuts down the stage.
+     * <p/>
+     * No events may be queued after this is invoked.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            // keep waiting
+        }
+    }
+
+    /**
+     * Shuts down the stage, discarding any queued events.
+     */
+    public void cancel() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Processes an event.
+     *
+     * @param event   the event
+     * @param context the security context to process the event in
+     */
+    private void process(T event, SecurityContext context) {
+        SecurityContext existing = SecurityContextHolder.getContext();
+        SecurityContextHolder.setContext(context);
+        try {
+            listener.process(event);
+            processed.incrementAndGet();
+        } catch (Throwable exception) {
+            log.error("Failed to process " + event + ": " + exception.getMessage(), exception);
+            synchronized (failures) {
+                failures.put(event, exception);
+            }
+        } finally {
+            SecurityContextHolder.setContext(existing);
+        }
+    }
+
+}
@@ -21,12 +21,14 @@ import org.openvpms.component.business.domain.im.common.IMObjectReference;
 import org.openvpms.component.business.service.archetype.ArchetypeServiceException;
 import org.openvpms.component.business.service.archetype.IArchetypeService;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
  * A cache for {@link ReminderType}s.
+ * <p/>
+ * This may be shared between threads.
  *
  * @author Tim Anderson
  */
@@ -35,7 +37,7 @@ public class ReminderTypes {
     /**
      * The cached reminder types.
      */
-    private final Map<IMObjectReference, ReminderType> reminderTypes = new HashMap<>();
+    private final Map<IMObjectReference, ReminderType> reminderTypes = new ConcurrentHashMap<>();
 
     /**
      * The archetype service.
@@ -26,6 +26,9 @@ import org.openvpms.component.business.service.archetype.AbstractArchetypeServic
 import org.openvpms.component.business.service.archetype.IArchetypeService;
 import org.openvpms.component.business.service.archetype.IArchetypeServiceListener;
 import org.openvpms.component.business.service.archetype.helper.EntityBean;
+import org.openvpms.component.business.service.cache.Invalidation;
+import org.openvpms.component.business.service.cache.InvalidationBus;
+import org.openvpms.component.business.service.cache.InvalidationListener;
 import org.openvpms.component.system.common.event.AsyncListeners;
 import org.openvpms.component.system.common.event.Listener;
 import org.openvpms.component.system.common.event.Listeners;
@@ -93,6 +96,16 @@ public class PracticeService {
      */
     private final IArchetypeServiceListener listener;
 
+    /**
+     * The listener for practice updates made by other nodes.
+     */
+    private final InvalidationListener invalidationListener = this::invalidate;
+
+    /**
+     * The bus to receive practice updates from other nodes. May be {@code null}
+     */
+    private InvalidationBus bus;
+
     /**
      * Listeners to notify when the practice updates.
      */
@@ -238,12 +251,25 @@ public class PracticeService {
         return (current != null) ? rules.getExportFileFieldSeparator(current) : ',';
     }
 
+    /**
+     * Registers a bus to receive practice updates made by other nodes.
+     *
+     * @param bus the invalidation bus
+     */
+    public void setInvalidationBus(InvalidationBus bus) {
+        this.bus = bus;
+        bus.addListener(PracticeArchetypes.PRACTICE, invalidationListener);
+    }
+
     /**
      * Disposes of the service.
      */
     @PreDestroy
     public void dispose() {
         service.removeListener(PracticeArchetypes.PRACTICE, listener);
+        if (bus != null) {
+            bus.removeListener(PracticeArchetypes.PRACTICE, invalidationListener);
+        }
         if (listeners != null) {
             listeners.clear();
         }
@@ -289,6 +315,20 @@ public class PracticeService {
         }
     }
 
+    /**
+     * Invoked when the practice is changed by another node.
+     *
+     * @param invalidation the invalidation
+     */
+    protected void invalidate(Invalidation invalidation) {
+        if (invalidation.getType() == Invalidation.Type.SAVED) {
+            Party object = (Party) service.get(invalidation.getReference());
+            if (object != null) {
+                update(object);
+            }
+        }
+    }
+
     /**
      * Returns the practice wrapped in a bean.
      *
@@ -24,6 +24,9 @@ import org.openvpms.component.business.service.archetype.IArchetypeService;
 import org.openvpms.component.business.service.archetype.IArchetypeServiceListener;
 import org.openvpms.component.business.service.cache.EhCacheable;
 import org.openvpms.component.business.service.cache.EhcacheManager;
+import org.openvpms.component.business.service.cache.Invalidation;
+import org.openvpms.component.business.service.cache.InvalidationBus;
+import org.openvpms.component.business.service.cache.InvalidationListener;
 import org.openvpms.component.model.entity.Entity;
 import org.openvpms.component.model.object.Reference;
 import org.openvpms.component.system.common.util.PropertySet;
@@ -65,6 +68,15 @@ public abstract class AbstractScheduleService implements ScheduleService, Dispos
      */
     private final IArchetypeServiceListener listener;
 
+    /**
+     * Listener for event updates from other nodes.
+     */
+    private final InvalidationListener invalidationListener = this::invalidate;
+
+    /**
+     * The bus to receive event updates from other nodes. May be {@code null}
+     */
+    private InvalidationBus bus;
 
     /**
      * Constructs an {@link AbstractScheduleService}.
@@ -101,6 +113,18 @@ public abstract class AbstractScheduleService implements ScheduleService, Dispos
         }
     }
 
+    /**
+     * Registers a bus to receive event updates made by other nodes.
+     *
+     * @param bus the invalidation bus
+     */
+    public void setInvalidationBus(InvalidationBus bus) {
+        this.bus = bus;
+        for (String shortName : eventArchetypes) {
+            bus.addListener(shortName, invalidationListener);
+        }
+    }
+
     /**
      * Returns the underlying cache.
      *
@@ -131,6 +155,9 @@ public abstract class AbstractScheduleService implements ScheduleService, Dispos
         try {
             for (String shortName : eventArchetypes) {
                 service.removeListener(shortName, listener);
+                if (bus != null) {
+                    bus.removeListener(shortName, invalidationListener);
+                }
             }
         } finally {
             cache.clear();
@@ -186,6 +213,19 @@ public abstract class AbstractScheduleService implements ScheduleService, Dispos
         return cache.getModHash(schedule, day);
     }
 
+    /**
+     * Returns the changes to the events for the specified schedule and day, since the given sequence number.
+     *
+     * @param schedule the schedule
+     * @param day      the day
+     * @param sequence the sequence number of the last change seen by the caller
+     * @return the changes. If these can't be determined, all events are returned
+     */
+    @Override
+    public ScheduleChanges getChanges(Entity schedule, Date day, long sequence) {
+        return cache.getChanges(schedule, day, sequence);
+    }
+
     /**
      * Returns all events for the specified schedule, and time range.
      *
@@ -274,6 +314,35 @@ public abstract class AbstractScheduleService implements ScheduleService, Dispos
         cache.removeEvent(event);
     }
 
+    /**
+     * Removes an event from the cache, given its reference.
+     *
+     * @param event the reference of the event to remove
+     */
+    protected void removeEvent(Reference event) {
+        cache.removeEvent(event);
+    }
+
+    /**
+     * Invoked when an event is changed by another node.
+     * <p/>
+     * Saved events are reloaded, as their schedule and times may have changed.
+     *
+     * @param invalidation the invalidation
+     */
+    protected void invalidate(Invalidation invalidation) {
+        Reference reference = invalidation.getReference();
+        Act event = null;
+        if (invalidation.getType() == Invalidation.Type.SAVED) {
+            event = (Act) service.get(reference);
+        }
+        if (event != null) {
+            addEvent(event);
+        } else {
+            removeEvent(reference);
+        }
+    }
+
     /**
      * Clears the cache.
      */
@@ -22,6 +22,9 @@ import org.openvpms.component.business.service.archetype.AbstractArchetypeServic
 import org.openvpms.component.business.service.archetype.IArchetypeService;
 import org.openvpms.component.business.service.archetype.IArchetypeServiceListener;
 import org.openvpms.component.business.service.cache.EhcacheManager;
+import org.openvpms.component.business.service.cache.Invalidation;
+import org.openvpms.component.business.service.cache.InvalidationBus;
+import org.openvpms.component.business.service.cache.InvalidationListener;
 import org.openvpms.component.business.service.lookup.ILookupService;
 import org.openvpms.component.model.act.Act;
 import org.openvpms.component.model.user.User;
@@ -59,6 +62,16 @@ public class AppointmentService extends AbstractCalendarService {
      */
     private final IArchetypeServiceListener listener;
 
+    /**
+     * Listener for visit reason changes made by other nodes.
+     */
+    private final InvalidationListener reasonListener = this::onReasonInvalidated;
+
+    /**
+     * The bus to receive updates from other nodes. May be {@code null}
+     */
+    private InvalidationBus bus;
+
     /**
      * The archetypes to cache. .
      */
@@ -89,6 +102,18 @@ public class AppointmentService extends AbstractCalendarService {
         service.addListener(ScheduleArchetypes.VISIT_REASON, listener);
     }
 
+    /**
+     * Registers a bus to receive appointment and visit reason updates made by other nodes.
+     *
+     * @param bus the invalidation bus
+     */
+    @Override
+    public void setInvalidationBus(InvalidationBus bus) {
+        super.setInvalidationBus(bus);
+        this.bus = bus;
+        bus.addListener(ScheduleArchetypes.VISIT_REASON, reasonListener);
+    }
+
     /**
      * Returns the non-cancelled appointments for a clinician in the specified date range.
      *
@@ -143,6 +168,9 @@ public class AppointmentService extends AbstractCalendarService {
     public void destroy() throws Exception {
         try {
             getService().removeListener(ScheduleArchetypes.VISIT_REASON, listener);
+            if (bus != null) {
+                bus.removeListener(ScheduleArchetypes.VISIT_REASON, reasonListener);
+            }
         } finally {
             super.destroy();
         }
@@ -184,4 +212,24 @@ public class AppointmentService extends AbstractCalendarService {
         }
     }
 
+    /**
+     * Invoked when a visit reason is changed by another node.
+     * <p>
+     * If the reason has been removed, the appointment cache is cleared, as the removed reason isn't available to
+     * determine if its name is cached.
+     *
+     * @param invalidation the invalidation
+     */
+    private void onReasonInvalidated(Invalidation invalidation) {
+        Lookup reason = null;
+        if (invalidation.getType() == Invalidation.Type.SAVED) {
+            reason = (Lookup) getService().get(invalidation.getReference());
+        }
+        if (reason != null) {
+            onReasonSaved(reason);
+        } else {
+            clearCache();
+        }
+    }
+
 }
@@ -0,0 +1,159 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.archetype.rules.workflow;
+
+import org.openvpms.component.model.object.Reference;
+import org.openvpms.component.system.common.util.PropertySet;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes to the events of a schedule and day since a given sequence number, as returned by
+ * {@link ScheduleService#getChanges}.
+ * <p>
+ * If the changes can't be determined, (e.g. because the day is no longer cached, or too many changes have occurred),
+ * {@link #isReload()} returns {@code true}, and {@link #getAdded()} returns all of the events.
+ *
+ * @author Tim Anderson
+ */
+public class ScheduleChanges {
+
+    /**
+     * The added or updated events, or all events if this is a reload.
+     */
+    private final List<PropertySet> added;
+
+    /**
+     * The references of the removed events.
+     */
+    private final List<Reference> removed;
+
+    /**
+     * Determines if all events have been returned.
+     */
+    private final boolean reload;
+
+    /**
+     * The modification hash, after the changes.
+     */
+    private final long modHash;
+
+    /**
+     * The sequence number of the last change.
+     */
+    private final long sequence;
+
+    /**
+     * Constructs a {@link ScheduleChanges} that contains all events.
+     *
+     * @param events   the events
+     * @param modHash  the modification hash
+     * @param sequence the sequence number of the last change
+     */
+    public ScheduleChanges(List<PropertySet> events, long modHash, long sequence) {
+        this(events, Collections.emptyList(), true, modHash, sequence);
+    }
+
+    /**
+     * Constructs a {@link ScheduleChanges}.
+     *
+     * @param added    the added or updated events
+     * @param removed  the references of the removed events
+     * @param modHash  the modification hash
+     * @param sequence the sequence number of the last change
+     */
+    public ScheduleChanges(List<PropertySet> added, List<Reference> removed, long modHash, long sequence) {
+        this(added, removed, false, modHash, sequence);
+    }
+
+    /**
+     * Constructs a {@link ScheduleChanges}.
+     *
+     * @param added    the added or updated events
+     * @param removed  the references of the removed events
+     * @param reload   if {@code true}, {@code added} contains all events
+     * @param modHash  the modification hash
+     * @param sequence the sequence number of the last change
+     */
+    private ScheduleChanges(List<PropertySet> added, List<Reference> removed, boolean reload, long modHash,
+                            long sequence) {
+        this.added = added;
+        this.removed = removed;
+        this.reload = reload;
+        this.modHash = modHash;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Returns the events that have been added or updated.
+     * <p>
+     * If {@link #isReload()} is {@code true}, this returns all of the events.
+     *
+     * @return the added or updated events
+     */
+    public List<PropertySet> getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns the references of the events that have been removed.
+     *
+     * @return the removed event references
+     */
+    public List<Reference> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Determines if the changes couldn't be determined, and all events have been returned instead.
+     *
+     * @return {@code true} if all events have been returned
+     */
+    public boolean isReload() {
+        return reload;
+    }
+
+    /**
+     * Determines if there are no changes.
+     *
+     * @return {@code true} if there are no changes
+     */
+    public boolean isEmpty() {
+        return !reload && added.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Returns the modification hash, after the changes have been applied.
+     *
+     * @return the modification hash
+     */
+    public long getModHash() {
+        return modHash;
+    }
+
+    /**
+     * Returns the sequence number of the last change. This should be passed to the next
+     * {@link ScheduleService#getChanges} call.
+     *
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+}
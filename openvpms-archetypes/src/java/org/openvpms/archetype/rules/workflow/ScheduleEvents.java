@@ -1,9 +1,15 @@
 package org.openvpms.archetype.rules.workflow;
 
+import org.openvpms.archetype.rules.util.DateRules;
 import org.openvpms.component.model.object.Reference;
 import org.openvpms.component.system.common.util.PropertySet;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Schedule events.
@@ -12,6 +18,10 @@ import java.util.List;
  */
 public class ScheduleEvents {
 
+    /**
+     * Orders events on {@link ScheduleEvent#ACT_START_TIME}, and then on identifier.
+     */
+    public static final Comparator<PropertySet> START_TIME_ORDER = new EventComparator();
     /**
      * The events.
      */
@@ -22,6 +32,12 @@ public class ScheduleEvents {
      */
     private final long modHash;
 
+    /**
+     * The sequence number of the last change included in the events, or {@code -1} if the events don't support
+     * incremental refresh.
+     */
+    private final long sequence;
+
     /**
      * Constructs a {@link ScheduleEvents}.
      *
@@ -29,8 +45,21 @@ public class ScheduleEvents {
      * @param modHash the modification hash
      */
     public ScheduleEvents(List<PropertySet> events, long modHash) {
+        this(events, modHash, -1);
+    }
+
+    /**
+     * Constructs a {@link ScheduleEvents}.
+     *
+     * @param events   the events
+     * @param modHash  the modification hash
+     * @param sequence the sequence number of the last change included in the events, or {@code -1} if the events
+     *                 don't support incremental refresh
+     */
+    public ScheduleEvents(List<PropertySet> events, long modHash, long sequence) {
         this.events = events;
         this.modHash = modHash;
+        this.sequence = sequence;
     }
 
     /**
@@ -62,6 +91,44 @@ public class ScheduleEvents {
         return modHash;
     }
 
+    /**
+     * Returns the sequence number of the last change included in the events.
+     * <p>
+     * This may be passed to {@link ScheduleService#getChanges} to determine the events that have changed since.
+     *
+     * @return the sequence number, or {@code -1} if the events don't support incremental refresh
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Applies changes to the events.
+     *
+     * @param changes the changes
+     * @return new events reflecting the changes
+     */
+    public ScheduleEvents apply(ScheduleChanges changes) {
+        List<PropertySet> result;
+        if (changes.isReload()) {
+            result = changes.getAdded();
+        } else {
+            Map<Reference, PropertySet> map = new LinkedHashMap<>();
+            for (PropertySet event : events) {
+                map.put(event.getReference(ScheduleEvent.ACT_REFERENCE), event);
+            }
+            for (Reference reference : changes.getRemoved()) {
+                map.remove(reference);
+            }
+            for (PropertySet event : changes.getAdded()) {
+                map.put(event.getReference(ScheduleEvent.ACT_REFERENCE), event);
+            }
+            result = new ArrayList<>(map.values());
+            result.sort(START_TIME_ORDER);
+        }
+        return new ScheduleEvents(result, changes.getModHash(), changes.getSequence());
+    }
+
     /**
      * Returns an event given its reference.
      *
@@ -77,4 +144,33 @@ public class ScheduleEvents {
         return null;
     }
 
+    /**
+     * Compares event PropertySets, ordering them on {@link ScheduleEvent#ACT_START_TIME}.
+     */
+    private static class EventComparator implements Comparator<PropertySet> {
+
+        /**
+         * Compares its two arguments for order.  Returns a negative integer,
+         * zero, or a positive integer as the first argument is less than, equal
+         * to, or greater than the second.<p>
+         * <p>
+         *
+         * @param o1 the first object to be compared.
+         * @param o2 the second object to be compared.
+         * @return a negative integer, zero, or a positive integer as the first argument is less than, equal to, or
+         * greater than the second.
+         */
+        public int compare(PropertySet o1, PropertySet o2) {
+            Date startTime1 = o1.getDate(ScheduleEvent.ACT_START_TIME);
+            Date startTime2 = o2.getDate(ScheduleEvent.ACT_START_TIME);
+            int result = DateRules.compareTo(startTime1, startTime2);
+            if (result == 0) {
+                Reference ref1 = o1.getReference(ScheduleEvent.ACT_REFERENCE);
+                Reference ref2 = o2.getReference(ScheduleEvent.ACT_REFERENCE);
+                result = Long.compare(ref1.getId(), ref2.getId());
+            }
+            return result;
+        }
+    }
+
 }
@@ -61,6 +61,19 @@ public interface ScheduleService {
      */
     long getModHash(Entity schedule, Date day);
 
+    /**
+     * Returns the changes to the events for the specified schedule and day, since the given sequence number.
+     * <p>
+     * This allows clients to apply changes to the events they have, rather than re-fetching them. The initial
+     * sequence number is obtained from {@link ScheduleEvents#getSequence()}.
+     *
+     * @param schedule the schedule
+     * @param day      the day
+     * @param sequence the sequence number of the last change seen by the caller
+     * @return the changes. If these can't be determined, all events are returned
+     */
+    ScheduleChanges getChanges(Entity schedule, Date day, long sequence);
+
     /**
      * Returns all events for the specified schedule, and time range.
      *
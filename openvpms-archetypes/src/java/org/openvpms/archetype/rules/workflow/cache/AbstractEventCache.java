@@ -16,12 +16,12 @@
 
 package org.openvpms.archetype.rules.workflow.cache;
 
-import org.apache.commons.collections4.map.ReferenceMap;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.ehcache.Cache;
 import org.ehcache.spi.loaderwriter.CacheLoaderWriter;
 import org.openvpms.archetype.rules.util.DateRules;
 import org.openvpms.archetype.rules.util.DateUnits;
+import org.openvpms.archetype.rules.workflow.ScheduleChanges;
 import org.openvpms.archetype.rules.workflow.ScheduleEvent;
 import org.openvpms.archetype.rules.workflow.ScheduleEventFactory;
 import org.openvpms.archetype.rules.workflow.ScheduleEvents;
@@ -32,14 +32,8 @@ import org.openvpms.component.model.object.Reference;
 import org.openvpms.component.system.common.util.PropertySet;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
-
-import static org.apache.commons.collections4.map.AbstractReferenceMap.ReferenceStrength.HARD;
-import static org.apache.commons.collections4.map.AbstractReferenceMap.ReferenceStrength.WEAK;
-
 /**
  * The {@link AbstractEventCache} caches events for schedules.
  * <p>
@@ -80,15 +74,25 @@ public abstract class AbstractEventCache {
      * A map of schedule ids to {@link DayCaches} instances. Schedule instances can be reclaimed by the garbage
      * collector when no {@link DayCache} references them.
      */
-    private final Map<Long, DayCaches> cachesMap = Collections.synchronizedMap(new ReferenceMap<>(HARD, WEAK));
+    private final LongWeakValueMap<DayCaches> cachesMap = new LongWeakValueMap<>(STRIPES);
 
     /**
-     * A map of act {@link Reference} to {@link Event}. Event instances can be reclaimed by the garbage
-     * collector when no {@link DayCache} references them.
+     * A map of act ids to {@link Event}. Event instances can be reclaimed by the garbage collector when no
+     * {@link DayCache} references them.
      * <p>
      * Events spanning multiple days may be shared by multiple {@link DayCache} instances.
      */
-    private final ReferenceMap<Reference, Event> events = new ReferenceMap<>(HARD, WEAK);
+    private final LongWeakValueMap<Event> events = new LongWeakValueMap<>(STRIPES);
+
+    /**
+     * The schema used to create compact copies of events.
+     */
+    private final EventRecord.Schema schema = new EventRecord.Schema();
+
+    /**
+     * The number of lock stripes for the schedule and event maps.
+     */
+    private static final int STRIPES = 16;
 
     /**
      * Constructs a {@link AbstractEventCache}.
@@ -210,6 +214,23 @@ public abstract class AbstractEventCache {
         return result;
     }
 
+    /**
+     * Returns the changes to the events for the specified entity and day, since the given sequence number.
+     * <p>
+     * If the day isn't cached, it will be loaded and all of its events returned.
+     *
+     * @param entity   the entity
+     * @param day      the day
+     * @param sequence the sequence number of the last change seen by the caller
+     * @return the changes
+     */
+    public ScheduleChanges getChanges(Entity entity, Date day, long sequence) {
+        Date from = DateRules.getDate(day);
+        Date to = DateRules.getNextDate(from);
+        DayCache cached = cache.get(new Key(entity.getObjectReference(), from, to, entity));
+        return cached.getChanges(sequence);
+    }
+
     /**
      * Returns events for the specified entity and day, if they are in the cache.
      *
@@ -239,7 +260,16 @@ public abstract class AbstractEventCache {
      * @param event the event to remove
      */
     public void removeEvent(Act event) {
-        Event e = removeEvent(event.getObjectReference());
+        removeEvent(event.getObjectReference());
+    }
+
+    /**
+     * Removes an event from the cache, given its reference.
+     *
+     * @param reference the event act reference
+     */
+    public void removeEvent(Reference reference) {
+        Event e = remove(reference);
         if (e != null) {
             DayCaches view = cachesMap.get(e.getEntityId());
             if (view != null) {
@@ -254,9 +284,7 @@ public abstract class AbstractEventCache {
     public void clear() {
         cache.clear();
         cachesMap.clear();
-        synchronized (events) {
-            events.clear();
-        }
+        events.clear();
     }
 
     /**
@@ -315,7 +343,7 @@ public abstract class AbstractEventCache {
      *
      * @param set the {@code PropertySet} representation of the event
      */
-    private void addEvent(PropertySet set) {
+    void addEvent(PropertySet set) {
         Event[] events = update(set);
         Event oldEvent = events[0];
         Event newEvent = events[1];
@@ -338,16 +366,7 @@ public abstract class AbstractEventCache {
      * @return the schedule
      */
     private DayCaches getEntity(Reference reference) {
-        DayCaches result;
-        synchronized (cachesMap) {
-            long id = reference.getId();
-            result = cachesMap.get(id);
-            if (result == null) {
-                result = new DayCaches(id);
-                cachesMap.put(id, result);
-            }
-        }
-        return result;
+        return cachesMap.computeIfAbsent(reference.getId(), DayCaches::new);
     }
 
     /**
@@ -369,24 +388,30 @@ public abstract class AbstractEventCache {
 
     /**
      * Updates the locally cached copy of an {@link Event} if it exists, otherwise creates a new version.
+     * <p>
+     * The event is stored as a compact {@link EventRecord}.
      *
      * @param set the set representation of the event
      * @return a two element array containing the old event, if present, and the new event
      */
     private Event[] update(PropertySet set) {
         Event[] result = new Event[2];
-        Reference act = set.getReference(ScheduleEvent.ACT_REFERENCE);
-        synchronized (events) {
-            Event event = events.get(act);
+        EventRecord record = schema.create(set);
+        long id = record.getReference(ScheduleEvent.ACT_REFERENCE).getId();
+        Event event = events.get(id);
+        if (event == null) {
+            Event created = createEvent(record);
+            event = events.putIfAbsent(id, created);
             if (event == null) {
-                event = createEvent(set);
-                events.put(act, event);
-            } else {
-                result[0] = createEvent(event.getEvent()); // copy the old event
-                event.update(set);
+                result[1] = created;
+                return result;
             }
-            result[1] = event;
         }
+        synchronized (event) {
+            result[0] = createEvent(event.getEvent()); // copy the old event
+            event.update(record);
+        }
+        result[1] = event;
         return result;
     }
 
@@ -396,12 +421,8 @@ public abstract class AbstractEventCache {
      * @param act the event act reference
      * @return the corresponding event, or {@code null} if it doesn't exist
      */
-    private Event removeEvent(Reference act) {
-        Event result;
-        synchronized (events) {
-            result = events.remove(act);
-        }
-        return result;
+    private Event remove(Reference act) {
+        return events.remove(act.getId());
     }
 
     private class DayCacheLoader implements CacheLoaderWriter<Key, DayCache> {
@@ -18,21 +18,22 @@ package org.openvpms.archetype.rules.workflow.cache;
 
 import org.apache.commons.lang.math.RandomUtils;
 import org.ehcache.sizeof.annotations.IgnoreSizeOf;
-import org.openvpms.archetype.rules.util.DateRules;
-import org.openvpms.archetype.rules.workflow.ScheduleEvent;
+import org.openvpms.archetype.rules.workflow.ScheduleChanges;
 import org.openvpms.archetype.rules.workflow.ScheduleEvents;
 import org.openvpms.component.model.object.Reference;
 import org.openvpms.component.system.common.query.ObjectSet;
 import org.openvpms.component.system.common.util.PropertySet;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Caches events related to a date range.
@@ -80,6 +81,24 @@ class DayCache {
      */
     private long modHash;
 
+    /**
+     * The log of changed events, oldest first. This is bounded to {@link #MAX_LOG_SIZE} entries.
+     */
+    private final ArrayDeque<LogEntry> log = new ArrayDeque<>();
+
+    /**
+     * The sequence number of the last change.
+     * <p>
+     * This starts at a random value so that sequence numbers from a previous instance for the same day are unlikely
+     * to be valid.
+     */
+    private long sequence;
+
+    /**
+     * The maximum number of changes to log. Clients that fall further behind than this must reload all events.
+     */
+    static final int MAX_LOG_SIZE = 256;
+
     /**
      * Constructs an {@link DayCache}.
      *
@@ -92,6 +111,7 @@ class DayCache {
         this.from = from;
         this.to = to;
         modHash = RandomUtils.nextLong();
+        sequence = RandomUtils.nextLong() >>> 2;
     }
 
     /**
@@ -177,9 +197,10 @@ class DayCache {
                 // handle is out of date
                 modHash++;
                 iterator.remove();
+                log(handle.getReference());
             }
         }
-        result.sort(EventComparator.INSTANCE);
+        result.sort(ScheduleEvents.START_TIME_ORDER);
         return result;
     }
 
@@ -190,7 +211,53 @@ class DayCache {
      */
     public synchronized ScheduleEvents getScheduleEvents() {
         List<PropertySet> events = getEvents();
-        return new ScheduleEvents(events, modHash);
+        return new ScheduleEvents(events, modHash, sequence);
+    }
+
+    /**
+     * Returns the changes to events since the specified sequence number.
+     * <p>
+     * If the changes are no longer logged, or the sequence number doesn't belong to this cache, all events are
+     * returned.
+     *
+     * @param since the sequence number of the last change seen by the caller
+     * @return the changes
+     */
+    public synchronized ScheduleChanges getChanges(long since) {
+        if (map == null || !isLogged(since)) {
+            List<PropertySet> events = getEvents();
+            return new ScheduleChanges(events, modHash, sequence);
+        }
+        Set<Reference> changed = new LinkedHashSet<>();
+        for (Iterator<LogEntry> iterator = log.descendingIterator(); iterator.hasNext(); ) {
+            LogEntry entry = iterator.next();
+            if (entry.sequence <= since) {
+                break;
+            }
+            changed.add(entry.reference);
+        }
+        List<PropertySet> added = new ArrayList<>();
+        List<Reference> removed = new ArrayList<>();
+        long id = owner.getId();
+        for (Reference reference : changed) {
+            PropertySet event = null;
+            EventHandle handle = map.get(reference.getId());
+            if (handle != null) {
+                event = handle.getEvent(id, from, to);
+                if (event == null) {
+                    // handle is out of date
+                    modHash++;
+                    map.remove(reference.getId());
+                }
+            }
+            if (event != null) {
+                added.add(new ObjectSet(event)); // shallow copy
+            } else {
+                removed.add(reference);
+            }
+        }
+        added.sort(ScheduleEvents.START_TIME_ORDER);
+        return new ScheduleChanges(added, removed, modHash, sequence);
     }
 
     /**
@@ -215,6 +282,7 @@ class DayCache {
             if (handle != null) {
                 map.put(event.getId(), handle);
             }
+            log(event.getReference());
         } else {
             // queue the addition
             changes.add(new Change(event, true));
@@ -230,6 +298,7 @@ class DayCache {
     public synchronized void remove(Event event) {
         if (map != null) {
             map.remove(event.getId());
+            log(event.getReference());
         } else {
             // queue the removal
             changes.add(new Change(event, false));
@@ -246,6 +315,46 @@ class DayCache {
         this.owner = owner;
     }
 
+    /**
+     * Determines if all changes after a sequence number are in the log.
+     *
+     * @param since the sequence number
+     * @return {@code true} if the changes are logged
+     */
+    private boolean isLogged(long since) {
+        if (since == sequence) {
+            return true;
+        }
+        return since < sequence && !log.isEmpty() && since >= log.getFirst().sequence - 1;
+    }
+
+    /**
+     * Logs a change to an event.
+     *
+     * @param reference the event reference
+     */
+    private void log(Reference reference) {
+        log.addLast(new LogEntry(++sequence, reference));
+        if (log.size() > MAX_LOG_SIZE) {
+            log.removeFirst();
+        }
+    }
+
+    /**
+     * Records the sequence number of a change to an event.
+     */
+    private static class LogEntry {
+
+        private final long sequence;
+
+        private final Reference reference;
+
+        LogEntry(long sequence, Reference reference) {
+            this.sequence = sequence;
+            this.reference = reference;
+        }
+    }
+
     /**
      * Tracks a change to the schedule.
      */
@@ -261,38 +370,4 @@ class DayCache {
         }
     }
 
-    /**
-     * Compares event PropertySets, ordering them on {@link ScheduleEvent#ACT_START_TIME}.
-     */
-    private static class EventComparator implements Comparator<PropertySet> {
-
-        /**
-         * The singleton instance.
-         */
-        public static final EventComparator INSTANCE = new EventComparator();
-
-        /**
-         * Compares its two arguments for order.  Returns a negative integer,
-         * zero, or a positive integer as the first argument is less than, equal
-         * to, or greater than the second.<p>
-         * <p>
-         *
-         * @param o1 the first object to be compared.
-         * @param o2 the second object to be compared.
-         * @return a negative integer, zero, or a positive integer as the first argument is less than, equal to, or
-         * greater than the second.
-         */
-        public int compare(PropertySet o1, PropertySet o2) {
-            Date startTime1 = o1.getDate(ScheduleEvent.ACT_START_TIME);
-            Date startTime2 = o2.getDate(ScheduleEvent.ACT_START_TIME);
-            int result = DateRules.compareTo(startTime1, startTime2);
-            if (result == 0) {
-                Reference ref1 = o1.getReference(ScheduleEvent.ACT_REFERENCE);
-                Reference ref2 = o2.getReference(ScheduleEvent.ACT_REFERENCE);
-                result = Long.compare(ref1.getId(), ref2.getId());
-            }
-            return result;
-        }
-    }
-
 }
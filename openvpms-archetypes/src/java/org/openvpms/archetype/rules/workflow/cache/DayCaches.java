@@ -16,13 +16,6 @@
 
 package org.openvpms.archetype.rules.workflow.cache;
 
-import org.apache.commons.collections4.map.ReferenceMap;
-
-import java.util.Date;
-
-import static org.apache.commons.collections4.map.AbstractReferenceMap.ReferenceStrength.HARD;
-import static org.apache.commons.collections4.map.AbstractReferenceMap.ReferenceStrength.WEAK;
-
 /**
  * Manages multiple {@link DayCache} instances for an entity (e.g. a schedule).
  * <p>
@@ -34,9 +27,9 @@ import static org.apache.commons.collections4.map.AbstractReferenceMap.Reference
 class DayCaches {
 
     /**
-     * A map of Date to {@link DayCache} instances.
+     * The {@link DayCache} instances, keyed on their from date, in milliseconds.
      */
-    private final ReferenceMap<Date, DayCache> days = new ReferenceMap<>(HARD, WEAK);
+    private final LongWeakValueMap<DayCache> days = new LongWeakValueMap<>(1);
 
     /**
      * The entity identifier.
@@ -67,10 +60,8 @@ class DayCaches {
      * @param day the day to add
      */
     public void add(DayCache day) {
-        synchronized (days) {
-            day.setOwner(this);
-            days.put(day.getFrom(), day);
-        }
+        day.setOwner(this);
+        days.put(day.getFrom().getTime(), day);
     }
 
     /**
@@ -79,10 +70,8 @@ class DayCaches {
      * @param event the event to add
      */
     public void addEvent(Event event) {
-        synchronized (days) {
-            for (DayCache cache : days.values()) {
-                cache.addIfIntersects(event);
-            }
+        for (DayCache cache : days.values()) {
+            cache.addIfIntersects(event);
         }
     }
 
@@ -92,11 +81,7 @@ class DayCaches {
      * @param event the event to remove
      */
     public void removeEvent(Event event) {
-        DayCache[] caches;
-        synchronized (days) {
-            caches = days.values().toArray(new DayCache[0]);
-        }
-        for (DayCache cache : caches) {
+        for (DayCache cache : days.values()) {
             cache.removeIfIntersects(event);
         }
     }
@@ -18,6 +18,7 @@ package org.openvpms.archetype.rules.workflow.cache;
 
 import org.openvpms.archetype.rules.util.DateRules;
 import org.openvpms.archetype.rules.workflow.ScheduleEvent;
+import org.openvpms.component.model.object.Reference;
 import org.openvpms.component.system.common.util.PropertySet;
 
 import java.util.Date;
@@ -34,6 +35,10 @@ public abstract class Event {
      */
     private final long id;
 
+    /**
+     * The event reference.
+     */
+    private final Reference reference;
     /**
      * The event.
      */
@@ -44,6 +49,16 @@ public abstract class Event {
      */
     private long version;
 
+    /**
+     * The event start time.
+     */
+    private Date startTime;
+
+    /**
+     * The event end time.
+     */
+    private Date endTime;
+
     /**
      * The event entity identity.
      */
@@ -69,7 +84,8 @@ public abstract class Event {
      * @param event the event properties
      */
     public Event(PropertySet event) {
-        id = event.getReference(ScheduleEvent.ACT_REFERENCE).getId();
+        reference = event.getReference(ScheduleEvent.ACT_REFERENCE);
+        id = reference.getId();
         setEvent(event, event.getLong(ScheduleEvent.ACT_VERSION));
     }
 
@@ -117,6 +133,15 @@ public abstract class Event {
         return id;
     }
 
+    /**
+     * Returns the event reference.
+     *
+     * @return the event reference
+     */
+    public Reference getReference() {
+        return reference;
+    }
+
     /**
      * Returns the event.
      *
@@ -134,8 +159,6 @@ public abstract class Event {
      * @return {@code true} if the event occurs in the date range
      */
     public synchronized boolean intersects(Date from, Date to) {
-        Date startTime = event.getDate(ScheduleEvent.ACT_START_TIME);
-        Date endTime = event.getDate(ScheduleEvent.ACT_END_TIME);
         return DateRules.intersects(from, to, startTime, endTime);
     }
 
@@ -234,6 +257,8 @@ public abstract class Event {
     private void setEvent(PropertySet event, long version) {
         this.event = event;
         this.version = version;
+        this.startTime = event.getDate(ScheduleEvent.ACT_START_TIME);
+        this.endTime = event.getDate(ScheduleEvent.ACT_END_TIME);
         this.entityId = getEntityId(event);
 
         ++modCount;
@@ -16,6 +16,7 @@
 
 package org.openvpms.archetype.rules.workflow.cache;
 
+import org.openvpms.component.model.object.Reference;
 import org.openvpms.component.system.common.util.PropertySet;
 
 import java.util.Date;
@@ -73,6 +74,15 @@ class EventHandle {
      *
      * @return the modification count.
      */
+    /**
+     * Returns the event reference.
+     *
+     * @return the event reference
+     */
+    public Reference getReference() {
+        return event.getReference();
+    }
+
     int getModCount() {
         return modCount;
     }
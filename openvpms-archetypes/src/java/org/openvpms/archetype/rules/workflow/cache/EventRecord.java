@@ -0,0 +1,201 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.archetype.rules.workflow.cache;
+
+import org.openvpms.component.system.common.util.AbstractPropertySet;
+import org.openvpms.component.system.common.util.PropertySet;
+import org.openvpms.component.system.common.util.PropertySetException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.openvpms.component.system.common.util.PropertySetException.ErrorCode.PropertyNotFound;
+
+/**
+ * A compact, immutable representation of a cached event.
+ * <p>
+ * Property names are held once per {@link Schema}, and each record holds its values in an array indexed by the
+ * schema. This avoids the per-event hash map that a general purpose {@link PropertySet} requires.
+ *
+ * @author Tim Anderson
+ */
+class EventRecord extends AbstractPropertySet {
+
+    /**
+     * The schema.
+     */
+    private final Schema schema;
+
+    /**
+     * The values, indexed by the schema. Properties that aren't present are {@link #ABSENT}.
+     */
+    private final Object[] values;
+
+    /**
+     * Placeholder for properties that aren't present, to distinguish them from {@code null} values.
+     */
+    private static final Object ABSENT = new Object();
+
+    /**
+     * Constructs an {@link EventRecord}.
+     *
+     * @param schema the schema
+     * @param values the values
+     */
+    private EventRecord(Schema schema, Object[] values) {
+        this.schema = schema;
+        this.values = values;
+    }
+
+    /**
+     * Returns the property names.
+     *
+     * @return the property names
+     */
+    @Override
+    public Set<String> getNames() {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] != ABSENT) {
+                result.add(schema.getName(i));
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Determines if a property exists.
+     *
+     * @param name the property name
+     * @return {@code true} if the property exists
+     */
+    @Override
+    public boolean exists(String name) {
+        int index = schema.indexOf(name);
+        return index >= 0 && index < values.length && values[index] != ABSENT;
+    }
+
+    /**
+     * Returns the value of a property.
+     *
+     * @param name the property name
+     * @return the value of the property
+     * @throws PropertySetException if the property doesn't exist
+     */
+    @Override
+    public Object get(String name) {
+        int index = schema.indexOf(name);
+        if (index >= 0 && index < values.length && values[index] != ABSENT) {
+            return values[index];
+        }
+        throw new PropertySetException(PropertyNotFound, name);
+    }
+
+    /**
+     * Records are immutable.
+     *
+     * @param name  the property name
+     * @param value the property value
+     * @throws UnsupportedOperationException if invoked
+     */
+    @Override
+    public void set(String name, Object value) {
+        throw new UnsupportedOperationException("EventRecord is immutable");
+    }
+
+    /**
+     * Maps property names to record indexes.
+     * <p>
+     * A schema grows as new property names are encountered; existing indexes never change.
+     */
+    static class Schema {
+
+        /**
+         * The property name indexes.
+         */
+        private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+
+        /**
+         * The property names, in index order. This is replaced when a name is added.
+         */
+        private volatile String[] names = new String[0];
+
+        /**
+         * Creates a record from a property set.
+         *
+         * @param set the property set
+         * @return a new record
+         */
+        public EventRecord create(PropertySet set) {
+            if (set instanceof EventRecord && ((EventRecord) set).schema == this) {
+                return (EventRecord) set;
+            }
+            Set<String> properties = set.getNames();
+            for (String name : properties) {
+                if (indexOf(name) < 0) {
+                    add(name);
+                }
+            }
+            Object[] values = new Object[names.length];
+            Arrays.fill(values, ABSENT);
+            for (String name : properties) {
+                values[indexOf(name)] = set.get(name);
+            }
+            return new EventRecord(this, values);
+        }
+
+        /**
+         * Returns the index of a property.
+         *
+         * @param name the property name
+         * @return the index, or {@code -1} if the property isn't in the schema
+         */
+        int indexOf(String name) {
+            Integer index = indexes.get(name);
+            return index != null ? index : -1;
+        }
+
+        /**
+         * Returns the name of a property.
+         *
+         * @param index the property index
+         * @return the property name
+         */
+        String getName(int index) {
+            return names[index];
+        }
+
+        /**
+         * Adds a property name, if it isn't already present.
+         *
+         * @param name the property name
+         */
+        private synchronized void add(String name) {
+            if (!indexes.containsKey(name)) {
+                String[] list = Arrays.copyOf(names, names.length + 1);
+                list[names.length] = name;
+                names = list;
+                indexes.put(name, names.length - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.archetype.rules.workflow.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * A thread-safe map of primitive {@code long} keys to weakly referenced values.
+ * <p>
+ * Entries are held in open-addressed tables, split into stripes each with its own lock, to avoid boxing keys and
+ * allocating map entries, and to reduce contention. Entries whose values have been garbage collected are purged
+ * when a stripe is resized.
+ *
+ * @author Tim Anderson
+ */
+class LongWeakValueMap<V> {
+
+    /**
+     * The stripes.
+     */
+    private final Stripe<V>[] stripes;
+
+    /**
+     * The mask used to select a stripe.
+     */
+    private final int mask;
+
+    /**
+     * Constructs a {@link LongWeakValueMap}.
+     *
+     * @param stripes the number of stripes. Rounded up to a power of 2
+     */
+    @SuppressWarnings("unchecked")
+    LongWeakValueMap(int stripes) {
+        int size = powerOf2(Math.max(1, stripes));
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; ++i) {
+            this.stripes[i] = new Stripe<>();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the value for a key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if there is none, or it has been garbage collected
+     */
+    public V get(long key) {
+        return stripe(key).get(key);
+    }
+
+    /**
+     * Returns the value for a key, creating it if it doesn't exist.
+     *
+     * @param key     the key
+     * @param factory the factory to create the value. This is invoked while the key's stripe is locked
+     * @return the value
+     */
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        return stripe(key).computeIfAbsent(key, factory);
+    }
+
+    /**
+     * Adds or replaces the value for a key.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(long key, V value) {
+        stripe(key).set(key, value);
+    }
+
+    /**
+     * Adds a value if there is no value for the key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the existing value, or {@code null} if {@code value} was added
+     */
+    public V putIfAbsent(long key, V value) {
+        return stripe(key).putIfAbsent(key, value);
+    }
+
+    /**
+     * Removes the value for a key.
+     *
+     * @param key the key
+     * @return the removed value, or {@code null} if there was none, or it had been garbage collected
+     */
+    public V remove(long key) {
+        return stripe(key).remove(key);
+    }
+
+    /**
+     * Returns a snapshot of the values.
+     *
+     * @return the values
+     */
+    public List<V> values() {
+        List<V> result = new ArrayList<>();
+        for (Stripe<V> stripe : stripes) {
+            stripe.values(result);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        for (Stripe<V> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * Returns the stripe for a key.
+     *
+     * @param key the key
+     * @return the stripe
+     */
+    private Stripe<V> stripe(long key) {
+        return stripes[(int) (key ^ (key >>> 32)) & mask];
+    }
+
+    /**
+     * Returns the smallest power of 2 greater than or equal to a value.
+     *
+     * @param value the value
+     * @return the power of 2
+     */
+    private static int powerOf2(int value) {
+        int result = Integer.highestOneBit(value);
+        return (result == value) ? result : result << 1;
+    }
+
+    /**
+     * A linear probing table of keys to weak values.
+     */
+    private static class Stripe<V> {
+
+        /**
+         * The minimum table capacity.
+         */
+        private static final int MIN_CAPACITY = 16;
+
+        /**
+         * The keys.
+         */
+        private long[] keys = new long[MIN_CAPACITY];
+
+        /**
+         * The values. A {@code null} element indicates an empty slot.
+         */
+        private WeakReference<V>[] values = newValues(MIN_CAPACITY);
+
+        /**
+         * The number of occupied slots, including those whose values have been garbage collected.
+         */
+        private int size;
+
+        synchronized V get(long key) {
+            int index = indexOf(key);
+            return (index >= 0) ? values[index].get() : null;
+        }
+
+        synchronized V computeIfAbsent(long key, LongFunction<V> factory) {
+            V result = get(key);
+            if (result == null) {
+                result = factory.apply(key);
+                put(key, result);
+            }
+            return result;
+        }
+
+        synchronized V putIfAbsent(long key, V value) {
+            V result = get(key);
+            if (result == null) {
+                put(key, value);
+            }
+            return result;
+        }
+
+        synchronized void set(long key, V value) {
+            put(key, value);
+        }
+
+        synchronized V remove(long key) {
+            V result = null;
+            int index = indexOf(key);
+            if (index >= 0) {
+                result = values[index].get();
+                delete(index);
+            }
+            return result;
+        }
+
+        synchronized void values(List<V> result) {
+            for (WeakReference<V> reference : values) {
+                if (reference != null) {
+                    V value = reference.get();
+                    if (value != null) {
+                        result.add(value);
+                    }
+                }
+            }
+        }
+
+        synchronized void clear() {
+            keys = new long[MIN_CAPACITY];
+            values = newValues(MIN_CAPACITY);
+            size = 0;
+        }
+
+        /**
+         * Adds or replaces the value for a key.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        private void put(long key, V value) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                values[index] = new WeakReference<>(value);
+            } else {
+                if ((size + 1) * 2 > values.length) {
+                    resize();
+                }
+                int slot = hash(key, values.length - 1);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & (values.length - 1);
+                }
+                keys[slot] = key;
+                values[slot] = new WeakReference<>(value);
+                size++;
+            }
+        }
+
+        /**
+         * Returns the slot of a key.
+         *
+         * @param key the key
+         * @return the slot, or {@code -1} if the key isn't present
+         */
+        private int indexOf(long key) {
+            int mask = values.length - 1;
+            int slot = hash(key, mask);
+            while (values[slot] != null) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Empties a slot, shifting back any subsequent entries in the same probe sequence.
+         *
+         * @param slot the slot to empty
+         */
+        private void delete(int slot) {
+            int mask = values.length - 1;
+            int gap = slot;
+            values[gap] = null;
+            int next = gap;
+            while (true) {
+                next = (next + 1) & mask;
+                if (values[next] == null) {
+                    break;
+                }
+                int home = hash(keys[next], mask);
+                // move the entry to the gap if its home slot doesn't lie cyclically in (gap, next]
+                boolean move = (gap <= next) ? (home <= gap || home > next) : (home <= gap && home > next);
+                if (move) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    values[next] = null;
+                    gap = next;
+                }
+            }
+            size--;
+        }
+
+        /**
+         * Rebuilds the table, discarding entries whose values have been garbage collected, and growing it if
+         * required.
+         */
+        private void resize() {
+            long[] oldKeys = keys;
+            WeakReference<V>[] oldValues = values;
+            int live = 0;
+            for (WeakReference<V> reference : oldValues) {
+                if (reference != null && reference.get() != null) {
+                    live++;
+                }
+            }
+            int capacity = Math.max(MIN_CAPACITY, powerOf2((live + 1) * 4));
+            keys = new long[capacity];
+            values = newValues(capacity);
+            size = 0;
+            int mask = capacity - 1;
+            for (int i = 0; i < oldValues.length; ++i) {
+                WeakReference<V> reference = oldValues[i];
+                if (reference != null && reference.get() != null) {
+                    int slot = hash(oldKeys[i], mask);
+                    while (values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = reference;
+                    size++;
+                }
+            }
+        }
+
+        /**
+         * Returns the home slot for a key.
+         *
+         * @param key  the key
+         * @param mask the table mask
+         * @return the slot
+         */
+        private static int hash(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> WeakReference<V>[] newValues(int capacity) {
+            return new WeakReference[capacity];
+        }
+    }
+}
@@ -242,6 +242,17 @@ public class RosterService extends AbstractCalendarService {
         userCache.removeEvent(event);
     }
 
+    /**
+     * Removes an event from the cache, given its reference.
+     *
+     * @param event the reference of the event to remove
+     */
+    @Override
+    protected void removeEvent(Reference event) {
+        super.removeEvent(event);
+        userCache.removeEvent(event);
+    }
+
     private JoinConstraint createJoin(String node) {
         JoinConstraint userpartic = join(node);
         userpartic.add(new ParticipationConstraint(ActShortName, ScheduleArchetypes.ROSTER_EVENT));
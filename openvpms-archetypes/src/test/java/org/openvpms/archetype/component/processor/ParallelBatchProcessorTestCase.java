@@ -0,0 +1,286 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.archetype.component.processor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link ParallelBatchProcessor}.
+ *
+ * @author Tim Anderson
+ */
+public class ParallelBatchProcessorTestCase {
+
+    /**
+     * Verifies that each item is processed once, across multiple threads.
+     */
+    @Test
+    public void testProcess() {
+        List<Integer> items = createItems(1000);
+        Set<Integer> processed = Collections.synchronizedSet(new HashSet<>());
+        Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        CompletionListener listener = new CompletionListener();
+        ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>(items.iterator(), item -> {
+            assertTrue(processed.add(item));
+            threads.add(Thread.currentThread().getName());
+        }, null, 4, 10);
+        processor.setListener(listener);
+        processor.process();
+
+        assertTrue(listener.completed);
+        assertNull(listener.error);
+        assertTrue(processor.isFinished());
+        assertEquals(1000, processor.getProcessed());
+        assertEquals(0, processor.getFailed());
+        assertEquals(1000, processed.size());
+        assertEquals(Integer.valueOf(999), processor.getCheckpoint());
+        assertEquals(0, processor.getEstimatedRemaining(1000));
+        assertTrue(threads.size() > 1);
+    }
+
+    /**
+     * Verifies that failures are collected, and don't prevent other items from being processed.
+     */
+    @Test
+    public void testFailures() {
+        List<Integer> items = createItems(100);
+        ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>(items.iterator(), item -> {
+            if (item % 10 == 0) {
+                throw new IllegalStateException("Failed " + item);
+            }
+        }, null, 3, 7);
+        processor.process();
+
+        assertEquals(90, processor.getProcessed());
+        assertEquals(10, processor.getFailed());
+        Map<Integer, Throwable> failures = processor.getFailures();
+        assertEquals(10, failures.size());
+        for (int i = 0; i < 100; i += 10) {
+            assertEquals("Failed " + i, failures.get(i).getMessage());
+        }
+
+        // the first item failed, so the checkpoint can't advance
+        assertNull(processor.getCheckpoint());
+    }
+
+    /**
+     * Verifies that the checkpoint stops before an item that fails mid-partition, and that resuming from the
+     * checkpoint processes the failed item.
+     */
+    @Test
+    public void testResumeAfterFailure() {
+        List<Integer> items = createItems(40);
+        Set<Integer> processed = Collections.synchronizedSet(new HashSet<>());
+        ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>(items.iterator(), item -> {
+            if (item == 15) {
+                throw new IllegalStateException("Failed " + item);
+            }
+            processed.add(item);
+        }, null, 3, 10);
+        processor.process();
+
+        assertEquals(39, processor.getProcessed());
+        assertEquals(1, processor.getFailed());
+        assertFalse(processed.contains(15));
+        assertEquals(Integer.valueOf(14), processor.getCheckpoint());
+
+        // resume after the checkpoint
+        int checkpoint = processor.getCheckpoint();
+        List<Integer> remaining = new ArrayList<>();
+        for (Integer item : items) {
+            if (item > checkpoint) {
+                remaining.add(item);
+            }
+        }
+        ParallelBatchProcessor<Integer> resumed = new ParallelBatchProcessor<>(remaining.iterator(), processed::add,
+                                                                                null, 3, 10);
+        resumed.process();
+
+        assertEquals(25, resumed.getProcessed());
+        assertEquals(0, resumed.getFailed());
+        assertEquals(Integer.valueOf(39), resumed.getCheckpoint());
+        assertEquals(40, processed.size());
+    }
+
+    /**
+     * Verifies that the checkpoint only advances past a partition when it and all prior partitions are complete.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCheckpoint() throws Exception {
+        List<Integer> items = createItems(40);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>(items.iterator(), item -> {
+            if (item == 0) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            }
+        }, null, 2, 10);
+        Thread thread = new Thread(processor::process);
+        thread.start();
+        try {
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+            // wait for the other partitions to complete
+            long timeout = System.currentTimeMillis() + 10000;
+            while (processor.getProcessed() < 30 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            assertEquals(30, processor.getProcessed());
+            assertNull(processor.getCheckpoint());
+            Thread.sleep(100);
+            assertTrue(processor.getEstimatedRemaining(40) > 0);
+        } finally {
+            release.countDown();
+        }
+        thread.join(10000);
+        assertTrue(processor.isFinished());
+        assertEquals(40, processor.getProcessed());
+        assertEquals(Integer.valueOf(39), processor.getCheckpoint());
+    }
+
+    /**
+     * Verifies that processing stops when cancelled.
+     */
+    @Test
+    public void testCancel() {
+        List<Integer> items = createItems(1000);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CompletionListener listener = new CompletionListener();
+        ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<Integer>(items.iterator(), null, null,
+                                                                                          2, 10) {
+            @Override
+            protected void process(Integer item) {
+                if (item == 25) {
+                    cancel();
+                    cancelled.set(true);
+                }
+            }
+        };
+        processor.setListener(listener);
+        processor.process();
+
+        assertTrue(cancelled.get());
+        assertTrue(processor.isCancelled());
+        assertTrue(listener.completed);
+        assertTrue(processor.getProcessed() < 1000);
+        Integer checkpoint = processor.getCheckpoint();
+        assertTrue(checkpoint == null || checkpoint < 25);
+    }
+
+    /**
+     * Verifies that an error reading the items terminates processing, and is passed to the listener.
+     */
+    @Test
+    public void testIteratorError() {
+        List<Integer> items = createItems(100);
+        CompletionListener listener = new CompletionListener();
+        ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>(new IteratorWrapper(items, 50),
+                                                                                  item -> {
+                                                                                  }, null, 2, 10);
+        processor.setListener(listener);
+        processor.process();
+
+        assertFalse(listener.completed);
+        assertEquals("Iterator failed", listener.error.getMessage());
+        assertTrue(processor.getProcessed() <= 50);
+    }
+
+    /**
+     * Creates a list of items.
+     *
+     * @param count the no. of items
+     * @return the items
+     */
+    private List<Integer> createItems(int count) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            result.add(i);
+        }
+        return result;
+    }
+
+    private static class CompletionListener implements BatchProcessorListener {
+
+        private volatile boolean completed;
+
+        private volatile Throwable error;
+
+        @Override
+        public void completed() {
+            completed = true;
+        }
+
+        @Override
+        public void error(Throwable exception) {
+            error = exception;
+        }
+    }
+
+    /**
+     * An iterator that fails after a number of items.
+     */
+    private static class IteratorWrapper implements Iterator<Integer> {
+
+        private final Iterator<Integer> iterator;
+
+        private final int limit;
+
+        private int count;
+
+        IteratorWrapper(List<Integer> items, int limit) {
+            this.iterator = items.iterator();
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Integer next() {
+            if (count++ == limit) {
+                throw new IllegalStateException("Iterator failed");
+            }
+            return iterator.next();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.archetype.component.processor;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link PipelineStage}.
+ *
+ * @author Tim Anderson
+ */
+public class PipelineStageTestCase {
+
+    /**
+     * Verifies that events are processed, and that failures are collected.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testProcess() throws Exception {
+        Set<Integer> processed = Collections.synchronizedSet(new HashSet<>());
+        PipelineStage<Integer> stage = new PipelineStage<>("test", event -> {
+            if (event % 10 == 0) {
+                throw new IllegalStateException("Failed " + event);
+            }
+            processed.add(event);
+        }, 3, 5);
+        for (int i = 0; i < 100; ++i) {
+            stage.process(i);
+        }
+        stage.close();
+
+        assertEquals(0, stage.getPending());
+        assertEquals(90, stage.getProcessed());
+        assertEquals(90, processed.size());
+        Map<Integer, Throwable> failures = stage.getFailures();
+        assertEquals(10, failures.size());
+        assertEquals("Failed 50", failures.get(50).getMessage());
+    }
+
+    /**
+     * Verifies that {@link PipelineStage#process} blocks when the stage is at capacity.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testBackPressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PipelineStage<Integer> stage = new PipelineStage<>("test", event -> {
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }, 1, 2);
+        stage.process(1);
+        stage.process(2);
+        assertEquals(2, stage.getPending());
+
+        AtomicBoolean queued = new AtomicBoolean();
+        Thread thread = new Thread(() -> {
+            stage.process(3);
+            queued.set(true);
+        });
+        thread.start();
+        try {
+            Thread.sleep(100);
+            assertFalse(queued.get());
+        } finally {
+            release.countDown();
+        }
+        thread.join(10000);
+        assertTrue(queued.get());
+        stage.close();
+        assertEquals(3, stage.getProcessed());
+        assertTrue(stage.getFailures().isEmpty());
+    }
+
+}
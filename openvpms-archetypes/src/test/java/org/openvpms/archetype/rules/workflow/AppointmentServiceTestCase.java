@@ -31,15 +31,18 @@ import org.openvpms.component.model.user.User;
 import org.openvpms.component.system.common.util.PropertySet;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.openvpms.archetype.test.TestHelper.createPatient;
 import static org.openvpms.archetype.test.TestHelper.getDate;
 import static org.openvpms.archetype.test.TestHelper.getDatetime;
@@ -199,6 +202,62 @@ public class AppointmentServiceTestCase extends AbstractScheduleServiceTest {
         assertNotEquals(hash2, hash5);
     }
 
+    /**
+     * Tests the {@link AppointmentService#getChanges(Entity, Date, long)} method.
+     */
+    @Test
+    public void testGetChanges() {
+        Date date1 = getDate("2008-01-01");
+        Date date2 = getDate("2008-03-01");
+        ScheduleService service = initScheduleService(30);
+
+        ScheduleEvents events1 = service.getScheduleEvents(schedule, date1);
+        assertEquals(0, events1.size());
+        long sequence1 = events1.getSequence();
+        assertNotEquals(-1, sequence1);
+        ScheduleChanges changes1 = service.getChanges(schedule, date1, sequence1);
+        assertTrue(changes1.isEmpty());
+        assertEquals(sequence1, changes1.getSequence());
+
+        // add an appointment
+        Act appointment1 = createAppointment(date1);
+        ScheduleChanges changes2 = service.getChanges(schedule, date1, sequence1);
+        assertFalse(changes2.isReload());
+        assertEquals(1, changes2.getAdded().size());
+        assertEquals(0, changes2.getRemoved().size());
+        checkAppointment(appointment1, changes2.getAdded().get(0));
+        ScheduleEvents events2 = events1.apply(changes2);
+        assertEquals(1, events2.size());
+        assertEquals(changes2.getSequence(), events2.getSequence());
+        assertEquals(service.getModHash(schedule, date1), events2.getModHash());
+
+        // add another, and move the first to another date
+        Date start2 = DateRules.getDate(date1, 30, DateUnits.MINUTES);
+        Act appointment2 = createAppointment(start2, DateRules.getDate(start2, 15, DateUnits.MINUTES), schedule, true);
+        appointment1.setActivityStartTime(date2);
+        appointment1.setActivityEndTime(DateRules.getDate(date2, 15, DateUnits.MINUTES));
+        save(appointment1);
+        ScheduleChanges changes3 = service.getChanges(schedule, date1, events2.getSequence());
+        assertFalse(changes3.isReload());
+        assertEquals(1, changes3.getAdded().size());
+        checkAppointment(appointment2, changes3.getAdded().get(0));
+        assertEquals(Collections.singletonList(appointment1.getObjectReference()), changes3.getRemoved());
+        ScheduleEvents events3 = events2.apply(changes3);
+        assertEquals(1, events3.size());
+        checkAppointment(appointment2, events3.getEvents().get(0));
+
+        // remove the second
+        remove(appointment2);
+        ScheduleEvents events4 = events3.apply(service.getChanges(schedule, date1, events3.getSequence()));
+        assertEquals(0, events4.size());
+
+        // an unknown sequence number should return all events
+        ScheduleChanges changes5 = service.getChanges(schedule, date2, sequence1);
+        assertTrue(changes5.isReload());
+        assertEquals(1, changes5.getAdded().size());
+        checkAppointment(appointment1, changes5.getAdded().get(0));
+    }
+
     /**
      * Verifies that a new to lookup.visitReason appears in new appointments.
      */
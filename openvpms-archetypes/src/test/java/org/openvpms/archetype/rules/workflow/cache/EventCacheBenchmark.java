@@ -0,0 +1,329 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.archetype.rules.workflow.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openvpms.archetype.rules.util.DateRules;
+import org.openvpms.archetype.rules.util.DateUnits;
+import org.openvpms.archetype.rules.workflow.ScheduleEvent;
+import org.openvpms.archetype.rules.workflow.ScheduleEventFactory;
+import org.openvpms.archetype.rules.workflow.ScheduleEventQuery;
+import org.openvpms.component.business.domain.archetype.ArchetypeId;
+import org.openvpms.component.business.domain.im.common.Entity;
+import org.openvpms.component.business.domain.im.common.IMObjectReference;
+import org.openvpms.component.business.service.cache.BasicEhcacheManager;
+import org.openvpms.component.model.object.Reference;
+import org.openvpms.component.system.common.query.ObjectSet;
+import org.openvpms.component.system.common.util.PropertySet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays a day of appointment churn against an {@link AbstractEventCache}, while other threads read the schedules.
+ * <p/>
+ * The churn consists of appointments being booked, updated (e.g. arrival and status changes), moved between
+ * schedules, and cancelled, across {@link #SCHEDULES} schedules. No database is required; the event factory returns
+ * empty days.
+ * <p/>
+ * This is not a test case. Run it via {@link #main(String[])} with the test classpath.
+ *
+ * @author Tim Anderson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class EventCacheBenchmark {
+
+    /**
+     * The number of schedules.
+     */
+    private static final int SCHEDULES = 30;
+
+    /**
+     * The number of appointments booked per schedule.
+     */
+    private static final int APPOINTMENTS = 24;
+
+    /**
+     * The number of updates to each appointment.
+     */
+    private static final int UPDATES = 5;
+
+    /**
+     * The cache.
+     */
+    private AbstractEventCache cache;
+
+    /**
+     * The schedules.
+     */
+    private Entity[] schedules;
+
+    /**
+     * The day.
+     */
+    private Date day;
+
+    /**
+     * The churn, in the order it occurs.
+     */
+    private List<Change> changes;
+
+    /**
+     * The index of the next change to replay.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * The index of the next schedule to read.
+     */
+    private final AtomicInteger nextSchedule = new AtomicInteger();
+
+    /**
+     * Sets up the benchmark.
+     */
+    @Setup
+    public void setUp() {
+        ScheduleEventFactory factory = new ScheduleEventFactory(Collections.emptyMap(), null) {
+            @Override
+            public List<PropertySet> getEvents(Reference reference, Date startTime, Date endTime) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public List<PropertySet> getEvents(org.openvpms.component.model.entity.Entity entity, Date startTime,
+                                               Date endTime) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            protected ScheduleEventQuery createQuery(org.openvpms.component.model.entity.Entity entity,
+                                                     Date startTime, Date endTime) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        cache = new BenchmarkCache(new BasicEhcacheManager(1000), factory);
+        day = DateRules.getToday();
+        schedules = new Entity[SCHEDULES];
+        for (int i = 0; i < SCHEDULES; ++i) {
+            Entity schedule = new Entity(new ArchetypeId("party.organisationSchedule"), "Schedule " + i, null);
+            schedule.setId(i + 1);
+            schedules[i] = schedule;
+            cache.getEvents(schedule, day); // load the day
+        }
+        changes = createChanges();
+    }
+
+    /**
+     * Replays the next change.
+     */
+    @Benchmark
+    public void churn() {
+        Change change = changes.get(Math.floorMod(next.getAndIncrement(), changes.size()));
+        if (change.event != null) {
+            cache.addEvent(change.event);
+        } else {
+            cache.removeEvent(change.reference);
+        }
+    }
+
+    /**
+     * Reads the events for the next schedule.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void read(Blackhole blackhole) {
+        Entity schedule = schedules[Math.floorMod(nextSchedule.getAndIncrement(), SCHEDULES)];
+        blackhole.consume(cache.getEvents(schedule, day));
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the command line arguments
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EventCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Generates a day of changes.
+     * <p/>
+     * Each appointment is booked, updated several times, and then either moved to another schedule, cancelled, or
+     * left as is. Changes to different appointments are interleaved.
+     *
+     * @return the changes
+     */
+    private List<Change> createChanges() {
+        Random random = new Random(42);
+        List<List<Change>> perAppointment = new ArrayList<>();
+        long id = 1000;
+        for (Entity schedule : schedules) {
+            for (int i = 0; i < APPOINTMENTS; ++i) {
+                List<Change> list = new ArrayList<>();
+                Date start = DateRules.getDate(day, 8 * 60 + i * 20, DateUnits.MINUTES);
+                Date end = DateRules.getDate(start, 15, DateUnits.MINUTES);
+                Reference reference = new IMObjectReference("act.customerAppointment", ++id);
+                long version = 0;
+                list.add(new Change(createEvent(reference, version, start, end, schedule, "PENDING")));
+                for (int j = 0; j < UPDATES; ++j) {
+                    String status = (j < UPDATES - 1) ? "CHECKED_IN" : "COMPLETED";
+                    list.add(new Change(createEvent(reference, ++version, start, end, schedule, status)));
+                }
+                int outcome = random.nextInt(10);
+                if (outcome == 0) {
+                    list.add(new Change(reference));
+                } else if (outcome == 1) {
+                    Entity other = schedules[random.nextInt(SCHEDULES)];
+                    list.add(new Change(createEvent(reference, ++version, start, end, other, "COMPLETED")));
+                }
+                perAppointment.add(list);
+            }
+        }
+        List<Change> result = new ArrayList<>();
+        while (!perAppointment.isEmpty()) {
+            int index = random.nextInt(perAppointment.size());
+            List<Change> list = perAppointment.get(index);
+            result.add(list.remove(0));
+            if (list.isEmpty()) {
+                perAppointment.remove(index);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates an event, populated with the properties that an appointment typically has.
+     *
+     * @param reference the act reference
+     * @param version   the act version
+     * @param start     the start time
+     * @param end       the end time
+     * @param schedule  the schedule
+     * @param status    the status
+     * @return a new event
+     */
+    private PropertySet createEvent(Reference reference, long version, Date start, Date end, Entity schedule,
+                                    String status) {
+        long id = reference.getId();
+        ObjectSet set = new ObjectSet();
+        set.set(ScheduleEvent.ACT_REFERENCE, reference);
+        set.set(ScheduleEvent.ACT_VERSION, version);
+        set.set(ScheduleEvent.ACT_START_TIME, start);
+        set.set(ScheduleEvent.ACT_END_TIME, end);
+        set.set(ScheduleEvent.ACT_STATUS, status);
+        set.set(ScheduleEvent.ACT_STATUS_NAME, status);
+        set.set(ScheduleEvent.ACT_REASON, "CHECKUP");
+        set.set(ScheduleEvent.ACT_REASON_NAME, "Checkup");
+        set.set(ScheduleEvent.ACT_DESCRIPTION, null);
+        set.set(ScheduleEvent.SCHEDULE_REFERENCE, schedule.getObjectReference());
+        set.set(ScheduleEvent.SCHEDULE_NAME, schedule.getName());
+        set.set(ScheduleEvent.SCHEDULE_PARTICIPATION_VERSION, version);
+        set.set(ScheduleEvent.CUSTOMER_REFERENCE, new IMObjectReference("party.customerperson", id));
+        set.set(ScheduleEvent.CUSTOMER_NAME, "Customer " + id);
+        set.set(ScheduleEvent.CUSTOMER_PARTICIPATION_VERSION, 0L);
+        set.set(ScheduleEvent.PATIENT_REFERENCE, new IMObjectReference("party.patientpet", id));
+        set.set(ScheduleEvent.PATIENT_NAME, "Patient " + id);
+        set.set(ScheduleEvent.PATIENT_PARTICIPATION_VERSION, 0L);
+        set.set(ScheduleEvent.CLINICIAN_REFERENCE, null);
+        set.set(ScheduleEvent.CLINICIAN_NAME, null);
+        set.set(ScheduleEvent.SCHEDULE_TYPE_REFERENCE, new IMObjectReference("entity.appointmentType", 1));
+        set.set(ScheduleEvent.SCHEDULE_TYPE_NAME, "Standard");
+        set.set(ScheduleEvent.SCHEDULE_TYPE_PARTICIPATION_VERSION, 0L);
+        set.set(ScheduleEvent.ARRIVAL_TIME, null);
+        set.set(ScheduleEvent.SEND_REMINDER, false);
+        set.set(ScheduleEvent.REMINDER_SENT, null);
+        set.set(ScheduleEvent.REMINDER_ERROR, null);
+        set.set(ScheduleEvent.ONLINE_BOOKING, false);
+        set.set(ScheduleEvent.BOOKING_NOTES, null);
+        return set;
+    }
+
+    /**
+     * A change to an event. Either an addition or update, or a removal.
+     */
+    private static class Change {
+
+        /**
+         * The event to add or update. If {@code null}, indicates a removal.
+         */
+        private final PropertySet event;
+
+        /**
+         * The reference of the event to remove.
+         */
+        private final Reference reference;
+
+        Change(PropertySet event) {
+            this.event = event;
+            this.reference = null;
+        }
+
+        Change(Reference reference) {
+            this.event = null;
+            this.reference = reference;
+        }
+    }
+
+    /**
+     * Event cache keyed on schedule.
+     */
+    private static class BenchmarkCache extends AbstractEventCache {
+
+        BenchmarkCache(BasicEhcacheManager cacheFactory, ScheduleEventFactory factory) {
+            super(cacheFactory, "benchmark", factory, true);
+        }
+
+        @Override
+        protected Event createEvent(PropertySet set) {
+            return new Event(set) {
+                @Override
+                protected long getEntityId(PropertySet event) {
+                    Reference reference = event.getReference(ScheduleEvent.SCHEDULE_REFERENCE);
+                    return reference != null ? reference.getId() : -1;
+                }
+            };
+        }
+    }
+}
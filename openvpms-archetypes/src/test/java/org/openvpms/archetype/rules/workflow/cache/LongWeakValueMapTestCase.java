@@ -0,0 +1,89 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.archetype.rules.workflow.cache;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the {@link LongWeakValueMap}.
+ *
+ * @author Tim Anderson
+ */
+public class LongWeakValueMapTestCase {
+
+    /**
+     * Tests adding, replacing and removing values.
+     */
+    @Test
+    public void testPutGetRemove() {
+        LongWeakValueMap<String> map = new LongWeakValueMap<>(4);
+        String value1 = "1";
+        String value2 = "2";
+        assertNull(map.putIfAbsent(1, value1));
+        assertSame(value1, map.putIfAbsent(1, value2));
+        assertSame(value1, map.get(1));
+        map.put(1, value2);
+        assertSame(value2, map.get(1));
+        assertSame(value2, map.computeIfAbsent(1, key -> "3"));
+        assertEquals("4", map.computeIfAbsent(4, key -> Long.toString(key)));
+        assertSame(value2, map.remove(1));
+        assertNull(map.get(1));
+        assertNull(map.remove(1));
+        map.clear();
+        assertNull(map.get(4));
+        assertEquals(0, map.values().size());
+    }
+
+    /**
+     * Verifies that the map behaves like a {@code HashMap} under random additions and removals, which exercises
+     * table growth and the shifting of entries on removal.
+     */
+    @Test
+    public void testRandomOperations() {
+        LongWeakValueMap<Long> map = new LongWeakValueMap<>(2);
+        Map<Long, Long> expected = new HashMap<>(); // holds the values strongly, so they can't be collected
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; ++i) {
+            long key = random.nextInt(500) * 1024L; // keys that collide in the low bits
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(key), map.remove(key));
+            } else {
+                Long value = new Long(i);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+            if (i % 1000 == 0) {
+                for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+                    assertSame(entry.getValue(), map.get(entry.getKey()));
+                }
+                assertEquals(expected.size(), map.values().size());
+            }
+        }
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertSame(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+#
+# Create the cache_invalidations table, used to share cache invalidations between nodes in a cluster.
+#
+
+CREATE TABLE IF NOT EXISTS `cache_invalidations` (
+  `id`        BIGINT(20)  NOT NULL AUTO_INCREMENT,
+  `node`      VARCHAR(36) NOT NULL,
+  `type`      VARCHAR(10) NOT NULL,
+  `archetype` VARCHAR(50) NOT NULL,
+  `object_id` BIGINT(20)  NOT NULL,
+  `link_id`   VARCHAR(36)          DEFAULT NULL,
+  `created`   DATETIME    NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `cache_invalidation_created_idx` (`created`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
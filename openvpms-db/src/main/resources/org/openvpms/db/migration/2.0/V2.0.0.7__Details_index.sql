@@ -0,0 +1,105 @@
+#
+# Add support for indexing selected 'details' nodes in typed columns, so that they can be queried efficiently.
+#
+
+ALTER TABLE `node_descriptors`
+  ADD COLUMN `is_indexed` BIT(1) DEFAULT NULL
+  AFTER `is_hidden`;
+
+CREATE TABLE IF NOT EXISTS `act_details_index` (
+  `act_id`        BIGINT(20)     NOT NULL,
+  `name`          VARCHAR(255)   NOT NULL,
+  `string_value`  VARCHAR(255)            DEFAULT NULL,
+  `boolean_value` BIT(1)                  DEFAULT NULL,
+  `long_value`    BIGINT(20)              DEFAULT NULL,
+  `decimal_value` DECIMAL(18, 3)          DEFAULT NULL,
+  `date_value`    DATETIME                DEFAULT NULL,
+  PRIMARY KEY (`act_id`, `name`),
+  KEY `act_details_index_string_idx` (`name`, `string_value`),
+  KEY `act_details_index_boolean_idx` (`name`, `boolean_value`),
+  KEY `act_details_index_long_idx` (`name`, `long_value`),
+  KEY `act_details_index_decimal_idx` (`name`, `decimal_value`),
+  KEY `act_details_index_date_idx` (`name`, `date_value`),
+  CONSTRAINT `FK_act_details_index_act` FOREIGN KEY (`act_id`) REFERENCES `acts` (`act_id`)
+    ON DELETE CASCADE
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
+
+CREATE TABLE IF NOT EXISTS `entity_details_index` (
+  `entity_id`     BIGINT(20)     NOT NULL,
+  `name`          VARCHAR(255)   NOT NULL,
+  `string_value`  VARCHAR(255)            DEFAULT NULL,
+  `boolean_value` BIT(1)                  DEFAULT NULL,
+  `long_value`    BIGINT(20)              DEFAULT NULL,
+  `decimal_value` DECIMAL(18, 3)          DEFAULT NULL,
+  `date_value`    DATETIME                DEFAULT NULL,
+  PRIMARY KEY (`entity_id`, `name`),
+  KEY `entity_details_index_string_idx` (`name`, `string_value`),
+  KEY `entity_details_index_boolean_idx` (`name`, `boolean_value`),
+  KEY `entity_details_index_long_idx` (`name`, `long_value`),
+  KEY `entity_details_index_decimal_idx` (`name`, `decimal_value`),
+  KEY `entity_details_index_date_idx` (`name`, `date_value`),
+  CONSTRAINT `FK_entity_details_index_entity` FOREIGN KEY (`entity_id`) REFERENCES `entities` (`entity_id`)
+    ON DELETE CASCADE
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
+
+#
+# Flag the appointment reminder nodes as indexed. These are queried by the appointment reminder job.
+#
+UPDATE node_descriptors n
+  JOIN archetype_descriptors a
+    ON n.archetype_desc_id = a.archetype_desc_id
+SET n.is_indexed = TRUE
+WHERE (a.arch_short_name = 'act.customerAppointment' AND n.name IN ('sendReminder', 'reminderSent'))
+      OR (a.arch_short_name = 'party.organisationSchedule' AND n.name = 'sendReminders');
+
+#
+# Populate the index for existing data. Other nodes may be indexed using the DetailsIndexUpdater tool.
+#
+INSERT INTO act_details_index (act_id, name, boolean_value)
+  SELECT
+    d.act_id,
+    d.name,
+    d.value = 'true'
+  FROM acts a
+    JOIN act_details d
+      ON a.act_id = d.act_id
+         AND d.name = 'sendReminder'
+  WHERE a.arch_short_name = 'act.customerAppointment'
+        AND NOT exists(SELECT *
+                       FROM act_details_index i
+                       WHERE i.act_id = d.act_id
+                             AND i.name = d.name);
+
+INSERT INTO act_details_index (act_id, name, date_value)
+  SELECT
+    d.act_id,
+    d.name,
+    cast(d.value AS DATETIME)
+  FROM acts a
+    JOIN act_details d
+      ON a.act_id = d.act_id
+         AND d.name = 'reminderSent'
+  WHERE a.arch_short_name = 'act.customerAppointment'
+        AND NOT exists(SELECT *
+                       FROM act_details_index i
+                       WHERE i.act_id = d.act_id
+                             AND i.name = d.name);
+
+INSERT INTO entity_details_index (entity_id, name, boolean_value)
+  SELECT
+    d.entity_id,
+    d.name,
+    d.value = 'true'
+  FROM entities e
+    JOIN entity_details d
+      ON e.entity_id = d.entity_id
+         AND d.name = 'sendReminders'
+  WHERE e.arch_short_name = 'party.organisationSchedule'
+        AND NOT exists(SELECT *
+                       FROM entity_details_index i
+                       WHERE i.entity_id = d.entity_id
+                             AND i.name = d.name);
@@ -0,0 +1,22 @@
+#
+# Create the mail_queue table, used to queue outbound email so that it survives restarts.
+#
+
+CREATE TABLE IF NOT EXISTS `mail_queue` (
+  `id`           BIGINT(20)    NOT NULL AUTO_INCREMENT,
+  `server_id`    BIGINT(20)    NOT NULL,
+  `recipients`   VARCHAR(1024) NOT NULL,
+  `subject`      VARCHAR(255)           DEFAULT NULL,
+  `reference`    TEXT                   DEFAULT NULL,
+  `content`      LONGBLOB      NOT NULL,
+  `status`       VARCHAR(10)   NOT NULL,
+  `attempts`     INT(11)       NOT NULL,
+  `next_attempt` DATETIME      NOT NULL,
+  `claimed`      DATETIME               DEFAULT NULL,
+  `error`        VARCHAR(1024)          DEFAULT NULL,
+  `created`      DATETIME      NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `mail_queue_status_idx` (`status`, `next_attempt`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
@@ -219,6 +219,23 @@ public interface NodeDescriptor extends IMObject {
      */
     void setHidden(boolean hidden);
 
+    /**
+     * Determines if the node value is indexed.
+     * <p/>
+     * Only applies to nodes stored in the 'details' map. Indexed nodes have a copy of their value held in a typed,
+     * indexed column, which is used when querying the node.
+     *
+     * @return {@code true} if the node value is indexed
+     */
+    boolean isIndexed();
+
+    /**
+     * Determines if the node value is indexed.
+     *
+     * @param indexed if {@code true}, indicates the node value is indexed
+     */
+    void setIndexed(boolean indexed);
+
     /**
      * Determines if the node is read-only.
      *
@@ -0,0 +1,579 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.ehcache.Cache;
+import org.ehcache.event.CacheEvent;
+import org.ehcache.event.CacheEventListener;
+import org.ehcache.event.EventFiring;
+import org.ehcache.event.EventOrdering;
+import org.ehcache.event.EventType;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.service.archetype.helper.TypeHelper;
+import org.openvpms.component.business.service.cache.EhCacheable;
+import org.openvpms.component.business.service.cache.EhcacheManager;
+import org.openvpms.component.business.service.cache.InvalidationBus;
+import org.openvpms.component.business.service.cache.InvalidationListener;
+import org.openvpms.component.model.object.Reference;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A cache of assembled objects, used by {@link IMObjectDAOHibernate#get(Reference)} to avoid loading and assembling
+ * frequently read objects such as products, practice locations, users and templates.
+ * <p/>
+ * Objects are stored in serialized form, stamped with their version, so that cached state can never be changed by
+ * callers. Each hit returns a new copy.
+ * <p/>
+ * Each entry records the references of the objects that its graph refers to. When an object is invalidated, any entry
+ * that refers to it is also invalidated. This handles changes made via the other side of a relationship, or to
+ * nested objects such as classifications. These records are discarded when the entry is removed or evicted.
+ * <p/>
+ * Each invalidation is stamped with a sequence number, per object. An object is only cached if neither it nor any
+ * object it refers to was invalidated after its load started.
+ * <p/>
+ * Objects saved or removed via the DAO are invalidated when their transaction commits. Objects changed by other
+ * nodes are invalidated via the {@link InvalidationBus}, if one is registered.
+ * <p/>
+ * Only the archetypes specified by {@link #setArchetypes(String...)} are cached. Hit and miss statistics are
+ * collected by the {@link EhcacheManager}.
+ *
+ * @author Tim Anderson
+ */
+public class AssembledObjectCache implements EhCacheable, DisposableBean {
+
+    /**
+     * The DAO.
+     */
+    private final IMObjectDAOHibernate dao;
+
+    /**
+     * The cache, keyed on archetype and identifier.
+     */
+    private final Cache<String, Entry> cache;
+
+    /**
+     * The cached entries, keyed on the keys of the objects they refer to, and then on their own keys.
+     */
+    private final ConcurrentHashMap<String, Map<String, Entry>> dependents = new ConcurrentHashMap<>();
+
+    /**
+     * The invalidation sequence.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The sequence number of the last invalidation of each object, keyed on object key. These are used to prevent
+     * objects loaded prior to an invalidation being cached after it.
+     */
+    private final ConcurrentHashMap<String, Long> invalidated = new ConcurrentHashMap<>();
+
+    /**
+     * Objects whose load started before this sequence number are treated as invalidated. This is set when the cache
+     * is cleared, or {@link #invalidated} is pruned.
+     */
+    private volatile long reset;
+
+    /**
+     * The listener for changes made by other nodes.
+     */
+    private final InvalidationListener listener;
+
+    /**
+     * The listener for entries removed from the cache.
+     */
+    private final CacheEventListener<String, Entry> removalListener;
+
+    /**
+     * The archetypes to cache.
+     */
+    private volatile String[] archetypes = {};
+
+    /**
+     * The bus to receive changes made by other nodes. May be {@code null}
+     */
+    private InvalidationBus bus;
+
+    /**
+     * The number of invalidation stamps above which they are pruned.
+     */
+    private static final int MAX_STAMPS = 10000;
+
+    /**
+     * The cache name.
+     */
+    private static final String NAME = "assembledObjectCache";
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(AssembledObjectCache.class);
+
+    /**
+     * Constructs an {@link AssembledObjectCache}, and registers it with the DAO.
+     *
+     * @param dao          the DAO
+     * @param cacheManager the cache manager
+     */
+    public AssembledObjectCache(IMObjectDAOHibernate dao, EhcacheManager cacheManager) {
+        this.dao = dao;
+        cache = cacheManager.create(NAME, String.class, Entry.class);
+        listener = invalidation -> invalidate(invalidation.getReference());
+        removalListener = this::removed;
+        cache.getRuntimeConfiguration().registerCacheEventListener(
+                removalListener, EventOrdering.UNORDERED, EventFiring.SYNCHRONOUS,
+                EnumSet.of(EventType.EVICTED, EventType.EXPIRED, EventType.REMOVED, EventType.UPDATED));
+        dao.setObjectCache(this);
+    }
+
+    /**
+     * Sets the archetypes to cache.
+     *
+     * @param archetypes the archetypes. May contain wildcards
+     */
+    public void setArchetypes(String... archetypes) {
+        this.archetypes = archetypes;
+        clear();
+    }
+
+    /**
+     * Registers a bus to receive changes made by other nodes.
+     *
+     * @param bus the invalidation bus
+     */
+    public void setInvalidationBus(InvalidationBus bus) {
+        this.bus = bus;
+        bus.addListener("*", listener);
+    }
+
+    /**
+     * Determines if objects with the specified reference are cached.
+     *
+     * @param reference the object reference
+     * @return {@code true} if the objects are cached
+     */
+    public boolean isCached(Reference reference) {
+        return !reference.isNew() && TypeHelper.isA(reference, archetypes);
+    }
+
+    /**
+     * Returns an object, loading it if it isn't cached.
+     *
+     * @param reference the object reference
+     * @param loader    the loader, used if the object isn't cached
+     * @return a copy of the cached object, the loaded object, or {@code null} if the object doesn't exist
+     */
+    public IMObject get(Reference reference, Supplier<IMObject> loader) {
+        IMObject result = get(reference);
+        if (result == null) {
+            long stamp = getStamp();
+            result = loader.get();
+            if (result != null) {
+                put(result, stamp);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cached object.
+     *
+     * @param reference the object reference
+     * @return a copy of the cached object, or {@code null} if it isn't cached
+     */
+    public IMObject get(Reference reference) {
+        Entry entry = cache.get(getKey(reference));
+        return (entry != null) ? read(entry) : null;
+    }
+
+    /**
+     * Returns the invalidation stamp to pass to {@link #put(IMObject, long)}.
+     * <p/>
+     * This must be obtained before the object is loaded.
+     *
+     * @return the invalidation stamp
+     */
+    public long getStamp() {
+        return sequence.get();
+    }
+
+    /**
+     * Caches an object that was loaded without using {@link #get(Reference, Supplier)}.
+     * <p/>
+     * The object is only cached if neither it nor any object it refers to has been invalidated since the stamp was
+     * obtained.
+     *
+     * @param object the object
+     * @param stamp  the invalidation stamp, obtained prior to the object being loaded
+     */
+    public void put(IMObject object, long stamp) {
+        put(getKey(object.getObjectReference()), object, stamp);
+    }
+
+    /**
+     * Invalidates an object, and any cached object that refers to it.
+     *
+     * @param reference the object reference
+     */
+    public void invalidate(Reference reference) {
+        String key = getKey(reference);
+        remove(key);
+        Map<String, Entry> entries = dependents.remove(key);
+        if (entries != null) {
+            for (String dependent : entries.keySet()) {
+                remove(dependent);
+            }
+        }
+    }
+
+    /**
+     * Determines if any cached object refers to an object.
+     *
+     * @param reference the object reference
+     * @return {@code true} if a cached object refers to the object
+     */
+    boolean hasDependents(Reference reference) {
+        return dependents.containsKey(getKey(reference));
+    }
+
+    /**
+     * Returns the underlying cache.
+     *
+     * @return the underlying cache
+     */
+    @Override
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * Clears cached data, including the underlying cache.
+     */
+    @Override
+    public void clear() {
+        reset = sequence.incrementAndGet();
+        cache.clear();
+        dependents.clear();
+        invalidated.clear();
+    }
+
+    /**
+     * Invoked by a BeanFactory on destruction of a singleton.
+     */
+    @Override
+    public void destroy() {
+        dao.setObjectCache(null);
+        if (bus != null) {
+            bus.removeListener("*", listener);
+        }
+        cache.getRuntimeConfiguration().deregisterCacheEventListener(removalListener);
+        cache.clear();
+        dependents.clear();
+        invalidated.clear();
+    }
+
+    /**
+     * Caches an object.
+     * <p/>
+     * The object is only cached if neither it nor any object it refers to has been invalidated since it was loaded.
+     * The objects it refers to are only recorded once it has been cached. They are recorded before the final
+     * invalidation check, so that a concurrent invalidation either sees the entry, or is seen by the check.
+     *
+     * @param key    the object key
+     * @param object the object
+     * @param stamp  the invalidation sequence number, prior to the object being loaded
+     */
+    private void put(String key, IMObject object, long stamp) {
+        Set<String> related = new HashSet<>();
+        byte[] data = write(object, related);
+        if (data != null) {
+            related.remove(key);
+            if (!isInvalidated(key, related, stamp)) {
+                Entry entry = new Entry(object.getVersion(), data, related);
+                Entry existing = cache.putIfAbsent(key, entry);
+                boolean cached = existing == null
+                                 || (existing.getVersion() < entry.getVersion() && cache.replace(key, existing, entry));
+                if (cached) {
+                    for (String other : related) {
+                        dependents.computeIfAbsent(other, k -> new ConcurrentHashMap<>()).put(key, entry);
+                    }
+                    if (isInvalidated(key, related, stamp)) {
+                        // invalidated while being cached
+                        cache.remove(key, entry);
+                        unregister(key, entry);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes an object from the cache.
+     *
+     * @param key the object key
+     */
+    private void remove(String key) {
+        long stamp = sequence.incrementAndGet();
+        invalidated.merge(key, stamp, Math::max);
+        cache.remove(key);
+        if (invalidated.size() > MAX_STAMPS) {
+            prune();
+        }
+    }
+
+    /**
+     * Discards the invalidation stamps.
+     * <p/>
+     * Any load in progress is treated as invalidated, as the stamps it would need to check may be discarded.
+     */
+    private void prune() {
+        long threshold = sequence.get();
+        reset = threshold;
+        invalidated.values().removeIf(value -> value <= threshold);
+    }
+
+    /**
+     * Invoked when an entry is removed, evicted, expired or replaced, to discard the record of the objects it
+     * refers to.
+     *
+     * @param event the cache event
+     */
+    private void removed(CacheEvent<? extends String, ? extends Entry> event) {
+        Entry entry = event.getOldValue();
+        if (entry != null) {
+            unregister(event.getKey(), entry);
+        }
+    }
+
+    /**
+     * Discards the record of the objects an entry refers to.
+     * <p/>
+     * Records made by a more recent entry for the same object are retained.
+     *
+     * @param key   the object key
+     * @param entry the entry
+     */
+    private void unregister(String key, Entry entry) {
+        for (String other : entry.getRelated()) {
+            dependents.computeIfPresent(other, (k, entries) -> {
+                entries.remove(key, entry);
+                return entries.isEmpty() ? null : entries;
+            });
+        }
+    }
+
+    /**
+     * Determines if an object or any object it refers to has been invalidated.
+     *
+     * @param key     the object key
+     * @param related the keys of the objects it refers to
+     * @param stamp   the invalidation sequence number prior to the object being loaded
+     * @return {@code true} if the object has been invalidated
+     */
+    private boolean isInvalidated(String key, Set<String> related, long stamp) {
+        if (reset > stamp || isInvalidated(key, stamp)) {
+            return true;
+        }
+        for (String other : related) {
+            if (isInvalidated(other, stamp)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if an object has been invalidated.
+     *
+     * @param key   the object key
+     * @param stamp the invalidation sequence number prior to the object being loaded
+     * @return {@code true} if the object has been invalidated
+     */
+    private boolean isInvalidated(String key, long stamp) {
+        Long last = invalidated.get(key);
+        return last != null && last > stamp;
+    }
+
+    /**
+     * Serializes an object, collecting the references of the objects it refers to.
+     *
+     * @param object  the object
+     * @param related collects the keys of the objects referred to
+     * @return the serialized object, or {@code null} if it cannot be serialized
+     */
+    private byte[] write(IMObject object, Set<String> related) {
+        byte[] result = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream stream = new ReferenceCollector(bytes, related)) {
+                stream.writeObject(object);
+            }
+            result = bytes.toByteArray();
+        } catch (IOException exception) {
+            log.debug("Cannot cache " + object.getObjectReference() + ": " + exception.getMessage(), exception);
+        }
+        return result;
+    }
+
+    /**
+     * Deserializes a cached object.
+     *
+     * @param entry the cache entry
+     * @return a copy of the cached object, or {@code null} if it cannot be deserialized
+     */
+    private IMObject read(Entry entry) {
+        IMObject result = null;
+        try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(entry.getData()))) {
+            result = (IMObject) stream.readObject();
+        } catch (IOException | ClassNotFoundException exception) {
+            log.debug("Cannot read cached object: " + exception.getMessage(), exception);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cache key for a reference.
+     *
+     * @param reference the reference
+     * @return the cache key
+     */
+    private static String getKey(Reference reference) {
+        return reference.getArchetype() + ':' + reference.getId();
+    }
+
+    /**
+     * A cached object.
+     */
+    static class Entry {
+
+        /**
+         * The object version.
+         */
+        private final long version;
+
+        /**
+         * The serialized object.
+         */
+        private final byte[] data;
+
+        /**
+         * The keys of the objects it refers to.
+         */
+        private final Set<String> related;
+
+        /**
+         * Constructs an {@link Entry}.
+         *
+         * @param version the object version
+         * @param data    the serialized object
+         * @param related the keys of the objects it refers to
+         */
+        Entry(long version, byte[] data, Set<String> related) {
+            this.version = version;
+            this.data = data;
+            this.related = Collections.unmodifiableSet(related);
+        }
+
+        /**
+         * Returns the object version.
+         *
+         * @return the object version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the serialized object.
+         *
+         * @return the serialized object
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Returns the keys of the objects it refers to.
+         *
+         * @return the keys
+         */
+        public Set<String> getRelated() {
+            return related;
+        }
+    }
+
+    /**
+     * An {@code ObjectOutputStream} that collects the references of the objects being serialized.
+     */
+    private static class ReferenceCollector extends ObjectOutputStream {
+
+        /**
+         * The collected keys.
+         */
+        private final Set<String> keys;
+
+        /**
+         * Constructs a {@link ReferenceCollector}.
+         *
+         * @param out  the stream to write to
+         * @param keys collects the keys of the referenced objects
+         * @throws IOException for any I/O error
+         */
+        ReferenceCollector(OutputStream out, Set<String> keys) throws IOException {
+            super(out);
+            this.keys = keys;
+            enableReplaceObject(true);
+        }
+
+        /**
+         * Records the reference of an object or reference being serialized.
+         *
+         * @param obj the object being serialized
+         * @return {@code obj}
+         */
+        @Override
+        protected Object replaceObject(Object obj) {
+            Reference reference = null;
+            if (obj instanceof IMObject) {
+                reference = ((IMObject) obj).getObjectReference();
+            } else if (obj instanceof Reference) {
+                reference = (Reference) obj;
+            }
+            if (reference != null && !reference.isNew()) {
+                keys.add(getKey(reference));
+            }
+            return obj;
+        }
+    }
+}
@@ -19,11 +19,15 @@ package org.openvpms.component.business.dao.hibernate.im;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hibernate.Cache;
 import org.hibernate.FlushMode;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.NamedSQLQueryDefinition;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
 import org.openvpms.component.business.dao.hibernate.im.common.CompoundAssembler;
 import org.openvpms.component.business.dao.hibernate.im.common.Context;
@@ -31,14 +35,24 @@ import org.openvpms.component.business.dao.hibernate.im.common.ContextHandler;
 import org.openvpms.component.business.dao.hibernate.im.common.DOState;
 import org.openvpms.component.business.dao.hibernate.im.common.DeferredAssembler;
 import org.openvpms.component.business.dao.hibernate.im.common.DeleteHandler;
+import org.openvpms.component.business.dao.hibernate.im.common.DetailsIndexer;
 import org.openvpms.component.business.dao.hibernate.im.common.IMObjectDO;
+import org.openvpms.component.business.dao.hibernate.im.act.ActIdentityDOImpl;
+import org.openvpms.component.business.dao.hibernate.im.act.ActRelationshipDOImpl;
+import org.openvpms.component.business.dao.hibernate.im.act.ParticipationDOImpl;
 import org.openvpms.component.business.dao.hibernate.im.entity.DefaultObjectLoader;
+import org.openvpms.component.business.dao.hibernate.im.entity.EntityIdentityDOImpl;
+import org.openvpms.component.business.dao.hibernate.im.entity.EntityLinkDOImpl;
+import org.openvpms.component.business.dao.hibernate.im.entity.EntityRelationshipDOImpl;
 import org.openvpms.component.business.dao.hibernate.im.entity.HibernateResultCollector;
 import org.openvpms.component.business.dao.hibernate.im.entity.IMObjectNodeResultCollector;
 import org.openvpms.component.business.dao.hibernate.im.entity.IMObjectResultCollector;
 import org.openvpms.component.business.dao.hibernate.im.entity.NodeSetResultCollector;
 import org.openvpms.component.business.dao.hibernate.im.entity.ObjectSetResultCollector;
+import org.openvpms.component.business.dao.hibernate.im.lookup.LookupRelationshipDOImpl;
 import org.openvpms.component.business.dao.hibernate.im.lookup.LookupReplacer;
+import org.openvpms.component.business.dao.hibernate.im.party.ContactDOImpl;
+import org.openvpms.component.business.dao.hibernate.im.product.ProductPriceDOImpl;
 import org.openvpms.component.business.dao.hibernate.im.query.MappedCriteriaQueryFactory;
 import org.openvpms.component.business.dao.hibernate.im.query.QueryBuilder;
 import org.openvpms.component.business.dao.hibernate.im.query.QueryContext;
@@ -50,8 +64,12 @@ import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeD
 import org.openvpms.component.business.domain.im.common.IMObject;
 import org.openvpms.component.business.domain.im.common.IMObjectReference;
 import org.openvpms.component.business.service.archetype.descriptor.cache.IArchetypeDescriptorCache;
+import org.openvpms.component.business.service.metrics.HitRatio;
+import org.openvpms.component.business.service.metrics.MetricsRegistry;
+import org.openvpms.component.business.service.metrics.NoOpMetricsRegistry;
 import org.openvpms.component.model.lookup.Lookup;
 import org.openvpms.component.model.object.Reference;
+import org.openvpms.component.model.object.Relationship;
 import org.openvpms.component.query.criteria.CriteriaQuery;
 import org.openvpms.component.system.common.query.ArchetypeQuery;
 import org.openvpms.component.system.common.query.IArchetypeQuery;
@@ -59,20 +77,32 @@ import org.openvpms.component.system.common.query.IPage;
 import org.openvpms.component.system.common.query.NamedQuery;
 import org.openvpms.component.system.common.query.NodeSet;
 import org.openvpms.component.system.common.query.ObjectSet;
+import org.openvpms.component.system.common.query.ShortNameConstraint;
 import org.openvpms.component.system.common.query.TupleImpl;
 import org.openvpms.component.system.common.query.criteria.CriteriaQueryImpl;
 import org.openvpms.component.system.common.query.criteria.MappedCriteriaQuery;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.Tuple;
 import javax.persistence.TupleElement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
 import static org.openvpms.component.business.dao.im.common.IMObjectDAOException.ErrorCode.ClassNameMustBeSpecified;
 import static org.openvpms.component.business.dao.im.common.IMObjectDAOException.ErrorCode.FailedToDeleteIMObject;
@@ -117,6 +147,85 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
      */
     private MappedCriteriaQueryFactory queryFactory;
 
+    /**
+     * Maintains the index of indexed 'details' nodes.
+     */
+    private DetailsIndexer indexer;
+
+    /**
+     * The number of objects to save between session flushes when saving collections. If {@code <= 0}, the session
+     * is only flushed at commit.
+     */
+    private int flushInterval;
+
+    /**
+     * The number of rows to fetch and assemble at a time when streaming results.
+     */
+    private int streamBatchSize = DEFAULT_STREAM_BATCH_SIZE;
+
+    /**
+     * The assembled object cache. May be {@code null}.
+     */
+    private volatile AssembledObjectCache objectCache;
+
+    /**
+     * The registry to record metrics to.
+     */
+    private volatile MetricsRegistry metrics = NoOpMetricsRegistry.INSTANCE;
+
+    /**
+     * The slow query recorder. May be {@code null}.
+     */
+    private volatile SlowQueryRecorder slowQueries;
+
+    /**
+     * The default stream batch size.
+     */
+    private static final int DEFAULT_STREAM_BATCH_SIZE = 100;
+
+    /**
+     * The maximum number of identifiers to supply in a single query when retrieving objects by reference.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Child objects that are cached separately to their parent in the second-level cache.
+     */
+    private static final Class<?>[] CACHED_CHILD_TYPES = {
+            ActIdentityDOImpl.class, ActRelationshipDOImpl.class, ParticipationDOImpl.class, ContactDOImpl.class,
+            EntityIdentityDOImpl.class, EntityLinkDOImpl.class, EntityRelationshipDOImpl.class,
+            LookupRelationshipDOImpl.class, ProductPriceDOImpl.class};
+
+    /**
+     * The query timer name.
+     */
+    private static final String QUERY = "dao.query";
+
+    /**
+     * The query row count distribution name.
+     */
+    private static final String QUERY_ROWS = "dao.query.rows";
+
+    /**
+     * The query page size distribution name.
+     */
+    private static final String QUERY_PAGE_SIZE = "dao.query.pageSize";
+
+    /**
+     * The distribution of deferred references resolved per assembly pass.
+     */
+    private static final String DEFERRED = "dao.deferredReferences";
+
+    /**
+     * The assembled object cache hit ratio name.
+     */
+    private static final String OBJECT_CACHE = "dao.objectCache";
+
+    /**
+     * The tag used for metrics that span archetypes.
+     */
+    private static final String ALL = "*";
+
     /**
      * The logger.
      */
@@ -142,6 +251,80 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         assembler = new AssemblerImpl(cache);
         queryFactory = new MappedCriteriaQueryFactory(factory.getCriteriaBuilder(), assembler);
         handlerFactory = new DeleteHandlerFactory(assembler, cache);
+        indexer = new DetailsIndexer(cache);
+    }
+
+    /**
+     * Sets the cache of assembled objects.
+     *
+     * @param cache the cache. May be {@code null}
+     */
+    public void setObjectCache(AssembledObjectCache cache) {
+        objectCache = cache;
+    }
+
+    /**
+     * Sets the registry to record query times, row counts, page sizes, deferred reference resolution and object cache
+     * hits to.
+     *
+     * @param metrics the metrics registry. If {@code null}, metrics are discarded
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = (metrics != null) ? metrics : NoOpMetricsRegistry.INSTANCE;
+    }
+
+    /**
+     * Sets the recorder for queries that exceed its threshold.
+     *
+     * @param recorder the slow query recorder. May be {@code null}
+     */
+    public void setSlowQueryRecorder(SlowQueryRecorder recorder) {
+        slowQueries = recorder;
+    }
+
+    /**
+     * Sets the number of objects to save between session flushes, when saving collections.
+     * <p/>
+     * Flushing periodically sends pending inserts and updates to the database in JDBC batches
+     * (see {@code hibernate.jdbc.batch_size}), rather than accumulating them until commit. A flush is only performed
+     * when there are no outstanding references to unsaved objects.
+     *
+     * @param interval the flush interval. If {@code <= 0}, the session is only flushed at commit
+     */
+    public void setFlushInterval(int interval) {
+        flushInterval = interval;
+    }
+
+    /**
+     * Returns the number of objects to save between session flushes, when saving collections.
+     *
+     * @return the flush interval. If {@code <= 0}, the session is only flushed at commit
+     */
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Sets the number of rows to fetch and assemble at a time when streaming results.
+     * <p/>
+     * This is used as the JDBC fetch size, and determines how often the streaming session is cleared.
+     * <br/>
+     * NOTE: for MySQL, the connection must specify {@code useCursorFetch=true} for the fetch size to be honoured.
+     * Otherwise the driver reads the entire result set into memory.
+     *
+     * @param batchSize the batch size. If {@code <= 0}, the default batch size is used
+     */
+    public void setStreamBatchSize(int batchSize) {
+        streamBatchSize = batchSize > 0 ? batchSize : DEFAULT_STREAM_BATCH_SIZE;
+    }
+
+    /**
+     * Returns the number of rows to fetch and assemble at a time when streaming results.
+     *
+     * @return the batch size
+     */
+    public int getStreamBatchSize() {
+        return streamBatchSize;
     }
 
     /**
@@ -252,6 +435,41 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         return getQueryDelegator(query).getNodes(query, nodes);
     }
 
+    /**
+     * Streams the objects matching the query.
+     * <p/>
+     * Results are read incrementally from the database, and assembled in batches, so that memory use is independent
+     * of the number of results. Results are read using a separate session to that of any current transaction,
+     * so uncommitted changes will not be visible.
+     * <p/>
+     * The query first and maximum results are honoured; use {@link IArchetypeQuery#ALL_RESULTS} to stream all
+     * results. Counts are not supported.
+     * <p/>
+     * The stream must be closed to release the database connection, e.g. using try-with-resources.
+     *
+     * @param query the archetype query
+     * @return a stream of the objects that match the query criteria
+     * @throws IMObjectDAOException for any error
+     */
+    @Override
+    public Stream<IMObject> stream(IArchetypeQuery query) {
+        return getQueryDelegator(query).stream(query);
+    }
+
+    /**
+     * Streams the object sets matching the query.
+     * <p/>
+     * See {@link #stream(IArchetypeQuery)} for details.
+     *
+     * @param query the archetype query
+     * @return a stream of the object sets that match the query criteria
+     * @throws IMObjectDAOException for any error
+     */
+    @Override
+    public Stream<ObjectSet> streamObjects(IArchetypeQuery query) {
+        return getQueryDelegator(query).streamObjects(query);
+    }
+
     /**
      * Creates a JPA {@code CriteriaQuery} from an {@link CriteriaQuery}.
      *
@@ -290,7 +508,7 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
             Y target = adapt(source, type, criteriaQuery, context);
             result.add(target);
         }
-        context.resolveDeferredReferences();
+        resolveDeferredReferences(context);
         return result;
     }
 
@@ -309,7 +527,7 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         Context context = Context.getContext(session, assembler);
         X source = typedQuery.getSingleResult();
         Y result = adapt(source, type, criteriaQuery, context);
-        context.resolveDeferredReferences();
+        resolveDeferredReferences(context);
         return result;
     }
 
@@ -407,7 +625,8 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
 
         try {
             HibernateResultCollector<IMObject> collector = new IMObjectResultCollector();
-            executeQuery(queryString.toString(), null, new Params(names, params), collector, firstResult, maxResults);
+            executeQuery(queryString.toString(), null, new Params(names, params), collector, firstResult, maxResults,
+                         (shortName != null) ? shortName : ALL, null);
             return collector.getPage();
         } catch (Exception exception) {
             throw new IMObjectDAOException(FailedToFindIMObjects, exception, shortName, instanceName, clazz);
@@ -440,6 +659,78 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         return getObject(reference, active);
     }
 
+    /**
+     * Returns the objects with the specified references.
+     * <p/>
+     * Objects not in the transaction or the {@link AssembledObjectCache} are retrieved in a single query per type.
+     * Those the cache handles are then added to it.
+     *
+     * @param references the object references
+     * @return the objects, keyed on reference, in the order the references were supplied. References to objects that
+     * don't exist are excluded. Objects may be active or inactive
+     * @throws IMObjectDAOException for any error
+     */
+    @Override
+    @Transactional
+    public Map<Reference, IMObject> get(Collection<? extends Reference> references) {
+        Map<Reference, IMObject> found = new HashMap<>();
+        Map<String, Map<Long, Reference>> uncached = new LinkedHashMap<>();
+        List<Reference> misses = new ArrayList<>();
+        Session session = getSession();
+        Context context = getContext(session);
+        AssembledObjectCache objects = objectCache;
+        long stamp = (objects != null) ? objects.getStamp() : 0;
+        for (Reference reference : references) {
+            if (reference == null || reference.isNew() || found.containsKey(reference)) {
+                continue;
+            }
+            DOState state = context.getCached(reference);
+            IMObject cached = (state != null) ? state.getSource() : context.getObject(reference);
+            if (cached == null && objects != null && objects.isCached(reference) && !context.hasChanges()) {
+                // only use the cache if the transaction hasn't made changes that it may not reflect
+                cached = objects.get(reference);
+                HitRatio ratio = metrics.hitRatio(OBJECT_CACHE, reference.getArchetype());
+                if (cached != null) {
+                    // register the copy so that it is returned for subsequent retrievals within the transaction
+                    context.add(cached);
+                    ratio.hit();
+                } else {
+                    ratio.miss();
+                    misses.add(reference);
+                }
+            }
+            if (cached != null) {
+                found.put(reference, cached);
+            } else {
+                ArchetypeDescriptor desc = cache.getArchetypeDescriptor(reference.getArchetype());
+                String clazz = (desc != null) ? assembler.getDOClassName(desc.getClassName()) : null;
+                if (clazz != null) {
+                    uncached.computeIfAbsent(clazz, key -> new HashMap<>()).put(reference.getId(), reference);
+                }
+            }
+        }
+        if (!uncached.isEmpty()) {
+            for (Map.Entry<String, Map<Long, Reference>> entry : uncached.entrySet()) {
+                getObjects(entry.getKey(), entry.getValue(), session, context, found);
+            }
+            resolveDeferredReferences(context);
+            for (Reference reference : misses) {
+                IMObject object = found.get(reference);
+                if (object != null) {
+                    objects.put(object, stamp);
+                }
+            }
+        }
+        Map<Reference, IMObject> result = new LinkedHashMap<>();
+        for (Reference reference : references) {
+            IMObject object = found.get(reference);
+            if (object != null) {
+                result.put(reference, object);
+            }
+        }
+        return result;
+    }
+
     /**
      * Execute a get using the specified named query, the query
      * parameters and the result collector. The first result and the number of
@@ -490,6 +781,27 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
      */
     public void commit(Context context) {
         context.commit();
+        AssembledObjectCache objects = objectCache;
+        if (objects != null) {
+            for (IMObjectDO object : DOState.getObjects(context.getSaved())) {
+                objects.invalidate(object.getObjectReference());
+            }
+            for (IMObject source : DOState.getNewSources(context.getSaved())) {
+                if (source instanceof Relationship) {
+                    // a cached object on either side of a new relationship won't refer to it
+                    Relationship relationship = (Relationship) source;
+                    if (relationship.getSource() != null) {
+                        objects.invalidate(relationship.getSource());
+                    }
+                    if (relationship.getTarget() != null) {
+                        objects.invalidate(relationship.getTarget());
+                    }
+                }
+            }
+            for (Reference reference : context.getRemoved()) {
+                objects.invalidate(reference);
+            }
+        }
     }
 
     /**
@@ -514,11 +826,43 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         try {
             LookupReplacer replacer = new LookupReplacer(cache);
             replacer.replace(source, target, getSession());
+            AssembledObjectCache objects = objectCache;
+            if (objects != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                // the objects referring to the lookup can't be determined, so discard everything
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        objects.clear();
+                    }
+                });
+            }
         } catch (Throwable exception) {
             throw new IMObjectDAOException(FailedToSaveIMObject, exception, source.getId());
         }
     }
 
+    /**
+     * Evicts an object from the second-level cache, so that changes made to it by other nodes are visible.
+     * <p>
+     * Child objects such as participations and relationships are cached separately, and may have changed along with
+     * their parent. As these can't be identified from the parent reference, they are evicted in their entirety.
+     *
+     * @param reference the object reference
+     */
+    public void evict(Reference reference) {
+        Cache secondLevel = factory.getCache();
+        ArchetypeDescriptor desc = cache.getArchetypeDescriptor(reference.getArchetype());
+        if (desc != null) {
+            String className = assembler.getDOClassName(desc.getClassName());
+            if (className != null) {
+                secondLevel.evictEntityData(className, reference.getId());
+            }
+        }
+        for (Class<?> type : CACHED_CHILD_TYPES) {
+            secondLevel.evictEntityData(type);
+        }
+    }
+
     /**
      * Returns the current hibernate session.
      * <p>
@@ -547,7 +891,7 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         Session session = getSession();
         Context context = getContext(session);
         DOState state = context.getCached(reference);
-        IMObject cached = (state != null) ? state.getSource() : null;
+        IMObject cached = (state != null) ? state.getSource() : context.getObject(reference);
         if (cached != null) {
             result = (active != null && active != cached.isActive()) ? null : cached;
         } else if (!reference.isNew()) {
@@ -555,7 +899,31 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
             // committed, try and query it
             ArchetypeDescriptor desc = cache.getArchetypeDescriptor(reference.getArchetype());
             if (desc != null) {
-                result = getObject(desc.getClassName(), reference, active);
+                AssembledObjectCache objects = objectCache;
+                if (objects != null && objects.isCached(reference) && !context.hasChanges()) {
+                    // only use the cache if the transaction hasn't made changes that it may not reflect
+                    boolean[] loaded = {false};
+                    result = objects.get(reference, () -> {
+                        loaded[0] = true;
+                        return getObject(desc.getClassName(), reference, null);
+                    });
+                    HitRatio ratio = metrics.hitRatio(OBJECT_CACHE, reference.getArchetype());
+                    if (loaded[0]) {
+                        ratio.miss();
+                    } else {
+                        ratio.hit();
+                        if (result != null) {
+                            // register the copy so that it is returned for subsequent retrievals within the
+                            // transaction
+                            context.add(result);
+                        }
+                    }
+                    if (result != null && active != null && active != result.isActive()) {
+                        result = null;
+                    }
+                } else {
+                    result = getObject(desc.getClassName(), reference, active);
+                }
             }
         }
         return result;
@@ -570,11 +938,14 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
      * @param collector   the collector
      * @param firstResult the first row to return
      * @param maxResults  the number of rows to return
+     * @param tag         the tag to record metrics against
+     * @param source      the originating query, used to describe slow queries. May be {@code null}
      * @throws Exception for any error
      */
     private void executeQuery(String queryString, String countQuery, Params params, HibernateResultCollector collector,
-                              int firstResult, int maxResults)
+                              int firstResult, int maxResults, String tag, IArchetypeQuery source)
             throws Exception {
+        long start = System.nanoTime();
         Session session = getSession();
         collector.setFirstResult(firstResult);
         collector.setPageSize(maxResults);
@@ -586,6 +957,9 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
             // only want a count of the results matching the criteria
             int rowCount = count(countQuery, params, session);
             collector.setTotalResults(rowCount);
+            long elapsed = System.nanoTime() - start;
+            metrics.timer(QUERY, tag).record(elapsed);
+            recordSlowQuery(elapsed, session, source, countQuery, false, params, 1);
         } else {
             Query query = session.createQuery(queryString);
             params.setParameters(query);
@@ -596,31 +970,163 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
             }
 
             // set the maximum number of rows
-            if (maxResults != ArchetypeQuery.ALL_RESULTS) {
-                query.setMaxResults(maxResults);
-                log.debug("The maximum number of rows is " + maxResults);
-            }
+            setMaxResults(query, maxResults);
 
             query.setCacheable(true);
 
             List rows = query.list();
-            if (maxResults == ArchetypeQuery.ALL_RESULTS) {
-                collector.setTotalResults(rows.size());
-            } else if (countQuery != null) {
-                int rowCount = count(countQuery, params, session);
-                if (rowCount < rows.size()) {
-                    // rows deleted since initial query
-                    rowCount = rows.size();
-                }
-                collector.setTotalResults(rowCount);
+            IntSupplier counter = (countQuery != null) ? () -> count(s -> count(countQuery, params, s)) : null;
+            int size = collect(rows, firstResult, maxResults, counter, collector, context);
+            long elapsed = recordQuery(tag, start, size, maxResults);
+            recordSlowQuery(elapsed, session, source, queryString, false, params, size);
+        }
+    }
+
+    /**
+     * Records the metrics of a query.
+     *
+     * @param tag        the tag to record metrics against
+     * @param start      the query start time, as returned by {@link System#nanoTime()}
+     * @param rows       the number of rows collected
+     * @param maxResults the maximum number of results, or {@link ArchetypeQuery#ALL_RESULTS} for all results
+     * @return the query execution time, in nanoseconds
+     */
+    private long recordQuery(String tag, long start, int rows, int maxResults) {
+        long elapsed = System.nanoTime() - start;
+        MetricsRegistry registry = metrics;
+        registry.timer(QUERY, tag).record(elapsed);
+        registry.distribution(QUERY_ROWS, tag).record(rows);
+        if (maxResults != ArchetypeQuery.ALL_RESULTS) {
+            registry.distribution(QUERY_PAGE_SIZE, tag).record(maxResults);
+        }
+        return elapsed;
+    }
+
+    /**
+     * Records a query with the slow query recorder, if one is registered and the query exceeds its threshold.
+     *
+     * @param elapsed   the query execution time, in nanoseconds
+     * @param session   the session used to execute the query
+     * @param source    the originating query. May be {@code null}
+     * @param query     the HQL or SQL query string
+     * @param nativeSQL if {@code true}, the query is native SQL, otherwise it is HQL
+     * @param params    the query parameters
+     * @param rows      the number of rows returned
+     */
+    private void recordSlowQuery(long elapsed, Session session, Object source, String query, boolean nativeSQL,
+                                 Params params, int rows) {
+        SlowQueryRecorder recorder = slowQueries;
+        if (recorder != null && recorder.isSlow(elapsed)) {
+            recorder.record(session, (source != null) ? source.toString() : null, query, nativeSQL,
+                            params.getNames(), params.getValues(), rows, elapsed);
+        }
+    }
+
+    /**
+     * Resolves the deferred references of an assembly context, recording the number resolved.
+     *
+     * @param context the assembly context
+     */
+    private void resolveDeferredReferences(Context context) {
+        int resolved = context.resolveDeferredReferences();
+        if (resolved != 0) {
+            metrics.distribution(DEFERRED, ALL).record(resolved);
+        }
+    }
+
+    /**
+     * Limits the number of rows returned by a query.
+     * <p/>
+     * If the rows are limited, an additional row is requested to determine if there are more results, without
+     * needing to count them.
+     *
+     * @param query      the query
+     * @param maxResults the maximum number of results, or {@link ArchetypeQuery#ALL_RESULTS} for all results
+     */
+    private void setMaxResults(Query query, int maxResults) {
+        if (maxResults != ArchetypeQuery.ALL_RESULTS) {
+            query.setMaxResults(isProbed(maxResults) ? maxResults + 1 : maxResults);
+            if (log.isDebugEnabled()) {
+                log.debug("The maximum number of rows is " + maxResults);
+            }
+        }
+    }
+
+    /**
+     * Determines if an additional row is queried to determine if there are more results.
+     *
+     * @param maxResults the maximum number of results, or {@link ArchetypeQuery#ALL_RESULTS} for all results
+     * @return {@code true} if an additional row is queried
+     */
+    private boolean isProbed(int maxResults) {
+        return maxResults != ArchetypeQuery.ALL_RESULTS && maxResults < Integer.MAX_VALUE;
+    }
+
+    /**
+     * Collects query rows.
+     * <p/>
+     * If all remaining rows have been read, the total number of results is determined from the number of rows.
+     * Otherwise, if a counter is supplied, the total is calculated on demand.
+     *
+     * @param rows        the rows. This may include an additional row, if {@link #isProbed probed}
+     * @param firstResult the first result
+     * @param maxResults  the maximum number of results, or {@link ArchetypeQuery#ALL_RESULTS} for all results
+     * @param counter     counts the total number of results. May be {@code null}
+     * @param collector   the collector
+     * @param context     the assembly context
+     * @return the number of rows collected
+     */
+    private int collect(List<?> rows, int firstResult, int maxResults, IntSupplier counter,
+                        HibernateResultCollector collector, Context context) {
+        boolean more = false;
+        if (isProbed(maxResults) && rows.size() > maxResults) {
+            rows = rows.subList(0, maxResults);
+            more = true;
+        }
+        collector.setMoreResults(more);
+        int size = rows.size();
+        if (maxResults == ArchetypeQuery.ALL_RESULTS) {
+            collector.setTotalResults(size);
+        } else if (counter != null) {
+            if (!more && (size != 0 || firstResult == 0)) {
+                // all remaining rows have been read, so no need to count
+                collector.setTotalResults(firstResult + size);
             } else {
-                collector.setTotalResults(-1);
+                // rows may have been deleted since the initial query
+                collector.setTotalResults(() -> Math.max(counter.getAsInt(), size));
             }
-            for (Object object : rows) {
-                collector.collect(object);
+        } else {
+            collector.setTotalResults(-1);
+        }
+        for (Object object : rows) {
+            collector.collect(object);
+        }
+        resolveDeferredReferences(context);
+        return size;
+    }
+
+    /**
+     * Performs a count.
+     * <p/>
+     * As counts may be deferred until after the query transaction has completed, this uses the current session
+     * if a transaction is active, or a new session otherwise.
+     *
+     * @param counter the function to perform the count
+     * @return the count
+     */
+    private int count(ToIntFunction<Session> counter) {
+        int result;
+        if (TransactionSynchronizationManager.hasResource(factory)) {
+            result = counter.applyAsInt(getSession());
+        } else {
+            Session session = factory.openSession();
+            try {
+                result = counter.applyAsInt(session);
+            } finally {
+                session.close();
             }
-            context.resolveDeferredReferences();
         }
+        return result;
     }
 
     /**
@@ -636,6 +1142,7 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
      */
     private void executeNamedQuery(String name, Map<String, Object> params, int firstRow, final int numOfRows,
                                    HibernateResultCollector collector, boolean count) throws Exception {
+        long start = System.nanoTime();
         Session session = getSession();
         Query query = session.getNamedQuery(name);
         Params p = new Params(params);
@@ -647,10 +1154,7 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         }
 
         // set maximum rows
-        if (numOfRows != ArchetypeQuery.ALL_RESULTS) {
-            query.setMaxResults(numOfRows);
-            log.debug("The maximum number of rows is " + numOfRows);
-        }
+        setMaxResults(query, numOfRows);
 
         List<Object> rows = query.list();
         collector.setFirstResult(firstRow);
@@ -659,22 +1163,48 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         Context context = getContext(session);
         collector.setContext(context);
 
-        if (numOfRows == ArchetypeQuery.ALL_RESULTS) {
-            collector.setTotalResults(rows.size());
-        } else if (count) {
-            int rowCount = countNamedQuery(name, p, session);
-            if (rowCount < rows.size()) {
-                // rows deleted since initial query
-                rowCount = rows.size();
+        IntSupplier counter = (count) ? () -> count(s -> countNamedQuery(name, p, s)) : null;
+        int size = collect(rows, firstRow, numOfRows, counter, collector, context);
+        long elapsed = recordQuery(name, start, size, numOfRows);
+        recordSlowQuery(elapsed, session, name, query.getQueryString(), query instanceof NativeQuery, p, size);
+    }
+
+    /**
+     * Executes a query in a new read-only session, returning a stream of the results.
+     *
+     * @param queryString the query string, for error reporting
+     * @param creator     creates the query
+     * @param params      the query parameters
+     * @param firstResult the first result to return
+     * @param maxResults  the maximum number of results to return
+     * @param collectors  creates collectors to assemble each batch of results
+     * @return a stream of the results
+     * @throws IMObjectDAOException for any error
+     */
+    private <T> Stream<T> scroll(String queryString, Function<Session, Query<?>> creator, Params params,
+                                 int firstResult, int maxResults,
+                                 Supplier<HibernateResultCollector<T>> collectors) {
+        Session session = factory.openSession();
+        try {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            Query<?> query = creator.apply(session);
+            params.setParameters(query);
+            if (firstResult != 0) {
+                query.setFirstResult(firstResult);
             }
-            collector.setTotalResults(rowCount);
-        } else {
-            collector.setTotalResults(-1);
-        }
-        for (Object object : rows) {
-            collector.collect(object);
+            if (maxResults != ArchetypeQuery.ALL_RESULTS) {
+                query.setMaxResults(maxResults);
+            }
+            query.setFetchSize(streamBatchSize);
+            query.setReadOnly(true);
+            ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+            return new ScrollableResultIterator<>(session, results, queryString, collectors, assembler,
+                                                  streamBatchSize).stream();
+        } catch (Throwable exception) {
+            session.close();
+            throw new IMObjectDAOException(FailedToExecuteQuery, exception, queryString);
         }
-        context.resolveDeferredReferences();
     }
 
     /**
@@ -695,6 +1225,9 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
 
     /**
      * Counts the total no. of rows that would be returned by a named query.
+     * <p/>
+     * Named SQL queries are counted by wrapping them in a {@code select count(*)}. HQL queries cannot be wrapped,
+     * so these are counted by scrolling to the last row.
      *
      * @param name    the query name
      * @param params  the query parameters
@@ -704,6 +1237,14 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
      *                              cannot complete.
      */
     private int countNamedQuery(String name, Params params, Session session) {
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) session.getSessionFactory();
+        NamedSQLQueryDefinition definition = factory.getNamedQueryRepository().getNamedSQLQueryDefinition(name);
+        if (definition != null) {
+            Query count = session.createNativeQuery("select count(*) from (" + definition.getQueryString() + ") c");
+            params.setParameters(count);
+            return ((Number) count.getSingleResult()).intValue();
+        }
+
         Query query = session.getNamedQuery(name);
         params.setParameters(query);
 
@@ -758,11 +1299,39 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
             Context context = getContext(session);
             IMObjectDO object = (IMObjectDO) results.get(0);
             IMObject result = assembler.assemble(object, context);
-            context.resolveDeferredReferences();
+            resolveDeferredReferences(context);
             return result;
         }
     }
 
+    /**
+     * Retrieves objects of the same persistent class by identifier, {@link #BATCH_SIZE} at a time.
+     * <p/>
+     * The caller is responsible for resolving deferred references.
+     *
+     * @param clazz      the persistent class name
+     * @param references the references to retrieve, keyed on identifier
+     * @param session    the session
+     * @param context    the assembly context
+     * @param found      the map to add retrieved objects to
+     */
+    private void getObjects(String clazz, Map<Long, Reference> references, Session session, Context context,
+                            Map<Reference, IMObject> found) {
+        String queryString = "select entity from " + clazz + " as entity where entity.id in (:ids)";
+        List<Long> ids = new ArrayList<>(references.keySet());
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            Query query = session.createQuery(queryString);
+            query.setParameterList("ids", ids.subList(i, Math.min(i + BATCH_SIZE, ids.size())));
+            for (Object row : query.list()) {
+                IMObjectDO object = (IMObjectDO) row;
+                Reference reference = references.get(object.getId());
+                if (reference != null && reference.getArchetype().equals(object.getArchetypeId().getShortName())) {
+                    found.put(reference, assembler.assemble(object, context));
+                }
+            }
+        }
+    }
+
     /**
      * Adapts an object to the target type.
      * <p/>
@@ -817,6 +1386,57 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
     private void save(Collection<? extends IMObject> objects, Session session) {
         Context context = getContext(session);
         boolean deferred = !context.getSaveDeferred().isEmpty();
+        int interval = flushInterval;
+        if (interval <= 0 || objects.size() <= interval) {
+            assembleAndSave(objects, context);
+        } else {
+            List<IMObject> batch = new ArrayList<>(interval);
+            for (IMObject object : objects) {
+                batch.add(object);
+                if (batch.size() == interval) {
+                    saveBatch(batch, context);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                saveBatch(batch, context);
+            }
+        }
+        if (deferred || context.getSaveDeferred().size() > 1) {
+            saveDeferred(context, false);
+        }
+        if (!context.isSynchronizationActive()) {
+            preCommit(context);
+        }
+    }
+
+    /**
+     * Saves a batch of objects, flushing the session if there are no outstanding references to unsaved objects.
+     * <p/>
+     * References to objects in subsequent batches cannot be resolved until those batches are assembled, so the
+     * corresponding states are deferred. Flushing while these are outstanding would fail with transient object
+     * references, so the flush is skipped until they have been resolved.
+     *
+     * @param batch   the batch of objects to save
+     * @param context the assembly context
+     */
+    private void saveBatch(List<IMObject> batch, Context context) {
+        assembleAndSave(batch, context);
+        if (!context.getSaveDeferred().isEmpty()) {
+            saveDeferred(context, false);
+        }
+        if (context.getSaveDeferred().isEmpty()) {
+            context.getSession().flush();
+        }
+    }
+
+    /**
+     * Assembles objects, saving those that are complete and deferring the remainder.
+     *
+     * @param objects the objects to save
+     * @param context the assembly context
+     */
+    private void assembleAndSave(Collection<? extends IMObject> objects, Context context) {
         List<DOState> toSave = new ArrayList<>();
         for (IMObject object : objects) {
             DOState state = assembler.assemble(object, context);
@@ -829,12 +1449,6 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         if (!toSave.isEmpty()) {
             save(toSave, context);
         }
-        if (deferred || context.getSaveDeferred().size() > 1) {
-            saveDeferred(context, false);
-        }
-        if (!context.isSynchronizationActive()) {
-            preCommit(context);
-        }
     }
 
     /**
@@ -876,37 +1490,54 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
 
     /**
      * Attempts to assemble deferred objects.
+     * <p/>
+     * The deferred assemblers are collected up front. Each pass assembles those whose references can be resolved.
+     * As assembly may register further deferred assemblers, or defer other states, the assemblers are re-collected
+     * for the states that were assembled and for any newly deferred states, rather than for every state.
+     * States are removed from the work list as they become complete.
      *
      * @param context the assembly context
      * @return the assembled objects
      */
     private List<DOState> assembleDeferred(Context context) {
         List<DOState> result = new ArrayList<>();
+        Map<DOState, Set<DeferredAssembler>> pending = DOState.getDeferred(context.getSaveDeferred());
         boolean processed;
         do {
             processed = false;
-            Set<DeferredAssembler> assemblers = new HashSet<>();
-            Map<DOState, Set<DeferredAssembler>> deferred = DOState.getDeferred(context.getSaveDeferred());
-            for (Map.Entry<DOState, Set<DeferredAssembler>> entry : deferred.entrySet()) {
-                DOState state = entry.getKey();
-                Set<DeferredAssembler> set = entry.getValue();
-                if (!set.isEmpty()) {
-                    assemblers.addAll(set);
-                } else {
-                    // state requires no more assembly
-                    context.removeSaveDeferred(state);
-                    result.add(state);
+            Set<DOState> assembled = new LinkedHashSet<>();
+            Set<DeferredAssembler> done = new HashSet<>();
+            for (Map.Entry<DOState, Set<DeferredAssembler>> entry : pending.entrySet()) {
+                for (DeferredAssembler assembler : entry.getValue()) {
+                    if (context.getCached(assembler.getReference()) != null) {
+                        if (done.add(assembler)) {
+                            assembler.assemble(context);
+                        }
+                        assembled.add(entry.getKey());
+                    }
                 }
             }
-            if (!assemblers.isEmpty()) {
-                for (DeferredAssembler assembler : assemblers) {
-                    if (context.getCached(assembler.getReference()) != null) {
-                        assembler.assemble(context);
-                        processed = true;
+            if (!assembled.isEmpty()) {
+                processed = true;
+                for (DOState state : context.getSaveDeferred()) {
+                    if (!pending.containsKey(state)) {
+                        assembled.add(state);
                     }
                 }
+                pending.putAll(DOState.getDeferred(assembled));
+            }
+            Iterator<Map.Entry<DOState, Set<DeferredAssembler>>> entries = pending.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<DOState, Set<DeferredAssembler>> entry = entries.next();
+                if (entry.getValue().isEmpty()) {
+                    // state requires no more assembly
+                    DOState state = entry.getKey();
+                    context.removeSaveDeferred(state);
+                    result.add(state);
+                    entries.remove();
+                }
             }
-        } while (processed);
+        } while (processed && !pending.isEmpty());
         return result;
     }
 
@@ -920,6 +1551,7 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         Session session = context.getSession();
         Collection<IMObjectDO> objects = DOState.getObjects(states);
         for (IMObjectDO object : objects) {
+            indexer.index(object);
             session.saveOrUpdate(object);
         }
         DOState.updateIds(states, context);
@@ -941,6 +1573,23 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
         return context;
     }
 
+    /**
+     * Returns the tag to record query metrics against.
+     *
+     * @param query the query
+     * @return the archetypes being queried, if they are known, otherwise {@link #ALL}
+     */
+    private String getTag(IArchetypeQuery query) {
+        String result = ALL;
+        if (query instanceof ArchetypeQuery) {
+            Object constraint = ((ArchetypeQuery) query).getArchetypeConstraint();
+            if (constraint instanceof ShortNameConstraint) {
+                result = StringUtils.join(((ShortNameConstraint) constraint).getShortNames(), ',');
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns a new query delegator for the specified query.
      *
@@ -979,9 +1628,22 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
             return collector.getPage();
         }
 
+        public Stream<IMObject> stream(IArchetypeQuery query) {
+            return stream(query, () -> {
+                HibernateResultCollector<IMObject> collector = new IMObjectResultCollector();
+                collector.setLoader(new DefaultObjectLoader());
+                return collector;
+            });
+        }
+
         public abstract IPage<ObjectSet> getObjects(IArchetypeQuery query);
 
+        public abstract Stream<ObjectSet> streamObjects(IArchetypeQuery query);
+
         protected abstract void get(IArchetypeQuery query, ResultCollector collector);
+
+        protected abstract <T> Stream<T> stream(IArchetypeQuery query,
+                                                Supplier<HibernateResultCollector<T>> collectors);
     }
 
     class DefaultQueryDelegator extends QueryDelegator {
@@ -997,12 +1659,41 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
             return collector.getPage();
         }
 
+        public Stream<ObjectSet> streamObjects(IArchetypeQuery query) {
+            QueryBuilder builder = new QueryBuilder(cache, assembler);
+            QueryContext context = builder.build((ArchetypeQuery) query);
+            return stream(context, query, () -> {
+                HibernateResultCollector<ObjectSet> collector
+                        = new ObjectSetResultCollector(context.getSelectNames(), context.getRefSelectNames(),
+                                                       context.getSelectTypes());
+                collector.setLoader(new DefaultObjectLoader());
+                return collector;
+            });
+        }
+
         protected void get(IArchetypeQuery query, ResultCollector collector) {
             QueryBuilder builder = new QueryBuilder(cache, assembler);
             QueryContext context = builder.build((ArchetypeQuery) query);
             get(context, query, collector);
         }
 
+        protected <T> Stream<T> stream(IArchetypeQuery query, Supplier<HibernateResultCollector<T>> collectors) {
+            QueryBuilder builder = new QueryBuilder(cache, assembler);
+            QueryContext context = builder.build((ArchetypeQuery) query);
+            return stream(context, query, collectors);
+        }
+
+        private <T> Stream<T> stream(QueryContext context, IArchetypeQuery query,
+                                     Supplier<HibernateResultCollector<T>> collectors) {
+            String queryString = context.getQueryString();
+            if (log.isDebugEnabled()) {
+                log.debug("ArchetypeService.stream: query " + queryString);
+            }
+            return scroll(queryString, session -> session.createQuery(queryString),
+                          new Params(context.getParameters()), query.getFirstResult(), query.getMaxResults(),
+                          collectors);
+        }
+
         private void get(QueryContext context, IArchetypeQuery query, ResultCollector collector) {
             String queryString = context.getQueryString();
             String countQuery = null;
@@ -1015,7 +1706,8 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
                     countQuery = context.getQueryString(true);
                 }
                 executeQuery(queryString, countQuery, new Params(context.getParameters()),
-                             (HibernateResultCollector) collector, query.getFirstResult(), query.getMaxResults());
+                             (HibernateResultCollector) collector, query.getFirstResult(), query.getMaxResults(),
+                             getTag(query), query);
             } catch (Exception exception) {
                 throw new IMObjectDAOException(FailedToExecuteQuery, exception, queryString);
             }
@@ -1034,12 +1726,29 @@ public class IMObjectDAOHibernate implements IMObjectDAO, ContextHandler {
             return collector.getPage();
         }
 
+        public Stream<ObjectSet> streamObjects(IArchetypeQuery query) {
+            NamedQuery q = (NamedQuery) query;
+            List<String> names = (q.getNames() != null) ? new ArrayList<>(q.getNames()) : null;
+            List<String> refNames = Collections.emptyList();
+            return stream(query, () -> {
+                HibernateResultCollector<ObjectSet> collector = new ObjectSetResultCollector(names, refNames, null);
+                collector.setLoader(new DefaultObjectLoader());
+                return collector;
+            });
+        }
+
         protected void get(IArchetypeQuery query, ResultCollector collector) {
             NamedQuery q = (NamedQuery) query;
             getByNamedQuery(q.getQuery(), q.getParameters(), collector,
                             q.getFirstResult(), q.getMaxResults(),
                             q.countResults());
         }
+
+        protected <T> Stream<T> stream(IArchetypeQuery query, Supplier<HibernateResultCollector<T>> collectors) {
+            NamedQuery q = (NamedQuery) query;
+            return scroll(q.getQuery(), session -> session.getNamedQuery(q.getQuery()),
+                          new Params(q.getParameters()), q.getFirstResult(), q.getMaxResults(), collectors);
+        }
     }
 
     /**
@@ -0,0 +1,208 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.dao.hibernate.im;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.openvpms.component.business.dao.hibernate.im.common.Assembler;
+import org.openvpms.component.business.dao.hibernate.im.common.Context;
+import org.openvpms.component.business.dao.hibernate.im.entity.HibernateResultCollector;
+import org.openvpms.component.business.dao.im.common.IMObjectDAOException;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.openvpms.component.business.dao.im.common.IMObjectDAOException.ErrorCode.FailedToExecuteQuery;
+
+/**
+ * Iterates over forward-only {@code ScrollableResults}, assembling results in batches.
+ * <p/>
+ * After each batch is assembled, the assembly context is destroyed and the session cleared, so that memory use
+ * is independent of the number of results.
+ * <p/>
+ * The iterator owns the session, closing it when the results are exhausted, or {@link #close()} is invoked.
+ *
+ * @author Tim Anderson
+ */
+class ScrollableResultIterator<T> implements Iterator<T>, AutoCloseable {
+
+    /**
+     * The session.
+     */
+    private final Session session;
+
+    /**
+     * The results.
+     */
+    private final ScrollableResults results;
+
+    /**
+     * The query string, for error reporting.
+     */
+    private final String queryString;
+
+    /**
+     * Creates collectors to assemble each batch.
+     */
+    private final Supplier<HibernateResultCollector<T>> collectors;
+
+    /**
+     * The assembler.
+     */
+    private final Assembler assembler;
+
+    /**
+     * The number of rows to assemble in each batch.
+     */
+    private final int batchSize;
+
+    /**
+     * The current batch.
+     */
+    private Iterator<T> batch = Collections.emptyIterator();
+
+    /**
+     * Determines if there are no more rows to read.
+     */
+    private boolean done;
+
+    /**
+     * Determines if the iterator has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructs a {@link ScrollableResultIterator}.
+     *
+     * @param session     the session. This is closed when the iterator is closed
+     * @param results     the results
+     * @param queryString the query string, for error reporting
+     * @param collectors  creates collectors to assemble each batch
+     * @param assembler   the assembler
+     * @param batchSize   the number of rows to assemble in each batch
+     */
+    ScrollableResultIterator(Session session, ScrollableResults results, String queryString,
+                             Supplier<HibernateResultCollector<T>> collectors, Assembler assembler, int batchSize) {
+        this.session = session;
+        this.results = results;
+        this.queryString = queryString;
+        this.collectors = collectors;
+        this.assembler = assembler;
+        this.batchSize = batchSize > 0 ? batchSize : 1;
+    }
+
+    /**
+     * Returns {@code true} if the iteration has more elements.
+     *
+     * @return {@code true} if the iteration has more elements
+     * @throws IMObjectDAOException if the results cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (!batch.hasNext() && !done && !closed) {
+            try {
+                batch = next(collectors.get());
+            } catch (IMObjectDAOException exception) {
+                close();
+                throw exception;
+            } catch (Throwable exception) {
+                close();
+                throw new IMObjectDAOException(FailedToExecuteQuery, exception, queryString);
+            }
+        }
+        boolean result = batch.hasNext();
+        if (!result) {
+            close();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the next element in the iteration.
+     *
+     * @return the next element in the iteration
+     * @throws NoSuchElementException if the iteration has no more elements
+     * @throws IMObjectDAOException   if the results cannot be read
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.next();
+    }
+
+    /**
+     * Closes the results and the session.
+     * <p/>
+     * This may be invoked multiple times.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                results.close();
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Returns a sequential stream over the results. Closing the stream closes this iterator.
+     *
+     * @return a new stream
+     */
+    public Stream<T> stream() {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(
+                this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * Assembles the next batch of results.
+     *
+     * @param collector the collector to assemble the results
+     * @return an iterator over the batch
+     */
+    private Iterator<T> next(HibernateResultCollector<T> collector) {
+        Context context = Context.createContext(session, assembler);
+        collector.setSession(session);
+        collector.setContext(context);
+        int count = 0;
+        while (count < batchSize && results.next()) {
+            Object[] row = results.get();
+            collector.collect(row.length == 1 ? row[0] : row);
+            ++count;
+        }
+        if (count < batchSize) {
+            done = true;
+        }
+        context.resolveDeferredReferences();
+        Iterator<T> result = collector.getPage().getResults().iterator();
+        context.destroy();
+        session.clear();
+        return result;
+    }
+}
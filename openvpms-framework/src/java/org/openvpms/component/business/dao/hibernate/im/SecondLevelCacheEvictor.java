@@ -0,0 +1,57 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im;
+
+import org.openvpms.component.business.service.cache.Invalidation;
+import org.openvpms.component.business.service.cache.InvalidationListener;
+
+/**
+ * An {@link InvalidationListener} that evicts objects changed on other nodes from the hibernate second-level cache.
+ * <p/>
+ * This should be registered as the eviction listener of an
+ * {@link org.openvpms.component.business.service.cache.AbstractInvalidationBus}, so that it is notified before
+ * any listener that may reload the changed objects.
+ *
+ * @author Tim Anderson
+ */
+public class SecondLevelCacheEvictor implements InvalidationListener {
+
+    /**
+     * The DAO.
+     */
+    private final IMObjectDAOHibernate dao;
+
+    /**
+     * Constructs a {@link SecondLevelCacheEvictor}.
+     *
+     * @param dao the DAO
+     */
+    public SecondLevelCacheEvictor(IMObjectDAOHibernate dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Invoked when an object has changed on another node.
+     *
+     * @param invalidation the invalidation
+     */
+    @Override
+    public void invalidate(Invalidation invalidation) {
+        dao.evict(invalidation.getReference());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A query captured by the {@link SlowQueryRecorder}.
+ *
+ * @author Tim Anderson
+ */
+public class SlowQuery {
+
+    /**
+     * The time when the query completed.
+     */
+    private final Date time;
+
+    /**
+     * The execution time, in milliseconds.
+     */
+    private final long elapsed;
+
+    /**
+     * The originating query, or {@code null} if it isn't known.
+     */
+    private final String source;
+
+    /**
+     * The HQL, or {@code null} if the query is a native SQL query.
+     */
+    private final String hql;
+
+    /**
+     * The SQL, or {@code null} if it couldn't be generated.
+     */
+    private final String sql;
+
+    /**
+     * The bind parameters, keyed on name.
+     */
+    private final Map<String, Object> parameters;
+
+    /**
+     * The number of rows returned.
+     */
+    private final int rows;
+
+    /**
+     * The query plan, or {@code null} if the query wasn't explained.
+     */
+    private final String plan;
+
+    /**
+     * Constructs a {@link SlowQuery}.
+     *
+     * @param time       the time when the query completed
+     * @param elapsed    the execution time, in milliseconds
+     * @param source     the originating query. May be {@code null}
+     * @param hql        the HQL. May be {@code null}
+     * @param sql        the SQL. May be {@code null}
+     * @param parameters the bind parameters, keyed on name
+     * @param rows       the number of rows returned
+     * @param plan       the query plan. May be {@code null}
+     */
+    public SlowQuery(Date time, long elapsed, String source, String hql, String sql, Map<String, Object> parameters,
+                     int rows, String plan) {
+        this.time = time;
+        this.elapsed = elapsed;
+        this.source = source;
+        this.hql = hql;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.rows = rows;
+        this.plan = plan;
+    }
+
+    /**
+     * Returns the time when the query completed.
+     *
+     * @return the time
+     */
+    public Date getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the execution time, including the assembly of results.
+     *
+     * @return the execution time, in milliseconds
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Returns the originating query. For archetype queries, this describes the query constraints. For named queries,
+     * this is the query name.
+     *
+     * @return the originating query. May be {@code null}
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the HQL.
+     *
+     * @return the HQL, or {@code null} if the query is a native SQL query
+     */
+    public String getHQL() {
+        return hql;
+    }
+
+    /**
+     * Returns the SQL.
+     *
+     * @return the SQL, or {@code null} if it couldn't be generated
+     */
+    public String getSQL() {
+        return sql;
+    }
+
+    /**
+     * Returns the bind parameters.
+     *
+     * @return the bind parameters, keyed on name
+     */
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Returns the number of rows returned.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the query plan.
+     *
+     * @return the output of {@code EXPLAIN}, or {@code null} if the query wasn't explained
+     */
+    public String getPlan() {
+        return plan;
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.spi.NamedParameterInformation;
+import org.hibernate.hql.spi.ParameterTranslations;
+import org.hibernate.hql.spi.QueryTranslator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records queries that take longer than a threshold to execute, in a fixed-size ring buffer.
+ * <p/>
+ * For each slow query, this captures the originating query, the HQL, the generated SQL, the bind parameters,
+ * the number of rows and the execution time. If {@link #setExplain(boolean) explain} is enabled and the database is
+ * MySQL or MariaDB, the query plan is also captured by running {@code EXPLAIN} on the SQL.
+ * <p/>
+ * The SQL is only generated once a query is found to be slow, so queries under the threshold incur no overhead
+ * beyond a time comparison.
+ *
+ * @author Tim Anderson
+ */
+public class SlowQueryRecorder {
+
+    /**
+     * The recorded queries.
+     */
+    private final SlowQuery[] queries;
+
+    /**
+     * The index to write the next query to.
+     */
+    private int next;
+
+    /**
+     * The number of recorded queries.
+     */
+    private int size;
+
+    /**
+     * The threshold, in nanoseconds.
+     */
+    private volatile long threshold = TimeUnit.MILLISECONDS.toNanos(DEFAULT_THRESHOLD);
+
+    /**
+     * Determines if slow queries are explained.
+     */
+    private volatile boolean explain;
+
+    /**
+     * The default threshold, in milliseconds.
+     */
+    public static final long DEFAULT_THRESHOLD = 1000;
+
+    /**
+     * The default number of queries to retain.
+     */
+    public static final int DEFAULT_CAPACITY = 100;
+
+    /**
+     * Matches named parameters in native SQL.
+     */
+    private static final Pattern NAMED_PARAMETER = Pattern.compile("(?<![:\\w]):(\\w+)");
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(SlowQueryRecorder.class);
+
+    /**
+     * Constructs a {@link SlowQueryRecorder} that retains {@link #DEFAULT_CAPACITY} queries.
+     */
+    public SlowQueryRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a {@link SlowQueryRecorder}.
+     *
+     * @param capacity the maximum number of queries to retain. Once reached, the oldest query is discarded
+     */
+    public SlowQueryRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Argument 'capacity' must be > 0");
+        }
+        queries = new SlowQuery[capacity];
+    }
+
+    /**
+     * Sets the threshold above which queries are recorded.
+     *
+     * @param threshold the threshold, in milliseconds
+     */
+    public void setThreshold(long threshold) {
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+    }
+
+    /**
+     * Returns the threshold above which queries are recorded.
+     *
+     * @return the threshold, in milliseconds
+     */
+    public long getThreshold() {
+        return TimeUnit.NANOSECONDS.toMillis(threshold);
+    }
+
+    /**
+     * Determines if slow queries should be explained.
+     * <p/>
+     * This is only supported for MySQL and MariaDB, and for queries that don't have list parameters.
+     *
+     * @param explain if {@code true}, run {@code EXPLAIN} on slow queries
+     */
+    public void setExplain(boolean explain) {
+        this.explain = explain;
+    }
+
+    /**
+     * Determines if slow queries are explained.
+     *
+     * @return {@code true} if slow queries are explained
+     */
+    public boolean isExplain() {
+        return explain;
+    }
+
+    /**
+     * Determines if a query is slow enough to be recorded.
+     *
+     * @param elapsed the query execution time, in nanoseconds
+     * @return {@code true} if the query should be recorded
+     */
+    public boolean isSlow(long elapsed) {
+        return elapsed >= threshold;
+    }
+
+    /**
+     * Records a slow query.
+     *
+     * @param session   the session used to execute the query
+     * @param source    the originating query. May be {@code null}
+     * @param query     the HQL or SQL query string
+     * @param nativeSQL if {@code true}, the query is native SQL, otherwise it is HQL
+     * @param names     the parameter names
+     * @param values    the parameter values
+     * @param rows      the number of rows returned
+     * @param elapsed   the execution time, in nanoseconds
+     */
+    public void record(Session session, String source, String query, boolean nativeSQL, String[] names,
+                       Object[] values, int rows, long elapsed) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; ++i) {
+            parameters.put(names[i], values[i]);
+        }
+        Statement statement = null;
+        String plan = null;
+        try {
+            statement = (nativeSQL) ? parse(query, parameters) : translate(session, query, parameters);
+        } catch (Throwable exception) {
+            log.debug("Failed to generate SQL for query: " + query, exception);
+        }
+        if (explain && statement != null) {
+            if (statement.bindings == null) {
+                plan = "Queries with list parameters cannot be explained";
+            } else {
+                try {
+                    plan = explain(session, statement);
+                } catch (Throwable exception) {
+                    plan = "EXPLAIN failed: " + exception.getMessage();
+                }
+            }
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        if (log.isWarnEnabled()) {
+            log.warn("Query took " + millis + "ms, returning " + rows + " rows: " + query);
+        }
+        String hql = (nativeSQL) ? null : query;
+        String sql = (statement != null) ? statement.sql : (nativeSQL) ? query : null;
+        add(new SlowQuery(new Date(), millis, source, hql, sql, parameters, rows, plan));
+    }
+
+    /**
+     * Returns the recorded queries.
+     *
+     * @return the recorded queries, most recent first
+     */
+    public List<SlowQuery> getQueries() {
+        List<SlowQuery> result;
+        synchronized (queries) {
+            result = new ArrayList<>(size);
+            for (int i = 1; i <= size; ++i) {
+                result.add(queries[(next - i + queries.length) % queries.length]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Discards all recorded queries.
+     */
+    public void clear() {
+        synchronized (queries) {
+            for (int i = 0; i < queries.length; ++i) {
+                queries[i] = null;
+            }
+            next = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * Adds a query to the ring buffer, replacing the oldest query if it is full.
+     *
+     * @param query the query to add
+     */
+    private void add(SlowQuery query) {
+        synchronized (queries) {
+            queries[next] = query;
+            next = (next + 1) % queries.length;
+            if (size < queries.length) {
+                ++size;
+            }
+        }
+    }
+
+    /**
+     * Translates an HQL query to SQL.
+     *
+     * @param session    the session
+     * @param hql        the HQL query
+     * @param parameters the query parameters
+     * @return the SQL statement
+     */
+    private Statement translate(Session session, String hql, Map<String, Object> parameters) {
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) session.getSessionFactory();
+        QueryTranslator translator = new ASTQueryTranslatorFactory().createQueryTranslator(
+                hql, hql, Collections.emptyMap(), factory, null);
+        translator.compile(Collections.emptyMap(), false);
+        String sql = translator.getSQLString();
+        ParameterTranslations translations = translator.getParameterTranslations();
+        Object[] bindings = new Object[count(sql)];
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            NamedParameterInformation information = translations.getNamedParameterInformation(entry.getKey());
+            if (information != null) {
+                if (isList(entry.getValue())) {
+                    bindings = null;
+                    break;
+                }
+                for (int location : information.getSourceLocations()) {
+                    if (location < bindings.length) {
+                        bindings[location] = entry.getValue();
+                    }
+                }
+            }
+        }
+        return new Statement(sql, bindings);
+    }
+
+    /**
+     * Replaces the named parameters in a native SQL query with positional parameters.
+     *
+     * @param query      the query
+     * @param parameters the query parameters
+     * @return the SQL statement
+     */
+    private Statement parse(String query, Map<String, Object> parameters) {
+        List<Object> bindings = new ArrayList<>();
+        boolean bindable = true;
+        Matcher matcher = NAMED_PARAMETER.matcher(query);
+        StringBuffer sql = new StringBuffer();
+        while (matcher.find()) {
+            Object value = parameters.get(matcher.group(1));
+            if (isList(value)) {
+                bindable = false;
+            }
+            bindings.add(value);
+            matcher.appendReplacement(sql, "?");
+        }
+        matcher.appendTail(sql);
+        return new Statement(sql.toString(), bindable ? bindings.toArray() : null);
+    }
+
+    /**
+     * Runs {@code EXPLAIN} on a statement, if the database is MySQL or MariaDB.
+     *
+     * @param session   the session
+     * @param statement the statement to explain
+     * @return the query plan, or {@code null} if the database doesn't support {@code EXPLAIN}
+     */
+    private String explain(Session session, Statement statement) {
+        return session.doReturningWork(connection -> isMySQL(connection) ? explain(connection, statement) : null);
+    }
+
+    /**
+     * Runs {@code EXPLAIN} on a statement.
+     *
+     * @param connection the connection
+     * @param statement  the statement to explain
+     * @return the query plan, one line per row
+     * @throws SQLException for any SQL error
+     */
+    private String explain(Connection connection, Statement statement) throws SQLException {
+        StringBuilder result = new StringBuilder();
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql)) {
+            for (int i = 0; i < statement.bindings.length; ++i) {
+                explain.setObject(i + 1, toJDBC(statement.bindings[i]));
+            }
+            try (ResultSet set = explain.executeQuery()) {
+                ResultSetMetaData metaData = set.getMetaData();
+                while (set.next()) {
+                    if (result.length() != 0) {
+                        result.append('\n');
+                    }
+                    for (int i = 1; i <= metaData.getColumnCount(); ++i) {
+                        if (i > 1) {
+                            result.append(", ");
+                        }
+                        result.append(metaData.getColumnLabel(i)).append('=').append(set.getString(i));
+                    }
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Determines if a connection is to MySQL or MariaDB.
+     *
+     * @param connection the connection
+     * @return {@code true} if the connection is to MySQL or MariaDB
+     * @throws SQLException for any SQL error
+     */
+    private boolean isMySQL(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        return product != null && (product.contains("MySQL") || product.contains("MariaDB"));
+    }
+
+    /**
+     * Converts a query parameter to a type that can be bound to a JDBC statement.
+     *
+     * @param value the value
+     * @return the converted value
+     */
+    private Object toJDBC(Object value) {
+        if (value instanceof Date && !(value instanceof java.sql.Date) && !(value instanceof Timestamp)) {
+            value = new Timestamp(((Date) value).getTime());
+        } else if (value instanceof Enum) {
+            value = ((Enum) value).name();
+        }
+        return value;
+    }
+
+    /**
+     * Counts the positional parameters in a SQL statement.
+     *
+     * @param sql the SQL
+     * @return the number of positional parameters
+     */
+    private int count(String sql) {
+        int result = 0;
+        for (int i = 0; i < sql.length(); ++i) {
+            if (sql.charAt(i) == '?') {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a parameter is a list parameter.
+     *
+     * @param value the parameter value
+     * @return {@code true} if the parameter is a list parameter
+     */
+    private boolean isList(Object value) {
+        return value instanceof Collection || value instanceof Object[];
+    }
+
+    /**
+     * A SQL statement and its positional parameters.
+     */
+    private static class Statement {
+
+        /**
+         * The SQL.
+         */
+        private final String sql;
+
+        /**
+         * The positional parameters, or {@code null} if the statement has list parameters.
+         */
+        private final Object[] bindings;
+
+        /**
+         * Constructs a {@link Statement}.
+         *
+         * @param sql      the SQL
+         * @param bindings the positional parameters, or {@code null} if the statement has list parameters
+         */
+        Statement(String sql, Object[] bindings) {
+            this.sql = sql;
+            this.bindings = bindings;
+        }
+    }
+}
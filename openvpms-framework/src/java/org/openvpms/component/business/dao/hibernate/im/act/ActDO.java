@@ -16,7 +16,7 @@
 
 package org.openvpms.component.business.dao.hibernate.im.act;
 
-import org.openvpms.component.business.dao.hibernate.im.common.IMObjectDO;
+import org.openvpms.component.business.dao.hibernate.im.common.IndexedDetailsDO;
 import org.openvpms.component.business.domain.im.act.Act;
 import org.openvpms.component.business.domain.im.act.ActIdentity;
 
@@ -29,7 +29,7 @@ import java.util.Set;
  *
  * @author Tim Anderson
  */
-public interface ActDO extends IMObjectDO {
+public interface ActDO extends IndexedDetailsDO {
 
     /**
      * Returns the title.
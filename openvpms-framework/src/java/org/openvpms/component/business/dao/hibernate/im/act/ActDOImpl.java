@@ -17,10 +17,13 @@
 package org.openvpms.component.business.dao.hibernate.im.act;
 
 import org.openvpms.component.business.dao.hibernate.im.common.IMObjectDOImpl;
+import org.openvpms.component.business.dao.hibernate.im.common.IndexedValue;
 import org.openvpms.component.business.domain.im.act.ActIdentity;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -81,6 +84,10 @@ public class ActDOImpl extends IMObjectDOImpl implements ActDO {
      */
     private Set<ParticipationDO> participations = new HashSet<>();
 
+    /**
+     * The indexed details.
+     */
+    private Map<String, IndexedValue> indexedDetails = new HashMap<>();
 
     /**
      * Default constructor.
@@ -89,6 +96,15 @@ public class ActDOImpl extends IMObjectDOImpl implements ActDO {
         // do nothing
     }
 
+    /**
+     * Returns the indexed details, keyed on their 'details' key.
+     *
+     * @return the indexed details
+     */
+    public Map<String, IndexedValue> getIndexedDetails() {
+        return indexedDetails;
+    }
+
     /**
      * Returns the title.
      *
@@ -78,6 +78,18 @@ public class ParticipationAssembler
         assembleActRef(target, source, context);
     }
 
+    /**
+     * Determines if a participation has changed since its data object was loaded.
+     *
+     * @param target the data object
+     * @param source the participation
+     * @return {@code true} if the participation needs to be assembled
+     */
+    @Override
+    protected boolean isModified(ParticipationDO target, Participation source) {
+        return isDirty(target, source);
+    }
+
     /**
      * Creates a new object.
      *
@@ -185,7 +197,11 @@ public class ParticipationAssembler
                 context.addDeferredReference(
                         new DeferredReference(entity, EntityDOImpl.class) {
                             public void update(IMObjectReference reference) {
+                                // the reference reflects the persistent state, so it doesn't change whether
+                                // the object is dirty
+                                boolean dirty = result.isDirty();
                                 result.setEntity(reference);
+                                result.setDirty(dirty);
                             }
                         });
             }
@@ -210,7 +226,11 @@ public class ParticipationAssembler
                 context.addDeferredReference(
                         new DeferredReference(act, ActDOImpl.class) {
                             public void update(IMObjectReference reference) {
+                                // the reference reflects the persistent state, so it doesn't change whether
+                                // the object is dirty
+                                boolean dirty = result.isDirty();
                                 result.setAct(reference);
+                                result.setDirty(dirty);
                             }
                         });
             }
@@ -94,6 +94,7 @@ public class NodeDescriptorAssembler extends IMObjectAssembler<NodeDescriptor, N
         target.setDisplayName(source.getDisplayName());
         target.setFilter(source.getFilter());
         target.setHidden(source.isHidden());
+        target.setIndexed(source.isIndexed());
         target.setIndex(source.getIndex());
         target.setMaxCardinality(source.getMaxCardinality());
         target.setMaxLength(source.getMaxLength());
@@ -131,6 +132,7 @@ public class NodeDescriptorAssembler extends IMObjectAssembler<NodeDescriptor, N
         target.setDisplayName(source.getDisplayName());
         target.setFilter(source.getFilter());
         target.setHidden(source.isHidden());
+        target.setIndexed(source.isIndexed());
         target.setIndex(source.getIndex());
         target.setMaxCardinality(source.getMaxCardinality());
         target.setMaxLength(source.getMaxLength());
@@ -243,6 +243,20 @@ public interface NodeDescriptorDO extends DescriptorDO {
      */
     void setHidden(boolean hidden);
 
+    /**
+     * Determines if the node value is indexed.
+     *
+     * @return {@code true} if the node value is indexed
+     */
+    boolean isIndexed();
+
+    /**
+     * Determines if the node value is indexed.
+     *
+     * @param indexed if {@code true}, indicates the node value is indexed
+     */
+    void setIndexed(boolean indexed);
+
     /**
      * Determines if the node is read-only.
      *
@@ -90,6 +90,11 @@ public class NodeDescriptorDOImpl
      */
     private boolean hidden = false;
 
+    /**
+     * Determines whether the node value is indexed.
+     */
+    private boolean indexed = false;
+
     /**
      * Indicates whether the descriptor is readOnly
      */
@@ -476,6 +481,24 @@ public class NodeDescriptorDOImpl
         this.hidden = hidden;
     }
 
+    /**
+     * Determines if the node value is indexed.
+     *
+     * @return {@code true} if the node value is indexed
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Determines if the node value is indexed.
+     *
+     * @param indexed if {@code true}, indicates the node value is indexed
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+
     /**
      * Determines if the node is read-only.
      *
@@ -630,7 +653,7 @@ public class NodeDescriptorDOImpl
     @Override
     public String toString() {
         return new ToStringBuilder(this).append("name", getName())
-                .append("displayName", displayName).append("isHidden", hidden)
+                .append("displayName", displayName).append("isHidden", hidden).append("isIndexed", indexed)
                 .append("isArray", isArray).append("isDerived", derived)
                 .append("derivedValue", derivedValue).append("path", path)
                 .append("type", type).append("defaultValue", defaultValue)
@@ -75,6 +75,11 @@ public class Context {
      */
     private Map<Reference, DOState> refToDOMap = new HashMap<>();
 
+    /**
+     * A map of references to the objects retrieved within the transaction.
+     */
+    private Map<Reference, IMObject> refToObjectMap = new HashMap<>();
+
     /**
      * The set of data objects that have been saved in the session.
      */
@@ -85,6 +90,11 @@ public class Context {
      */
     private Set<DOState> saveDeferred = new LinkedHashSet<>();
 
+    /**
+     * The references of data objects that have been removed from the session.
+     */
+    private Set<Reference> removed = new HashSet<>();
+
     /**
      * The set of objects currently being assembled.
      */
@@ -146,6 +156,20 @@ public class Context {
         return context;
     }
 
+    /**
+     * Creates a new context that is not bound to the current transaction.
+     * <p>
+     * This may be used when reading results incrementally from a session not managed by the transaction, so that
+     * the context can be {@link #destroy() destroyed} periodically to release resources.
+     *
+     * @param session   the hibernate session
+     * @param assembler the assembler
+     * @return a new context
+     */
+    public static Context createContext(Session session, Assembler assembler) {
+        return new Context(assembler, session, false);
+    }
+
     /**
      * Registers the context handler.
      *
@@ -259,6 +283,17 @@ public class Context {
      */
     public void add(IMObject target, IMObjectDO source) {
         doToObjectMap.put(source, target);
+        refToObjectMap.put(source.getObjectReference(), target);
+    }
+
+    /**
+     * Registers an object that was retrieved without being assembled, so that subsequent retrievals within the
+     * transaction return the same instance.
+     *
+     * @param object the object
+     */
+    public void add(IMObject object) {
+        refToObjectMap.put(object.getObjectReference(), object);
     }
 
     /**
@@ -268,8 +303,10 @@ public class Context {
      */
     public void remove(IMObjectDO target) {
         IMObject source = doToObjectMap.get(target);
+        removed.add(target.getObjectReference());
         session.delete(target);
         doToObjectMap.remove(target);
+        refToObjectMap.remove(target.getObjectReference());
         if (source != null) {
             DOState state = objectToDOMap.get(source);
             objectToDOMap.remove(source);
@@ -311,6 +348,16 @@ public class Context {
         return refToDOMap.get(reference);
     }
 
+    /**
+     * Returns the object retrieved within the transaction for the specified object reference.
+     *
+     * @param reference the reference
+     * @return the corresponding object, or {@code null} if none is found
+     */
+    public IMObject getObject(Reference reference) {
+        return refToObjectMap.get(reference);
+    }
+
     /**
      * Retrieves a data object given its reference.
      *
@@ -400,10 +447,13 @@ public class Context {
 
     /**
      * Resolves deferred references.
+     *
+     * @return the number of deferred references processed
      */
-    public void resolveDeferredReferences() {
+    public int resolveDeferredReferences() {
         List<DeferredReference> deferred = getDeferredReferences();
-        if (!deferred.isEmpty()) {
+        int result = deferred.size();
+        if (result != 0) {
             Map<Class<? extends IMObjectDOImpl>, List<DeferredReference>> map = new HashMap<>();
             for (DeferredReference ref : deferred) {
                 IMObjectDO object = ref.getObject();
@@ -440,6 +490,7 @@ public class Context {
             }
             deferred.clear();
         }
+        return result;
     }
 
     /**
@@ -455,10 +506,14 @@ public class Context {
     /**
      * Invoked on transaction rollback.
      * <p/>
-     * This reverts identifier and version changes.
+     * This reverts identifier and version changes, and flags assembled objects as dirty.
      */
     public void rollback() {
         DOState.rollbackIds(getSaved());
+        // objects assembled within the transaction may no longer reflect the persistent state
+        for (IMObject object : doToObjectMap.values()) {
+            object.setDirty(true);
+        }
     }
 
     /**
@@ -471,8 +526,10 @@ public class Context {
         objectToDOMap.clear();
         doToObjectMap.clear();
         refToDOMap.clear();
+        refToObjectMap.clear();
         saved.clear();
         saveDeferred.clear();
+        removed.clear();
     }
 
     /**
@@ -520,6 +577,24 @@ public class Context {
         return saved;
     }
 
+    /**
+     * Returns the references of the data objects removed from the session.
+     *
+     * @return the removed references
+     */
+    public Set<Reference> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Determines if any objects have been saved or removed in the context.
+     *
+     * @return {@code true} if objects have been saved or removed
+     */
+    public boolean hasChanges() {
+        return !saved.isEmpty() || !saveDeferred.isEmpty() || !removed.isEmpty();
+    }
+
     /**
      * Returns the resource key.
      *
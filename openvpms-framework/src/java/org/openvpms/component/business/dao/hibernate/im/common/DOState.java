@@ -288,6 +288,10 @@ public class DOState {
         if (source.getVersion() != object.getVersion()) {
             throw new StaleObjectStateException(object.getClass().getName(), object.getId());
         }
+        if (this.source != null && this.source != source) {
+            // the previous instance won't be updated on commit, so no longer reflects the persistent state
+            this.source.setDirty(true);
+        }
         this.source = source;
         if (deferred != null) {
             deferred.clear();
@@ -388,6 +392,21 @@ public class DOState {
         return collector.getObjects();
     }
 
+    /**
+     * Returns the source objects of the specified states and their related states, that were new when the states
+     * were created.
+     *
+     * @param states the states
+     * @return the new source objects
+     */
+    public static Collection<IMObject> getNewSources(Collection<DOState> states) {
+        NewSourceCollector collector = new NewSourceCollector();
+        for (DOState state : states) {
+            collector.visit(state);
+        }
+        return collector.getSources();
+    }
+
     /**
      * Invoked after successful commit.
      * <p/>
@@ -601,7 +620,10 @@ public class DOState {
         protected boolean doVisit(DOState state) {
             IMObjectDO object = state.getObject();
             IMObject source = state.getSource();
+            boolean dirty = true;
             if (source != null) {
+                // if the source hasn't changed since it was assembled, it reflects the committed state
+                dirty = source.isDirty();
                 source.setId(object.getId());
                 source.setVersion(object.getVersion());
             }
@@ -615,6 +637,9 @@ public class DOState {
                     }
                 }
             }
+            if (source != null) {
+                source.setDirty(dirty);
+            }
             return true;
         }
     }
@@ -632,12 +657,14 @@ public class DOState {
          * @return {@code true}
          */
         protected boolean doVisit(DOState state) {
-            if (state.isNew) {
-                IMObject source = state.source;
-                if (source != null) {
+            IMObject source = state.source;
+            if (source != null) {
+                if (state.isNew) {
                     source.setId(-1);
                     source.setVersion(state.version);
                 }
+                // the source no longer reflects the persistent state
+                source.setDirty(true);
             }
             if (state.reverters != null) {
                 for (ReferenceUpdater reverter : state.reverters.values()) {
@@ -783,4 +810,37 @@ public class DOState {
         }
     }
 
+    /**
+     * Visitor that collects the source {@link IMObject}s of new states.
+     */
+    private static class NewSourceCollector extends Visitor {
+
+        /**
+         * The collected source objects.
+         */
+        private final List<IMObject> sources = new ArrayList<>();
+
+        /**
+         * Returns the collected source objects.
+         *
+         * @return the collected source objects
+         */
+        public List<IMObject> getSources() {
+            return sources;
+        }
+
+        /**
+         * Visits the specified state.
+         *
+         * @param state the state to visit
+         * @return {@code true}
+         */
+        protected boolean doVisit(DOState state) {
+            if (state.isNew) {
+                sources.add(state.getSource());
+            }
+            return true;
+        }
+    }
+
 }
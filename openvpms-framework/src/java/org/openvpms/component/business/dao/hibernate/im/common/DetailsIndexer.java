@@ -0,0 +1,183 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im.common;
+
+import org.apache.commons.lang.StringUtils;
+import org.openvpms.component.business.dao.im.common.IMObjectDAOException;
+import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor;
+import org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor;
+import org.openvpms.component.business.service.archetype.descriptor.cache.IArchetypeDescriptorCache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the index of {@link NodeDescriptor#isIndexed() indexed} 'details' nodes for {@link IndexedDetailsDO}s.
+ * <p/>
+ * This must be invoked prior to an object being saved.
+ *
+ * @author Tim Anderson
+ */
+public class DetailsIndexer {
+
+    /**
+     * The archetype descriptor cache.
+     */
+    private final IArchetypeDescriptorCache cache;
+
+    /**
+     * The indexed nodes, keyed on archetype.
+     */
+    private final Map<String, IndexedNodes> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a {@link DetailsIndexer}.
+     *
+     * @param cache the archetype descriptor cache
+     */
+    public DetailsIndexer(IArchetypeDescriptorCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Updates the index of an object, if it has indexed nodes.
+     * <p/>
+     * Objects whose archetype has no indexed nodes are left unchanged, to avoid loading their index.
+     *
+     * @param object the object
+     * @throws IMObjectDAOException if an indexed string node is longer than
+     *                              {@link ArchetypeDescriptor#MAX_INDEXED_LENGTH}
+     */
+    public void index(IMObjectDO object) {
+        if (object instanceof IndexedDetailsDO) {
+            Map<String, String> properties = getIndexedNodes(object.getArchetypeId().getShortName());
+            if (!properties.isEmpty()) {
+                index((IndexedDetailsDO) object, properties);
+            }
+        }
+    }
+
+    /**
+     * Returns the indexed nodes for an archetype.
+     *
+     * @param archetype the archetype
+     * @return the 'details' keys of the indexed nodes, mapped to the {@link IndexedValue} property used to index them
+     */
+    public Map<String, String> getIndexedNodes(String archetype) {
+        Map<String, String> result = Collections.emptyMap();
+        ArchetypeDescriptor descriptor = cache.getArchetypeDescriptor(archetype);
+        if (descriptor != null) {
+            IndexedNodes indexed = nodes.get(archetype);
+            if (indexed == null || indexed.descriptor != descriptor) {
+                // not yet determined, or the descriptor has been reloaded
+                indexed = new IndexedNodes(descriptor);
+                nodes.put(archetype, indexed);
+            }
+            result = indexed.properties;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the key of an indexed node in the 'details' map.
+     *
+     * @param node the node
+     * @return the key, or {@code null} if the node isn't an indexed details node
+     */
+    public static String getKey(org.openvpms.component.model.archetype.NodeDescriptor node) {
+        String result = null;
+        if (node.isIndexed()) {
+            String[] parts = StringUtils.split(node.getPath(), '/');
+            if (parts.length == 2 && "details".equals(parts[0])) {
+                result = parts[1];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updates the index of an object.
+     *
+     * @param object     the object
+     * @param properties the 'details' keys of the indexed nodes, mapped to their {@link IndexedValue} property
+     * @throws IMObjectDAOException if an indexed string node is longer than
+     *                              {@link ArchetypeDescriptor#MAX_INDEXED_LENGTH}
+     */
+    private void index(IndexedDetailsDO object, Map<String, String> properties) {
+        Map<String, Object> details = object.getDetails();
+        Map<String, IndexedValue> index = object.getIndexedDetails();
+        index.keySet().retainAll(properties.keySet());
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            String name = entry.getKey();
+            Object value = details.get(name);
+            IndexedValue indexed = null;
+            if (value != null && entry.getValue().equals(IndexedValue.getProperty(value.getClass()))) {
+                if (value instanceof String && ((String) value).length() > ArchetypeDescriptor.MAX_INDEXED_LENGTH) {
+                    // truncating the value would make queries on it return incorrect results
+                    throw new IMObjectDAOException(IMObjectDAOException.ErrorCode.IndexedValueTooLong,
+                                                   object.getArchetypeId().getShortName(), name,
+                                                   ArchetypeDescriptor.MAX_INDEXED_LENGTH);
+                }
+                indexed = IndexedValue.create(value);
+            }
+            if (indexed == null) {
+                index.remove(name);
+            } else if (!indexed.equals(index.get(name))) {
+                index.put(name, indexed);
+            }
+        }
+    }
+
+    /**
+     * The indexed nodes of an archetype.
+     */
+    private static class IndexedNodes {
+
+        /**
+         * The archetype descriptor.
+         */
+        private final ArchetypeDescriptor descriptor;
+
+        /**
+         * The 'details' keys of the indexed nodes, mapped to their {@link IndexedValue} property.
+         */
+        private final Map<String, String> properties;
+
+        /**
+         * Constructs an {@link IndexedNodes}.
+         *
+         * @param descriptor the archetype descriptor
+         */
+        IndexedNodes(ArchetypeDescriptor descriptor) {
+            this.descriptor = descriptor;
+            Map<String, String> map = new HashMap<>();
+            for (NodeDescriptor node : descriptor.getAllNodeDescriptors()) {
+                String key = getKey(node);
+                if (key != null) {
+                    String property = IndexedValue.getProperty(node.getClassType());
+                    if (property != null) {
+                        map.put(key, property);
+                    }
+                }
+            }
+            properties = (map.isEmpty()) ? Collections.emptyMap() : Collections.unmodifiableMap(map);
+        }
+    }
+}
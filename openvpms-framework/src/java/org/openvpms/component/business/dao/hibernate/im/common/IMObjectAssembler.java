@@ -119,6 +119,7 @@ public abstract class IMObjectAssembler<T extends IMObject, DO extends IMObjectD
             try {
                 context.addAssembling(state);
                 assembleDO(target, object, state, context);
+                source.setDirty(false);
             } finally {
                 context.removeAssembling(state);
             }
@@ -151,11 +152,15 @@ public abstract class IMObjectAssembler<T extends IMObject, DO extends IMObjectD
             // pre-cache just in case the graph is cyclic
             context.add(state, source);
 
-            try {
-                context.addAssembling(state);
-                assembleDO(typeDO.cast(target), typeImpl.cast(source), state, context);
-            } finally {
-                context.removeAssembling(state);
+            // objects that haven't changed since they were synchronised with the data object don't need assembling
+            if (isModified(typeDO.cast(target), typeImpl.cast(source))) {
+                try {
+                    context.addAssembling(state);
+                    assembleDO(typeDO.cast(target), typeImpl.cast(source), state, context);
+                    source.setDirty(false);
+                } finally {
+                    context.removeAssembling(state);
+                }
             }
         }
         return state;
@@ -179,6 +184,7 @@ public abstract class IMObjectAssembler<T extends IMObject, DO extends IMObjectD
             try {
                 context.addAssembling(target);
                 assembleObject(target, object, context);
+                target.setDirty(false);
             } finally {
                 context.removeAssembling(target);
             }
@@ -200,6 +206,7 @@ public abstract class IMObjectAssembler<T extends IMObject, DO extends IMObjectD
             try {
                 context.addAssembling(target);
                 assembleObject(typeImpl.cast(target), typeDO.cast(source), context);
+                target.setDirty(false);
             } finally {
                 context.removeAssembling(target);
             }
@@ -243,6 +250,33 @@ public abstract class IMObjectAssembler<T extends IMObject, DO extends IMObjectD
         return implDO;
     }
 
+    /**
+     * Determines if an object has changed since its data object was loaded.
+     * <p/>
+     * This is used to avoid re-assembling unchanged objects held in collections of the object being saved.
+     * <p/>
+     * This implementation always returns {@code true}. Subclasses may override it where the object type tracks its
+     * own changes via {@link IMObject#isDirty()}, and has no collections of its own.
+     *
+     * @param target the data object
+     * @param source the object
+     * @return {@code true} if the object needs to be assembled
+     */
+    protected boolean isModified(DO target, T source) {
+        return true;
+    }
+
+    /**
+     * Determines if an object has changed since it was synchronised with its data object.
+     *
+     * @param target the data object
+     * @param source the object
+     * @return {@code true} if the object has changed, or refers to a different version of the data object
+     */
+    protected static boolean isDirty(IMObjectDO target, IMObject source) {
+        return source.isDirty() || target.getId() != source.getId() || target.getVersion() != source.getVersion();
+    }
+
     /**
      * Assembles a data object from an object.
      *
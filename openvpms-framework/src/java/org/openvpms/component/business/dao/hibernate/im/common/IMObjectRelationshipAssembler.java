@@ -90,6 +90,18 @@ public abstract class IMObjectRelationshipAssembler<T extends IMObjectRelationsh
         assembleTargetRef(target, source, context);
     }
 
+    /**
+     * Determines if a relationship has changed since its data object was loaded.
+     *
+     * @param target the data object
+     * @param source the relationship
+     * @return {@code true} if the relationship needs to be assembled
+     */
+    @Override
+    protected boolean isModified(DO target, T source) {
+        return isDirty(target, source);
+    }
+
     /**
      * Assembles the source of the relationship.
      *
@@ -177,7 +189,11 @@ public abstract class IMObjectRelationshipAssembler<T extends IMObjectRelationsh
                 context.addDeferredReference(
                         new DeferredReference(relSource, endTypeImpl) {
                             public void update(IMObjectReference reference) {
+                                // the reference reflects the persistent state, so it doesn't change whether
+                                // the object is dirty
+                                boolean dirty = result.isDirty();
                                 result.setSource(reference);
+                                result.setDirty(dirty);
                             }
                         });
             }
@@ -202,7 +218,11 @@ public abstract class IMObjectRelationshipAssembler<T extends IMObjectRelationsh
                 context.addDeferredReference(
                         new DeferredReference(relTarget, endTypeImpl) {
                             public void update(IMObjectReference reference) {
+                                // the reference reflects the persistent state, so it doesn't change whether
+                                // the object is dirty
+                                boolean dirty = result.isDirty();
                                 result.setTarget(reference);
+                                result.setDirty(dirty);
                             }
                         });
             }
@@ -0,0 +1,42 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im.common;
+
+import java.util.Map;
+
+/**
+ * A data object that maintains an index of its 'details' node values.
+ * <p/>
+ * The index holds a typed copy of the value of each details node flagged as
+ * {@link org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor#isIndexed() indexed},
+ * so that queries on these nodes can be performed on indexed columns, rather than on the string value of the details.
+ *
+ * @author Tim Anderson
+ */
+public interface IndexedDetailsDO extends IMObjectDO {
+
+    /**
+     * Returns the indexed details, keyed on their 'details' key.
+     * <p/>
+     * These are maintained by the {@link DetailsIndexer}, and are not assembled into objects.
+     *
+     * @return the indexed details
+     */
+    Map<String, IndexedValue> getIndexedDetails();
+
+}
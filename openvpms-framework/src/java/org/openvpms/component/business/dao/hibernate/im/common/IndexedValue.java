@@ -0,0 +1,344 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im.common;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Date;
+
+/**
+ * A typed copy of a 'details' node value, held in an index.
+ * <p/>
+ * Only one of the value properties is populated, determined by the type of the node:
+ * <ul>
+ * <li>String nodes - {@link #getStringValue()}</li>
+ * <li>Boolean nodes - {@link #getBooleanValue()}</li>
+ * <li>Byte, Short, Integer and Long nodes - {@link #getLongValue()}</li>
+ * <li>BigDecimal and Money nodes - {@link #getDecimalValue()}</li>
+ * <li>Date nodes - {@link #getDateValue()}</li>
+ * </ul>
+ * Decimal values are held to {@link #DECIMAL_SCALE} places, as this is what the database stores. If they weren't,
+ * a reloaded index would differ from the node values, and be updated every time its object was saved.
+ *
+ * @author Tim Anderson
+ */
+public class IndexedValue {
+
+    /**
+     * The string value.
+     */
+    private String stringValue;
+
+    /**
+     * The boolean value.
+     */
+    private Boolean booleanValue;
+
+    /**
+     * The integer value.
+     */
+    private Long longValue;
+
+    /**
+     * The decimal value.
+     */
+    private BigDecimal decimalValue;
+
+    /**
+     * The date value.
+     */
+    private Date dateValue;
+
+    /**
+     * The string value property.
+     */
+    public static final String STRING_VALUE = "stringValue";
+
+    /**
+     * The boolean value property.
+     */
+    public static final String BOOLEAN_VALUE = "booleanValue";
+
+    /**
+     * The integer value property.
+     */
+    public static final String LONG_VALUE = "longValue";
+
+    /**
+     * The decimal value property.
+     */
+    public static final String DECIMAL_VALUE = "decimalValue";
+
+    /**
+     * The date value property.
+     */
+    public static final String DATE_VALUE = "dateValue";
+
+    /**
+     * The scale of the decimal value column.
+     */
+    public static final int DECIMAL_SCALE = 3;
+
+    /**
+     * Default constructor.
+     */
+    public IndexedValue() {
+        super();
+    }
+
+    /**
+     * Returns the string value.
+     *
+     * @return the string value. May be {@code null}
+     */
+    public String getStringValue() {
+        return stringValue;
+    }
+
+    /**
+     * Sets the string value.
+     *
+     * @param stringValue the string value. May be {@code null}
+     */
+    public void setStringValue(String stringValue) {
+        this.stringValue = stringValue;
+    }
+
+    /**
+     * Returns the boolean value.
+     *
+     * @return the boolean value. May be {@code null}
+     */
+    public Boolean getBooleanValue() {
+        return booleanValue;
+    }
+
+    /**
+     * Sets the boolean value.
+     *
+     * @param booleanValue the boolean value. May be {@code null}
+     */
+    public void setBooleanValue(Boolean booleanValue) {
+        this.booleanValue = booleanValue;
+    }
+
+    /**
+     * Returns the integer value.
+     *
+     * @return the integer value. May be {@code null}
+     */
+    public Long getLongValue() {
+        return longValue;
+    }
+
+    /**
+     * Sets the integer value.
+     *
+     * @param longValue the integer value. May be {@code null}
+     */
+    public void setLongValue(Long longValue) {
+        this.longValue = longValue;
+    }
+
+    /**
+     * Returns the decimal value.
+     *
+     * @return the decimal value. May be {@code null}
+     */
+    public BigDecimal getDecimalValue() {
+        return decimalValue;
+    }
+
+    /**
+     * Sets the decimal value.
+     *
+     * @param decimalValue the decimal value. May be {@code null}
+     */
+    public void setDecimalValue(BigDecimal decimalValue) {
+        this.decimalValue = decimalValue;
+    }
+
+    /**
+     * Returns the date value.
+     *
+     * @return the date value. May be {@code null}
+     */
+    public Date getDateValue() {
+        return dateValue;
+    }
+
+    /**
+     * Sets the date value.
+     *
+     * @param dateValue the date value. May be {@code null}
+     */
+    public void setDateValue(Date dateValue) {
+        this.dateValue = dateValue;
+    }
+
+    /**
+     * Creates an indexed value from a node value.
+     * <p/>
+     * String values must be no longer than
+     * {@link org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor#MAX_INDEXED_LENGTH}.
+     *
+     * @param value the node value. May be {@code null}
+     * @return the indexed value, or {@code null} if the value is {@code null} or cannot be indexed
+     */
+    public static IndexedValue create(Object value) {
+        IndexedValue result = null;
+        if (value != null) {
+            result = new IndexedValue();
+            if (value instanceof String) {
+                result.setStringValue((String) value);
+            } else if (value instanceof Boolean) {
+                result.setBooleanValue((Boolean) value);
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                       || value instanceof Byte) {
+                result.setLongValue(((Number) value).longValue());
+            } else if (value instanceof BigDecimal) {
+                result.setDecimalValue(new BigDecimal(value.toString()).setScale(DECIMAL_SCALE, RoundingMode.HALF_UP));
+            } else if (value instanceof Date) {
+                result.setDateValue(new Date(((Date) value).getTime()));
+            } else {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the name of the value property used to index values of the specified type.
+     *
+     * @param type the node type
+     * @return the property name, or {@code null} if the type cannot be indexed
+     */
+    public static String getProperty(Class<?> type) {
+        String result = null;
+        if (type == null) {
+            return null;
+        } else if (type == String.class) {
+            result = STRING_VALUE;
+        } else if (type == Boolean.class) {
+            result = BOOLEAN_VALUE;
+        } else if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class) {
+            result = LONG_VALUE;
+        } else if (BigDecimal.class.isAssignableFrom(type)) {
+            result = DECIMAL_VALUE;
+        } else if (Date.class.isAssignableFrom(type)) {
+            result = DATE_VALUE;
+        }
+        return result;
+    }
+
+    /**
+     * Converts a value to the type used to index it.
+     * <p/>
+     * This is required as queries on indexed nodes must use the type of the underlying column.
+     *
+     * @param value the value. May be {@code null}
+     * @return the converted value
+     */
+    public static Object convert(Object value) {
+        Object result = value;
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            result = ((Number) value).longValue();
+        } else if (value instanceof BigDecimal && value.getClass() != BigDecimal.class) {
+            result = new BigDecimal(value.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Indicates whether some other object is "equal to" this one.
+     *
+     * @param obj the reference object with which to compare
+     * @return {@code true} if this object is the same as the obj argument
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof IndexedValue)) {
+            return false;
+        }
+        IndexedValue other = (IndexedValue) obj;
+        return ObjectUtils.equals(stringValue, other.stringValue)
+               && ObjectUtils.equals(booleanValue, other.booleanValue)
+               && ObjectUtils.equals(longValue, other.longValue)
+               && compare(decimalValue, other.decimalValue)
+               && compare(dateValue, other.dateValue);
+    }
+
+    /**
+     * Returns a hash code value for the object.
+     *
+     * @return a hash code value for this object
+     */
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(stringValue)
+                .append(booleanValue)
+                .append(longValue)
+                .append(dateValue != null ? dateValue.getTime() : null)
+                .toHashCode();
+    }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object
+     */
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append(STRING_VALUE, stringValue)
+                .append(BOOLEAN_VALUE, booleanValue)
+                .append(LONG_VALUE, longValue)
+                .append(DECIMAL_VALUE, decimalValue)
+                .append(DATE_VALUE, dateValue)
+                .toString();
+    }
+
+    /**
+     * Compares two decimals, ignoring scale.
+     *
+     * @param value1 the first value. May be {@code null}
+     * @param value2 the second value. May be {@code null}
+     * @return {@code true} if they are equal
+     */
+    private static boolean compare(BigDecimal value1, BigDecimal value2) {
+        return (value1 == null) ? value2 == null : value2 != null && value1.compareTo(value2) == 0;
+    }
+
+    /**
+     * Compares two dates, ignoring their type. This is required as dates may be returned as Timestamps.
+     *
+     * @param value1 the first value. May be {@code null}
+     * @param value2 the second value. May be {@code null}
+     * @return {@code true} if they are equal
+     */
+    private static boolean compare(Date value1, Date value2) {
+        return (value1 == null) ? value2 == null : value2 != null && value1.getTime() == value2.getTime();
+    }
+}
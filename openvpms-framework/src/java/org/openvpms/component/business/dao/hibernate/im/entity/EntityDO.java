@@ -16,7 +16,7 @@
 
 package org.openvpms.component.business.dao.hibernate.im.entity;
 
-import org.openvpms.component.business.dao.hibernate.im.common.IMObjectDO;
+import org.openvpms.component.business.dao.hibernate.im.common.IndexedDetailsDO;
 import org.openvpms.component.business.dao.hibernate.im.lookup.LookupDO;
 import org.openvpms.component.business.domain.im.common.Entity;
 
@@ -28,7 +28,7 @@ import java.util.Set;
  *
  * @author Tim Anderson
  */
-public interface EntityDO extends IMObjectDO {
+public interface EntityDO extends IndexedDetailsDO {
 
     /**
      * Returns the entity identities.
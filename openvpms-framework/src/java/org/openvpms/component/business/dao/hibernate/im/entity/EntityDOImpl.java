@@ -17,10 +17,13 @@
 package org.openvpms.component.business.dao.hibernate.im.entity;
 
 import org.openvpms.component.business.dao.hibernate.im.common.IMObjectDOImpl;
+import org.openvpms.component.business.dao.hibernate.im.common.IndexedValue;
 import org.openvpms.component.business.dao.hibernate.im.lookup.LookupDO;
 import org.openvpms.component.business.domain.archetype.ArchetypeId;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -58,6 +61,10 @@ public class EntityDOImpl extends IMObjectDOImpl implements EntityDO {
      */
     private Set<LookupDO> classifications = new HashSet<LookupDO>();
 
+    /**
+     * The indexed details.
+     */
+    private Map<String, IndexedValue> indexedDetails = new HashMap<>();
 
     /**
      * Default constructor.
@@ -75,6 +82,15 @@ public class EntityDOImpl extends IMObjectDOImpl implements EntityDO {
         super(archetypeId);
     }
 
+    /**
+     * Returns the indexed details, keyed on their 'details' key.
+     *
+     * @return the indexed details
+     */
+    public Map<String, IndexedValue> getIndexedDetails() {
+        return indexedDetails;
+    }
+
     /**
      * Returns the entity identities.
      *
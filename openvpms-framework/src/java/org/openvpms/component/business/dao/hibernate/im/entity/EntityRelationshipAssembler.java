@@ -38,6 +38,20 @@ public class EntityRelationshipAssembler
               EntityRelationshipDO.class, EntityRelationshipDOImpl.class, EntityDO.class, EntityDOImpl.class);
     }
 
+    /**
+     * Determines if a relationship has changed since its data object was loaded.
+     * <p/>
+     * Relationships with an identity are always assembled, as the identity doesn't track its own changes.
+     *
+     * @param target the data object
+     * @param source the relationship
+     * @return {@code true} if the relationship needs to be assembled
+     */
+    @Override
+    protected boolean isModified(EntityRelationshipDO target, EntityRelationship source) {
+        return source.getIdentity() != null || super.isModified(target, source);
+    }
+
     /**
      * Assembles a data object from an object.
      *
@@ -25,6 +25,7 @@ import org.openvpms.component.business.dao.im.common.ResultCollector;
 import org.openvpms.component.system.common.query.IPage;
 
 import java.util.List;
+import java.util.function.IntSupplier;
 
 
 /**
@@ -103,6 +104,24 @@ public abstract class HibernateResultCollector<T>
         page.setTotalResults(total);
     }
 
+    /**
+     * Sets a function to calculate the total no. of results matching the query criteria on demand.
+     *
+     * @param counter the function to calculate the total
+     */
+    public void setTotalResults(IntSupplier counter) {
+        page.setTotalResults(counter);
+    }
+
+    /**
+     * Determines if there are more results after the collected page.
+     *
+     * @param moreResults if {@code true}, there are more results
+     */
+    public void setMoreResults(boolean moreResults) {
+        page.setMoreResults(moreResults);
+    }
+
     /**
      * Returns the collected page.
      *
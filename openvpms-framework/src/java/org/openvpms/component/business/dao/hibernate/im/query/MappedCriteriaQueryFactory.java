@@ -19,7 +19,10 @@ package org.openvpms.component.business.dao.hibernate.im.query;
 import org.apache.commons.lang.ClassUtils;
 import org.apache.commons.lang.StringUtils;
 import org.openvpms.component.business.dao.hibernate.im.common.CompoundAssembler;
+import org.openvpms.component.business.dao.hibernate.im.common.DetailsIndexer;
 import org.openvpms.component.business.dao.hibernate.im.common.IMObjectDO;
+import org.openvpms.component.business.dao.hibernate.im.common.IndexedDetailsDO;
+import org.openvpms.component.business.dao.hibernate.im.common.IndexedValue;
 import org.openvpms.component.business.domain.im.common.IMObjectReference;
 import org.openvpms.component.model.archetype.NodeDescriptor;
 import org.openvpms.component.model.object.IMObject;
@@ -331,12 +334,58 @@ public class MappedCriteriaQueryFactory {
      */
     private Path<?> getDetailsValuePath(PathImpl path, From<?, ?> parent, String key) {
         JoinType joinType = (parent instanceof Join) ? ((Join) parent).getJoinType() : JoinType.INNER;
-        MapJoin<Object, Object, Object> mapJoin = parent.joinMap("details", joinType);
+        boolean indexed = isIndexed(path.getNode(), parent);
+        MapJoin<Object, Object, Object> mapJoin = parent.joinMap(indexed ? "indexedDetails" : "details", joinType);
         mapJoin.on(builder.equal(mapJoin.key(), key));
         if (path.getAlias() != null) {
             mapJoin.alias(path.getAlias());
         }
-        return mapJoin.value().get("value");
+        String property = indexed ? IndexedValue.getProperty(path.getNode().getClassType()) : "value";
+        return mapJoin.value().get(property);
+    }
+
+    /**
+     * Determines if a node is indexed.
+     *
+     * @param node   the node
+     * @param parent the parent from clause
+     * @return {@code true} if the node is indexed
+     */
+    private boolean isIndexed(NodeDescriptor node, From<?, ?> parent) {
+        return DetailsIndexer.getKey(node) != null && IndexedValue.getProperty(node.getClassType()) != null
+               && IndexedDetailsDO.class.isAssignableFrom(parent.getJavaType());
+    }
+
+    /**
+     * Determines if an expression refers to an indexed node.
+     *
+     * @param expression the expression
+     * @param built      the map of built elements to their JPA equivalents
+     * @return {@code true} if the expression refers to an indexed node
+     */
+    private boolean isIndexed(Expression<?> expression, Map<TupleElement<?>, TupleElement<?>> built) {
+        boolean result = false;
+        if (expression instanceof PathImpl) {
+            PathImpl<?> path = (PathImpl<?>) expression;
+            TupleElement<?> parent = built.get(path.getParent());
+            result = path.getNode() != null && parent instanceof From
+                     && isIndexed(path.getNode(), (From<?, ?>) parent);
+        }
+        return result;
+    }
+
+    /**
+     * Converts a value compared with an expression, if the expression refers to an indexed node.
+     * <p/>
+     * This is required as indexed values must be compared using the type of the index column.
+     *
+     * @param expression the expression
+     * @param value      the value
+     * @param built      the map of built elements to their JPA equivalents
+     * @return the converted value
+     */
+    private Object convert(Expression<?> expression, Object value, Map<TupleElement<?>, TupleElement<?>> built) {
+        return isIndexed(expression, built) ? IndexedValue.convert(value) : value;
     }
 
     /**
@@ -479,6 +528,13 @@ public class MappedCriteriaQueryFactory {
     private Expression<?> buildIn(InPredicate predicate, Map<TupleElement<?>, TupleElement<?>> built) {
         Expression<?> expression = buildExpression(predicate.getExpression(), built);
         if (predicate.getValues() != null) {
+            if (isIndexed(predicate.getExpression(), built)) {
+                List<Object> values = new ArrayList<>();
+                for (Object value : predicate.getValues()) {
+                    values.add(IndexedValue.convert(value));
+                }
+                return expression.in(values);
+            }
             return expression.in(predicate.getValues());
         }
         List<Expression<?>> values = new ArrayList<>();
@@ -812,7 +868,7 @@ public class MappedCriteriaQueryFactory {
                         throw new IllegalStateException("Unsupported operator: " + comparison.getComparisonOperator());
                 }
             } else if (comparison.getLHS() instanceof ExpressionImpl) {
-                Comparable<Object> rhs = (Comparable<Object>) comparison.getRHS();
+                Comparable<Object> rhs = (Comparable<Object>) convert(comparison.getLHS(), comparison.getRHS(), built);
                 switch (comparison.getComparisonOperator()) {
                     case EQ:
                         result = builder.equal(lhs, rhs);
@@ -863,6 +919,8 @@ public class MappedCriteriaQueryFactory {
             Expression upper = buildExpression((Expression) upperBound, built);
             result = builder.between(value, lower, upper);
         } else {
+            lowerBound = convert(between.getValue(), lowerBound, built);
+            upperBound = convert(between.getValue(), upperBound, built);
             result = builder.between(value, (Comparable) lowerBound, (Comparable) upperBound);
         }
         return result;
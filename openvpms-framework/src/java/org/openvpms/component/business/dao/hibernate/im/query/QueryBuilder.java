@@ -19,6 +19,8 @@ package org.openvpms.component.business.dao.hibernate.im.query;
 
 import org.apache.commons.lang.StringUtils;
 import org.openvpms.component.business.dao.hibernate.im.common.CompoundAssembler;
+import org.openvpms.component.business.dao.hibernate.im.common.DetailsIndexer;
+import org.openvpms.component.business.dao.hibernate.im.common.IndexedValue;
 import org.openvpms.component.business.dao.hibernate.im.common.PeriodRelationshipDO;
 import org.openvpms.component.business.dao.hibernate.im.query.QueryContext.LogicalOperator;
 import org.openvpms.component.business.domain.archetype.ArchetypeId;
@@ -549,9 +551,16 @@ public class QueryBuilder {
             throw new QueryBuilderException(NoNodeDescriptorForName, constraint.getNodeName());
         }
 
-        // get the name of the attribute
-        String property = getProperty(ndesc);
-        context.addSortConstraint(constraint.getAlias(), property, constraint.isAscending());
+        String indexed = getIndexedProperty(constraint.getNodeName(), types, context);
+        if (indexed != null) {
+            int index = indexed.indexOf('.');
+            context.addSortConstraint(indexed.substring(0, index), indexed.substring(index + 1),
+                                      constraint.isAscending());
+        } else {
+            // get the name of the attribute
+            String property = getProperty(ndesc);
+            context.addSortConstraint(constraint.getAlias(), property, constraint.isAscending());
+        }
     }
 
     /**
@@ -786,15 +795,46 @@ public class QueryBuilder {
             throw new QueryBuilderException(NoNodeDescriptorForName, nodeName);
         }
 
-        // get the name of the attribute
-        String property = getProperty(desc);
-        if (alias == null) {
-            alias = types.getAlias();
+        result = getIndexedProperty(nodeName, types, context);
+        if (result == null) {
+            // get the name of the attribute
+            String property = getProperty(desc);
+            if (alias == null) {
+                alias = types.getAlias();
+            }
+            result = alias + "." + property;
         }
-        result = alias + "." + property;
         return result;
     }
 
+    /**
+     * Returns the details index property for a node, if the node is indexed in every archetype of a type set.
+     * <p>
+     * This joins the details index for the node's details key.
+     *
+     * @param nodeName the node name
+     * @param types    the type set
+     * @param context  the query context
+     * @return the property, qualified by the index join alias, or {@code null} if the node isn't indexed
+     */
+    private String getIndexedProperty(String nodeName, TypeSet types, QueryContext context) {
+        if (!types.hasIndexedDetails()) {
+            return null;
+        }
+        String key = null;
+        String property = null;
+        for (NodeDescriptor descriptor : getMatchingNodeDescriptors(types.getDescriptors(), nodeName)) {
+            String nodeKey = DetailsIndexer.getKey(descriptor);
+            String nodeProperty = (nodeKey != null) ? IndexedValue.getProperty(descriptor.getClazz()) : null;
+            if (nodeProperty == null || (key != null && (!key.equals(nodeKey) || !property.equals(nodeProperty)))) {
+                return null;
+            }
+            key = nodeKey;
+            property = nodeProperty;
+        }
+        return (key != null) ? context.joinIndexedDetails(types.getAlias(), key) + "." + property : null;
+    }
+
     /**
      * Returns a type alias or qualified property name, depending on whether the
      * supplied name refers to a type alias or a node name.
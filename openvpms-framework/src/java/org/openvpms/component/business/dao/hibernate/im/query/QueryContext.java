@@ -17,6 +17,7 @@
 package org.openvpms.component.business.dao.hibernate.im.query;
 
 import org.apache.commons.lang.WordUtils;
+import org.openvpms.component.business.dao.hibernate.im.common.IndexedValue;
 import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor;
 import org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor;
 import org.openvpms.component.model.object.Reference;
@@ -137,6 +138,11 @@ public class QueryContext {
      */
     private final Map<String, Object> params;
 
+    /**
+     * The details index join aliases, keyed on type alias and details key.
+     */
+    private final Map<String, String> indexJoins = new HashMap<>();
+
     /**
      * The default select name, if none are specified.
      */
@@ -443,6 +449,43 @@ public class QueryContext {
         return result;
     }
 
+    /**
+     * Joins the details index of a type, for the specified details key.
+     * <p>
+     * The index is joined using a left outer join, so that objects with no value for the key still match
+     * {@code is null} constraints. Subsequent calls with the same alias and key return the existing join.
+     * <p>
+     * The join is placed immediately after the from clause of the type, which may reside in a parent context if
+     * the type is being referenced from a sub-query.
+     *
+     * @param alias the type alias
+     * @param key   the details key
+     * @return the alias of the index join
+     */
+    String joinIndexedDetails(String alias, String key) {
+        String name = alias + "." + key;
+        String result = getIndexJoin(name);
+        if (result == null) {
+            QueryContext context = this;
+            int index = -1;
+            while (context != null && (index = context.indexOf(alias)) == -1) {
+                context = context.parent;
+            }
+            if (context == null) {
+                context = this;
+                index = fromClauses.size() - 1;
+            }
+            result = typeNames.getName("indexedValue");
+            String param = paramNames.getName("name");
+            FromClause join = new FromClause(JoinType.LeftOuterJoin, alias, "indexedDetails", result);
+            join.append("index(" + result + ") = :" + param);
+            params.put(param, key);
+            context.fromClauses.add(index + 1, join);
+            context.indexJoins.put(name, result);
+        }
+        return result;
+    }
+
     /**
      * Adds a select constraint.
      *
@@ -568,6 +611,14 @@ public class QueryContext {
         RelationalOp op = constraint.getOperator();
         String qname = getQualifiedPropertyName(property);
         Object[] parameters = constraint.getParameters();
+        if (isIndexJoin(qname)) {
+            // values in the details index are stored in a normalised form
+            Object[] converted = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; ++i) {
+                converted[i] = IndexedValue.convert(parameters[i]);
+            }
+            parameters = converted;
+        }
         switch (op) {
             case BTW:
                 if (parameters[0] != null || parameters[1] != null) {
@@ -780,12 +831,60 @@ public class QueryContext {
             return varStack.peek() + "." + property;
         }
         String prefix = property.substring(0, index);
-        if (typesets.get(prefix) == null) {
+        if (typesets.get(prefix) == null && !isIndexJoin(property)) {
             return varStack.peek() + "." + property;
         }
         return property;
     }
 
+    /**
+     * Determines if a qualified property refers to a details index join.
+     *
+     * @param property the qualified property
+     * @return {@code true} if the property refers to a details index join
+     */
+    private boolean isIndexJoin(String property) {
+        int index = property.indexOf('.');
+        if (index != -1) {
+            String prefix = property.substring(0, index);
+            for (QueryContext context = this; context != null; context = context.parent) {
+                if (context.indexJoins.containsValue(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the details index join for a type alias and details key, searching parent contexts if required.
+     *
+     * @param name the type alias and details key
+     * @return the join alias, or {@code null} if none is found
+     */
+    private String getIndexJoin(String name) {
+        String result = null;
+        for (QueryContext context = this; context != null && result == null; context = context.parent) {
+            result = context.indexJoins.get(name);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the from clause for a type alias.
+     *
+     * @param alias the type alias
+     * @return the index of the from clause, or {@code -1} if it isn't present
+     */
+    private int indexOf(String alias) {
+        for (int i = 0; i < fromClauses.size(); ++i) {
+            if (alias.equals(fromClauses.get(i).getAlias())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Adds a type set, creating an alias for it if one is not specified.
      * <p>
@@ -933,6 +1032,8 @@ public class QueryContext {
 
         private final boolean needsComma;
 
+        private final String alias;
+
         private boolean with;
 
         public FromClause(String type, String alias) {
@@ -958,6 +1059,7 @@ public class QueryContext {
             super.append(property);
             super.append(" as ");
             super.append(alias);
+            this.alias = alias;
             with = false;
         }
 
@@ -965,6 +1067,10 @@ public class QueryContext {
             return needsComma;
         }
 
+        public String getAlias() {
+            return alias;
+        }
+
         public Clause append(String value) {
             if (!with) {
                 super.append(" with ");
@@ -19,6 +19,7 @@ package org.openvpms.component.business.dao.hibernate.im.query;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.openvpms.component.business.dao.hibernate.im.common.CompoundAssembler;
+import org.openvpms.component.business.dao.hibernate.im.common.IndexedDetailsDO;
 import org.openvpms.component.business.domain.archetype.ArchetypeId;
 import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor;
 import org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor;
@@ -56,6 +57,11 @@ class TypeSet {
      */
     private final String className;
 
+    /**
+     * Determines if the type maintains an index of its details nodes.
+     */
+    private final boolean indexedDetails;
+
     /**
      * Type alias.
      */
@@ -76,6 +82,8 @@ class TypeSet {
         this.alias = alias;
         Class baseType = getClass(descriptors);
         className = assembler.getDOClassName(baseType.getName());
+        Class<?> type = assembler.getDOClass(baseType);
+        indexedDetails = type != null && IndexedDetailsDO.class.isAssignableFrom(type);
         this.descriptors = descriptors;
     }
 
@@ -115,6 +123,15 @@ class TypeSet {
         return descriptors;
     }
 
+    /**
+     * Determines if the type maintains an index of its details nodes.
+     *
+     * @return {@code true} if nodes flagged as indexed may be queried via the details index
+     */
+    public boolean hasIndexedDetails() {
+        return indexedDetails;
+    }
+
     /**
      * Determines if this type set contains another.
      *
@@ -22,10 +22,14 @@ package org.openvpms.component.business.dao.im;
 // java core
 
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.openvpms.component.system.common.query.IArchetypeQuery;
 import org.openvpms.component.system.common.query.IPage;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.List;
+import java.util.function.IntSupplier;
 
 /**
  * This object is used to support pagination, where a subset of the query
@@ -64,6 +68,16 @@ public class Page<T> implements Serializable, IPage<T> {
      */
     private int totalResults;
 
+    /**
+     * Calculates the total number of results on demand. If {@code null}, {@link #totalResults} is used.
+     */
+    private transient IntSupplier counter;
+
+    /**
+     * Determines if there are more results after this page. If {@code null}, this is determined from the
+     * total number of results, or if that isn't available, whether the page is full.
+     */
+    private Boolean moreResults;
 
     /**
      * Default constructor.
@@ -90,6 +104,24 @@ public class Page<T> implements Serializable, IPage<T> {
         this.totalResults = totalResults;
     }
 
+    /**
+     * Constructs a {@link Page} with the same paging details as another page, but different results.
+     * <p/>
+     * If the other page calculates its total on demand, so will this one.
+     *
+     * @param results the results
+     * @param page    the page to copy paging details from
+     */
+    public Page(List<T> results, IPage<?> page) {
+        this(results, page.getFirstResult(), page.getPageSize(), -1);
+        moreResults = page.hasMoreResults();
+        if (page instanceof Page && ((Page) page).counter != null) {
+            counter = page::getTotalResults;
+        } else {
+            totalResults = page.getTotalResults();
+        }
+    }
+
     /**
      * Returns the query results.
      *
@@ -147,11 +179,17 @@ public class Page<T> implements Serializable, IPage<T> {
 
     /**
      * Returns the total no. of results matching the query criteria.
+     * <p/>
+     * If the total is calculated on demand, it is calculated on the first call.
      *
      * @return the total no. of results matching the query criteria, or
      *         <code>-1</code> if not calculated
      */
     public int getTotalResults() {
+        if (counter != null) {
+            totalResults = counter.getAsInt();
+            counter = null;
+        }
         return totalResults;
     }
 
@@ -163,6 +201,46 @@ public class Page<T> implements Serializable, IPage<T> {
      */
     public void setTotalResults(int total) {
         totalResults = total;
+        counter = null;
+    }
+
+    /**
+     * Sets a function to calculate the total no. of results matching the query criteria, when
+     * {@link #getTotalResults()} is first invoked.
+     *
+     * @param counter the function to calculate the total
+     */
+    public void setTotalResults(IntSupplier counter) {
+        this.counter = counter;
+    }
+
+    /**
+     * Determines if there are more results after this page.
+     *
+     * @return {@code true} if there are more results after this page
+     */
+    public boolean hasMoreResults() {
+        boolean result;
+        if (moreResults != null) {
+            result = moreResults;
+        } else {
+            int size = (results != null) ? results.size() : 0;
+            if (counter == null && totalResults >= 0) {
+                result = firstResult + size < totalResults;
+            } else {
+                result = pageSize != IArchetypeQuery.ALL_RESULTS && size >= pageSize;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if there are more results after this page.
+     *
+     * @param moreResults if {@code true}, there are more results after this page
+     */
+    public void setMoreResults(boolean moreResults) {
+        this.moreResults = moreResults;
     }
 
     /**
@@ -187,4 +265,14 @@ public class Page<T> implements Serializable, IPage<T> {
         return str.toString();
     }
 
+    /**
+     * Calculates the total no. of results, if required, prior to serialization.
+     *
+     * @param out the stream to write to
+     * @throws IOException for any I/O error
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getTotalResults();
+        out.defaultWriteObject();
+    }
 }
@@ -30,6 +30,7 @@ import org.openvpms.component.system.common.query.criteria.MappedCriteriaQuery;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 
 /**
@@ -109,6 +110,36 @@ public interface IMObjectDAO {
      */
     IPage<NodeSet> getNodes(IArchetypeQuery query, Collection<String> nodes);
 
+    /**
+     * Streams the objects matching the query.
+     * <p/>
+     * Results are read incrementally from the database, and assembled in batches, so that memory use is independent
+     * of the number of results. Results are read using a separate connection to that of any current transaction,
+     * so uncommitted changes will not be visible.
+     * <p/>
+     * The stream must be closed to release the database connection, e.g. using try-with-resources.
+     *
+     * @param query the archetype query
+     * @return a stream of the objects that match the query criteria
+     * @throws IMObjectDAOException for any error
+     */
+    Stream<IMObject> stream(IArchetypeQuery query);
+
+    /**
+     * Streams the object sets matching the query.
+     * <p/>
+     * Results are read incrementally from the database, and assembled in batches, so that memory use is independent
+     * of the number of results. Results are read using a separate connection to that of any current transaction,
+     * so uncommitted changes will not be visible.
+     * <p/>
+     * The stream must be closed to release the database connection, e.g. using try-with-resources.
+     *
+     * @param query the archetype query
+     * @return a stream of the object sets that match the query criteria
+     * @throws IMObjectDAOException for any error
+     */
+    Stream<ObjectSet> streamObjects(IArchetypeQuery query);
+
     /**
      * Creates a JPA {@code CriteriaQuery} from an {@link CriteriaQuery}.
      *
@@ -187,6 +218,18 @@ public interface IMObjectDAO {
      */
     IMObject get(Reference reference, boolean active);
 
+    /**
+     * Returns the objects with the specified references.
+     * <p/>
+     * Uncached objects of the same type are retrieved in a single query.
+     *
+     * @param references the object references
+     * @return the objects, keyed on reference, in the order the references were supplied. References to objects that
+     * don't exist are excluded. Objects may be active or inactive
+     * @throws IMObjectDAOException for any error
+     */
+    Map<Reference, IMObject> get(Collection<? extends Reference> references);
+
     /**
      * Executes a get using the specified named query, the query
      * parameters and the result collector. The first result and the number of
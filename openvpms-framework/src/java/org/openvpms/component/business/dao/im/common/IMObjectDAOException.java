@@ -46,7 +46,8 @@ public class IMObjectDAOException extends OpenVPMSException {
         ObjectNotFound,
         InvalidQueryString,
         FailedToExecuteQuery,
-        CannotCollectObject
+        CannotCollectObject,
+        IndexedValueTooLong
     }
 
     /**
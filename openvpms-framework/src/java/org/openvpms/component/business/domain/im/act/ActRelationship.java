@@ -73,6 +73,7 @@ public class ActRelationship extends PeriodRelationship
     @Deprecated
     public void setSequence(int sequence) {
         this.sequence = sequence;
+        markDirty();
     }
 
     /**
@@ -83,6 +84,7 @@ public class ActRelationship extends PeriodRelationship
      */
     public void setParentChildRelationship(boolean parentChildRelationship) {
         this.parentChildRelationship = parentChildRelationship;
+        markDirty();
     }
 
     /**
@@ -19,6 +19,8 @@ package org.openvpms.component.business.domain.im.archetype.descriptor;
 
 import org.openvpms.component.business.domain.archetype.ArchetypeId;
 
+import java.lang.reflect.Method;
+
 /**
  * The action type descriptor defines an action that is associated
  * with an assertion. It is defined by a class and method name. An action
@@ -39,6 +41,11 @@ public class ActionTypeDescriptor extends Descriptor
      */
     private String methodName;
 
+    /**
+     * The resolved method. Determined on first use.
+     */
+    private transient volatile Method method;
+
     /**
      * Default SUID
      */
@@ -65,6 +72,7 @@ public class ActionTypeDescriptor extends Descriptor
     @Override
     public void setClassName(String className) {
         this.className = className;
+        method = null;
     }
 
     /**
@@ -81,6 +89,32 @@ public class ActionTypeDescriptor extends Descriptor
     @Override
     public void setMethodName(String methodName) {
         this.methodName = methodName;
+        method = null;
+    }
+
+    /**
+     * Returns the method to invoke for this action type.
+     * <p/>
+     * The method is resolved on first use. Methods accepting a single {@link ActionContext} are preferred over the
+     * old style binding of <em>(Object, NodeDescriptor, AssertionDescriptor)</em>.
+     *
+     * @return the method
+     * @throws ClassNotFoundException if the class cannot be found
+     * @throws NoSuchMethodException  if the method cannot be found
+     */
+    public Method resolveMethod() throws ClassNotFoundException, NoSuchMethodException {
+        Method result = method;
+        if (result == null) {
+            Class clazz = Thread.currentThread().getContextClassLoader().loadClass(className);
+            try {
+                result = clazz.getMethod(methodName, ActionContext.class);
+            } catch (NoSuchMethodException ignore) {
+                // try the old style binding
+                result = clazz.getMethod(methodName, Object.class, NodeDescriptor.class, AssertionDescriptor.class);
+            }
+            method = result;
+        }
+        return result;
     }
 
     /* (non-Javadoc)
@@ -91,6 +125,7 @@ public class ActionTypeDescriptor extends Descriptor
         ActionTypeDescriptor copy = (ActionTypeDescriptor) super.clone();
         copy.className = this.className;
         copy.methodName = this.methodName;
+        copy.method = null;
 
         return copy;
     }
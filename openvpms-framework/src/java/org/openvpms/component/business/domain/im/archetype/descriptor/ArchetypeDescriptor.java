@@ -21,9 +21,11 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.openvpms.component.business.domain.archetype.ArchetypeId;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -83,6 +85,11 @@ public class ArchetypeDescriptor extends Descriptor
      */
     private static final long serialVersionUID = 2L;
 
+    /**
+     * The maximum length of indexed String nodes.
+     */
+    public static final int MAX_INDEXED_LENGTH = 255;
+
 
     /**
      * Default constructor.
@@ -385,11 +392,42 @@ public class ArchetypeDescriptor extends Descriptor
                         Descriptor.ValidationError.DuplicateNodeDescriptor));
             }
             names.put(node.getName(), node);
+            if (node.isIndexed() && !isIndexable(node)) {
+                errors.add(new DescriptorValidationError(
+                        Descriptor.DescriptorType.NodeDescriptor,
+                        node.getName(), "indexed",
+                        Descriptor.ValidationError.UnsupportedIndexedNode));
+            }
         }
 
         return errors;
     }
 
+    /**
+     * Determines if a node can be indexed.
+     * <p/>
+     * Only top-level 'details' nodes of String, Boolean, integer, decimal or Date type can be indexed. String nodes
+     * must have a maximum length no greater than {@link #MAX_INDEXED_LENGTH}.
+     *
+     * @param node the node
+     * @return {@code true} if the node can be indexed
+     */
+    private boolean isIndexable(NodeDescriptor node) {
+        boolean result = false;
+        String[] parts = StringUtils.split(node.getPath(), '/');
+        if (parts.length == 2 && "details".equals(parts[0]) && node.getParent() == null) {
+            Class type = node.getClassType();
+            if (type == String.class) {
+                result = node.getMaxLength() <= MAX_INDEXED_LENGTH;
+            } else {
+                result = type == Boolean.class || type == Integer.class || type == Long.class || type == Short.class
+                         || type == Byte.class || BigDecimal.class.isAssignableFrom(type)
+                         || Date.class.isAssignableFrom(type);
+            }
+        }
+        return result;
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#hashCode()
      */
@@ -179,20 +179,13 @@ public class AssertionTypeDescriptor extends Descriptor
         }
 
         try {
-            Class clazz = Thread.currentThread().getContextClassLoader().loadClass(descriptor.getClassName());
-            Method method;
+            Method method = descriptor.resolveMethod();
             Object[] args;
-            try {
-                method = clazz.getMethod(descriptor.getMethodName(), ActionContext.class);
+            if (method.getParameterCount() == 1) {
                 args = new Object[]{new ActionContext(assertion, parent, node, target)};
-            } catch (NoSuchMethodException ignore) {
-                // try the old style binding
-                method = clazz.getMethod(descriptor.getMethodName(),
-                                         Object.class, NodeDescriptor.class,
-                                         AssertionDescriptor.class);
+            } else {
                 args = new Object[]{target, node, assertion};
             }
-
             return method.invoke(null, args);
         } catch (Exception exception) {
             throw new AssertionException(AssertionException.ErrorCode.FailedToApplyAssertion,
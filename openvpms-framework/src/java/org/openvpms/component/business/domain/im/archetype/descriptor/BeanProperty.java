@@ -0,0 +1,176 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.domain.im.archetype.descriptor;
+
+import org.apache.commons.jxpath.util.TypeConverter;
+import org.openvpms.component.system.common.jxpath.OpenVPMSTypeConverter;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Provides direct access to a bean property of a class, via {@code MethodHandle}s.
+ * <p/>
+ * Properties are resolved using {@code java.beans.Introspector}, as per JXPath, so that a path such as
+ * {@code /name} resolves to the same read and write methods.
+ *
+ * @author Tim Anderson
+ */
+class BeanProperty {
+
+    /**
+     * The read method, adapted to {@code (Object)Object}, or {@code null} if the property isn't readable.
+     */
+    private final MethodHandle getter;
+
+    /**
+     * The write method, adapted to {@code (Object,Object)void}, or {@code null} if the property isn't writable.
+     */
+    private final MethodHandle setter;
+
+    /**
+     * The property type.
+     */
+    private final Class<?> type;
+
+    /**
+     * The type converter, used to convert values prior to setting them.
+     */
+    private static final TypeConverter CONVERTER = new OpenVPMSTypeConverter();
+
+    /**
+     * The getter method type.
+     */
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * The setter method type.
+     */
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * Constructs a {@link BeanProperty}.
+     *
+     * @param getter the read method. May be {@code null}
+     * @param setter the write method. May be {@code null}
+     * @param type   the property type
+     */
+    private BeanProperty(MethodHandle getter, MethodHandle setter, Class<?> type) {
+        this.getter = getter;
+        this.setter = setter;
+        this.type = type;
+    }
+
+    /**
+     * Determines if the property can be read.
+     *
+     * @return {@code true} if the property can be read
+     */
+    public boolean isReadable() {
+        return getter != null;
+    }
+
+    /**
+     * Determines if the property can be written.
+     *
+     * @return {@code true} if the property can be written
+     */
+    public boolean isWritable() {
+        return setter != null;
+    }
+
+    /**
+     * Returns the property value.
+     *
+     * @param bean the bean
+     * @return the property value
+     * @throws Throwable for any error
+     */
+    public Object getValue(Object bean) throws Throwable {
+        return (Object) getter.invokeExact(bean);
+    }
+
+    /**
+     * Sets the property value.
+     * <p/>
+     * The value is converted to the property type if required, using the same converter that JXPath uses.
+     *
+     * @param bean  the bean
+     * @param value the value to set
+     * @throws Throwable for any error
+     */
+    public void setValue(Object bean, Object value) throws Throwable {
+        Object converted = CONVERTER.convert(value, type);
+        setter.invokeExact(bean, converted);
+    }
+
+    /**
+     * Resolves a property of a class.
+     *
+     * @param type the class
+     * @param name the property name
+     * @return the property, or {@code null} if the class has no such property, or it cannot be accessed directly
+     */
+    public static BeanProperty resolve(Class<?> type, String name) {
+        BeanProperty result = null;
+        try {
+            BeanInfo info = Introspector.getBeanInfo(type);
+            for (PropertyDescriptor descriptor : info.getPropertyDescriptors()) {
+                if (name.equals(descriptor.getName())) {
+                    Class<?> propertyType = descriptor.getPropertyType();
+                    if (propertyType != null) {
+                        MethodHandle getter = unreflect(descriptor.getReadMethod(), GETTER);
+                        MethodHandle setter = unreflect(descriptor.getWriteMethod(), SETTER);
+                        if (getter != null || setter != null) {
+                            result = new BeanProperty(getter, setter, propertyType);
+                        }
+                    }
+                    break;
+                }
+            }
+        } catch (IntrospectionException ignore) {
+            // no direct access
+        }
+        return result;
+    }
+
+    /**
+     * Creates a method handle for a method.
+     *
+     * @param method the method. May be {@code null}
+     * @param type   the type to adapt the handle to
+     * @return the method handle, or {@code null} if {@code method} is {@code null} or is inaccessible
+     */
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        MethodHandle result = null;
+        if (method != null) {
+            try {
+                result = MethodHandles.publicLookup().unreflect(method).asType(type);
+            } catch (IllegalAccessException ignore) {
+                // no direct access
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.domain.im.archetype.descriptor;
+
+import org.apache.commons.beanutils.MethodUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Invokes a single argument method used to add or remove collection elements, e.g. {@code addParticipation}.
+ * <p/>
+ * This resolves methods the same way as {@code MethodUtils.invokeMethod(Object, String, Object)}, but caches them
+ * by target and argument class, so the lookup is only performed once.
+ *
+ * @author Tim Anderson
+ */
+class ChildMethod {
+
+    /**
+     * The method name.
+     */
+    private final String name;
+
+    /**
+     * The resolved methods.
+     */
+    private final Map<Key, Method> methods = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a {@link ChildMethod}.
+     *
+     * @param name the method name
+     */
+    ChildMethod(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the method name.
+     *
+     * @return the method name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Invokes the method.
+     *
+     * @param target the object to invoke the method on
+     * @param arg    the method argument
+     * @return the result of the method
+     * @throws Exception for any error
+     */
+    public Object invoke(Object target, Object arg) throws Exception {
+        if (target == null || arg == null) {
+            return MethodUtils.invokeMethod(target, name, arg);
+        }
+        Key key = new Key(target.getClass(), arg.getClass());
+        Method method = methods.get(key);
+        if (method == null) {
+            method = MethodUtils.getMatchingAccessibleMethod(key.target, name, new Class[]{key.arg});
+            if (method == null) {
+                throw new NoSuchMethodException("No such accessible method: " + name + "() on object: "
+                                                + key.target.getName());
+            }
+            methods.put(key, method);
+        }
+        return method.invoke(target, arg);
+    }
+
+    /**
+     * Method key.
+     */
+    private static class Key {
+
+        /**
+         * The target class.
+         */
+        private final Class<?> target;
+
+        /**
+         * The argument class.
+         */
+        private final Class<?> arg;
+
+        /**
+         * Constructs a {@link Key}.
+         *
+         * @param target the target class
+         * @param arg    the argument class
+         */
+        Key(Class<?> target, Class<?> arg) {
+            this.target = target;
+            this.arg = arg;
+        }
+
+        /**
+         * Indicates whether some other object is "equal to" this one.
+         *
+         * @param obj the reference object with which to compare.
+         * @return {@code true} if this object is the same as the obj argument
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return target == other.target && arg == other.arg;
+        }
+
+        /**
+         * Returns a hash code value for the object.
+         *
+         * @return a hash code value for this object
+         */
+        @Override
+        public int hashCode() {
+            return 31 * target.hashCode() + arg.hashCode();
+        }
+    }
+}
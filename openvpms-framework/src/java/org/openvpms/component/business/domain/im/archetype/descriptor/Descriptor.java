@@ -49,7 +49,8 @@ public abstract class Descriptor extends IMObject {
      */
     public enum ValidationError {
         IsRequired,
-        DuplicateNodeDescriptor
+        DuplicateNodeDescriptor,
+        UnsupportedIndexedNode
     }
 
     /**
@@ -56,7 +56,8 @@ public class DescriptorException extends OpenVPMSException {
         WriteError,
         ReadError,
         FileReadError,
-        MappingError
+        MappingError,
+        FailedToGetValue
     }
 
     /**
@@ -0,0 +1,66 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.domain.im.archetype.descriptor;
+
+import org.openvpms.component.model.object.IMObject;
+import org.openvpms.component.system.common.jxpath.JXPathHelper;
+
+/**
+ * A {@link NodeAccessor} that evaluates the node path using JXPath.
+ * <p/>
+ * This is used for paths that cannot be resolved to direct property access.
+ *
+ * @author Tim Anderson
+ */
+class JXPathNodeAccessor implements NodeAccessor {
+
+    /**
+     * The node path.
+     */
+    private final String path;
+
+    /**
+     * Constructs a {@link JXPathNodeAccessor}.
+     *
+     * @param path the node path
+     */
+    JXPathNodeAccessor(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the value at the node path.
+     *
+     * @param object the object
+     * @return the value. May be {@code null}
+     */
+    @Override
+    public Object getValue(IMObject object) {
+        return JXPathHelper.newContext(object).getValue(path);
+    }
+
+    /**
+     * Sets the value at the node path.
+     *
+     * @param object the object
+     * @param value  the value to set. May be {@code null}
+     */
+    @Override
+    public void setValue(IMObject object, Object value) {
+        JXPathHelper.newContext(object).setValue(path, value);
+    }
+}
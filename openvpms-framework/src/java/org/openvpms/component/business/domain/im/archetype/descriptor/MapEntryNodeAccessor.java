@@ -0,0 +1,94 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.domain.im.archetype.descriptor;
+
+import org.openvpms.component.model.object.IMObject;
+
+import java.util.Map;
+
+/**
+ * A {@link NodeAccessor} for paths of the form <em>/property/key</em> where the property is a {@code Map},
+ * e.g. {@code /details/firstName}.
+ * <p/>
+ * If the property isn't a map, access falls back to JXPath.
+ *
+ * @author Tim Anderson
+ */
+class MapEntryNodeAccessor implements NodeAccessor {
+
+    /**
+     * The accessor for the map property.
+     */
+    private final PropertyNodeAccessor map;
+
+    /**
+     * The map key.
+     */
+    private final String key;
+
+    /**
+     * The fallback accessor, used when the property isn't a map.
+     */
+    private final NodeAccessor fallback;
+
+    /**
+     * Constructs a {@link MapEntryNodeAccessor}.
+     *
+     * @param map      the accessor for the map property
+     * @param key      the map key
+     * @param fallback the fallback accessor
+     */
+    MapEntryNodeAccessor(PropertyNodeAccessor map, String key, NodeAccessor fallback) {
+        this.map = map;
+        this.key = key;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns the value at the node path.
+     *
+     * @param object the object
+     * @return the value. May be {@code null}
+     */
+    @Override
+    public Object getValue(IMObject object) {
+        Object value = map.getValue(object);
+        if (value instanceof Map) {
+            return ((Map) value).get(key);
+        } else if (value == null) {
+            return null;
+        }
+        return fallback.getValue(object);
+    }
+
+    /**
+     * Sets the value at the node path.
+     *
+     * @param object the object
+     * @param value  the value to set. May be {@code null}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setValue(IMObject object, Object value) {
+        Object values = map.getValue(object);
+        if (values instanceof Map) {
+            ((Map) values).put(key, value);
+        } else {
+            fallback.setValue(object, value);
+        }
+    }
+}
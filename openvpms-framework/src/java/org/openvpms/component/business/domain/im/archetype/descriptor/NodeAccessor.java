@@ -0,0 +1,47 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.domain.im.archetype.descriptor;
+
+import org.openvpms.component.model.object.IMObject;
+
+/**
+ * Provides access to the value of a node, given its path.
+ * <p/>
+ * Accessors are created once per {@link NodeDescriptor} by the {@link NodeAccessorFactory}, and must be thread safe.
+ *
+ * @author Tim Anderson
+ */
+public interface NodeAccessor {
+
+    /**
+     * Returns the value at the node path.
+     *
+     * @param object the object
+     * @return the value. May be {@code null}
+     */
+    Object getValue(IMObject object);
+
+    /**
+     * Sets the value at the node path.
+     * <p/>
+     * The value will be converted to the type of the underlying property, if required.
+     *
+     * @param object the object
+     * @param value  the value to set. May be {@code null}
+     */
+    void setValue(IMObject object, Object value);
+}
@@ -0,0 +1,87 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.domain.im.archetype.descriptor;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Creates {@link NodeAccessor}s for node paths.
+ * <p/>
+ * Simple paths such as {@code /name}, {@code /participations} and {@code /details/firstName} are compiled to
+ * direct property and map access. All other paths are evaluated using JXPath.
+ *
+ * @author Tim Anderson
+ */
+public final class NodeAccessorFactory {
+
+    /**
+     * Matches <em>/property</em> and <em>/property/key</em> paths.
+     */
+    private static final Pattern SIMPLE_PATH = Pattern.compile(
+            "/([a-zA-Z_][a-zA-Z0-9_]*)(?:/([a-zA-Z_][a-zA-Z0-9_]*))?");
+
+    /**
+     * Default constructor.
+     */
+    private NodeAccessorFactory() {
+        // no-op
+    }
+
+    /**
+     * Creates an accessor for a path.
+     *
+     * @param path the node path
+     * @param type the class of objects the path will be evaluated against, used to resolve properties ahead of use.
+     *             May be {@code null}
+     * @return a new accessor
+     */
+    public static NodeAccessor create(String path, Class<?> type) {
+        NodeAccessor fallback = new JXPathNodeAccessor(path);
+        Matcher matcher = (path != null) ? SIMPLE_PATH.matcher(path) : null;
+        if (matcher == null || !matcher.matches()) {
+            return fallback;
+        }
+        String name = matcher.group(1);
+        String key = matcher.group(2);
+        NodeAccessor result;
+        if (key == null) {
+            PropertyNodeAccessor property = new PropertyNodeAccessor(name, fallback);
+            if (type != null) {
+                property.resolve(type);
+            }
+            result = property;
+        } else {
+            PropertyNodeAccessor map = new PropertyNodeAccessor(name, new JXPathNodeAccessor("/" + name));
+            if (type != null) {
+                map.resolve(type);
+            }
+            result = new MapEntryNodeAccessor(map, key, fallback);
+        }
+        return result;
+    }
+
+    /**
+     * Determines if an accessor evaluates paths using JXPath.
+     *
+     * @param accessor the accessor
+     * @return {@code true} if the accessor uses JXPath
+     */
+    public static boolean isJXPath(NodeAccessor accessor) {
+        return accessor instanceof JXPathNodeAccessor;
+    }
+}
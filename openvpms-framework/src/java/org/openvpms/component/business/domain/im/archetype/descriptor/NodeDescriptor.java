@@ -115,6 +115,11 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
      */
     private boolean isHidden = false;
 
+    /**
+     * Determines if the node value is indexed. Only applies to nodes stored in the 'details' map.
+     */
+    private boolean isIndexed = false;
+
     /**
      * Indicates that the collection type is a parentChild relationship, which
      * is the default for a collection. If this attribute is set to false then
@@ -190,6 +195,21 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
      */
     private ArchetypeDescriptor archetype;
 
+    /**
+     * The accessor for the node path. Created on first use.
+     */
+    private transient volatile NodeAccessor accessor;
+
+    /**
+     * The method used to add children when a base name is specified. Created on first use.
+     */
+    private transient volatile ChildMethod addMethod;
+
+    /**
+     * The method used to remove children when a base name is specified. Created on first use.
+     */
+    private transient volatile ChildMethod removeMethod;
+
     /**
      * Serialization version identifier.
      */
@@ -256,7 +276,7 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
         }
 
         // retrieve the value at that node
-        Object obj = JXPathHelper.newContext(context).getValue(getPath());
+        Object obj = getAccessor().getValue(context);
 
         try {
             if (StringUtils.isEmpty(baseName)) {
@@ -276,14 +296,14 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
             } else {
                 // if a baseName has been specified then prepend 'add' to the
                 // base name and excute the derived method on context object
-                String methodName = "add" + StringUtils.capitalize(baseName);
+                ChildMethod method = getAddMethod();
 
                 // TODO This is a tempoaray fix until we resolve the discrepency
                 // with collections.
                 if (obj instanceof IMObject) {
-                    MethodUtils.invokeMethod(obj, methodName, child);
+                    method.invoke(obj, child);
                 } else {
-                    MethodUtils.invokeMethod(context, methodName, child);
+                    method.invoke(context, child);
                 }
             }
         } catch (Exception exception) {
@@ -351,8 +371,8 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
         // attempt to derive the value
         try {
             JXPathContext context = JXPathHelper.newContext(imobj);
-            Object value = context.getValue(this.getDerivedValue());
-            context.getPointer(this.getPath()).setValue(value);
+            Object value = JXPathHelper.getValue(context, getDerivedValue());
+            JXPathHelper.getPointer(context, getPath()).setValue(value);
         } catch (Exception exception) {
             throw new FailedToDeriveValueException(
                     FailedToDeriveValueException.ErrorCode.FailedToDeriveValue,
@@ -472,7 +492,7 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
         List<IMObject> children = null;
         if (isCollection()) {
             try {
-                Object obj = JXPathHelper.newContext(target).getValue(getPath());
+                Object obj = getAccessor().getValue(target);
                 if (obj == null) {
                     children = new ArrayList<>();
                 } else if (obj instanceof Collection) {
@@ -745,7 +765,7 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
         if (isDerived()) {
             String derivedValue = getDerivedValue();
             if (derivedValue != null) {
-                value = JXPathHelper.newContext(context).getValue(derivedValue);
+                value = JXPathHelper.getValue(JXPathHelper.newContext(context), derivedValue);
             } else {
                 value = null;
             }
@@ -753,13 +773,30 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
             if (isCollection()) {
                 value = getChildren(context);
             } else {
-                value = JXPathHelper.newContext(context).getValue(getPath());
+                value = getAccessor().getValue(context);
             }
         }
 
         return transform(value);
     }
 
+    /**
+     * Returns the accessor for the node path.
+     * <p>
+     * Simple paths such as {@code /name} and {@code /details/firstName} are resolved to direct property and map
+     * access; all others are evaluated using JXPath.
+     *
+     * @return the accessor
+     */
+    public NodeAccessor getAccessor() {
+        NodeAccessor result = accessor;
+        if (result == null) {
+            result = NodeAccessorFactory.create(getPath(), getArchetypeClass());
+            accessor = result;
+        }
+        return result;
+    }
+
     /**
      * Returns the value of this node given the specified context.
      *
@@ -771,12 +808,12 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
         Object value = null;
         if (context != null) {
             if (isDerived()) {
-                value = context.getValue(getDerivedValue());
+                value = JXPathHelper.getValue(context, getDerivedValue());
             } else {
                 if (isCollection()) {
                     value = getChildren((IMObject) context.getContextBean());
                 } else {
-                    value = context.getValue(getPath());
+                    value = JXPathHelper.getValue(context, getPath());
                 }
             }
         }
@@ -876,6 +913,18 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
         return isHidden;
     }
 
+    /**
+     * Determines if the node value is indexed.
+     * <p/>
+     * Indexed nodes are stored in the 'details' map, with a copy of their value held in a typed, indexed column that
+     * is used when querying the node.
+     *
+     * @return {@code true} if the node value is indexed
+     */
+    public boolean isIndexed() {
+        return isIndexed;
+    }
+
     /**
      * Indicates that this node defines an identifier. When creating the nodes
      * for an Archetype a node should be added for the generic IMObject uid
@@ -1058,7 +1107,7 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
                     getName());
         }
 
-        Object obj = JXPathHelper.newContext(context).getValue(getPath());
+        Object obj = getAccessor().getValue(context);
 
         try {
             if (StringUtils.isEmpty(baseName)) {
@@ -1077,12 +1126,12 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
             } else {
                 // if a baseName has been specified then prepend 'add' to the
                 // base name and excute the derived method on contxt object
-                String methodName = "remove" + StringUtils.capitalize(baseName);
+                ChildMethod method = getRemoveMethod();
 
                 if (obj instanceof IMObject) {
-                    MethodUtils.invokeMethod(obj, methodName, child);
+                    method.invoke(obj, child);
                 } else {
-                    MethodUtils.invokeMethod(context, methodName, child);
+                    method.invoke(context, child);
                 }
 
             }
@@ -1098,6 +1147,8 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
      */
     public void setBaseName(String baseName) {
         this.baseName = baseName;
+        addMethod = null;
+        removeMethod = null;
     }
 
     /**
@@ -1145,6 +1196,15 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
         this.isHidden = isHidden;
     }
 
+    /**
+     * Determines if the node value is indexed.
+     *
+     * @param indexed if {@code true}, the node value is indexed
+     */
+    public void setIndexed(boolean indexed) {
+        isIndexed = indexed;
+    }
+
     /**
      * @param index The index to set.
      */
@@ -1222,6 +1282,7 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
      */
     public void setPath(String path) {
         this.path = path;
+        accessor = null;
     }
 
     /**
@@ -1278,10 +1339,9 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
                 value = descriptor.set(value, context, this);
             }
             if (isArray) {
-                JXPathHelper.newContext(context).setValue(getPath(), value);
+                getAccessor().setValue(context, value);
             } else {
-                JXPathHelper.newContext(context).setValue(getPath(),
-                                                          transform(value));
+                getAccessor().setValue(context, transform(value));
             }
         } catch (Exception exception) {
             throw new DescriptorException(
@@ -1318,6 +1378,7 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
      */
     public void setArchetypeDescriptor(ArchetypeDescriptor descriptor) {
         archetype = descriptor;
+        accessor = null;
     }
 
     /**
@@ -1330,6 +1391,51 @@ public class NodeDescriptor extends Descriptor implements org.openvpms.component
         this.parent = parent;
     }
 
+    /**
+     * Returns the method used to add children, when a base name is specified.
+     *
+     * @return the add method
+     */
+    private ChildMethod getAddMethod() {
+        ChildMethod result = addMethod;
+        if (result == null) {
+            result = new ChildMethod("add" + StringUtils.capitalize(baseName));
+            addMethod = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the method used to remove children, when a base name is specified.
+     *
+     * @return the remove method
+     */
+    private ChildMethod getRemoveMethod() {
+        ChildMethod result = removeMethod;
+        if (result == null) {
+            result = new ChildMethod("remove" + StringUtils.capitalize(baseName));
+            removeMethod = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the class of the archetype that this is a node of.
+     *
+     * @return the archetype class, or {@code null} if it is not known or cannot be loaded
+     */
+    private Class getArchetypeClass() {
+        Class result = null;
+        if (archetype != null && parent == null) {
+            try {
+                result = archetype.getClazz();
+            } catch (DescriptorException ignore) {
+                // the class will be resolved on first access
+            }
+        }
+        return result;
+    }
+
     /**
      * Filter the children in the list and return only those that comply with
      * the filter term
@@ -0,0 +1,134 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.domain.im.archetype.descriptor;
+
+import org.openvpms.component.model.object.IMObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link NodeAccessor} for paths of the form <em>/property</em>, e.g. {@code /name} or {@code /participations}.
+ * <p/>
+ * The property is resolved to its read and write methods once per class. If the class doesn't have an accessible
+ * property of the same name, access falls back to JXPath.
+ *
+ * @author Tim Anderson
+ */
+class PropertyNodeAccessor implements NodeAccessor {
+
+    /**
+     * The property name.
+     */
+    private final String name;
+
+    /**
+     * The fallback accessor, used when the property can't be accessed directly.
+     */
+    private final NodeAccessor fallback;
+
+    /**
+     * The resolved properties, keyed on class. Classes that cannot be accessed directly map to {@link #NONE}.
+     */
+    private final Map<Class<?>, Object> properties = new ConcurrentHashMap<>();
+
+    /**
+     * Placeholder for classes whose property can't be accessed directly.
+     */
+    private static final Object NONE = new Object();
+
+    /**
+     * Constructs a {@link PropertyNodeAccessor}.
+     *
+     * @param name     the property name
+     * @param fallback the fallback accessor
+     */
+    PropertyNodeAccessor(String name, NodeAccessor fallback) {
+        this.name = name;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Resolves the property for a class ahead of use.
+     *
+     * @param type the class
+     */
+    public void resolve(Class<?> type) {
+        getProperty(type);
+    }
+
+    /**
+     * Returns the value at the node path.
+     *
+     * @param object the object
+     * @return the value. May be {@code null}
+     */
+    @Override
+    public Object getValue(IMObject object) {
+        BeanProperty property = getProperty(object.getClass());
+        if (property == null || !property.isReadable()) {
+            return fallback.getValue(object);
+        }
+        try {
+            return property.getValue(object);
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable exception) {
+            throw new DescriptorException(DescriptorException.ErrorCode.FailedToGetValue, exception, name);
+        }
+    }
+
+    /**
+     * Sets the value at the node path.
+     *
+     * @param object the object
+     * @param value  the value to set. May be {@code null}
+     */
+    @Override
+    public void setValue(IMObject object, Object value) {
+        BeanProperty property = getProperty(object.getClass());
+        if (property == null || !property.isWritable()) {
+            fallback.setValue(object, value);
+        } else {
+            try {
+                property.setValue(object, value);
+            } catch (RuntimeException | Error exception) {
+                throw exception;
+            } catch (Throwable exception) {
+                throw new DescriptorException(DescriptorException.ErrorCode.FailedToSetValue, exception, name);
+            }
+        }
+    }
+
+    /**
+     * Returns the property for a class.
+     *
+     * @param type the class
+     * @return the property, or {@code null} if it can't be accessed directly
+     */
+    private BeanProperty getProperty(Class<?> type) {
+        Object result = properties.get(type);
+        if (result == null) {
+            result = BeanProperty.resolve(type, name);
+            if (result == null) {
+                result = NONE;
+            }
+            properties.put(type, result);
+        }
+        return (result != NONE) ? (BeanProperty) result : null;
+    }
+}
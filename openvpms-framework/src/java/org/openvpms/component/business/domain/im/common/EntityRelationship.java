@@ -71,6 +71,7 @@ public class EntityRelationship extends SequencedRelationship
      */
     public void setIdentity(EntityIdentity identity) {
         this.identity = identity;
+        markDirty();
     }
 
     /* (non-Javadoc)
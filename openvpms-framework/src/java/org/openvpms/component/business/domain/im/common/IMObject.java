@@ -16,6 +16,7 @@
 
 package org.openvpms.component.business.domain.im.common;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.builder.StandardToStringStyle;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.logging.Log;
@@ -93,6 +94,25 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     private Map<String, Object> details = new HashMap<>();
 
+    /**
+     * Determines if the object is unchanged since it was last synchronised with the database.
+     * <p/>
+     * This is transient, so that deserialized objects are always treated as changed.
+     */
+    private transient boolean clean;
+
+    /**
+     * The details at the time the object was marked clean. These are used to detect changes made directly to the
+     * map returned by {@link #getDetails()}.
+     */
+    private transient Map<String, Object> cleanDetails;
+
+    /**
+     * The state of the derived values, as at the last time they were derived. This is used to avoid re-deriving
+     * values whose inputs haven't changed.
+     */
+    private transient Object derivedState;
+
     /**
      * Serialization version identifier.
      */
@@ -158,6 +178,7 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setId(long id) {
         this.id = id;
+        markDirty();
     }
 
     /* (non-Javadoc)
@@ -167,6 +188,8 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
     public Object clone() throws CloneNotSupportedException {
         IMObject copy = (IMObject) super.clone();
         copy.linkId = getLinkId();
+        copy.markDirty();
+        copy.derivedState = null;
         return copy;
     }
 
@@ -292,6 +315,58 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
         return id == -1;
     }
 
+    /**
+     * Determines if the object has changed since it was last synchronised with the database.
+     * <p/>
+     * New objects, and objects that have been deserialized or cloned, are always considered changed.
+     * <p/>
+     * This is used by the persistence layer to avoid re-assembling objects that haven't changed. Subclasses that
+     * support this must invoke {@link #markDirty()} whenever their persistent state changes.
+     *
+     * @return {@code true} if the object has changed
+     */
+    public boolean isDirty() {
+        return !clean || !ObjectUtils.equals(details, cleanDetails);
+    }
+
+    /**
+     * Determines if the object has changed since it was last synchronised with the database.
+     * <p/>
+     * This should only be invoked by the persistence layer.
+     *
+     * @param dirty if {@code false}, indicates that the object is in sync with the database
+     */
+    public void setDirty(boolean dirty) {
+        if (dirty) {
+            markDirty();
+        } else {
+            clean = true;
+            cleanDetails = (details != null) ? new HashMap<>(details) : null;
+        }
+    }
+
+    /**
+     * Returns the state of the derived values, as at the last time they were derived.
+     * <p/>
+     * This should only be invoked by the archetype service.
+     *
+     * @return the derived value state. May be {@code null}
+     */
+    public Object getDerivedState() {
+        return derivedState;
+    }
+
+    /**
+     * Sets the state of the derived values.
+     * <p/>
+     * This should only be invoked by the archetype service.
+     *
+     * @param state the derived value state. May be {@code null}
+     */
+    public void setDerivedState(Object state) {
+        derivedState = state;
+    }
+
     /**
      * Returns the details.
      *
@@ -308,6 +383,15 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setDetails(Map<String, Object> details) {
         this.details = details;
+        markDirty();
+    }
+
+    /**
+     * Flags the object as having changed since it was last synchronised with the database.
+     */
+    protected void markDirty() {
+        clean = false;
+        cleanDetails = null;
     }
 
     /**
@@ -315,6 +399,7 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setActive(boolean active) {
         this.active = active;
+        markDirty();
     }
 
     /**
@@ -322,6 +407,7 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setArchetypeId(ArchetypeId archetypeId) {
         this.archetypeId = archetypeId;
+        markDirty();
     }
 
     /**
@@ -331,6 +417,7 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setArchetypeIdAsString(String archId) {
         this.archetypeId = new ArchetypeId(archId);
+        markDirty();
     }
 
     /**
@@ -338,6 +425,7 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setDescription(String description) {
         this.description = description;
+        markDirty();
     }
 
     /**
@@ -345,6 +433,7 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setLastModified(Date lastModified) {
         this.lastModified = lastModified;
+        markDirty();
     }
 
     /**
@@ -352,6 +441,7 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setLinkId(String linkId) {
         this.linkId = linkId;
+        markDirty();
     }
 
     /**
@@ -359,6 +449,7 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setName(String name) {
         this.name = name;
+        markDirty();
     }
 
     /**
@@ -366,6 +457,7 @@ public class IMObject implements org.openvpms.component.model.object.IMObject, S
      */
     public void setVersion(long version) {
         this.version = version;
+        markDirty();
     }
 
     /* (non-Javadoc)
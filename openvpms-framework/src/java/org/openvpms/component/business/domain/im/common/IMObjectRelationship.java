@@ -77,6 +77,7 @@ public abstract class IMObjectRelationship extends IMObject
      */
     public void setSource(IMObjectReference source) {
         this.source = source;
+        markDirty();
     }
 
     /**
@@ -104,6 +105,7 @@ public abstract class IMObjectRelationship extends IMObject
      */
     public void setTarget(IMObjectReference target) {
         this.target = target;
+        markDirty();
     }
 
     /**
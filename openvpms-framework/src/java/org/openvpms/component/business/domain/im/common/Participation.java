@@ -91,6 +91,7 @@ public class Participation extends IMObject implements org.openvpms.component.mo
      */
     public void setAct(IMObjectReference act) {
         this.act = act;
+        markDirty();
     }
 
     /**
@@ -110,6 +111,7 @@ public class Participation extends IMObject implements org.openvpms.component.mo
      */
     public void setEntity(IMObjectReference entity) {
         this.entity = entity;
+        markDirty();
     }
 
     /**
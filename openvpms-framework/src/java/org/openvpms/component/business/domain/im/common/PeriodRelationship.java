@@ -74,6 +74,7 @@ public abstract class PeriodRelationship extends IMObjectRelationship
      */
     public void setActiveStartTime(Date time) {
         activeStartTime = time;
+        markDirty();
     }
 
     /**
@@ -92,6 +93,7 @@ public abstract class PeriodRelationship extends IMObjectRelationship
      */
     public void setActiveEndTime(Date time) {
         activeEndTime = time;
+        markDirty();
     }
 
     /**
@@ -164,6 +166,7 @@ public abstract class PeriodRelationship extends IMObjectRelationship
         } else {
             activeEndTime = new Date();
         }
+        markDirty();
     }
 
 }
@@ -68,5 +68,6 @@ public abstract class SequencedRelationship extends PeriodRelationship
      */
     public void setSequence(int sequence) {
         this.sequence = sequence;
+        markDirty();
     }
 }
@@ -16,7 +16,6 @@
 
 package org.openvpms.component.business.service.archetype;
 
-import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -28,13 +27,15 @@ import org.openvpms.component.business.domain.im.archetype.descriptor.AssertionT
 import org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor;
 import org.openvpms.component.business.domain.im.common.IMObject;
 import org.openvpms.component.business.service.archetype.descriptor.cache.IArchetypeDescriptorCache;
+import org.openvpms.component.business.service.cache.InvalidationBus;
+import org.openvpms.component.business.service.metrics.MetricsRegistry;
+import org.openvpms.component.business.service.metrics.NoOpMetricsRegistry;
 import org.openvpms.component.business.service.ruleengine.IRuleEngine;
 import org.openvpms.component.model.bean.IMObjectBean;
 import org.openvpms.component.model.object.Reference;
 import org.openvpms.component.query.TypedQuery;
 import org.openvpms.component.query.criteria.CriteriaBuilder;
 import org.openvpms.component.query.criteria.CriteriaQuery;
-import org.openvpms.component.system.common.jxpath.JXPathHelper;
 import org.openvpms.component.system.common.query.IArchetypeQuery;
 import org.openvpms.component.system.common.query.IPage;
 import org.openvpms.component.system.common.query.NodeSet;
@@ -46,9 +47,11 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 
 /**
@@ -61,8 +64,15 @@ public class ArchetypeService implements IArchetypeService {
 
     /**
      * The listeners, keyed on archetype short name.
+     * <p/>
+     * This is an immutable snapshot, replaced on each change, so that notification doesn't require a lock.
      */
-    private final Map<String, List<IArchetypeServiceListener>> listeners = new HashMap<>();
+    private volatile Map<String, List<IArchetypeServiceListener>> listeners = Collections.emptyMap();
+
+    /**
+     * The lock used to serialise changes to the listeners.
+     */
+    private final Object listenerLock = new Object();
 
     /**
      * The object factory.
@@ -95,6 +105,61 @@ public class ArchetypeService implements IArchetypeService {
      */
     private IRuleEngine ruleEngine;
 
+    /**
+     * The bus to publish committed changes to. May be {@code null}
+     */
+    private volatile InvalidationBus invalidationBus;
+
+    /**
+     * The registry to record metrics to.
+     */
+    private volatile MetricsRegistry metrics = NoOpMetricsRegistry.INSTANCE;
+
+    /**
+     * Detects objects being retrieved one at a time, when debugging is enabled.
+     */
+    private final NPlusOneDetector detector = new NPlusOneDetector();
+
+    /**
+     * The save timer name.
+     */
+    private static final String SAVE = "archetype.save";
+
+    /**
+     * The collection save timer name.
+     */
+    private static final String SAVE_ALL = "archetype.saveAll";
+
+    /**
+     * The get timer name.
+     */
+    private static final String GET = "archetype.get";
+
+    /**
+     * The batch get timer name.
+     */
+    private static final String GET_ALL = "archetype.getAll";
+
+    /**
+     * The batch get size distribution name.
+     */
+    private static final String GET_ALL_SIZE = "archetype.getAll.size";
+
+    /**
+     * The remove timer name.
+     */
+    private static final String REMOVE = "archetype.remove";
+
+    /**
+     * The listener notification timer name.
+     */
+    private static final String NOTIFY = "archetype.notify";
+
+    /**
+     * The tag used for metrics that span archetypes.
+     */
+    private static final String ALL = "*";
+
     /**
      * Define a logger for this class
      */
@@ -149,6 +214,45 @@ public class ArchetypeService implements IArchetypeService {
         this.ruleEngine = ruleEngine;
     }
 
+    /**
+     * Returns the bus that committed changes are published to.
+     *
+     * @return the invalidation bus. May be {@code null}
+     */
+    public InvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+
+    /**
+     * Sets the bus to publish committed changes to.
+     * <p/>
+     * When set, the reference of every saved and removed object is published on transaction commit, so that
+     * other nodes can invalidate their caches.
+     *
+     * @param invalidationBus the invalidation bus. May be {@code null}
+     */
+    public void setInvalidationBus(InvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    /**
+     * Returns the registry that metrics are recorded to.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the registry to record save, get, remove and listener notification times to, per archetype.
+     *
+     * @param metrics the metrics registry. If {@code null}, metrics are discarded
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = (metrics != null) ? metrics : NoOpMetricsRegistry.INSTANCE;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -229,6 +333,18 @@ public class ArchetypeService implements IArchetypeService {
         return validator.validate(object);
     }
 
+    /**
+     * Validates a collection of objects.
+     *
+     * @param objects the objects to validate
+     * @return any validation errors
+     */
+    @Override
+    public List<org.openvpms.component.service.archetype.ValidationError> validate(
+            Collection<? extends org.openvpms.component.model.object.IMObject> objects) {
+        return validator.validate(objects, false);
+    }
+
    /*
      * (non-Javadoc)
      *
@@ -267,12 +383,10 @@ public class ArchetypeService implements IArchetypeService {
                                                 object.getArchetype());
         }
 
-        // if there are nodes attached to the archetype then validate the
-        // associated assertions
-        Map descriptors = descriptor.getNodeDescriptors();
-        if (descriptors.size() > 0) {
-            JXPathContext context = JXPathHelper.newContext(object);
-            deriveValues(context, descriptors);
+        // derive the values of any derived nodes. Only those whose inputs have changed are re-derived
+        DerivedValues values = validator.getDerivedValues(object.getArchetype());
+        if (values != null) {
+            values.derive(object);
         }
     }
 
@@ -337,7 +451,11 @@ public class ArchetypeService implements IArchetypeService {
      */
     @Override
     public IMObject get(Reference reference) {
-        return dao.get(reference);
+        long start = System.nanoTime();
+        detector.get(reference);
+        IMObject result = dao.get(reference);
+        metrics.timer(GET, reference.getArchetype()).recordSince(start);
+        return result;
     }
 
     /**
@@ -352,7 +470,11 @@ public class ArchetypeService implements IArchetypeService {
     @Override
     public IMObject get(Reference reference, boolean active) {
         try {
-            return dao.get(reference, active);
+            long start = System.nanoTime();
+            detector.get(reference);
+            IMObject result = dao.get(reference, active);
+            metrics.timer(GET, reference.getArchetype()).recordSince(start);
+            return result;
         } catch (Exception exception) {
             String message = "select " + reference;
             throw new ArchetypeServiceException(
@@ -360,6 +482,34 @@ public class ArchetypeService implements IArchetypeService {
         }
     }
 
+    /**
+     * Retrieves the objects with the specified references.
+     * <p/>
+     * Objects of the same type are retrieved in a single query, rather than one at a time.
+     *
+     * @param references the object references
+     * @return the objects, keyed on reference, in the order the references were supplied. References to objects that
+     * don't exist are excluded. Objects may be active or inactive
+     * @throws ArchetypeServiceException if the query fails
+     */
+    @Override
+    public Map<Reference, IMObject> get(Collection<? extends Reference> references) {
+        if (references.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            long start = System.nanoTime();
+            Map<Reference, IMObject> result = dao.get(references);
+            metrics.timer(GET_ALL, ALL).recordSince(start);
+            metrics.distribution(GET_ALL_SIZE, ALL).record(references.size());
+            return result;
+        } catch (Exception exception) {
+            String message = "select " + references;
+            throw new ArchetypeServiceException(
+                    ArchetypeServiceException.ErrorCode.FailedToExecuteQuery, exception, message);
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.openvpms.component.business.service.archetype.IArchetypeService#get(org.openvpms.component.system.common.query.ArchetypeQuery)
      */
@@ -445,6 +595,54 @@ public class ArchetypeService implements IArchetypeService {
         }
     }
 
+    /**
+     * Streams the objects matching the query.
+     * <p>
+     * Results are read incrementally from the database, so that memory use is independent of the number of results.
+     * <p>
+     * The stream must be closed to release the database connection, e.g. using try-with-resources.
+     *
+     * @param query the archetype query
+     * @return a stream of the objects that match the query criteria
+     * @throws ArchetypeServiceException if the query fails
+     */
+    @Override
+    public Stream<IMObject> stream(IArchetypeQuery query) {
+        if (log.isDebugEnabled()) {
+            log.debug("ArchetypeService.stream: query " + query);
+        }
+        try {
+            return dao.stream(query);
+        } catch (Exception exception) {
+            throw new ArchetypeServiceException(ArchetypeServiceException.ErrorCode.FailedToExecuteQuery, exception,
+                                                query.toString());
+        }
+    }
+
+    /**
+     * Streams the object sets matching the query.
+     * <p>
+     * Results are read incrementally from the database, so that memory use is independent of the number of results.
+     * <p>
+     * The stream must be closed to release the database connection, e.g. using try-with-resources.
+     *
+     * @param query the archetype query
+     * @return a stream of the object sets that match the query criteria
+     * @throws ArchetypeServiceException if the query fails
+     */
+    @Override
+    public Stream<ObjectSet> streamObjects(IArchetypeQuery query) {
+        if (log.isDebugEnabled()) {
+            log.debug("ArchetypeService.streamObjects: query " + query);
+        }
+        try {
+            return dao.streamObjects(query);
+        } catch (Exception exception) {
+            throw new ArchetypeServiceException(ArchetypeServiceException.ErrorCode.FailedToExecuteQuery, exception,
+                                                query.toString());
+        }
+    }
+
     /**
      * Returns a builder to create queries.
      *
@@ -485,11 +683,13 @@ public class ArchetypeService implements IArchetypeService {
                     new Object[]{});
         }
 
+        long start = System.nanoTime();
         notifyRemove(object, true);
 
         try {
             dao.delete((IMObject) object);
             notifyRemove(object, false);
+            metrics.timer(REMOVE, object.getArchetype()).recordSince(start);
         } catch (IMObjectDAOException exception) {
             if (IMObjectDAOException.ErrorCode.CannotDeleteLookupInUse.equals(exception.getErrorCode())) {
                 throw new ArchetypeServiceException(ArchetypeServiceException.ErrorCode.CannotDeleteLookupInUse,
@@ -527,6 +727,7 @@ public class ArchetypeService implements IArchetypeService {
                     new Object[]{});
         }
 
+        long start = System.nanoTime();
         notifySave(object, true);
         if (validate) {
             validateObject(object);
@@ -537,6 +738,7 @@ public class ArchetypeService implements IArchetypeService {
                 updateCache(object);
             }
             notifySave(object, false);
+            metrics.timer(SAVE, object.getArchetype()).recordSince(start);
         } catch (IMObjectDAOException exception) {
             throw new ArchetypeServiceException(
                     ArchetypeServiceException.ErrorCode.FailedToSaveObject,
@@ -572,12 +774,17 @@ public class ArchetypeService implements IArchetypeService {
                     new Object[]{});
         }
 
+        long start = System.nanoTime();
         notifySave(objects, true);
 
-        // first validate each object
+        // first validate the objects. This stops on the first invalid object
         if (validate) {
-            for (org.openvpms.component.model.object.IMObject object : objects) {
-                validateObject(object);
+            List<org.openvpms.component.service.archetype.ValidationError> errors
+                    = validator.validate(objects, true);
+            if (!errors.isEmpty()) {
+                throw new ValidationException(
+                        errors, ValidationException.ErrorCode.FailedToValidObjectAgainstArchetype,
+                        new Object[]{errors.get(0).getArchetype()});
             }
         }
 
@@ -590,6 +797,7 @@ public class ArchetypeService implements IArchetypeService {
                 }
             }
             notifySave(objects, false);
+            metrics.timer(SAVE_ALL, ALL).recordSince(start);
         } catch (IMObjectDAOException exception) {
             throw new ArchetypeServiceException(
                     ArchetypeServiceException.ErrorCode.FailedToSaveCollectionOfObjects,
@@ -672,15 +880,15 @@ public class ArchetypeService implements IArchetypeService {
      */
     public void addListener(String shortName,
                             IArchetypeServiceListener listener) {
-        synchronized (listeners) {
+        synchronized (listenerLock) {
+            Map<String, List<IArchetypeServiceListener>> map = new HashMap<>(listeners);
             for (String name : getArchetypeShortNames(shortName, false)) {
-                List<IArchetypeServiceListener> list = listeners.get(name);
-                if (list == null) {
-                    list = new ArrayList<>();
-                    listeners.put(name, list);
-                }
+                List<IArchetypeServiceListener> list = map.get(name);
+                list = (list != null) ? new ArrayList<>(list) : new ArrayList<>();
                 list.add(listener);
+                map.put(name, Collections.unmodifiableList(list));
             }
+            listeners = Collections.unmodifiableMap(map);
         }
     }
 
@@ -693,17 +901,21 @@ public class ArchetypeService implements IArchetypeService {
      */
     public void removeListener(String shortName,
                                IArchetypeServiceListener listener) {
-        synchronized (listeners) {
+        synchronized (listenerLock) {
+            Map<String, List<IArchetypeServiceListener>> map = new HashMap<>(listeners);
             for (String name : getArchetypeShortNames(shortName, false)) {
-                List<IArchetypeServiceListener> list = listeners.get(name);
-                if (list != null) {
-                    if (list.remove(listener)) {
-                        if (list.isEmpty()) {
-                            listeners.remove(name);
-                        }
+                List<IArchetypeServiceListener> list = map.get(name);
+                if (list != null && list.contains(listener)) {
+                    list = new ArrayList<>(list);
+                    list.remove(listener);
+                    if (list.isEmpty()) {
+                        map.remove(name);
+                    } else {
+                        map.put(name, Collections.unmodifiableList(list));
                     }
                 }
             }
+            listeners = Collections.unmodifiableMap(map);
         }
     }
 
@@ -734,42 +946,15 @@ public class ArchetypeService implements IArchetypeService {
 
     /**
      * Returns the listeners.
+     * <p/>
+     * The returned map is an immutable snapshot; it will not reflect subsequent listener changes.
      *
-     * @return the listeners
+     * @return the listeners, keyed on archetype short name
      */
     protected Map<String, List<IArchetypeServiceListener>> getListeners() {
         return listeners;
     }
 
-    /**
-     * Iterate through the {@link NodeDescriptor}s and set all derived values.
-     * Do it recursively.
-     *
-     * @param context the context object
-     * @param nodes   a list of node descriptors
-     * @throws ArchetypeServiceException
-     */
-    private void deriveValues(JXPathContext context,
-                              Map<String, NodeDescriptor> nodes) {
-        for (NodeDescriptor node : nodes.values()) {
-            if (node.isDerived()) {
-                try {
-                    Object value = context.getValue(node.getDerivedValue());
-                    context.getPointer(node.getPath()).setValue(value);
-                } catch (Exception exception) {
-                    throw new ArchetypeServiceException(
-                            ArchetypeServiceException.ErrorCode.FailedToDeriveValue,
-                            exception, node.getName(), node.getPath());
-                }
-            }
-
-            // if this node contains other nodes then make a recursive call
-            if (node.getNodeDescriptors().size() > 0) {
-                deriveValues(context, node.getNodeDescriptors());
-            }
-        }
-    }
-
     /**
      * Updates the descriptor cache. If a transaction is in progress, the
      * cache will only be updated on transaction commit. This means that the
@@ -801,6 +986,8 @@ public class ArchetypeService implements IArchetypeService {
      * @param object the object to add to the cache
      */
     private void addToCache(org.openvpms.component.model.object.IMObject object) {
+        // the descriptor may have been updated in place, so discard any validation plans
+        validator.reset();
         if (object instanceof ArchetypeDescriptor) {
             ArchetypeDescriptor descriptor = (ArchetypeDescriptor) get(object.getObjectReference());
             // retrieve the saved instance - this will have assertion descriptors correctly associated with assertion
@@ -821,9 +1008,7 @@ public class ArchetypeService implements IArchetypeService {
      * @param preSave if {@code true} the object is about to be saved, otherwise it has been saved
      */
     private void notifySave(org.openvpms.component.model.object.IMObject object, boolean preSave) {
-        synchronized (listeners) {
-            notifySave(object, null, preSave);
-        }
+        notifySave(object, listeners, null, preSave);
     }
 
     /**
@@ -834,11 +1019,10 @@ public class ArchetypeService implements IArchetypeService {
      */
     private void notifySave(Collection<? extends org.openvpms.component.model.object.IMObject> objects,
                             boolean preSave) {
-        synchronized (listeners) {
-            Notifier notifier = null;
-            for (org.openvpms.component.model.object.IMObject object : objects) {
-                notifier = notifySave(object, notifier, preSave);
-            }
+        Map<String, List<IArchetypeServiceListener>> snapshot = listeners;
+        Notifier notifier = null;
+        for (org.openvpms.component.model.object.IMObject object : objects) {
+            notifier = notifySave(object, snapshot, notifier, preSave);
         }
     }
 
@@ -846,14 +1030,17 @@ public class ArchetypeService implements IArchetypeService {
      * Notifies any listeners when an object is saved.
      *
      * @param object   the saved object
+     * @param snapshot the listeners
      * @param notifier the notifier to use. If {@code null} indicates to create a new notifier
      * @param preSave  if {@code true} the object is about to be saved, otherwise it has been saved
      * @return the notifier
      */
-    private Notifier notifySave(org.openvpms.component.model.object.IMObject object, Notifier notifier,
+    private Notifier notifySave(org.openvpms.component.model.object.IMObject object,
+                                Map<String, List<IArchetypeServiceListener>> snapshot, Notifier notifier,
                                 boolean preSave) {
-        List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
+        List<IArchetypeServiceListener> list = getListeners(snapshot, object);
         if (list != null) {
+            long start = System.nanoTime();
             if (notifier == null) {
                 notifier = Notifier.getNotifier(this);
             }
@@ -862,6 +1049,7 @@ public class ArchetypeService implements IArchetypeService {
             } else {
                 notifier.notifySaved(object, list);
             }
+            metrics.timer(NOTIFY, object.getArchetype()).recordSince(start);
         }
         return notifier;
     }
@@ -874,17 +1062,39 @@ public class ArchetypeService implements IArchetypeService {
      *                  otherwise it has been removed
      */
     private void notifyRemove(org.openvpms.component.model.object.IMObject object, boolean preRemove) {
-        synchronized (listeners) {
-            List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
-            if (list != null) {
-                Notifier notifier = Notifier.getNotifier(this);
-                if (preRemove) {
-                    notifier.notifyRemoving(object, list);
-                } else {
-                    notifier.notifyRemoved(object, list);
-                }
+        List<IArchetypeServiceListener> list = getListeners(listeners, object);
+        if (list != null) {
+            long start = System.nanoTime();
+            Notifier notifier = Notifier.getNotifier(this);
+            if (preRemove) {
+                notifier.notifyRemoving(object, list);
+            } else {
+                notifier.notifyRemoved(object, list);
+            }
+            metrics.timer(NOTIFY, object.getArchetype()).recordSince(start);
+        }
+    }
+
+    /**
+     * Returns the listeners for an object.
+     * <p/>
+     * If there are no listeners but an invalidation bus with subscribers is registered, an empty list is returned so
+     * that the object is still tracked for publication.
+     *
+     * @param snapshot the listeners
+     * @param object   the object
+     * @return the listeners, or {@code null} if the object doesn't need to be tracked
+     */
+    private List<IArchetypeServiceListener> getListeners(Map<String, List<IArchetypeServiceListener>> snapshot,
+                                                         org.openvpms.component.model.object.IMObject object) {
+        List<IArchetypeServiceListener> list = snapshot.get(object.getArchetype());
+        if (list == null) {
+            InvalidationBus bus = invalidationBus;
+            if (bus != null && bus.hasSubscribers()) {
+                list = Collections.emptyList();
             }
         }
+        return list;
     }
 
     private class ObjectFactory extends AbstractIMObjectFactory {
@@ -17,10 +17,17 @@
 package org.openvpms.component.business.service.archetype;
 
 import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.domain.im.document.Document;
 import org.openvpms.component.model.object.Reference;
 import org.openvpms.component.system.common.cache.IMObjectCache;
 import org.openvpms.component.system.common.cache.LRUIMObjectCache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * A read-only {@link IArchetypeService} that supports caching.
  *
@@ -66,6 +73,43 @@ public class CachingReadOnlyArchetypeService extends ReadOnlyArchetypeService {
         return cache.get(reference);
     }
 
+    /**
+     * Retrieves the objects with the specified references.
+     * <p/>
+     * Cached objects are returned from the cache. The remainder are retrieved in a single query and added to the
+     * cache.
+     *
+     * @param references the object references
+     * @return the objects, keyed on reference, in the order the references were supplied. References to objects that
+     * don't exist are excluded. Objects may be active or inactive
+     * @throws ArchetypeServiceException if the query fails
+     */
+    @Override
+    public Map<Reference, IMObject> get(Collection<? extends Reference> references) {
+        Set<Reference> missing = new LinkedHashSet<>();
+        for (Reference reference : references) {
+            if (reference != null && !cache.exists(reference)) {
+                missing.add(reference);
+            }
+        }
+        Map<Reference, IMObject> loaded = missing.isEmpty() ? null : super.get(missing);
+        Map<Reference, IMObject> result = new LinkedHashMap<>();
+        for (Reference reference : references) {
+            IMObject object = (loaded != null) ? loaded.get(reference) : null;
+            if (object != null) {
+                if (!(object instanceof Document)) {
+                    cache.add(object);
+                }
+            } else if (reference != null && !missing.contains(reference)) {
+                object = cache.get(reference);
+            }
+            if (object != null) {
+                result.put(reference, object);
+            }
+        }
+        return result;
+    }
+
     /**
      * Clears the cache.
      */
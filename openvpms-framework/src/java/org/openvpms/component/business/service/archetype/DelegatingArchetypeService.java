@@ -35,6 +35,7 @@ import org.openvpms.component.system.common.query.ObjectSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 
 /**
@@ -130,6 +131,17 @@ public abstract class DelegatingArchetypeService implements IArchetypeService {
         service.validateObject(object);
     }
 
+    /**
+     * Validates a collection of objects in a single pass.
+     *
+     * @param objects the objects to validate
+     * @return any validation errors, for all of the objects
+     */
+    @Override
+    public List<ValidationError> validate(Collection<? extends org.openvpms.component.model.object.IMObject> objects) {
+        return service.validate(objects);
+    }
+
     /**
      * Derived values for the specified {@link IMObject}, based on its corresponding {@link ArchetypeDescriptor}.
      *
@@ -289,6 +301,19 @@ public abstract class DelegatingArchetypeService implements IArchetypeService {
         return service.get(reference, active);
     }
 
+    /**
+     * Retrieves the objects with the specified references.
+     *
+     * @param references the object references
+     * @return the objects, keyed on reference, in the order the references were supplied. References to objects that
+     * don't exist are excluded
+     * @throws ArchetypeServiceException if the query fails
+     */
+    @Override
+    public Map<Reference, IMObject> get(Collection<? extends Reference> references) {
+        return service.get(references);
+    }
+
     /**
      * Retrieves the objects matching the query.
      *
@@ -344,6 +369,30 @@ public abstract class DelegatingArchetypeService implements IArchetypeService {
         return service.getNodes(query, nodes);
     }
 
+    /**
+     * Streams the objects matching the query.
+     *
+     * @param query the archetype query
+     * @return a stream of the objects that match the query criteria
+     * @throws ArchetypeServiceException if the query fails
+     */
+    @Override
+    public Stream<IMObject> stream(IArchetypeQuery query) {
+        return service.stream(query);
+    }
+
+    /**
+     * Streams the object sets matching the query.
+     *
+     * @param query the archetype query
+     * @return a stream of the object sets that match the query criteria
+     * @throws ArchetypeServiceException if the query fails
+     */
+    @Override
+    public Stream<ObjectSet> streamObjects(IArchetypeQuery query) {
+        return service.streamObjects(query);
+    }
+
     /**
      * Returns a builder to create queries.
      *
@@ -0,0 +1,654 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.archetype;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.ri.InfoSetUtil;
+import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor;
+import org.openvpms.component.business.domain.im.archetype.descriptor.DescriptorException;
+import org.openvpms.component.business.domain.im.archetype.descriptor.NodeAccessor;
+import org.openvpms.component.business.domain.im.archetype.descriptor.NodeAccessorFactory;
+import org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor;
+import org.openvpms.component.model.object.IMObject;
+import org.openvpms.component.model.object.Reference;
+import org.openvpms.component.system.common.jxpath.JXPathHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the values of the derived nodes of an archetype.
+ * <p/>
+ * The derived value expressions are analysed when the archetype is first used:
+ * <ul>
+ * <li>literals, simple paths (e.g. {@code /name}, {@code /details/lastName}) and {@code concat()} of these are
+ * compiled to direct node access. All other expressions are evaluated using JXPath.</li>
+ * <li>the nodes that each expression reads are determined, where possible. Derived nodes that read other derived
+ * nodes are evaluated after them.</li>
+ * </ul>
+ * The inputs and output of each derivation are recorded on the object, so that a derived value is only
+ * recalculated if one of its inputs, or the value itself, has changed since it was last derived. Expressions whose
+ * inputs can't be determined (e.g. those calling {@code openvpms:lookup(.,'title')}) are always evaluated.
+ *
+ * @author Tim Anderson
+ */
+class DerivedValues {
+
+    /**
+     * The archetype descriptor.
+     */
+    private final ArchetypeDescriptor descriptor;
+
+    /**
+     * The derivations, in evaluation order.
+     */
+    private final Derivation[] derivations;
+
+    /**
+     * Indicates that a compiled expression can't evaluate its inputs, and JXPath must be used.
+     */
+    private static final Object UNSUPPORTED = new Object();
+
+    /**
+     * Matches simple paths.
+     */
+    private static final Pattern PATH = Pattern.compile("/[a-zA-Z_][a-zA-Z0-9_]*(?:/[a-zA-Z_][a-zA-Z0-9_]*)*");
+
+    /**
+     * Matches string literals.
+     */
+    private static final Pattern LITERAL = Pattern.compile("'[^']*'|\"[^\"]*\"");
+
+    /**
+     * Matches function calls.
+     */
+    private static final Pattern FUNCTION = Pattern.compile("([a-zA-Z_][a-zA-Z0-9_\\-]*(?::[a-zA-Z_][a-zA-Z0-9_\\-]*)?)\\s*\\(");
+
+    /**
+     * Matches references to the context node or its parent, e.g. <em>.</em>, <em>./name</em>, <em>..</em>.
+     */
+    private static final Pattern CONTEXT = Pattern.compile("(^|[^\\w])\\.(?!\\d)");
+
+    /**
+     * Matches wildcard location steps.
+     */
+    private static final Pattern WILDCARD = Pattern.compile("/\\s*\\*|(^|[(,])\\s*\\*");
+
+    /**
+     * Matches names that aren't functions or path segments, i.e. relative paths and operators.
+     */
+    private static final Pattern NAME = Pattern.compile("(?<![/\\w:\\-])[a-zA-Z_][a-zA-Z0-9_\\-]*(?![\\w:\\-]*\\s*\\()");
+
+    /**
+     * Operators that may appear in expressions.
+     */
+    private static final Set<String> OPERATORS = new HashSet<>(Arrays.asList("and", "or", "div", "mod"));
+
+    /**
+     * Functions whose results depend only on their arguments.
+     */
+    private static final Set<String> PURE_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "concat", "string", "number", "boolean", "not", "true", "false", "substring", "substring-before",
+            "substring-after", "string-length", "normalize-space", "translate", "contains", "starts-with", "round",
+            "floor", "ceiling", "math:roundAmount", "date:formatDate", "date:formatDateTime", "date:formatTime",
+            "lookup:isDefault"));
+
+    /**
+     * Constructs a {@link DerivedValues}.
+     *
+     * @param descriptor the archetype descriptor
+     * @param nodes      the derived nodes
+     */
+    private DerivedValues(ArchetypeDescriptor descriptor, List<NodeDescriptor> nodes) {
+        this.descriptor = descriptor;
+        Class<?> type;
+        try {
+            type = descriptor.getClassType();
+        } catch (DescriptorException ignore) {
+            type = null;
+        }
+        List<Derivation> list = new ArrayList<>();
+        for (NodeDescriptor node : nodes) {
+            list.add(new Derivation(node, type));
+        }
+        derivations = sort(list);
+    }
+
+    /**
+     * Creates the derived values for an archetype.
+     *
+     * @param descriptor the archetype descriptor
+     * @return the derived values, or {@code null} if the archetype has no derived nodes
+     */
+    @SuppressWarnings("unchecked")
+    public static DerivedValues create(ArchetypeDescriptor descriptor) {
+        List<NodeDescriptor> nodes = new ArrayList<>();
+        getDerivedNodes((Map<String, NodeDescriptor>) (Map) descriptor.getNodeDescriptors(), nodes);
+        return !nodes.isEmpty() ? new DerivedValues(descriptor, nodes) : null;
+    }
+
+    /**
+     * Returns the archetype descriptor.
+     *
+     * @return the archetype descriptor
+     */
+    public ArchetypeDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Derives the values of an object.
+     *
+     * @param object the object
+     * @throws ArchetypeServiceException if a value cannot be derived
+     */
+    public void derive(IMObject object) {
+        org.openvpms.component.business.domain.im.common.IMObject target
+                = (object instanceof org.openvpms.component.business.domain.im.common.IMObject)
+                  ? (org.openvpms.component.business.domain.im.common.IMObject) object : null;
+        State state = (target != null && target.getDerivedState() instanceof State)
+                      ? (State) target.getDerivedState() : null;
+        if (state == null || state.owner != this) {
+            state = new State(this, derivations.length);
+            if (target != null) {
+                target.setDerivedState(state);
+            }
+        }
+        JXPathContext context = null;
+        for (int i = 0; i < derivations.length; ++i) {
+            Derivation derivation = derivations[i];
+            NodeDescriptor node = derivation.node;
+            try {
+                if (context == null && derivation.accessor == null) {
+                    context = JXPathHelper.newContext(object);
+                }
+                Object current = derivation.getCurrent(object, context);
+                Object[] inputs = derivation.getInputs(object);
+                boolean tracked = inputs != null && isTrackable(inputs);
+                if (tracked && state.inputs[i] != null && Arrays.equals(inputs, state.inputs[i])
+                    && Objects.equals(current, state.outputs[i])) {
+                    // inputs and value are unchanged since they were last derived
+                    continue;
+                }
+                Object value = derivation.evaluate(inputs);
+                if (value == UNSUPPORTED) {
+                    if (context == null) {
+                        context = JXPathHelper.newContext(object);
+                    }
+                    value = JXPathHelper.getValue(context, node.getDerivedValue());
+                }
+                if (!Objects.equals(current, value)) {
+                    derivation.setValue(object, value, context);
+                    // read the value back, as it may have been converted
+                    current = derivation.getCurrent(object, context);
+                }
+                state.inputs[i] = tracked ? snapshot(inputs) : null;
+                state.outputs[i] = current;
+            } catch (Exception exception) {
+                state.inputs[i] = null;
+                throw new ArchetypeServiceException(ArchetypeServiceException.ErrorCode.FailedToDeriveValue,
+                                                    exception, node.getName(), node.getPath());
+            }
+        }
+    }
+
+    /**
+     * Returns the derivation nodes, in evaluation order.
+     *
+     * @return the derived nodes
+     */
+    public List<NodeDescriptor> getNodes() {
+        List<NodeDescriptor> result = new ArrayList<>();
+        for (Derivation derivation : derivations) {
+            result.add(derivation.node);
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a derived node's expression is compiled, rather than evaluated using JXPath.
+     *
+     * @param name the node name
+     * @return {@code true} if the expression is compiled
+     */
+    public boolean isCompiled(String name) {
+        Derivation derivation = getDerivation(name);
+        return derivation != null && derivation.expression != null;
+    }
+
+    /**
+     * Determines if the inputs of a derived node's expression are known.
+     *
+     * @param name the node name
+     * @return {@code true} if the inputs are known
+     */
+    public boolean isTracked(String name) {
+        Derivation derivation = getDerivation(name);
+        return derivation != null && derivation.inputs != null;
+    }
+
+    /**
+     * Returns the derivation for a node.
+     *
+     * @param name the node name
+     * @return the corresponding derivation, or {@code null} if none is found
+     */
+    private Derivation getDerivation(String name) {
+        for (Derivation derivation : derivations) {
+            if (derivation.node.getName().equals(name)) {
+                return derivation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determines if inputs can be compared with those of a prior derivation.
+     * <p/>
+     * This is only supported for values that are immutable, or that can be copied cheaply.
+     *
+     * @param inputs the inputs
+     * @return {@code true} if the inputs can be tracked
+     */
+    private static boolean isTrackable(Object[] inputs) {
+        for (Object input : inputs) {
+            if (input != null && !(input instanceof String) && !(input instanceof Number)
+                && !(input instanceof Boolean) && !(input instanceof Character) && !(input instanceof Date)
+                && !(input instanceof Enum) && !(input instanceof Reference)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies inputs so that changes to mutable values are detected.
+     *
+     * @param inputs the inputs
+     * @return a copy of the inputs
+     */
+    private static Object[] snapshot(Object[] inputs) {
+        Object[] result = inputs.clone();
+        for (int i = 0; i < result.length; ++i) {
+            if (result[i] instanceof Date) {
+                result[i] = ((Date) result[i]).clone();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects derived nodes, including those of child nodes.
+     *
+     * @param nodes   the nodes
+     * @param derived the list to add derived nodes to
+     */
+    private static void getDerivedNodes(Map<String, NodeDescriptor> nodes, List<NodeDescriptor> derived) {
+        for (NodeDescriptor node : nodes.values()) {
+            if (node.isDerived()) {
+                derived.add(node);
+            }
+            if (!node.getNodeDescriptors().isEmpty()) {
+                getDerivedNodes(node.getNodeDescriptors(), derived);
+            }
+        }
+    }
+
+    /**
+     * Orders derivations so that those that read the value of another derived node are evaluated after it.
+     * <p/>
+     * Otherwise, derivations are evaluated in the order that they are declared. If there is a cycle, the declaration
+     * order is used.
+     *
+     * @param derivations the derivations, in declaration order
+     * @return the derivations in evaluation order
+     */
+    private static Derivation[] sort(List<Derivation> derivations) {
+        Map<Derivation, Set<Derivation>> dependencies = new LinkedHashMap<>();
+        for (Derivation derivation : derivations) {
+            Set<Derivation> set = new HashSet<>();
+            if (derivation.paths != null) {
+                for (Derivation other : derivations) {
+                    if (other != derivation && derivation.paths.contains(other.node.getPath())) {
+                        set.add(other);
+                    }
+                }
+            }
+            dependencies.put(derivation, set);
+        }
+        List<Derivation> result = new ArrayList<>();
+        while (!dependencies.isEmpty()) {
+            Derivation next = null;
+            for (Map.Entry<Derivation, Set<Derivation>> entry : dependencies.entrySet()) {
+                if (Collections.disjoint(entry.getValue(), dependencies.keySet())) {
+                    next = entry.getKey();
+                    break;
+                }
+            }
+            if (next == null) {
+                // cyclic dependency. Use declaration order
+                return derivations.toArray(new Derivation[0]);
+            }
+            dependencies.remove(next);
+            result.add(next);
+        }
+        return result.toArray(new Derivation[0]);
+    }
+
+    /**
+     * The state of the derived values for an object, as at the last time they were derived.
+     */
+    private static class State {
+
+        /**
+         * The derived values the state belongs to.
+         */
+        private final DerivedValues owner;
+
+        /**
+         * The inputs of each derivation. An element is {@code null} if the derivation inputs aren't known.
+         */
+        private final Object[][] inputs;
+
+        /**
+         * The outputs of each derivation.
+         */
+        private final Object[] outputs;
+
+        /**
+         * Constructs a {@link State}.
+         *
+         * @param owner the derived values the state belongs to
+         * @param size  the number of derivations
+         */
+        State(DerivedValues owner, int size) {
+            this.owner = owner;
+            inputs = new Object[size][];
+            outputs = new Object[size];
+        }
+    }
+
+    /**
+     * A derived node.
+     */
+    private static class Derivation {
+
+        /**
+         * The node.
+         */
+        private final NodeDescriptor node;
+
+        /**
+         * The accessor for the node, or {@code null} if it must be accessed via JXPath.
+         */
+        private final NodeAccessor accessor;
+
+        /**
+         * The paths the expression reads, or {@code null} if they can't be determined.
+         */
+        private final List<String> paths;
+
+        /**
+         * The accessors for each path, or {@code null} if the paths can't be determined.
+         */
+        private final NodeAccessor[] inputs;
+
+        /**
+         * The compiled expression, or {@code null} if the expression is evaluated via JXPath.
+         */
+        private final Expression expression;
+
+        /**
+         * Constructs a {@link Derivation}.
+         *
+         * @param node the derived node
+         * @param type the archetype class
+         */
+        Derivation(NodeDescriptor node, Class<?> type) {
+            this.node = node;
+            NodeAccessor nodeAccessor = node.getAccessor();
+            accessor = !NodeAccessorFactory.isJXPath(nodeAccessor) ? nodeAccessor : null;
+            String derivedValue = node.getDerivedValue();
+            paths = getPaths(derivedValue, type);
+            if (paths != null) {
+                inputs = new NodeAccessor[paths.size()];
+                for (int i = 0; i < inputs.length; ++i) {
+                    inputs[i] = NodeAccessorFactory.create(paths.get(i), type);
+                }
+                expression = compile(derivedValue);
+            } else {
+                inputs = null;
+                expression = null;
+            }
+        }
+
+        /**
+         * Returns the current value of the node.
+         *
+         * @param object  the object
+         * @param context the JXPath context. May be {@code null} if the node has an accessor
+         * @return the current value
+         */
+        Object getCurrent(IMObject object, JXPathContext context) {
+            return (accessor != null) ? accessor.getValue(object) : JXPathHelper.getValue(context, node.getPath());
+        }
+
+        /**
+         * Returns the inputs to the expression.
+         *
+         * @param object the object
+         * @return the inputs, or {@code null} if they can't be determined
+         */
+        Object[] getInputs(IMObject object) {
+            if (inputs == null) {
+                return null;
+            }
+            Object[] result = new Object[inputs.length];
+            for (int i = 0; i < inputs.length; ++i) {
+                result[i] = inputs[i].getValue(object);
+            }
+            return result;
+        }
+
+        /**
+         * Evaluates the compiled expression.
+         *
+         * @param inputs the inputs, or {@code null} if they can't be determined
+         * @return the value, or {@link #UNSUPPORTED} if the expression must be evaluated using JXPath
+         */
+        Object evaluate(Object[] inputs) {
+            return (expression != null) ? expression.evaluate(inputs) : UNSUPPORTED;
+        }
+
+        /**
+         * Sets the value of the node.
+         *
+         * @param object  the object
+         * @param value   the value to set
+         * @param context the JXPath context. May be {@code null} if the node has an accessor
+         */
+        void setValue(IMObject object, Object value, JXPathContext context) {
+            if (accessor != null) {
+                accessor.setValue(object, value);
+            } else {
+                JXPathHelper.getPointer(context, node.getPath()).setValue(value);
+            }
+        }
+
+        /**
+         * Returns the paths that an expression reads.
+         *
+         * @param expression the expression
+         * @param type       the archetype class
+         * @return the paths, or {@code null} if they can't be determined
+         */
+        private static List<String> getPaths(String expression, Class<?> type) {
+            if (expression == null) {
+                return null;
+            }
+            String stripped = LITERAL.matcher(expression).replaceAll("");
+            if (stripped.contains("'") || stripped.contains("\"") || stripped.contains("$") || stripped.contains("[")
+                || stripped.contains("//") || stripped.contains("@") || stripped.contains("::")
+                || WILDCARD.matcher(stripped).find() || CONTEXT.matcher(stripped).find()) {
+                // unbalanced quotes, or references the context node or variables, or uses predicates or axes
+                return null;
+            }
+            Matcher functions = FUNCTION.matcher(stripped);
+            while (functions.find()) {
+                if (!PURE_FUNCTIONS.contains(functions.group(1))) {
+                    return null;
+                }
+            }
+            String withoutFunctions = FUNCTION.matcher(stripped).replaceAll("(");
+            List<String> result = new ArrayList<>();
+            Matcher paths = PATH.matcher(withoutFunctions);
+            while (paths.find()) {
+                String path = paths.group();
+                if (NodeAccessorFactory.isJXPath(NodeAccessorFactory.create(path, type))) {
+                    return null;
+                }
+                if (!result.contains(path)) {
+                    result.add(path);
+                }
+            }
+            Matcher names = NAME.matcher(PATH.matcher(withoutFunctions).replaceAll(""));
+            while (names.find()) {
+                if (!OPERATORS.contains(names.group())) {
+                    // a relative path
+                    return null;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Compiles an expression.
+         *
+         * @param expression the expression
+         * @return the compiled expression, or {@code null} if it cannot be compiled
+         */
+        private Expression compile(String expression) {
+            String text = expression.trim();
+            if (text.startsWith("concat(") && text.endsWith(")")) {
+                List<String> args = split(text.substring("concat(".length(), text.length() - 1));
+                if (args == null || args.size() < 2) {
+                    return null;
+                }
+                Expression[] list = new Expression[args.size()];
+                for (int i = 0; i < list.length; ++i) {
+                    list[i] = compileTerm(args.get(i));
+                    if (list[i] == null) {
+                        return null;
+                    }
+                }
+                return inputs -> {
+                    StringBuilder builder = new StringBuilder();
+                    for (Expression arg : list) {
+                        Object value = arg.evaluate(inputs);
+                        if (value == UNSUPPORTED) {
+                            return UNSUPPORTED;
+                        }
+                        builder.append(InfoSetUtil.stringValue(value));
+                    }
+                    return builder.toString();
+                };
+            }
+            return compileTerm(text);
+        }
+
+        /**
+         * Compiles a literal or simple path.
+         *
+         * @param term the term
+         * @return the compiled term, or {@code null} if it is not a literal or simple path
+         */
+        private Expression compileTerm(String term) {
+            String text = term.trim();
+            if (text.length() >= 2 && LITERAL.matcher(text).matches()) {
+                String literal = text.substring(1, text.length() - 1);
+                return inputs -> literal;
+            } else if (PATH.matcher(text).matches()) {
+                int index = paths.indexOf(text);
+                if (index == -1) {
+                    return null;
+                }
+                // JXPath treats collections and maps as node sets, so leave these to it
+                return inputs -> (inputs[index] instanceof Collection || inputs[index] instanceof Map)
+                                 ? UNSUPPORTED : inputs[index];
+            }
+            return null;
+        }
+
+        /**
+         * Splits function arguments on top-level commas.
+         *
+         * @param args the arguments
+         * @return the arguments, or {@code null} if they contain nested function calls
+         */
+        private static List<String> split(String args) {
+            List<String> result = new ArrayList<>();
+            int start = 0;
+            char quote = 0;
+            for (int i = 0; i < args.length(); ++i) {
+                char ch = args.charAt(i);
+                if (quote != 0) {
+                    if (ch == quote) {
+                        quote = 0;
+                    }
+                } else if (ch == '\'' || ch == '"') {
+                    quote = ch;
+                } else if (ch == '(' || ch == ')') {
+                    return null;
+                } else if (ch == ',') {
+                    result.add(args.substring(start, i));
+                    start = i + 1;
+                }
+            }
+            if (quote != 0) {
+                return null;
+            }
+            result.add(args.substring(start));
+            return result;
+        }
+    }
+
+    /**
+     * A compiled expression.
+     */
+    private interface Expression {
+
+        /**
+         * Evaluates the expression.
+         *
+         * @param inputs the values of the paths read by the expression
+         * @return the result of the expression
+         */
+        Object evaluate(Object[] inputs);
+    }
+}
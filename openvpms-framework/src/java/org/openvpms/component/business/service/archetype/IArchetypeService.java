@@ -34,6 +34,7 @@ import org.openvpms.component.system.common.query.ObjectSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 
 /**
@@ -99,6 +100,17 @@ public interface IArchetypeService {
      */
     void validateObject(org.openvpms.component.model.object.IMObject object);
 
+    /**
+     * Validates a collection of objects in a single pass.
+     * <p/>
+     * This is more efficient than validating each object individually.
+     *
+     * @param objects the objects to validate
+     * @return any validation errors, for all of the objects
+     */
+    List<org.openvpms.component.service.archetype.ValidationError> validate(
+            Collection<? extends org.openvpms.component.model.object.IMObject> objects);
+
     /**
      * Derived values for the specified {@link IMObject}, based on its corresponding {@link ArchetypeDescriptor}.
      *
@@ -217,6 +229,19 @@ public interface IArchetypeService {
      */
     IMObject get(Reference reference, boolean active);
 
+    /**
+     * Retrieves the objects with the specified references.
+     * <p/>
+     * Objects of the same type are retrieved in a single query, rather than one at a time. This should be used in
+     * preference to {@link #get(Reference)} when resolving many references, to avoid a query per reference.
+     *
+     * @param references the object references
+     * @return the objects, keyed on reference, in the order the references were supplied. References to objects that
+     * don't exist are excluded. Objects may be active or inactive
+     * @throws ArchetypeServiceException if the query fails
+     */
+    Map<Reference, IMObject> get(Collection<? extends Reference> references);
+
     /**
      * Retrieves the objects matching the query.
      *
@@ -260,6 +285,36 @@ public interface IArchetypeService {
      */
     IPage<NodeSet> getNodes(IArchetypeQuery query, Collection<String> nodes);
 
+    /**
+     * Streams the objects matching the query.
+     * <p>
+     * Unlike {@link #get(IArchetypeQuery)}, results are read incrementally from the database, so that memory use is
+     * independent of the number of results. This is intended for reports and batch processes that need to walk large
+     * result sets.
+     * <p>
+     * Results are read outside of any current transaction, so uncommitted changes will not be visible.
+     * The query's first and maximum results are honoured; use {@link IArchetypeQuery#ALL_RESULTS} to stream all
+     * results.
+     * <p>
+     * The stream must be closed to release the database connection, e.g. using try-with-resources.
+     *
+     * @param query the archetype query
+     * @return a stream of the objects that match the query criteria
+     * @throws ArchetypeServiceException if the query fails
+     */
+    Stream<IMObject> stream(IArchetypeQuery query);
+
+    /**
+     * Streams the object sets matching the query.
+     * <p>
+     * See {@link #stream(IArchetypeQuery)} for details.
+     *
+     * @param query the archetype query
+     * @return a stream of the object sets that match the query criteria
+     * @throws ArchetypeServiceException if the query fails
+     */
+    Stream<ObjectSet> streamObjects(IArchetypeQuery query);
+
     /**
      * Returns a builder to create queries.
      *
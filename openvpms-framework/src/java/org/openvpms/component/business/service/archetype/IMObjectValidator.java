@@ -22,6 +22,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor;
 import org.openvpms.component.business.domain.im.archetype.descriptor.AssertionDescriptor;
+import org.openvpms.component.business.domain.im.archetype.descriptor.NodeAccessor;
 import org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor;
 import org.openvpms.component.business.service.archetype.descriptor.cache.IArchetypeDescriptorCache;
 import org.openvpms.component.model.object.IMObject;
@@ -29,13 +30,18 @@ import org.openvpms.component.system.common.jxpath.JXPathHelper;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
  * Validates {@link IMObject}s.
+ * <p/>
+ * For each archetype, a {@link Plan} is compiled on first use. This flattens the node hierarchy, and determines the
+ * checks required for each node up front, so that validating an object is a single pass over its nodes.
+ * Plans are discarded when the archetype descriptor is replaced in the cache, or when {@link #reset()} is invoked.
  *
  * @author Jim Alateras
  * @author Tim Anderson
@@ -48,15 +54,14 @@ class IMObjectValidator {
     private final IArchetypeDescriptorCache cache;
 
     /**
-     * The logger.
+     * The validation plans, keyed on archetype.
      */
-    private static final Log log = LogFactory.getLog(IMObjectValidator.class);
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
 
     /**
-     * Control characters, excluding <em>'\n', '\r', '\t'</em>.
+     * The logger.
      */
-    private static final Pattern CNTRL_CHARS
-            = Pattern.compile(".*[\\x00-\\x08\\x0B\\x0C\\x0E-\\x1F\\x7F].*");
+    private static final Log log = LogFactory.getLog(IMObjectValidator.class);
 
 
     /**
@@ -76,82 +81,154 @@ class IMObjectValidator {
      */
     public List<org.openvpms.component.service.archetype.ValidationError> validate(IMObject object) {
         List<org.openvpms.component.service.archetype.ValidationError> errors = new ArrayList<>();
-        validate(object, errors);
+        validate(object, errors, new HashMap<>());
         return errors;
     }
 
+    /**
+     * Validates a collection of objects.
+     * <p/>
+     * The validation plan for each archetype is looked up once for the collection.
+     *
+     * @param objects     the objects to validate
+     * @param stopOnError if {@code true}, stop on the first invalid object, and only return its errors
+     * @return a list of validation errors encountered. Empty if no errors were found
+     */
+    public List<org.openvpms.component.service.archetype.ValidationError> validate(
+            Collection<? extends IMObject> objects, boolean stopOnError) {
+        List<org.openvpms.component.service.archetype.ValidationError> errors = new ArrayList<>();
+        Map<String, Plan> batch = new HashMap<>();
+        for (IMObject object : objects) {
+            validate(object, errors, batch);
+            if (stopOnError && !errors.isEmpty()) {
+                break;
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Returns the derived values for an archetype.
+     * <p/>
+     * These are shared with validation, so that values derived prior to validation aren't derived again.
+     *
+     * @param archetype the archetype
+     * @return the derived values, or {@code null} if the archetype doesn't exist or has no derived nodes
+     */
+    public DerivedValues getDerivedValues(String archetype) {
+        Plan plan = getPlan(archetype);
+        return (plan != null) ? plan.derived : null;
+    }
+
+    /**
+     * Discards all validation plans.
+     * <p/>
+     * This should be invoked when archetype or assertion type descriptors are updated in place.
+     */
+    public void reset() {
+        plans.clear();
+    }
+
     /**
      * Validates an object.
      *
      * @param object the object to validate
      * @param errors the list to add validation errors to
+     * @param batch  the plans already used by the current call, keyed on archetype
      */
-    @SuppressWarnings("unchecked")
-    protected void validate(IMObject object, List<org.openvpms.component.service.archetype.ValidationError> errors) {
+    protected void validate(IMObject object, List<org.openvpms.component.service.archetype.ValidationError> errors,
+                            Map<String, Plan> batch) {
         String archetype = object.getArchetype();
         if (log.isDebugEnabled()) {
             log.debug("Validating object of type " + archetype + " with id " + object.getId()
                       + " and version " + object.getVersion());
         }
 
-        ArchetypeDescriptor descriptor = cache.getArchetypeDescriptor(archetype);
-        if (descriptor == null) {
+        Plan plan = batch.get(archetype);
+        if (plan == null) {
+            plan = getPlan(archetype);
+            if (plan != null) {
+                batch.put(archetype, plan);
+            }
+        }
+        if (plan == null) {
             addError(errors, object, null, "No archetype definition for " + archetype);
             log.error("No archetype definition for " + archetype);
         } else {
-            // if there are nodes attached to the archetype then validate the
-            // associated assertions
-            Map nodeDescriptors = descriptor.getNodeDescriptors();
-            if (nodeDescriptors.size() > 0) {
-                JXPathContext context = JXPathHelper.newContext(object);
-                validateNodes(object, context, descriptor, (Map<String, NodeDescriptor>) nodeDescriptors, errors);
+            boolean derived = false;
+            if (plan.derived != null) {
+                try {
+                    plan.derived.derive(object);
+                    derived = true;
+                } catch (Exception exception) {
+                    // evaluate each derived node individually, to report the errors against the nodes
+                    log.debug("Failed to derive values for " + archetype, exception);
+                }
+            }
+            JXPathContext context = null;
+            for (NodeCheck check : plan.checks) {
+                if (check.derived && !derived && context == null) {
+                    context = JXPathHelper.newContext(object);
+                }
+                validateNode(object, context, check, derived, errors, batch);
             }
         }
     }
 
     /**
-     * Validates each node of the parent object.
+     * Returns the validation plan for an archetype, compiling it if required.
      *
-     * @param parent    the parent object
-     * @param context   holds the object to be validated
-     * @param archetype the archetype descriptor
-     * @param nodes     the nodes to validate
-     * @param errors    the list to add validation errors to
+     * @param archetype the archetype
+     * @return the plan, or {@code null} if there is no descriptor for the archetype
      */
-    protected void validateNodes(IMObject parent, JXPathContext context, ArchetypeDescriptor archetype,
-                                 Map<String, NodeDescriptor> nodes,
-                                 List<org.openvpms.component.service.archetype.ValidationError> errors) {
-        for (NodeDescriptor node : nodes.values()) {
-            validateNode(parent, context, archetype, node, errors);
+    protected Plan getPlan(String archetype) {
+        ArchetypeDescriptor descriptor = cache.getArchetypeDescriptor(archetype);
+        if (descriptor == null) {
+            return null;
         }
+        Plan plan = plans.get(archetype);
+        if (plan == null || plan.descriptor != descriptor) {
+            plan = new Plan(descriptor);
+            plans.put(archetype, plan);
+        }
+        return plan;
     }
 
     /**
      * Validates a node.
      *
-     * @param parent    the parent object
-     * @param context   holds the object to be validated
-     * @param archetype the archetype descriptor
-     * @param node      the node to validate
-     * @param errors    the list to add validation errors to
+     * @param parent  the parent object
+     * @param context the context, for derived nodes. May be {@code null} if the node isn't derived, or the values
+     *                have been derived
+     * @param check   the node checks
+     * @param derived if {@code true}, the derived values have already been derived
+     * @param errors  the list to add validation errors to
+     * @param batch   the plans already used by the current call, keyed on archetype
      */
-    protected void validateNode(IMObject parent, JXPathContext context, ArchetypeDescriptor archetype,
-                                NodeDescriptor node,
-                                List<org.openvpms.component.service.archetype.ValidationError> errors) {
+    protected void validateNode(IMObject parent, JXPathContext context, NodeCheck check, boolean derived,
+                                List<org.openvpms.component.service.archetype.ValidationError> errors,
+                                Map<String, Plan> batch) {
+        NodeDescriptor node = check.node;
+        boolean derive = check.derived && !derived;
         Object value;
         try {
-            value = node.getValue(context);
+            if (derive) {
+                value = JXPathHelper.getValue(context, node.getDerivedValue());
+            } else if (check.collection) {
+                value = node.getChildren(parent);
+            } else {
+                value = check.accessor.getValue(parent);
+            }
         } catch (Exception exception) {
             addError(errors, parent, node, "Failed to get value");
             log.error("Failed to get value for " + node.getName(), exception);
             return;
         }
 
-        // first check whether the value for this node is derived and if it
-        // is then set the derived value
-        if (node.isDerived()) {
+        // if the value for this node is derived then set the derived value
+        if (derive) {
             try {
-                context.getPointer(node.getPath()).setValue(value);
+                JXPathHelper.getPointer(context, node.getPath()).setValue(value);
             } catch (Exception exception) {
                 addError(errors, parent, node, "Cannot derive value");
                 log.error("Failed to derive value for " + node.getName(), exception);
@@ -159,20 +236,17 @@ class IMObjectValidator {
             }
         }
 
-        if (node.isCollection()) {
-            checkCollection(parent, node, value, errors);
+        if (check.collection) {
+            checkCollection(parent, check, value, errors, batch);
         } else {
-            checkSimpleValue(parent, node, value, errors);
+            checkSimpleValue(parent, check, value, errors);
         }
 
         if (value != null) {
             // only check the assertions for non-null values. Null values are handled by minCardinality checks.
-            checkAssertions(parent, node, value, errors);
-        }
-
-        // validate any child nodes
-        if (!node.getNodeDescriptors().isEmpty()) {
-            validateNodes(parent, context, archetype, node.getNodeDescriptors(), errors);
+            for (AssertionDescriptor assertion : check.assertions) {
+                checkAssertion(parent, node, value, assertion, errors);
+            }
         }
     }
 
@@ -181,19 +255,18 @@ class IMObjectValidator {
      * characters.
      *
      * @param parent the parent object
-     * @param node   the node to validate
+     * @param check  the node checks
      * @param value  the node value to check
      * @param errors the list to add validation errors to
      */
-    protected void checkSimpleValue(IMObject parent, NodeDescriptor node, Object value,
+    protected void checkSimpleValue(IMObject parent, NodeCheck check, Object value,
                                     List<org.openvpms.component.service.archetype.ValidationError> errors) {
-        int min = node.getMinCardinality();
-        if (min == 1 && (value == null || value instanceof String && StringUtils.isEmpty((String) value))) {
-            addError(errors, parent, node, "value is required");
+        if (check.required && (value == null || value instanceof String && StringUtils.isEmpty((String) value))) {
+            addError(errors, parent, check.node, "value is required");
         }
 
-        if (value instanceof String) {
-            checkControlChars(parent, node, value, errors);
+        if (value instanceof String && hasControlChars((String) value)) {
+            addError(errors, parent, check.node, " contains invalid characters");
         }
     }
 
@@ -201,54 +274,38 @@ class IMObjectValidator {
      * Checks a collection.
      *
      * @param parent the parent object
-     * @param node   the node to validate
+     * @param check  the node checks
      * @param value  the node value to check
      * @param errors the list to add validation errors to
+     * @param batch  the plans already used by the current call, keyed on archetype
      */
-    protected void checkCollection(IMObject parent, NodeDescriptor node, Object value,
-                                   List<org.openvpms.component.service.archetype.ValidationError> errors) {
-        int min = node.getMinCardinality();
-        int max = node.getMaxCardinality();
+    protected void checkCollection(IMObject parent, NodeCheck check, Object value,
+                                   List<org.openvpms.component.service.archetype.ValidationError> errors,
+                                   Map<String, Plan> batch) {
+        NodeDescriptor node = check.node;
         Collection collection = node.toCollection(value);
 
-        if (min > 0 && (collection == null || collection.size() < min)) {
-            String name = node.getBaseName() != null ? node.getBaseName() : "item";
-            addError(errors, parent, node, "must supply at least " + min + " " + name);
+        if (check.min > 0 && (collection == null || collection.size() < check.min)) {
+            addError(errors, parent, node, "must supply at least " + check.min + " " + check.itemName);
         }
 
         // check the max cardinality if specified
         if (collection != null) {
-            if (max > 0 && max != NodeDescriptor.UNBOUNDED && collection.size() > max) {
-                String name = node.getBaseName() != null ? node.getBaseName() : "item";
-                addError(errors, parent, node, "cannot supply more than " + max + " " + name);
+            if (check.max > 0 && check.max != NodeDescriptor.UNBOUNDED && collection.size() > check.max) {
+                addError(errors, parent, node, "cannot supply more than " + check.max + " " + check.itemName);
             }
 
             // if it's a parent-child relationship then validate the children
-            if (node.isParentChild()) {
+            if (check.parentChild) {
                 for (Object object : collection) {
                     if (object instanceof IMObject) {
-                        validate((IMObject) object, errors);
+                        validate((IMObject) object, errors, batch);
                     }
                 }
             }
         }
     }
 
-    /**
-     * Checks a nodes validation assertions.
-     *
-     * @param parent the parent object
-     * @param node   the node to validate
-     * @param value  the node value to check
-     * @param errors the list to add validation errors to
-     */
-    protected void checkAssertions(IMObject parent, NodeDescriptor node, Object value,
-                                   List<org.openvpms.component.service.archetype.ValidationError> errors) {
-        for (AssertionDescriptor assertion : node.getAssertionDescriptorsAsArray()) {
-            checkAssertion(parent, node, value, assertion, errors);
-        }
-    }
-
     /**
      * Checks an assertion for a node.
      *
@@ -275,18 +332,25 @@ class IMObjectValidator {
     }
 
     /**
-     * Checks a string for invalid control characters.
+     * Determines if a string contains control characters, excluding <em>'\n', '\r', '\t'</em>.
+     * <p/>
+     * This preserves the behaviour of the regular expression {@code .*[\x00-\x08\x0B\x0C\x0E-\x1F\x7F].*} that it
+     * replaces. As {@code .} doesn't match line terminators, strings containing them are never rejected.
      *
-     * @param parent the parent object.
-     * @param node   the node descriptor
-     * @param value  the string to check
-     * @param errors the errors to add to if the string is invalid
+     * @param value the string to check
+     * @return {@code true} if the string contains invalid control characters
      */
-    protected void checkControlChars(IMObject parent, NodeDescriptor node, Object value,
-                                     List<org.openvpms.component.service.archetype.ValidationError> errors) {
-        if (CNTRL_CHARS.matcher((String) value).matches()) {
-            addError(errors, parent, node, " contains invalid characters");
+    protected static boolean hasControlChars(String value) {
+        boolean found = false;
+        for (int i = 0; i < value.length(); ++i) {
+            char ch = value.charAt(i);
+            if (ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029') {
+                return false;
+            } else if ((ch < 0x20 && ch != '\t') || ch == 0x7F) {
+                found = true;
+            }
         }
+        return found;
     }
 
     /**
@@ -308,4 +372,130 @@ class IMObjectValidator {
         }
     }
 
+    /**
+     * The validation plan for an archetype.
+     */
+    protected static class Plan {
+
+        /**
+         * The archetype descriptor the plan was compiled from.
+         */
+        private final ArchetypeDescriptor descriptor;
+
+        /**
+         * The node checks, in the order that nodes are validated.
+         */
+        private final NodeCheck[] checks;
+
+        /**
+         * The derived values. May be {@code null}
+         */
+        private final DerivedValues derived;
+
+        /**
+         * Constructs a {@link Plan}.
+         *
+         * @param descriptor the archetype descriptor
+         */
+        @SuppressWarnings("unchecked")
+        public Plan(ArchetypeDescriptor descriptor) {
+            this.descriptor = descriptor;
+            List<NodeCheck> list = new ArrayList<>();
+            addChecks((Map<String, NodeDescriptor>) (Map) descriptor.getNodeDescriptors(), list);
+            checks = list.toArray(new NodeCheck[0]);
+            derived = DerivedValues.create(descriptor);
+        }
+
+        /**
+         * Adds checks for each node, and its child nodes.
+         *
+         * @param nodes the nodes
+         * @param list  the list to add to
+         */
+        private void addChecks(Map<String, NodeDescriptor> nodes, List<NodeCheck> list) {
+            for (NodeDescriptor node : nodes.values()) {
+                list.add(new NodeCheck(node));
+                if (!node.getNodeDescriptors().isEmpty()) {
+                    addChecks(node.getNodeDescriptors(), list);
+                }
+            }
+        }
+    }
+
+    /**
+     * The checks to perform for a node.
+     * <p/>
+     * This caches those properties of the node that are expensive to determine on each validation.
+     */
+    protected static class NodeCheck {
+
+        /**
+         * The node descriptor.
+         */
+        private final NodeDescriptor node;
+
+        /**
+         * The accessor for the node. {@code null} for collection nodes.
+         */
+        private final NodeAccessor accessor;
+
+        /**
+         * Determines if the node is derived.
+         */
+        private final boolean derived;
+
+        /**
+         * Determines if the node is a collection.
+         */
+        private final boolean collection;
+
+        /**
+         * Determines if the node is a parent-child collection.
+         */
+        private final boolean parentChild;
+
+        /**
+         * Determines if a value is required, for simple nodes.
+         */
+        private final boolean required;
+
+        /**
+         * The minimum cardinality.
+         */
+        private final int min;
+
+        /**
+         * The maximum cardinality.
+         */
+        private final int max;
+
+        /**
+         * The name to use for collection items in cardinality errors.
+         */
+        private final String itemName;
+
+        /**
+         * The node's assertions.
+         */
+        private final AssertionDescriptor[] assertions;
+
+        /**
+         * Constructs a {@link NodeCheck}.
+         *
+         * @param node the node descriptor
+         */
+        public NodeCheck(NodeDescriptor node) {
+            this.node = node;
+            derived = node.isDerived();
+            collection = node.isCollection();
+            parentChild = collection && node.isParentChild();
+            accessor = !collection ? node.getAccessor() : null;
+            min = node.getMinCardinality();
+            max = node.getMaxCardinality();
+            required = min == 1;
+            itemName = node.getBaseName() != null ? node.getBaseName() : "item";
+            assertions = node.getAssertionDescriptorsAsArray();
+        }
+    }
+
 }
@@ -0,0 +1,200 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.archetype;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openvpms.component.model.object.Reference;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects code that retrieves objects one at a time in a loop, i.e. the N+1 query pattern.
+ * <p/>
+ * This is only active when DEBUG logging is enabled for this class, e.g. in log4j.properties:
+ * <pre>
+ * log4j.logger.org.openvpms.component.business.service.archetype.NPlusOneDetector=DEBUG
+ * </pre>
+ * When active, each {@link IArchetypeService#get(Reference)} call is attributed to the first caller outside of the
+ * framework. If the same caller retrieves {@link #DEFAULT_THRESHOLD} objects of the same archetype in quick
+ * succession, it is logged with a stack trace, once per caller and archetype. Such callers can usually use
+ * {@link IArchetypeService#get(java.util.Collection)} instead.
+ *
+ * @author Tim Anderson
+ */
+class NPlusOneDetector {
+
+    /**
+     * The number of retrievals from the same caller that indicate an N+1 pattern.
+     */
+    private final int threshold;
+
+    /**
+     * The maximum time between retrievals for them to be counted together, in nanoseconds.
+     */
+    private final long window;
+
+    /**
+     * The retrieval counts for the current thread, keyed on archetype and caller.
+     */
+    private final ThreadLocal<Map<String, Counter>> counters = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * The archetype and callers that have been reported.
+     */
+    private final Set<String> reported = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The default threshold.
+     */
+    static final int DEFAULT_THRESHOLD = 10;
+
+    /**
+     * The default window, in milliseconds.
+     */
+    static final long DEFAULT_WINDOW = 1000;
+
+    /**
+     * The maximum number of callers to track per thread, before the counts are discarded.
+     */
+    private static final int MAX_COUNTERS = 1000;
+
+    /**
+     * Packages that are not considered to be callers.
+     */
+    private static final String[] IGNORE = {"org.openvpms.component.", "java.", "javax.", "sun.", "jdk.",
+                                            "com.sun.", "org.springframework.", "org.apache.commons."};
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(NPlusOneDetector.class);
+
+    /**
+     * Constructs an {@link NPlusOneDetector} with the default threshold and window.
+     */
+    NPlusOneDetector() {
+        this(DEFAULT_THRESHOLD, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Constructs an {@link NPlusOneDetector}.
+     *
+     * @param threshold the number of retrievals from the same caller that indicate an N+1 pattern
+     * @param window    the maximum time between retrievals for them to be counted together, in milliseconds
+     */
+    NPlusOneDetector(int threshold, long window) {
+        this.threshold = threshold;
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+    }
+
+    /**
+     * Determines if detection is active.
+     *
+     * @return {@code true} if DEBUG logging is enabled
+     */
+    boolean isEnabled() {
+        return log.isDebugEnabled();
+    }
+
+    /**
+     * Invoked when an object is retrieved by reference.
+     *
+     * @param reference the object reference
+     */
+    void get(Reference reference) {
+        if (isEnabled()) {
+            Throwable trace = new Throwable("Retrieved by");
+            String key = reference.getArchetype() + " from " + getCaller(trace.getStackTrace());
+            if (count(key) == threshold && reported.add(key)) {
+                log.debug("Possible N+1 query: " + threshold + " separate retrievals of " + key
+                          + ". Use IArchetypeService.get(Collection) to retrieve them in a single query", trace);
+            }
+        }
+    }
+
+    /**
+     * Increments the retrieval count for an archetype and caller.
+     *
+     * @param key the archetype and caller
+     * @return the count
+     */
+    private int count(String key) {
+        Map<String, Counter> map = counters.get();
+        if (map.size() > MAX_COUNTERS) {
+            map.clear();
+        }
+        long now = System.nanoTime();
+        Counter counter = map.computeIfAbsent(key, k -> new Counter());
+        if (now - counter.last > window) {
+            counter.count = 0;
+        }
+        counter.last = now;
+        return ++counter.count;
+    }
+
+    /**
+     * Returns the first caller outside of the framework.
+     *
+     * @param elements the stack trace
+     * @return the caller
+     */
+    private String getCaller(StackTraceElement[] elements) {
+        for (StackTraceElement element : elements) {
+            if (!ignore(element.getClassName())) {
+                return element.toString();
+            }
+        }
+        return (elements.length != 0) ? elements[elements.length - 1].toString() : "unknown";
+    }
+
+    /**
+     * Determines if a class should be ignored when determining the caller.
+     *
+     * @param className the class name
+     * @return {@code true} if the class should be ignored
+     */
+    private boolean ignore(String className) {
+        for (String prefix : IGNORE) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return className.contains("$$");
+    }
+
+    /**
+     * Retrieval count for an archetype and caller.
+     */
+    private static class Counter {
+
+        /**
+         * The number of retrievals.
+         */
+        private int count;
+
+        /**
+         * The time of the last retrieval, in nanoseconds.
+         */
+        private long last = System.nanoTime();
+    }
+}
@@ -18,6 +18,8 @@ package org.openvpms.component.business.service.archetype;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openvpms.component.business.service.cache.Invalidation;
+import org.openvpms.component.business.service.cache.InvalidationBus;
 import org.openvpms.component.model.object.IMObject;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
@@ -30,6 +32,8 @@ import java.util.Set;
 
 /**
  * Notifies {@link IArchetypeServiceListener} of archetype service events.
+ * <p/>
+ * If the service has an {@link InvalidationBus}, saved and removed objects are also published to it once committed.
  *
  * @author Tim Anderson
  */
@@ -40,11 +44,6 @@ class Notifier {
      */
     private final ArchetypeService service;
 
-    /**
-     * The listeners to notify.
-     */
-    private final Map<String, List<IArchetypeServiceListener>> listeners;
-
     /**
      * Determines if transaction synchronization is active.
      */
@@ -76,7 +75,6 @@ class Notifier {
     public Notifier(ArchetypeService service, boolean syncActive) {
         this.service = service;
         this.syncActive = syncActive;
-        this.listeners = service.getListeners();
     }
 
     /**
@@ -141,6 +139,7 @@ class Notifier {
             saved.add(object);
         } else {
             doNotifySaved(object, list);
+            publish(Invalidation.Type.SAVED, object);
         }
     }
 
@@ -162,6 +161,7 @@ class Notifier {
             removed.add(object);
         } else {
             doNotifyRemoved(object, list);
+            publish(Invalidation.Type.REMOVED, object);
         }
     }
 
@@ -169,21 +169,20 @@ class Notifier {
      * Notifies listeners of any pending events on commit.
      */
     public void notifyCommit() {
+        Map<String, List<IArchetypeServiceListener>> listeners = service.getListeners();
         for (IMObject object : saved) {
-            synchronized (listeners) {
-                List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
-                if (list != null) {
-                    doNotifySaved(object, list);
-                }
+            List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
+            if (list != null) {
+                doNotifySaved(object, list);
             }
+            publish(Invalidation.Type.SAVED, object);
         }
         for (IMObject object : removed) {
-            synchronized (listeners) {
-                List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
-                if (list != null) {
-                    doNotifyRemoved(object, list);
-                }
+            List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
+            if (list != null) {
+                doNotifyRemoved(object, list);
             }
+            publish(Invalidation.Type.REMOVED, object);
         }
         destroy();
     }
@@ -192,20 +191,17 @@ class Notifier {
      * Notifies listeners of any pending events on rollback.
      */
     public void notifyRollback() {
+        Map<String, List<IArchetypeServiceListener>> listeners = service.getListeners();
         for (IMObject object : saved) {
-            synchronized (listeners) {
-                List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
-                if (list != null) {
-                    doNotifyRollback(object, list);
-                }
+            List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
+            if (list != null) {
+                doNotifyRollback(object, list);
             }
         }
         for (IMObject object : removed) {
-            synchronized (listeners) {
-                List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
-                if (list != null) {
-                    doNotifyRollback(object, list);
-                }
+            List<IArchetypeServiceListener> list = listeners.get(object.getArchetype());
+            if (list != null) {
+                doNotifyRollback(object, list);
             }
         }
         destroy();
@@ -246,6 +242,19 @@ class Notifier {
         removed.clear();
     }
 
+    /**
+     * Publishes a committed change to the invalidation bus, if one is registered and has subscribers.
+     *
+     * @param type   the change type
+     * @param object the changed object
+     */
+    private void publish(Invalidation.Type type, IMObject object) {
+        InvalidationBus bus = service.getInvalidationBus();
+        if (bus != null && bus.hasSubscribers()) {
+            bus.publish(type, object.getObjectReference());
+        }
+    }
+
     /**
      * Notifies listeners of an object being saved.
      *
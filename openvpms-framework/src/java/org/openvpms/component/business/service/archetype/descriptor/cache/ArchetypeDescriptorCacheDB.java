@@ -26,6 +26,8 @@ import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeD
 import org.openvpms.component.business.domain.im.archetype.descriptor.AssertionTypeDescriptor;
 import org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor;
 import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.service.cache.InvalidationBus;
+import org.openvpms.component.business.service.cache.InvalidationListener;
 import org.openvpms.component.system.common.query.ArchetypeQuery;
 import org.openvpms.component.system.common.query.IPage;
 
@@ -50,6 +52,16 @@ public class ArchetypeDescriptorCacheDB implements IArchetypeDescriptorCache {
      */
     private Cache cache;
 
+    /**
+     * The archetype descriptor archetype.
+     */
+    private static final String ARCHETYPE_DESCRIPTOR = "descriptor.archetype";
+
+    /**
+     * The assertion type descriptor archetype.
+     */
+    private static final String ASSERTION_TYPE_DESCRIPTOR = "descriptor.assertionType";
+
     /**
      * The logger.
      */
@@ -201,6 +213,19 @@ public class ArchetypeDescriptorCacheDB implements IArchetypeDescriptorCache {
         cache = new Cache();
     }
 
+    /**
+     * Registers a bus to receive descriptor updates made by other nodes.
+     * <p/>
+     * The cache is refreshed whenever a descriptor is changed by another node.
+     *
+     * @param bus the invalidation bus
+     */
+    public void setInvalidationBus(InvalidationBus bus) {
+        InvalidationListener listener = invalidation -> refresh();
+        bus.addListener(ARCHETYPE_DESCRIPTOR, listener);
+        bus.addListener(ASSERTION_TYPE_DESCRIPTOR, listener);
+    }
+
     private class Cache extends BaseArchetypeDescriptorCache {
 
         public Cache() {
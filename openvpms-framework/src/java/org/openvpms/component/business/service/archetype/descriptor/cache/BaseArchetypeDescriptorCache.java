@@ -221,6 +221,10 @@ public abstract class BaseArchetypeDescriptorCache implements IArchetypeDescript
      * @param descriptor the archetype descriptor to add
      */
     public void addArchetypeDescriptor(ArchetypeDescriptor descriptor) {
+        // compile the node accessors now, rather than on first access
+        for (NodeDescriptor node : descriptor.getAllNodeDescriptors()) {
+            node.getAccessor();
+        }
         ArchetypeId archId = descriptor.getType();
         if (descriptor.isLatest() || !archetypesByShortName.containsKey(archId.getShortName())) {
             archetypesByShortName.put(archId.getShortName(), descriptor);
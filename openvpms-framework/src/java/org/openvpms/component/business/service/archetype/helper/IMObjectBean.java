@@ -2753,9 +2753,9 @@ public class IMObjectBean implements org.openvpms.component.model.bean.IMObjectB
             result = Collections.emptyMap();
         } else {
             result = new HashMap<>();
-            Policy.State state = policy.getState();
+            Map<Reference, T> objects = resolveAll(refs.values(), type, policy.getState());
             for (Map.Entry<R, Reference> entry : refs.entrySet()) {
-                T object = resolve(entry.getValue(), type, state);
+                T object = objects.get(entry.getValue());
                 if (object != null) {
                     result.put(entry.getKey(), object);
                 }
@@ -2948,8 +2948,9 @@ public class IMObjectBean implements org.openvpms.component.model.bean.IMObjectB
             result = Collections.emptyList();
         } else {
             result = new ArrayList<>();
+            Map<Reference, T> objects = resolveAll(refs, type, state);
             for (Reference ref : refs) {
-                T object = resolve(ref, type, state);
+                T object = objects.get(ref);
                 if (object != null) {
                     result.add(object);
                 }
@@ -2958,6 +2959,43 @@ public class IMObjectBean implements org.openvpms.component.model.bean.IMObjectB
         return result;
     }
 
+    /**
+     * Resolves references, retrieving those of the same type in a single query where there is more than one.
+     * <p>
+     * If an object cannot be resolved, or doesn't match the state criteria, it is excluded.
+     *
+     * @param refs  the references to resolve
+     * @param type  the expected object type
+     * @param state the expected object state
+     * @return the objects, keyed on reference
+     * @throws ArchetypeServiceException for any archetype service error
+     * @throws IMObjectBeanException     if an object isn't of the expected type
+     */
+    @SuppressWarnings("unchecked")
+    protected <T extends org.openvpms.component.model.object.IMObject> Map<Reference, T> resolveAll(
+            Collection<Reference> refs, Class<T> type, Policy.State state) {
+        Map<Reference, T> result = new HashMap<>();
+        if (refs.size() == 1) {
+            Reference ref = refs.iterator().next();
+            T object = resolve(ref, type, state);
+            if (object != null) {
+                result.put(ref, object);
+            }
+        } else if (!refs.isEmpty()) {
+            for (Map.Entry<Reference, IMObject> entry : getArchetypeService().get(refs).entrySet()) {
+                IMObject object = entry.getValue();
+                if (state == Policy.State.ANY || object.isActive() == (state == Policy.State.ACTIVE)) {
+                    if (!type.isInstance(object)) {
+                        throw new IMObjectBeanException(InvalidClassCast, type.getName(),
+                                                        object.getClass().getName());
+                    }
+                    result.put(entry.getKey(), (T) object);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the source or target of a relationship that is not the same as the supplied reference.
      *
@@ -30,12 +30,17 @@ import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
  * Implementation of {@link IArchetypeRuleService} that uses Spring's
  * {@link PlatformTransactionManager} to provide transaction support.
+ * <p/>
+ * The rule sets registered with the rule engine are indexed by archetype and operation on first use, so that
+ * archetypes without rules incur a single map lookup per save or remove.
  *
  * @author Jim Alateras
  * @author Tim Anderson
@@ -62,6 +67,17 @@ public class ArchetypeRuleService extends DelegatingArchetypeService implements
      */
     private List<Object> facts;
 
+    /**
+     * The rule set URIs, keyed on archetype and operation. Each operation has a two element array of the
+     * <em>before</em> and <em>after</em> rule set URIs, either of which may be {@code null}.
+     */
+    private volatile Map<String, Map<String, String[]>> index;
+
+    /**
+     * The service name used in rule set URIs.
+     */
+    private static final String SERVICE = "archetypeService";
+
     /**
      * The logger.
      */
@@ -199,12 +215,12 @@ public class ArchetypeRuleService extends DelegatingArchetypeService implements
      * @param before if {@code true} execute <em>before</em> rules, otherwise execute <em>after</em> rules
      */
     private void executeRules(String name, org.openvpms.component.model.object.IMObject object, boolean before) {
-        String uri = RuleSetUriHelper.getRuleSetURI("archetypeService", name, before, object.getArchetype());
-        if (rules.hasRules(uri)) {
+        String uri = getRuleSetURI(name, before, object.getArchetype());
+        if (uri != null) {
             if (log.isDebugEnabled()) {
                 log.debug("Executing rules for uri=" + uri);
             }
-            List<Object> localFacts = new ArrayList<>();
+            List<Object> localFacts = new ArrayList<>(3 + (facts != null ? facts.size() : 0));
             localFacts.add(object);
             localFacts.add(getService());
             localFacts.add(txnManager);
@@ -215,4 +231,60 @@ public class ArchetypeRuleService extends DelegatingArchetypeService implements
         }
     }
 
+    /**
+     * Returns the rule set URI for an operation on an archetype.
+     *
+     * @param name      the operation name
+     * @param before    if {@code true} return the <em>before</em> rule set, otherwise return the <em>after</em> one
+     * @param archetype the archetype
+     * @return the rule set URI, or {@code null} if the archetype has no rules for the operation
+     */
+    private String getRuleSetURI(String name, boolean before, String archetype) {
+        Map<String, String[]> operations = getIndex().get(archetype);
+        String[] uris = (operations != null) ? operations.get(name) : null;
+        return (uris != null) ? uris[before ? 0 : 1] : null;
+    }
+
+    /**
+     * Returns the rule set index, building it if required.
+     * <p/>
+     * The rule engine registers its rule sets at initialisation, so the index is built once.
+     *
+     * @return the index of rule set URIs, keyed on archetype and operation
+     */
+    private Map<String, Map<String, String[]>> getIndex() {
+        Map<String, Map<String, String[]>> result = index;
+        if (result == null) {
+            result = new HashMap<>();
+            for (String uri : rules.getRuleSetURIs()) {
+                addRuleSet(uri, result);
+            }
+            index = result;
+        }
+        return result;
+    }
+
+    /**
+     * Adds a rule set to the index, if it is an archetype service rule set.
+     *
+     * @param uri   the rule set URI
+     * @param index the index
+     */
+    private void addRuleSet(String uri, Map<String, Map<String, String[]>> index) {
+        // URIs are of the form archetypeService.<operation>.<archetype>.<before|after>
+        String[] parts = uri.split("\\.", 3);
+        int suffix = uri.lastIndexOf('.');
+        if (parts.length == 3 && SERVICE.equals(parts[0]) && suffix > parts[0].length() + parts[1].length() + 1) {
+            String operation = parts[1];
+            String archetype = uri.substring(parts[0].length() + parts[1].length() + 2, suffix);
+            for (int i = 0; i < 2; ++i) {
+                boolean before = i == 0;
+                if (uri.equals(RuleSetUriHelper.getRuleSetURI(SERVICE, operation, before, archetype))) {
+                    Map<String, String[]> operations = index.computeIfAbsent(archetype, key -> new HashMap<>());
+                    operations.computeIfAbsent(operation, key -> new String[2])[i] = uri;
+                }
+            }
+        }
+    }
+
 }
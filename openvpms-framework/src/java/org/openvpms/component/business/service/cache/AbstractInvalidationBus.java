@@ -0,0 +1,225 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openvpms.component.business.service.archetype.helper.TypeHelper;
+import org.openvpms.component.model.object.Reference;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Abstract implementation of the {@link InvalidationBus}.
+ * <p/>
+ * Subclasses provide the transport, by implementing {@link #send(Invalidation)}, and invoking
+ * {@link #dispatch(Invalidation)} when an invalidation is received.
+ *
+ * @author Tim Anderson
+ */
+public abstract class AbstractInvalidationBus implements InvalidationBus, DisposableBean {
+
+    /**
+     * The node identifier.
+     */
+    private final String node;
+
+    /**
+     * The listener registrations, in the order they were added. This is replaced on each change, so that it can be
+     * read without locking.
+     */
+    private volatile List<Registration> registrations = Collections.emptyList();
+
+    /**
+     * The lock used to serialise listener changes.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The listener that is notified before any other, for every invalidation.
+     */
+    private volatile InvalidationListener evictionListener;
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(AbstractInvalidationBus.class);
+
+    /**
+     * Constructs an {@link AbstractInvalidationBus}.
+     */
+    public AbstractInvalidationBus() {
+        this.node = UUID.randomUUID().toString();
+    }
+
+    /**
+     * Returns the identifier of this node.
+     *
+     * @return the node identifier
+     */
+    @Override
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * Adds a listener to receive invalidations from other nodes.
+     * <p/>
+     * Listeners are notified in the order that they are added.
+     *
+     * @param archetype the archetype to receive invalidations for. May contain wildcards
+     * @param listener  the listener
+     */
+    @Override
+    public void addListener(String archetype, InvalidationListener listener) {
+        synchronized (lock) {
+            List<Registration> list = new ArrayList<>(registrations);
+            list.add(new Registration(archetype, listener));
+            registrations = Collections.unmodifiableList(list);
+        }
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param archetype the archetype that the listener was registered with
+     * @param listener  the listener
+     */
+    @Override
+    public void removeListener(String archetype, InvalidationListener listener) {
+        synchronized (lock) {
+            List<Registration> list = new ArrayList<>(registrations);
+            list.removeIf(registration -> registration.archetype.equals(archetype)
+                                          && registration.listener == listener);
+            registrations = Collections.unmodifiableList(list);
+        }
+    }
+
+    /**
+     * Registers a listener that is notified of every invalidation, before any other listener.
+     * <p/>
+     * This is intended to evict objects from shared caches that other listeners may reload from.
+     *
+     * @param listener the listener. May be {@code null}
+     */
+    public void setEvictionListener(InvalidationListener listener) {
+        evictionListener = listener;
+    }
+
+    /**
+     * Publishes an invalidation to other nodes.
+     * <p/>
+     * Failures are logged, rather than propagated to the caller.
+     *
+     * @param type      the type of change
+     * @param reference the reference of the changed object
+     */
+    @Override
+    public void publish(Invalidation.Type type, Reference reference) {
+        Invalidation invalidation = new Invalidation(type, reference, node);
+        try {
+            send(invalidation);
+        } catch (Throwable exception) {
+            log.warn("Failed to publish " + invalidation, exception);
+        }
+    }
+
+    /**
+     * Invoked by a BeanFactory on destruction of a singleton.
+     */
+    @Override
+    public void destroy() {
+        synchronized (lock) {
+            registrations = Collections.emptyList();
+        }
+    }
+
+    /**
+     * Sends an invalidation to other nodes.
+     *
+     * @param invalidation the invalidation
+     */
+    protected abstract void send(Invalidation invalidation);
+
+    /**
+     * Dispatches an invalidation received from another node to the listeners registered for its archetype.
+     * <p/>
+     * Invalidations published by this node are ignored.
+     *
+     * @param invalidation the invalidation
+     */
+    protected void dispatch(Invalidation invalidation) {
+        if (!node.equals(invalidation.getNode())) {
+            InvalidationListener evictor = evictionListener;
+            if (evictor != null) {
+                notify(evictor, invalidation);
+            }
+            String archetype = invalidation.getArchetype();
+            for (Registration registration : registrations) {
+                if (TypeHelper.matches(archetype, registration.archetype)) {
+                    notify(registration.listener, invalidation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies a listener of an invalidation.
+     *
+     * @param listener     the listener
+     * @param invalidation the invalidation
+     */
+    private void notify(InvalidationListener listener, Invalidation invalidation) {
+        try {
+            listener.invalidate(invalidation);
+        } catch (Throwable exception) {
+            log.warn("InvalidationListener failed to handle " + invalidation, exception);
+        }
+    }
+
+    /**
+     * Associates a listener with the archetype it was registered for.
+     */
+    private static class Registration {
+
+        /**
+         * The archetype. May contain wildcards.
+         */
+        private final String archetype;
+
+        /**
+         * The listener.
+         */
+        private final InvalidationListener listener;
+
+        /**
+         * Constructs a {@link Registration}.
+         *
+         * @param archetype the archetype. May contain wildcards
+         * @param listener  the listener
+         */
+        Registration(String archetype, InvalidationListener listener) {
+            this.archetype = archetype;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.cache;
+
+import org.openvpms.component.model.object.Reference;
+
+/**
+ * Notification that an object has changed on another node, and any cached copies should be invalidated.
+ *
+ * @author Tim Anderson
+ */
+public class Invalidation {
+
+    /**
+     * The type of change.
+     */
+    public enum Type {
+        SAVED, REMOVED
+    }
+
+    /**
+     * The type of change.
+     */
+    private final Type type;
+
+    /**
+     * The reference of the changed object.
+     */
+    private final Reference reference;
+
+    /**
+     * The identifier of the node that changed the object.
+     */
+    private final String node;
+
+    /**
+     * Constructs an {@link Invalidation}.
+     *
+     * @param type      the type of change
+     * @param reference the reference of the changed object
+     * @param node      the identifier of the node that changed the object
+     */
+    public Invalidation(Type type, Reference reference, String node) {
+        this.type = type;
+        this.reference = reference;
+        this.node = node;
+    }
+
+    /**
+     * Returns the type of change.
+     *
+     * @return the type of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the reference of the changed object.
+     *
+     * @return the object reference
+     */
+    public Reference getReference() {
+        return reference;
+    }
+
+    /**
+     * Returns the archetype of the changed object.
+     *
+     * @return the archetype
+     */
+    public String getArchetype() {
+        return reference.getArchetype();
+    }
+
+    /**
+     * Returns the identifier of the node that changed the object.
+     *
+     * @return the node identifier
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * Returns a string representation of this.
+     *
+     * @return a string representation of this
+     */
+    @Override
+    public String toString() {
+        return type + " " + reference + " from " + node;
+    }
+}
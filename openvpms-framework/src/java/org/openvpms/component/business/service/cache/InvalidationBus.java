@@ -0,0 +1,76 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.cache;
+
+import org.openvpms.component.model.object.Reference;
+
+/**
+ * Broadcasts changes to objects between the nodes of a cluster, so that caches can be kept coherent.
+ * <p/>
+ * Objects saved or removed via an archetype service configured with the bus are published after their transaction
+ * commits. Listeners are only notified of changes made on other nodes; changes on the local node are
+ * delivered via {@link org.openvpms.component.business.service.archetype.IArchetypeServiceListener}.
+ *
+ * @author Tim Anderson
+ */
+public interface InvalidationBus {
+
+    /**
+     * Returns the identifier of this node.
+     *
+     * @return the node identifier
+     */
+    String getNode();
+
+    /**
+     * Adds a listener to receive invalidations from other nodes.
+     * <p/>
+     * Listeners are notified in the order that they are added.
+     *
+     * @param archetype the archetype to receive invalidations for. May contain wildcards
+     * @param listener  the listener
+     */
+    void addListener(String archetype, InvalidationListener listener);
+
+    /**
+     * Removes a listener.
+     *
+     * @param archetype the archetype that the listener was registered with
+     * @param listener  the listener
+     */
+    void removeListener(String archetype, InvalidationListener listener);
+
+    /**
+     * Determines if there may be other nodes to receive invalidations published by this node.
+     * <p/>
+     * If not, saved and removed objects don't need to be tracked for publication.
+     *
+     * @return {@code true} if there may be other nodes
+     */
+    boolean hasSubscribers();
+
+    /**
+     * Publishes an invalidation to other nodes.
+     * <p/>
+     * This only needs to be invoked for objects changed without using the archetype service.
+     *
+     * @param type      the type of change
+     * @param reference the reference of the changed object
+     */
+    void publish(Invalidation.Type type, Reference reference);
+}
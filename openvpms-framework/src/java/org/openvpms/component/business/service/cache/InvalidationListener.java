@@ -0,0 +1,33 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.cache;
+
+/**
+ * Receives {@link Invalidation}s from an {@link InvalidationBus}.
+ *
+ * @author Tim Anderson
+ */
+public interface InvalidationListener {
+
+    /**
+     * Invoked when an object has changed on another node.
+     *
+     * @param invalidation the invalidation
+     */
+    void invalidate(Invalidation invalidation);
+}
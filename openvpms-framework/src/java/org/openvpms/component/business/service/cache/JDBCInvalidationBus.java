@@ -0,0 +1,282 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openvpms.component.business.domain.im.common.IMObjectReference;
+import org.openvpms.component.model.object.Reference;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link InvalidationBus} that shares invalidations between nodes via the {@code cache_invalidations} table.
+ * <p/>
+ * Invalidations are queued, and written in batches by a background thread, which also polls the table for
+ * invalidations from other nodes. Writing outside of the publisher's thread avoids participating in the
+ * transaction that triggered the invalidation.
+ * <p/>
+ * As auto-increment identifiers may become visible out of order, each poll re-reads a window of recent identifiers,
+ * skipping those already processed.
+ * <p/>
+ * Invalidations older than the retention period are periodically deleted.
+ *
+ * @author Tim Anderson
+ */
+public class JDBCInvalidationBus extends AbstractInvalidationBus implements InitializingBean {
+
+    /**
+     * The JDBC template.
+     */
+    private final JdbcTemplate template;
+
+    /**
+     * The invalidations waiting to be written.
+     */
+    private final Queue<Invalidation> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The identifiers of recently processed invalidations.
+     */
+    private final NavigableSet<Long> processed = new TreeSet<>();
+
+    /**
+     * The executor used to write and poll for invalidations.
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * The interval between polls, in milliseconds.
+     */
+    private long pollInterval = DEFAULT_POLL_INTERVAL;
+
+    /**
+     * The period to retain invalidations for, in seconds.
+     */
+    private int retention = DEFAULT_RETENTION;
+
+    /**
+     * The highest identifier when polling started. Invalidations up to and including this are ignored.
+     */
+    private long startId;
+
+    /**
+     * The highest identifier read.
+     */
+    private long lastId;
+
+    /**
+     * The time when invalidations were last purged.
+     */
+    private long lastPurge;
+
+    /**
+     * The default poll interval, in milliseconds.
+     */
+    public static final long DEFAULT_POLL_INTERVAL = 1000;
+
+    /**
+     * The default retention period, in seconds.
+     */
+    public static final int DEFAULT_RETENTION = 3600;
+
+    /**
+     * The range of identifiers below the highest read that are re-read on each poll.
+     */
+    private static final int WINDOW = 1000;
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(JDBCInvalidationBus.class);
+
+    /**
+     * Constructs a {@link JDBCInvalidationBus}.
+     *
+     * @param dataSource the data source
+     */
+    public JDBCInvalidationBus(DataSource dataSource) {
+        template = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Sets the interval between polls.
+     *
+     * @param interval the interval, in milliseconds
+     */
+    public void setPollInterval(long interval) {
+        pollInterval = interval;
+    }
+
+    /**
+     * Sets the period to retain invalidations for.
+     * <p/>
+     * This must be longer than the time a node may be unable to poll, for it to receive all invalidations.
+     *
+     * @param retention the retention period, in seconds
+     */
+    public void setRetention(int retention) {
+        this.retention = retention;
+    }
+
+    /**
+     * Starts polling for invalidations.
+     * <p/>
+     * Only invalidations published after this node starts are processed.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        Long max = template.queryForObject("select max(id) from cache_invalidations", Long.class);
+        startId = (max != null) ? max : 0;
+        lastId = startId;
+        lastPurge = System.currentTimeMillis();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "JDBCInvalidationBus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::run, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Invoked by a BeanFactory on destruction of a singleton.
+     */
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(pollInterval * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        write();
+        super.destroy();
+    }
+
+    /**
+     * Determines if there may be other nodes to receive invalidations published by this node.
+     * <p/>
+     * Other nodes sharing the database can't be detected in advance, so this always returns {@code true}. This bus
+     * should therefore only be configured for multi-node deployments.
+     *
+     * @return {@code true}
+     */
+    @Override
+    public boolean hasSubscribers() {
+        return true;
+    }
+
+    /**
+     * Queues an invalidation to be written.
+     *
+     * @param invalidation the invalidation
+     */
+    @Override
+    protected void send(Invalidation invalidation) {
+        queue.add(invalidation);
+    }
+
+    /**
+     * Writes queued invalidations, polls for new ones, and purges old ones.
+     */
+    protected void run() {
+        try {
+            write();
+            poll();
+            long now = System.currentTimeMillis();
+            if (now - lastPurge >= retention * 1000L) {
+                purge(now);
+                lastPurge = now;
+            }
+        } catch (Throwable exception) {
+            log.warn("Failed to process cache invalidations", exception);
+        }
+    }
+
+    /**
+     * Writes queued invalidations.
+     */
+    private void write() {
+        List<Object[]> batch = new ArrayList<>();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Invalidation invalidation;
+        while ((invalidation = queue.poll()) != null) {
+            Reference reference = invalidation.getReference();
+            batch.add(new Object[]{invalidation.getNode(), invalidation.getType().name(), reference.getArchetype(),
+                                   reference.getId(), reference.getLinkId(), now});
+        }
+        if (!batch.isEmpty()) {
+            template.batchUpdate("insert into cache_invalidations (node, type, archetype, object_id, link_id, created) "
+                                 + "values (?, ?, ?, ?, ?, ?)", batch);
+        }
+    }
+
+    /**
+     * Reads and dispatches invalidations from other nodes.
+     */
+    private void poll() {
+        List<Invalidation> invalidations = new ArrayList<>();
+        template.query("select id, node, type, archetype, object_id, link_id from cache_invalidations "
+                       + "where id > ? order by id", resultSet -> {
+            long id = resultSet.getLong("id");
+            if (processed.add(id)) {
+                Reference reference = new IMObjectReference(resultSet.getString("archetype"),
+                                                            resultSet.getLong("object_id"),
+                                                            resultSet.getString("link_id"));
+                Invalidation.Type type = Invalidation.Type.valueOf(resultSet.getString("type"));
+                invalidations.add(new Invalidation(type, reference, resultSet.getString("node")));
+                lastId = Math.max(lastId, id);
+            }
+        }, Math.max(startId, lastId - WINDOW));
+
+        // discard identifiers that won't be read again. Identifiers may be committed out of order, so these aren't
+        // necessarily the first added
+        processed.headSet(lastId - WINDOW, true).clear();
+        for (Invalidation invalidation : invalidations) {
+            dispatch(invalidation);
+        }
+    }
+
+    /**
+     * Deletes invalidations older than the retention period.
+     *
+     * @param now the current time
+     */
+    private void purge(long now) {
+        int count = template.update("delete from cache_invalidations where created < ?",
+                                    new Timestamp(now - retention * 1000L));
+        if (log.isDebugEnabled()) {
+            log.debug("Purged " + count + " cache invalidations");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An {@link InvalidationBus} that delivers invalidations to the other buses in the same JVM.
+ * <p/>
+ * With a single instance, this only publishes to itself, and is therefore suitable for non-clustered deployments.
+ * Multiple instances can be used to simulate a cluster, e.g. when testing.
+ *
+ * @author Tim Anderson
+ */
+public class LocalInvalidationBus extends AbstractInvalidationBus {
+
+    /**
+     * The buses in this JVM.
+     */
+    private static final List<LocalInvalidationBus> buses = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a {@link LocalInvalidationBus}.
+     */
+    public LocalInvalidationBus() {
+        buses.add(this);
+    }
+
+    /**
+     * Invoked by a BeanFactory on destruction of a singleton.
+     */
+    @Override
+    public void destroy() {
+        buses.remove(this);
+        super.destroy();
+    }
+
+    /**
+     * Determines if there may be other nodes to receive invalidations published by this node.
+     *
+     * @return {@code true} if there are other buses in this JVM
+     */
+    @Override
+    public boolean hasSubscribers() {
+        return buses.size() > 1;
+    }
+
+    /**
+     * Sends an invalidation to the other buses.
+     *
+     * @param invalidation the invalidation
+     */
+    @Override
+    protected void send(Invalidation invalidation) {
+        for (LocalInvalidationBus bus : buses) {
+            if (bus != this) {
+                bus.dispatch(invalidation);
+            }
+        }
+    }
+}
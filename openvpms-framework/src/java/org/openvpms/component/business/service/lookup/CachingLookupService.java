@@ -27,6 +27,8 @@ import org.openvpms.component.business.service.archetype.helper.DescriptorHelper
 import org.openvpms.component.business.service.archetype.helper.TypeHelper;
 import org.openvpms.component.business.service.cache.EhCacheable;
 import org.openvpms.component.business.service.cache.EhcacheManager;
+import org.openvpms.component.business.service.cache.InvalidationBus;
+import org.openvpms.component.business.service.cache.InvalidationListener;
 import org.openvpms.component.model.lookup.Lookup;
 import org.openvpms.component.model.lookup.LookupRelationship;
 import org.openvpms.component.model.object.Reference;
@@ -61,6 +63,16 @@ public class CachingLookupService extends AbstractLookupService implements Dispo
      */
     private final IArchetypeServiceListener listener;
 
+    /**
+     * The listener for updates from other nodes.
+     */
+    private final InvalidationListener invalidationListener;
+
+    /**
+     * The bus to receive updates from other nodes. May be {@code null}
+     */
+    private InvalidationBus bus;
+
     /**
      * The archetypes to monitor updates for.
      */
@@ -89,6 +101,17 @@ public class CachingLookupService extends AbstractLookupService implements Dispo
             }
         };
         service.addListener(ARCHETYPES, listener);
+        invalidationListener = invalidation -> invalidate(invalidation.getReference());
+    }
+
+    /**
+     * Registers a bus to receive lookup updates made by other nodes.
+     *
+     * @param bus the invalidation bus
+     */
+    public void setInvalidationBus(InvalidationBus bus) {
+        this.bus = bus;
+        bus.addListener(ARCHETYPES, invalidationListener);
     }
 
     /**
@@ -97,6 +120,9 @@ public class CachingLookupService extends AbstractLookupService implements Dispo
     @Override
     public void destroy() {
         getService().removeListener(ARCHETYPES, listener);
+        if (bus != null) {
+            bus.removeListener(ARCHETYPES, invalidationListener);
+        }
         cache.clear();
     }
 
@@ -299,6 +325,26 @@ public class CachingLookupService extends AbstractLookupService implements Dispo
         }
     }
 
+    /**
+     * Invalidates a lookup changed by another node.
+     * <p/>
+     * As the lookup may be new or have changed code, any collection of lookups that may include it is also evicted.
+     *
+     * @param reference the lookup reference
+     */
+    private void invalidate(Reference reference) {
+        Lookup cached = getCached(new Key(reference));
+        if (cached != null) {
+            removeLookup(cached, false);
+        }
+        String archetype = reference.getArchetype();
+        for (Key key : getKeys()) {
+            if (key.matches(archetype)) {
+                cache.remove(key);
+            }
+        }
+    }
+
     /**
      * Adds a lookup to the collection of lookups for a particular archetype.
      *
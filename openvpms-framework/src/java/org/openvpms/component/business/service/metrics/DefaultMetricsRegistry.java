@@ -0,0 +1,147 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Default implementation of {@link MetricsRegistry} that holds metrics in memory.
+ * <p/>
+ * Meters are keyed on name, then tag, to avoid building keys on each lookup.
+ *
+ * @author Tim Anderson
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry {
+
+    /**
+     * The meters, keyed on name and tag.
+     */
+    private final Map<String, Map<String, Meter>> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Orders meters on name and tag.
+     */
+    private static final Comparator<Meter> ORDER = Comparator.comparing(Meter::getName)
+            .thenComparing(Meter::getTag);
+
+    /**
+     * Determines if metrics are being collected.
+     *
+     * @return {@code true}
+     */
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Returns a histogram of execution times, in nanoseconds.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     * @return the timer
+     */
+    @Override
+    public Histogram timer(String name, String tag) {
+        return get(name, tag, Histogram.class, key -> new Histogram(name, key, true));
+    }
+
+    /**
+     * Returns a histogram of values, such as row counts.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     * @return the histogram
+     */
+    @Override
+    public Histogram distribution(String name, String tag) {
+        return get(name, tag, Histogram.class, key -> new Histogram(name, key, false));
+    }
+
+    /**
+     * Returns a cache hit ratio meter.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     * @return the hit ratio meter
+     */
+    @Override
+    public HitRatio hitRatio(String name, String tag) {
+        return get(name, tag, HitRatio.class, key -> new HitRatio(name, key));
+    }
+
+    /**
+     * Returns the registered meters, ordered on name and tag.
+     *
+     * @return the meters
+     */
+    @Override
+    public List<Meter> getMeters() {
+        List<Meter> result = new ArrayList<>();
+        for (Map<String, Meter> tags : meters.values()) {
+            result.addAll(tags.values());
+        }
+        result.sort(ORDER);
+        return result;
+    }
+
+    /**
+     * Resets all meters.
+     */
+    @Override
+    public void reset() {
+        for (Map<String, Meter> tags : meters.values()) {
+            for (Meter meter : tags.values()) {
+                meter.reset();
+            }
+        }
+    }
+
+    /**
+     * Returns a meter, creating it if it doesn't exist.
+     *
+     * @param name    the meter name
+     * @param tag     the meter tag. If {@code null}, an empty tag is used
+     * @param type    the meter type
+     * @param factory the factory to create the meter, given the tag
+     * @return the meter
+     * @throws IllegalArgumentException if a meter with the same name and tag exists with a different type
+     */
+    private <T extends Meter> T get(String name, String tag, Class<T> type, Function<String, T> factory) {
+        if (tag == null) {
+            tag = "";
+        }
+        Map<String, Meter> tags = meters.get(name);
+        if (tags == null) {
+            tags = meters.computeIfAbsent(name, key -> new ConcurrentHashMap<>());
+        }
+        Meter meter = tags.get(tag);
+        if (meter == null) {
+            meter = tags.computeIfAbsent(tag, factory);
+        }
+        if (!type.isInstance(meter)) {
+            throw new IllegalArgumentException("Meter " + name + " [" + tag + "] is not a " + type.getSimpleName());
+        }
+        return type.cast(meter);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the distribution of values, such as execution times or row counts.
+ * <p/>
+ * Values are counted in power-of-two buckets, so percentiles are approximate, but recording is lock-free and
+ * allocation-free.
+ *
+ * @author Tim Anderson
+ */
+public class Histogram extends Meter {
+
+    /**
+     * Determines if the values are times, in nanoseconds.
+     */
+    private final boolean timer;
+
+    /**
+     * The no. of recorded values.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * The sum of the recorded values.
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * The maximum recorded value.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * The bucket counts. Bucket {@code i} counts values in the range {@code [2^(i-1), 2^i)}, with bucket 0 counting
+     * zero.
+     */
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    /**
+     * The number of buckets.
+     */
+    private static final int BUCKETS = 64;
+
+    /**
+     * Constructs a {@link Histogram}.
+     *
+     * @param name  the meter name
+     * @param tag   the meter tag
+     * @param timer if {@code true}, values are times in nanoseconds
+     */
+    public Histogram(String name, String tag, boolean timer) {
+        super(name, tag);
+        this.timer = timer;
+        for (int i = 0; i < buckets.length; ++i) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Determines if the values are times, in nanoseconds.
+     *
+     * @return {@code true} if the values are times
+     */
+    public boolean isTimer() {
+        return timer;
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value the value. Negative values are treated as zero
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        count.increment();
+        total.add(value);
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value))].increment();
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records the time elapsed since a start time.
+     *
+     * @param start the start time, as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the no. of recorded values.
+     *
+     * @return the no. of recorded values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     *
+     * @return the sum of the recorded values
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the maximum recorded value.
+     *
+     * @return the maximum recorded value
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return the mean, or {@code 0} if no values have been recorded
+     */
+    public double getMean() {
+        long n = getCount();
+        return n != 0 ? (double) getTotal() / n : 0;
+    }
+
+    /**
+     * Returns an approximation of a percentile.
+     * <p/>
+     * This is the upper bound of the bucket containing the percentile, limited to the maximum recorded value.
+     *
+     * @param percentile the percentile, in the range {@code 0..1}
+     * @return the approximate value at the percentile, or {@code 0} if no values have been recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] = buckets[i].sum();
+            n += counts[i];
+        }
+        long result = 0;
+        if (n != 0) {
+            long rank = (long) Math.ceil(percentile * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; ++i) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] != 0) {
+                    result = (i == 0) ? 0 : (i >= 63) ? Long.MAX_VALUE : (1L << i) - 1;
+                    break;
+                }
+            }
+            result = Math.min(result, getMax());
+        }
+        return result;
+    }
+
+    /**
+     * Resets the histogram.
+     */
+    @Override
+    public void reset() {
+        count.reset();
+        total.reset();
+        max.set(0);
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+    }
+}
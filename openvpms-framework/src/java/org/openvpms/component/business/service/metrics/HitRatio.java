@@ -0,0 +1,100 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the hits and misses of a cache.
+ *
+ * @author Tim Anderson
+ */
+public class HitRatio extends Meter {
+
+    /**
+     * The no. of hits.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The no. of misses.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a {@link HitRatio}.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     */
+    public HitRatio(String name, String tag) {
+        super(name, tag);
+    }
+
+    /**
+     * Records a cache hit.
+     */
+    public void hit() {
+        hits.increment();
+    }
+
+    /**
+     * Records a cache miss.
+     */
+    public void miss() {
+        misses.increment();
+    }
+
+    /**
+     * Returns the no. of hits.
+     *
+     * @return the no. of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the no. of misses.
+     *
+     * @return the no. of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the ratio of hits to lookups.
+     *
+     * @return the hit ratio, in the range {@code 0..1}
+     */
+    public double getRatio() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total != 0 ? (double) h / total : 0;
+    }
+
+    /**
+     * Resets the meter.
+     */
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+    }
+}
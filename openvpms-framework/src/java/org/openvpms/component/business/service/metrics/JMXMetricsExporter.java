@@ -0,0 +1,250 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.metrics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the metrics of a {@link MetricsRegistry} to JMX, as a single read-only MBean.
+ * <p/>
+ * Each meter contributes attributes named <em>name[tag].statistic</em>. The attributes are recomputed each time
+ * the MBean is inspected, so meters created after registration are exported.
+ *
+ * @author Tim Anderson
+ */
+public class JMXMetricsExporter implements DynamicMBean, InitializingBean, DisposableBean {
+
+    /**
+     * The registry to export.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * The MBean object name.
+     */
+    private final ObjectName name;
+
+    /**
+     * The MBean server.
+     */
+    private final MBeanServer server;
+
+    /**
+     * The default object name.
+     */
+    public static final String DEFAULT_NAME = "org.openvpms:type=Metrics";
+
+    /**
+     * The reset operation.
+     */
+    private static final String RESET = "reset";
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(JMXMetricsExporter.class);
+
+    /**
+     * Constructs a {@link JMXMetricsExporter} that registers with the platform MBean server.
+     *
+     * @param registry the registry to export
+     * @throws Exception if the default object name is invalid
+     */
+    public JMXMetricsExporter(MetricsRegistry registry) throws Exception {
+        this(registry, ManagementFactory.getPlatformMBeanServer(), new ObjectName(DEFAULT_NAME));
+    }
+
+    /**
+     * Constructs a {@link JMXMetricsExporter}.
+     *
+     * @param registry the registry to export
+     * @param server   the MBean server
+     * @param name     the MBean object name
+     */
+    public JMXMetricsExporter(MetricsRegistry registry, MBeanServer server, ObjectName name) {
+        this.registry = registry;
+        this.server = server;
+        this.name = name;
+    }
+
+    /**
+     * Registers the MBean.
+     *
+     * @throws Exception for any error
+     */
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (server.isRegistered(name)) {
+            log.warn("Replacing existing MBean registered with name " + name);
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    /**
+     * Unregisters the MBean.
+     *
+     * @throws Exception for any error
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Returns the value of an attribute.
+     *
+     * @param attribute the attribute name
+     * @return the attribute value
+     * @throws AttributeNotFoundException if the attribute doesn't exist
+     */
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = getValues().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    /**
+     * Attributes are read-only.
+     *
+     * @param attribute the attribute
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setAttribute(Attribute attribute) {
+        throw new UnsupportedOperationException("Metrics are read-only");
+    }
+
+    /**
+     * Returns the values of several attributes.
+     *
+     * @param attributes the attribute names
+     * @return the attribute values. Unknown attributes are excluded
+     */
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Object> values = getValues();
+        AttributeList result = new AttributeList();
+        for (String attribute : attributes) {
+            Object value = values.get(attribute);
+            if (value != null) {
+                result.add(new Attribute(attribute, value));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Attributes are read-only.
+     *
+     * @param attributes the attributes
+     * @return an empty list
+     */
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    /**
+     * Invokes an operation. Only {@code reset} is supported.
+     *
+     * @param actionName the operation name
+     * @param params     the parameters
+     * @param signature  the parameter signature
+     * @return {@code null}
+     * @throws UnsupportedOperationException if the operation isn't supported
+     */
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        if (!RESET.equals(actionName)) {
+            throw new UnsupportedOperationException(actionName);
+        }
+        registry.reset();
+        return null;
+    }
+
+    /**
+     * Returns the MBean meta-data.
+     *
+     * @return the MBean meta-data
+     */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : getValues().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                                                  entry.getKey(), true, false, false));
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo(RESET, "Resets all metrics", null, "void",
+                                                          MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "OpenVPMS metrics",
+                             attributes.toArray(new MBeanAttributeInfo[0]), null,
+                             new MBeanOperationInfo[]{reset}, null);
+    }
+
+    /**
+     * Returns the attribute values, keyed on attribute name.
+     * <p/>
+     * Times are reported in milliseconds.
+     *
+     * @return the attribute values
+     */
+    private Map<String, Object> getValues() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Meter meter : registry.getMeters()) {
+            String prefix = meter.getName() + "[" + meter.getTag() + "].";
+            if (meter instanceof Histogram) {
+                Histogram histogram = (Histogram) meter;
+                double scale = histogram.isTimer() ? 1000000d : 1d;
+                result.put(prefix + "count", histogram.getCount());
+                result.put(prefix + "mean", histogram.getMean() / scale);
+                result.put(prefix + "max", histogram.getMax() / scale);
+                result.put(prefix + "p95", histogram.getPercentile(0.95) / scale);
+            } else if (meter instanceof HitRatio) {
+                HitRatio ratio = (HitRatio) meter;
+                result.put(prefix + "hits", ratio.getHits());
+                result.put(prefix + "misses", ratio.getMisses());
+                result.put(prefix + "ratio", ratio.getRatio());
+            }
+        }
+        return result;
+    }
+}
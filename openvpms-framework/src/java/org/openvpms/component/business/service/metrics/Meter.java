@@ -0,0 +1,74 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.metrics;
+
+/**
+ * Base class for metrics collected by a {@link MetricsRegistry}.
+ * <p/>
+ * Each meter is identified by a name, e.g. {@code archetype.save}, and a tag that qualifies it, e.g. the archetype
+ * short name or rule set URI.
+ *
+ * @author Tim Anderson
+ */
+public abstract class Meter {
+
+    /**
+     * The meter name.
+     */
+    private final String name;
+
+    /**
+     * The meter tag.
+     */
+    private final String tag;
+
+    /**
+     * Constructs a {@link Meter}.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     */
+    protected Meter(String name, String tag) {
+        this.name = name;
+        this.tag = tag;
+    }
+
+    /**
+     * Returns the meter name.
+     *
+     * @return the meter name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the meter tag.
+     *
+     * @return the meter tag
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Resets the meter.
+     */
+    public abstract void reset();
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.metrics;
+
+import java.util.List;
+
+/**
+ * Registry of performance metrics.
+ * <p/>
+ * Meters are identified by name and tag, and are created on first use. Callers on hot paths should look up a meter
+ * immediately before recording to it, rather than caching it, so that a registry can be replaced or reset.
+ *
+ * @author Tim Anderson
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Determines if metrics are being collected.
+     *
+     * @return {@code true} if metrics are being collected, {@code false} if they are discarded
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns a histogram of execution times, in nanoseconds.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     * @return the timer
+     */
+    Histogram timer(String name, String tag);
+
+    /**
+     * Returns a histogram of values, such as row counts.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     * @return the histogram
+     */
+    Histogram distribution(String name, String tag);
+
+    /**
+     * Returns a cache hit ratio meter.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     * @return the hit ratio meter
+     */
+    HitRatio hitRatio(String name, String tag);
+
+    /**
+     * Returns the registered meters, ordered on name and tag.
+     *
+     * @return the meters
+     */
+    List<Meter> getMeters();
+
+    /**
+     * Resets all meters.
+     */
+    void reset();
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link MetricsRegistry} that discards all metrics.
+ * <p/>
+ * This is the default for services that haven't been configured with a registry.
+ *
+ * @author Tim Anderson
+ */
+public class NoOpMetricsRegistry implements MetricsRegistry {
+
+    /**
+     * The singleton instance.
+     */
+    public static final MetricsRegistry INSTANCE = new NoOpMetricsRegistry();
+
+    /**
+     * The histogram returned for all timers and distributions.
+     */
+    private static final Histogram HISTOGRAM = new Histogram("noop", "noop", false) {
+        @Override
+        public void record(long value) {
+        }
+    };
+
+    /**
+     * The hit ratio meter returned for all caches.
+     */
+    private static final HitRatio HIT_RATIO = new HitRatio("noop", "noop") {
+        @Override
+        public void hit() {
+        }
+
+        @Override
+        public void miss() {
+        }
+    };
+
+    /**
+     * Default constructor.
+     */
+    private NoOpMetricsRegistry() {
+    }
+
+    /**
+     * Determines if metrics are being collected.
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns a histogram of execution times, in nanoseconds.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     * @return a histogram that discards values
+     */
+    @Override
+    public Histogram timer(String name, String tag) {
+        return HISTOGRAM;
+    }
+
+    /**
+     * Returns a histogram of values.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     * @return a histogram that discards values
+     */
+    @Override
+    public Histogram distribution(String name, String tag) {
+        return HISTOGRAM;
+    }
+
+    /**
+     * Returns a cache hit ratio meter.
+     *
+     * @param name the meter name
+     * @param tag  the meter tag
+     * @return a meter that discards hits and misses
+     */
+    @Override
+    public HitRatio hitRatio(String name, String tag) {
+        return HIT_RATIO;
+    }
+
+    /**
+     * Returns the registered meters.
+     *
+     * @return an empty list
+     */
+    @Override
+    public List<Meter> getMeters() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Resets all meters.
+     */
+    @Override
+    public void reset() {
+    }
+}
@@ -22,6 +22,10 @@ package org.openvpms.component.business.service.ruleengine;
 // springmodules-jsr94
 import org.springmodules.jsr94.rulesource.AbstractRuleSource;
 
+import javax.rules.RuleRuntime;
+import javax.rules.StatelessRuleSession;
+import java.util.Set;
+
 /**
  * All rule source classes must extend this abstract class, which adds 
  * one additional method over the {@link AbstractRuleSource} class. 
@@ -38,4 +42,25 @@ public abstract class BaseRuleSource extends AbstractRuleSource {
      *            the rule set uri
      */
     public abstract boolean hasRuleExecutionSet(String uri);
+
+    /**
+     * Returns the URIs of the registered rule sets.
+     *
+     * @return the rule set URIs
+     */
+    public abstract Set<String> getRuleExecutionSetURIs();
+
+    /**
+     * Creates a stateless session for a rule set.
+     * <p>
+     * The session may be used to execute rules multiple times, but not concurrently. It must be released when no
+     * longer required.
+     *
+     * @param uri the rule set uri
+     * @return a new session
+     * @throws Exception if the session cannot be created
+     */
+    public StatelessRuleSession createStatelessSession(String uri) throws Exception {
+        return (StatelessRuleSession) ruleRuntime.createRuleSession(uri, null, RuleRuntime.STATELESS_SESSION_TYPE);
+    }
 }
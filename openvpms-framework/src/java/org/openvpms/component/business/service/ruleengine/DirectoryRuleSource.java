@@ -26,8 +26,10 @@ import javax.rules.admin.RuleExecutionSet;
 import java.io.File;
 import java.io.FileInputStream;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -175,6 +177,16 @@ public class DirectoryRuleSource extends BaseRuleSource {
         return ruleSetNames.containsKey(uri);
     }
 
+    /**
+     * Returns the URIs of the registered rule sets.
+     *
+     * @return the rule set URIs
+     */
+    @Override
+    public Set<String> getRuleExecutionSetURIs() {
+        return Collections.unmodifiableSet(ruleSetNames.keySet());
+    }
+
     /**
      * Create and register a rule execution set
      *
@@ -21,6 +21,7 @@ package org.openvpms.component.business.service.ruleengine;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -60,4 +61,11 @@ public interface IRuleEngine {
     List<Object> executeRules(String uri, Map<String, Object> properties,
                               List<Object> facts);
 
+    /**
+     * Returns the URIs of all registered rule sets.
+     *
+     * @return the rule set URIs
+     */
+    Set<String> getRuleSetURIs();
+
 }
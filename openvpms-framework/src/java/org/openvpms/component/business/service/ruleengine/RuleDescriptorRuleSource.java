@@ -26,9 +26,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -167,6 +169,16 @@ public class RuleDescriptorRuleSource extends BaseRuleSource {
         return ruleSetNames.containsKey(uri);
     }
 
+    /**
+     * Returns the URIs of the registered rule sets.
+     *
+     * @return the rule set URIs
+     */
+    @Override
+    public Set<String> getRuleExecutionSetURIs() {
+        return Collections.unmodifiableSet(ruleSetNames.keySet());
+    }
+
     /**
      * Registers rules from their descriptors.
      *
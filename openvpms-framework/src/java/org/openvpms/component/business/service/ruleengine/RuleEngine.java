@@ -19,14 +19,26 @@
 
 package org.openvpms.component.business.service.ruleengine;
 
+import org.openvpms.component.business.service.metrics.MetricsRegistry;
+import org.openvpms.component.business.service.metrics.NoOpMetricsRegistry;
 import org.springmodules.jsr94.core.Jsr94RuleSupport;
 
+import javax.rules.StatelessRuleSession;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
  * Implementation of the {@link IRuleEngine} interface, using the JSR-94 API.
+ * <p/>
+ * Stateless sessions are pooled per rule set, rather than being created for each execution. The execution time of
+ * each rule set is recorded to the {@link #setMetrics(MetricsRegistry) metrics registry}, to help identify rules that
+ * are expensive to run.
  *
  * @author <a href="mailto:support@openvpms.org">OpenVPMS Team</a>
  * @version $LastChangedDate$
@@ -38,6 +50,35 @@ public class RuleEngine extends Jsr94RuleSupport implements IRuleEngine {
      */
     private BaseRuleSource ruleSource;
 
+    /**
+     * The idle sessions, keyed on rule set URI.
+     */
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * The maximum no. of idle sessions to retain per rule set.
+     */
+    private int maxIdle = DEFAULT_MAX_IDLE;
+
+    /**
+     * The registry to record execution times to.
+     */
+    private volatile MetricsRegistry metrics = NoOpMetricsRegistry.INSTANCE;
+
+    /**
+     * The rule execution timer name.
+     */
+    private static final String EXECUTE = "rule.execute";
+
+    /**
+     * The failed rule execution timer name.
+     */
+    private static final String FAILED = "rule.failed";
+
+    /**
+     * The default maximum no. of idle sessions to retain per rule set.
+     */
+    private static final int DEFAULT_MAX_IDLE = 8;
 
     /**
      * Creates a new <tt>RuleEngine</tt>.
@@ -49,6 +90,29 @@ public class RuleEngine extends Jsr94RuleSupport implements IRuleEngine {
         setRuleSource(ruleSource);
     }
 
+    /**
+     * Sets the maximum number of idle sessions to retain per rule set.
+     * <p/>
+     * This should be at least the number of threads that concurrently execute the same rules.
+     *
+     * @param maxIdle the maximum number of idle sessions. If {@code 0}, sessions won't be pooled
+     */
+    public void setMaxIdleSessions(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Sets the registry to record rule set execution times to.
+     * <p/>
+     * Each execution is recorded to the {@code rule.execute} timer, tagged with the rule set URI. Failed executions
+     * are also recorded to the {@code rule.failed} timer.
+     *
+     * @param metrics the metrics registry. If {@code null}, metrics are discarded
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = (metrics != null) ? metrics : NoOpMetricsRegistry.INSTANCE;
+    }
+
     /**
      * Determines if there are any rules for the specified URI.
      *
@@ -69,12 +133,26 @@ public class RuleEngine extends Jsr94RuleSupport implements IRuleEngine {
      */
     @SuppressWarnings("unchecked")
     public List<Object> executeRules(String uri, List<Object> facts) {
+        long start = System.nanoTime();
+        boolean success = false;
+        StatelessRuleSession session = null;
         try {
-            return (List<Object>) executeStateless(uri, facts);
+            Pool pool = getPool(uri);
+            session = pool.borrow(uri);
+            List<Object> result = (List<Object>) session.executeRules(facts);
+            success = true;
+            pool.release(session);
+            return result;
         } catch (Exception exception) {
             throw new RuleEngineException(
                     RuleEngineException.ErrorCode.FailedToExecuteRule,
                     exception, uri);
+        } finally {
+            if (!success && session != null) {
+                // the session may be in an inconsistent state, so discard it
+                close(session);
+            }
+            record(uri, System.nanoTime() - start, success);
         }
     }
 
@@ -89,13 +167,112 @@ public class RuleEngine extends Jsr94RuleSupport implements IRuleEngine {
     @SuppressWarnings("unchecked")
     public List<Object> executeRules(String uri, Map<String, Object> properties,
                                      List<Object> facts) {
+        long start = System.nanoTime();
+        boolean success = false;
         try {
-            return (List<Object>) executeStateless(uri, properties, facts,
-                                                   null);
+            List<Object> result = (List<Object>) executeStateless(uri, properties, facts, null);
+            success = true;
+            return result;
         } catch (Exception exception) {
             throw new RuleEngineException(
                     RuleEngineException.ErrorCode.FailedToExecuteRule,
                     exception, uri);
+        } finally {
+            record(uri, System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * Returns the URIs of all registered rule sets.
+     *
+     * @return the rule set URIs
+     */
+    @Override
+    public Set<String> getRuleSetURIs() {
+        return ruleSource.getRuleExecutionSetURIs();
+    }
+
+    /**
+     * Records the execution of a rule set.
+     *
+     * @param uri     the rule set URI
+     * @param elapsed the execution time, in nanoseconds
+     * @param success if {@code true}, the execution was successful
+     */
+    private void record(String uri, long elapsed, boolean success) {
+        metrics.timer(EXECUTE, uri).record(elapsed);
+        if (!success) {
+            metrics.timer(FAILED, uri).record(elapsed);
+        }
+    }
+
+    /**
+     * Returns the session pool for a rule set, creating it if required.
+     *
+     * @param uri the rule set URI
+     * @return the pool
+     */
+    private Pool getPool(String uri) {
+        return pools.computeIfAbsent(uri, key -> new Pool());
+    }
+
+    /**
+     * Releases a session, ignoring any error.
+     *
+     * @param session the session
+     */
+    private static void close(StatelessRuleSession session) {
+        try {
+            session.release();
+        } catch (Exception ignore) {
+            // do nothing
+        }
+    }
+
+    /**
+     * A pool of idle sessions for a rule set.
+     */
+    private class Pool {
+
+        /**
+         * The idle sessions.
+         */
+        private final Queue<StatelessRuleSession> idle = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The no. of idle sessions.
+         */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * Returns an idle session, or creates a new one if none is available.
+         *
+         * @param uri the rule set URI
+         * @return the session
+         * @throws Exception if the session cannot be created
+         */
+        StatelessRuleSession borrow(String uri) throws Exception {
+            StatelessRuleSession session = idle.poll();
+            if (session != null) {
+                size.decrementAndGet();
+            } else {
+                session = ruleSource.createStatelessSession(uri);
+            }
+            return session;
+        }
+
+        /**
+         * Returns a session to the pool, releasing it if the pool is full.
+         *
+         * @param session the session
+         */
+        void release(StatelessRuleSession session) {
+            if (size.incrementAndGet() <= maxIdle) {
+                idle.add(session);
+            } else {
+                size.decrementAndGet();
+                close(session);
+            }
         }
     }
 
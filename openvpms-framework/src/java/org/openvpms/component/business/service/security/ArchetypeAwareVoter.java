@@ -25,17 +25,25 @@ import org.openvpms.component.business.domain.archetype.ArchetypeId;
 import org.openvpms.component.business.domain.im.common.IMObject;
 import org.openvpms.component.business.domain.im.security.ArchetypeAwareGrantedAuthority;
 import org.openvpms.component.business.service.archetype.IArchetypeService;
+import org.openvpms.component.business.service.cache.InvalidationBus;
+import org.openvpms.component.business.service.cache.InvalidationListener;
 import org.openvpms.component.system.common.util.StringUtilities;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.security.access.AccessDecisionManager;
 import org.springframework.security.access.AccessDecisionVoter;
 import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Votes if any configuration attribute begins with <code>archetype:</code>. If
@@ -43,16 +51,42 @@ import java.util.StringTokenizer;
  * <p/>
  * It will vote to grant access if the user has a grant authority matching one
  * of the config attributes, otherwise a deny access will be returned.
+ * <p/>
+ * To avoid matching each archetype against all of a user's authorities on every call, the authorities are compiled
+ * into a decision table, which caches the decision for each operation and archetype as it is made. Tables are keyed on
+ * the content of the authorities, so they are shared by all authentications with the same authorities, and a change
+ * to a user's authorities results in a different table. Tables are discarded when roles or authorities change on
+ * another node, to avoid retaining those that are no longer used.
  *
  * @author Jim Alateras
  */
-public class ArchetypeAwareVoter implements AccessDecisionVoter<MethodInvocation> {
+public class ArchetypeAwareVoter implements AccessDecisionVoter<MethodInvocation>, DisposableBean {
+
+    /**
+     * The decision tables, keyed on the authorities they were built from.
+     */
+    private final Map<Set<String>, Decisions> decisions = new ConcurrentHashMap<>();
+
+    /**
+     * The listener for role and authority changes made on other nodes.
+     */
+    private final InvalidationListener listener = invalidation -> invalidate();
+
+    /**
+     * The bus to receive role and authority changes made on other nodes. May be {@code null}
+     */
+    private InvalidationBus bus;
 
     /**
      * Archetype service name prefix.
      */
     private final static String archetypePrefix = "archetypeService";
 
+    /**
+     * The archetypes that, when saved or removed on another node, invalidate the decision tables.
+     */
+    private static final String[] SECURITY_ARCHETYPES = {"security.role", "security.archetypeAuthority"};
+
     /**
      * The logger.
      */
@@ -66,6 +100,49 @@ public class ArchetypeAwareVoter implements AccessDecisionVoter<MethodInvocation
         // do nothing
     }
 
+    /**
+     * Registers a bus to receive role and authority changes made by other nodes.
+     *
+     * @param bus the invalidation bus
+     */
+    public void setInvalidationBus(InvalidationBus bus) {
+        this.bus = bus;
+        for (String archetype : SECURITY_ARCHETYPES) {
+            bus.addListener(archetype, listener);
+        }
+    }
+
+    /**
+     * Discards all decision tables.
+     * <p/>
+     * They will be rebuilt on demand.
+     */
+    public void invalidate() {
+        decisions.clear();
+    }
+
+    /**
+     * Returns the no. of decision tables.
+     *
+     * @return the no. of decision tables
+     */
+    int getDecisionTables() {
+        return decisions.size();
+    }
+
+    /**
+     * Invoked by the containing {@code BeanFactory} on destruction of a bean.
+     */
+    @Override
+    public void destroy() {
+        if (bus != null) {
+            for (String archetype : SECURITY_ARCHETYPES) {
+                bus.removeListener(archetype, listener);
+            }
+        }
+        decisions.clear();
+    }
+
     /* (non-Javadoc)
      * @see org.acegisecurity.vote.AccessDecisionVoter#supports(org.acegisecurity.ConfigAttribute)
      */
@@ -113,7 +190,6 @@ public class ArchetypeAwareVoter implements AccessDecisionVoter<MethodInvocation
                 result = isAccessGranted(shortNames, authentication, attribute);
             }
         }
-
         return result;
     }
 
@@ -130,16 +206,9 @@ public class ArchetypeAwareVoter implements AccessDecisionVoter<MethodInvocation
                                 Authentication authentication,
                                 ConfigAttribute attribute) {
         boolean granted = false;
+        Operation operation = getDecisions(authentication).getOperation(attribute.getAttribute());
         for (String shortName : shortNames) {
-            granted = false;
-            // Attempt to find a matching granted authority
-            for (GrantedAuthority authority : authentication.getAuthorities()) {
-                if (authority instanceof ArchetypeAwareGrantedAuthority
-                    && isAccessGranted((ArchetypeAwareGrantedAuthority) authority, attribute, shortName)) {
-                    granted = true;
-                    break;
-                }
-            }
+            granted = operation.isGranted(shortName);
             if (!granted) {
                 if (log.isWarnEnabled()) {
                     log.warn("Access denied to principal=" + authentication.getPrincipal() + ", operation="
@@ -152,37 +221,72 @@ public class ArchetypeAwareVoter implements AccessDecisionVoter<MethodInvocation
     }
 
     /**
-     * Determine if the access will be granted for the specified service on the
-     * specifed archetype given an authority
+     * Returns the decision table for an authentication, creating it if required.
      *
-     * @param authority the authority to test against
-     * @param attr      the associated contrib attributes
-     * @param shortName the archetype shortName
-     * @return boolean
-     * true if access is granted
+     * @param authentication the authentication
+     * @return the decision table
+     */
+    private Decisions getDecisions(Authentication authentication) {
+        Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
+        Set<String> key = getKey(authorities);
+        Decisions result = decisions.get(key);
+        if (result == null) {
+            result = new Decisions(authorities);
+            decisions.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the key of the decision table for a set of authorities.
+     *
+     * @param authorities the authorities
+     * @return the key
      */
-    private boolean isAccessGranted(ArchetypeAwareGrantedAuthority authority,
-                                    ConfigAttribute attr, String shortName) {
+    private static Set<String> getKey(Collection<? extends GrantedAuthority> authorities) {
+        Set<String> result = new TreeSet<>();
+        for (GrantedAuthority authority : authorities) {
+            String value = (authority instanceof ArchetypeAwareGrantedAuthority)
+                           ? format((ArchetypeAwareGrantedAuthority) authority) : authority.getAuthority();
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
 
-        // this is in the form of <serviceName>.<method>
-        String value = attr.getAttribute();
-        StringTokenizer tokens = new StringTokenizer(value, ".");
+    /**
+     * Formats an authority.
+     * <p/>
+     * This is used rather than {@link ArchetypeAwareGrantedAuthority#getAuthority()}, as the latter isn't updated if
+     * the service, method or short name change.
+     *
+     * @param authority the authority
+     * @return the formatted authority
+     */
+    private static String format(ArchetypeAwareGrantedAuthority authority) {
+        return "archetype:" + authority.getServiceName() + "." + authority.getMethod() + ":"
+               + authority.getShortName();
+    }
 
-        // the first token is the method name and it must match
-        // exactly
-        String service = tokens.nextToken();
+    /**
+     * Determine if an authority applies to the specified service and method.
+     *
+     * @param authority the authority to test against
+     * @param service   the service name
+     * @param method    the method name
+     * @return {@code true} if the authority applies to the service and method
+     */
+    private static boolean matches(ArchetypeAwareGrantedAuthority authority, String service, String method) {
+        // the service name must match exactly
         if (!service.equals(authority.getServiceName())) {
             return false;
         }
-        // second token is the method name
-        String method = tokens.nextToken();
         String authMethod = authority.getMethod();
         String authShortName = authority.getShortName();
         return (!StringUtils.isEmpty(authMethod)) &&
                (!StringUtils.isEmpty(authShortName)) &&
-               (StringUtilities.matches(method, authMethod)) &&
-               (StringUtilities.matches(shortName, authShortName));
-
+               (StringUtilities.matches(method, authMethod));
     }
 
     /**
@@ -230,4 +334,115 @@ public class ArchetypeAwareVoter implements AccessDecisionVoter<MethodInvocation
 
         return result;
     }
+
+    /**
+     * The decision table for a set of authorities.
+     * <p/>
+     * The authorities are compiled into the archetype patterns that apply to each operation, and the decision
+     * for each archetype cached as it is made.
+     */
+    private static class Decisions {
+
+        /**
+         * Copies of the archetype authorities that the table was built from.
+         */
+        private final Collection<ArchetypeAwareGrantedAuthority> authorities = new ArrayList<>();
+
+        /**
+         * The operations, keyed on config attribute.
+         */
+        private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+        /**
+         * Constructs a {@link Decisions}.
+         * <p/>
+         * The archetype authorities are copied, so that the table isn't affected by subsequent changes to them.
+         * Incomplete authorities are excluded, as they never grant access.
+         *
+         * @param authorities the authorities
+         */
+        Decisions(Collection<? extends GrantedAuthority> authorities) {
+            for (GrantedAuthority authority : authorities) {
+                if (authority instanceof ArchetypeAwareGrantedAuthority) {
+                    ArchetypeAwareGrantedAuthority archetypeAuthority = (ArchetypeAwareGrantedAuthority) authority;
+                    if (!StringUtils.isEmpty(archetypeAuthority.getServiceName())
+                        && !StringUtils.isEmpty(archetypeAuthority.getMethod())
+                        && !StringUtils.isEmpty(archetypeAuthority.getShortName())) {
+                        this.authorities.add(new ArchetypeAwareGrantedAuthority(format(archetypeAuthority)));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the decisions for an operation.
+         *
+         * @param attribute the config attribute, in the form {@code <serviceName>.<method>}
+         * @return the decisions for the operation
+         */
+        Operation getOperation(String attribute) {
+            Operation result = operations.get(attribute);
+            if (result == null) {
+                result = new Operation(attribute, authorities);
+                operations.put(attribute, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The decisions for a single operation.
+     */
+    private static class Operation {
+
+        /**
+         * The archetype short name patterns granted by the user's authorities.
+         */
+        private final String[] patterns;
+
+        /**
+         * The decisions, keyed on archetype short name.
+         */
+        private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+        /**
+         * Constructs an {@link Operation}.
+         *
+         * @param attribute   the config attribute, in the form {@code <serviceName>.<method>}
+         * @param authorities the archetype authorities
+         */
+        Operation(String attribute, Collection<ArchetypeAwareGrantedAuthority> authorities) {
+            StringTokenizer tokens = new StringTokenizer(attribute, ".");
+            String service = tokens.nextToken();
+            String method = tokens.nextToken();
+            Set<String> matches = new LinkedHashSet<>();
+            for (ArchetypeAwareGrantedAuthority authority : authorities) {
+                if (matches(authority, service, method)) {
+                    matches.add(authority.getShortName());
+                }
+            }
+            patterns = matches.toArray(new String[matches.size()]);
+        }
+
+        /**
+         * Determines if access is granted to an archetype.
+         *
+         * @param shortName the archetype short name
+         * @return {@code true} if access is granted
+         */
+        boolean isGranted(String shortName) {
+            Boolean result = decisions.get(shortName);
+            if (result == null) {
+                result = false;
+                for (String pattern : patterns) {
+                    if (StringUtilities.matches(shortName, pattern)) {
+                        result = true;
+                        break;
+                    }
+                }
+                decisions.put(shortName, result);
+            }
+            return result;
+        }
+    }
 }
@@ -0,0 +1,178 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.system.common.jxpath;
+
+import org.apache.commons.jxpath.CompiledExpression;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of {@link CompiledExpression}s, keyed on expression text.
+ * <p/>
+ * Compiled expressions don't bind extension functions; these are resolved from the context they are evaluated
+ * against. A single compiled expression can therefore be shared by contexts with different function libraries.
+ * <p/>
+ * When the cache is full, an arbitrary expression is evicted to make room for a new one.
+ *
+ * @author Tim Anderson
+ */
+public class ExpressionCache {
+
+    /**
+     * The compiled expressions, keyed on expression text.
+     */
+    private final ConcurrentMap<String, CompiledExpression> expressions = new ConcurrentHashMap<>();
+
+    /**
+     * The no. of cache hits.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The no. of cache misses.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The no. of evictions.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * The maximum no. of expressions to cache.
+     */
+    private volatile int maxSize;
+
+    /**
+     * Constructs an {@link ExpressionCache}.
+     *
+     * @param maxSize the maximum no. of expressions to cache
+     */
+    public ExpressionCache(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * Returns the compiled form of an expression, compiling it if it isn't cached.
+     *
+     * @param expression the expression
+     * @return the compiled expression
+     * @throws org.apache.commons.jxpath.JXPathException if the expression is invalid
+     */
+    public CompiledExpression get(String expression) {
+        CompiledExpression result = expressions.get(expression);
+        if (result != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            result = OpenVPMSContextReferenceImpl.compileExpression(expression);
+            if (expressions.size() >= maxSize) {
+                evict();
+            }
+            CompiledExpression existing = expressions.putIfAbsent(expression, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the maximum no. of expressions to cache.
+     * <p/>
+     * If the cache is larger than this, expressions will be evicted as new expressions are added.
+     *
+     * @param maxSize the maximum no. of expressions to cache
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Argument 'maxSize' must be > 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the maximum no. of expressions to cache.
+     *
+     * @return the maximum no. of expressions to cache
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the no. of cached expressions.
+     *
+     * @return the no. of cached expressions
+     */
+    public int getSize() {
+        return expressions.size();
+    }
+
+    /**
+     * Returns the no. of times an expression was found in the cache.
+     *
+     * @return the no. of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the no. of times an expression had to be compiled.
+     *
+     * @return the no. of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the no. of expressions evicted to make room for others.
+     *
+     * @return the no. of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Removes all expressions, and resets the statistics.
+     */
+    public void clear() {
+        expressions.clear();
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * Evicts expressions until there is room for another.
+     */
+    private void evict() {
+        Iterator<String> iterator = expressions.keySet().iterator();
+        while (expressions.size() >= maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+}
@@ -17,10 +17,12 @@
 package org.openvpms.component.system.common.jxpath;
 
 import org.apache.commons.jxpath.ClassFunctions;
+import org.apache.commons.jxpath.CompiledExpression;
 import org.apache.commons.jxpath.FunctionLibrary;
 import org.apache.commons.jxpath.Functions;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathContextFactory;
+import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.util.TypeUtils;
 
 import java.util.Map;
@@ -42,6 +44,15 @@ public class JXPathHelper {
      */
     private static FunctionLibrary functions = new FunctionLibrary();
 
+    /**
+     * The default maximum no. of compiled expressions to cache.
+     */
+    public static final int DEFAULT_EXPRESSION_CACHE_SIZE = 2000;
+
+    /**
+     * The compiled expression cache, shared by all contexts.
+     */
+    private static final ExpressionCache expressions = new ExpressionCache(DEFAULT_EXPRESSION_CACHE_SIZE);
     static {
         System.setProperty(JXPathContextFactory.FACTORY_NAME_PROPERTY,
                            OpenVPMSContextFactoryReferenceImpl.class.getName());
@@ -124,6 +135,58 @@ public class JXPathHelper {
         return context;
     }
 
+    /**
+     * Evaluates an expression against a context, using the compiled expression cache.
+     *
+     * @param context    the context
+     * @param expression the expression
+     * @return the result of the expression. May be {@code null}
+     */
+    public static Object getValue(JXPathContext context, String expression) {
+        return compile(expression).getValue(context);
+    }
+
+    /**
+     * Returns a pointer to the location identified by an expression, using the compiled expression cache.
+     *
+     * @param context    the context
+     * @param expression the expression
+     * @return a pointer to the location
+     */
+    public static Pointer getPointer(JXPathContext context, String expression) {
+        return compile(expression).getPointer(context, expression);
+    }
+
+    /**
+     * Returns the compiled form of an expression from the cache, compiling it if required.
+     *
+     * @param expression the expression
+     * @return the compiled expression
+     */
+    public static CompiledExpression compile(String expression) {
+        return expressions.get(expression);
+    }
+
+    /**
+     * Returns the compiled expression cache.
+     * <p/>
+     * This can be used to monitor hit/miss statistics, and to change the cache size.
+     *
+     * @return the compiled expression cache
+     */
+    public static ExpressionCache getExpressionCache() {
+        return expressions;
+    }
+
+    /**
+     * Sets the maximum no. of compiled expressions to cache.
+     *
+     * @param size the maximum no. of expressions
+     */
+    public void setExpressionCacheSize(int size) {
+        expressions.setMaxSize(size);
+    }
+
     /**
      * Adds functions for the specified class name and namespace.
      *
@@ -19,6 +19,7 @@
 
 package org.openvpms.component.system.common.jxpath;
 
+import org.apache.commons.jxpath.CompiledExpression;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.Compiler;
@@ -37,6 +38,11 @@ public class OpenVPMSContextReferenceImpl extends JXPathContextReferenceImpl {
      */
     private static final Compiler COMPILER = new OpenVPMSTreeCompiler();
 
+    /**
+     * The context used to compile expressions.
+     */
+    private static final OpenVPMSContextReferenceImpl COMPILATION_CONTEXT
+            = new OpenVPMSContextReferenceImpl(null, null);
     /**
      * Support for base class construction
      * 
@@ -69,4 +75,16 @@ public class OpenVPMSContextReferenceImpl extends JXPathContextReferenceImpl {
         return COMPILER;
     }
 
+    /**
+     * Compiles an expression using the OpenVPMS compiler.
+     * <p/>
+     * Unlike {@link JXPathContext#compile(String)}, this doesn't depend on the configured context factory.
+     *
+     * @param xpath the expression
+     * @return the compiled expression
+     */
+    public static CompiledExpression compileExpression(String xpath) {
+        return COMPILATION_CONTEXT.compilePath(xpath);
+    }
+
 }
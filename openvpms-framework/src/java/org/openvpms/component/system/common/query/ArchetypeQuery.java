@@ -47,6 +47,11 @@ public class ArchetypeQuery extends AbstractArchetypeQuery
      */
     private boolean activeOnly = false;
 
+    /**
+     * Indicates whether iterators should page using keyset pagination.
+     */
+    private boolean keysetPaging;
+
     /**
      * Define the {@link BaseArchetypeConstraint}. Mandatory.
      */
@@ -251,6 +256,32 @@ public class ArchetypeQuery extends AbstractArchetypeQuery
         return this;
     }
 
+    /**
+     * Determines if {@link QueryIterator}s should page results using keyset pagination.
+     *
+     * @return {@code true} if keyset pagination should be used, {@code false} if results should be paged by
+     * incrementing the first result
+     */
+    public boolean isKeysetPaging() {
+        return keysetPaging;
+    }
+
+    /**
+     * Determines if {@link QueryIterator}s should page results using keyset pagination.
+     * <p/>
+     * With keyset pagination, each page after the first is retrieved by constraining the query to those results
+     * that sort after the last result of the previous page, rather than by skipping the preceding results.
+     * This is more efficient for large result sets, and is not affected by objects inserted or removed before
+     * the current position. See {@link QueryIterator} for restrictions on the query.
+     *
+     * @param keysetPaging if {@code true} use keyset pagination
+     * @return this query
+     */
+    public ArchetypeQuery setKeysetPaging(boolean keysetPaging) {
+        this.keysetPaging = keysetPaging;
+        return this;
+    }
+
     /**
      * Returns the archetype constraint.
      *
@@ -282,6 +313,21 @@ public class ArchetypeQuery extends AbstractArchetypeQuery
         return this;
     }
 
+    /**
+     * Returns a copy of this query.
+     * <p/>
+     * Constraints may be added to or removed from the top level of the copy without affecting this query.
+     *
+     * @return a copy of this query
+     * @throws CloneNotSupportedException if the query cannot be copied
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        ArchetypeQuery copy = (ArchetypeQuery) super.clone();
+        copy.archetypeConstraint = (BaseArchetypeConstraint) archetypeConstraint.clone();
+        return copy;
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
      */
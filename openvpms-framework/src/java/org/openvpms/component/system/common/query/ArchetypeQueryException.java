@@ -43,7 +43,12 @@ public class ArchetypeQueryException extends OpenVPMSException {
         MustSpecifyOperator,
         ParameterCountMismatch,
         CloneNotSupported,
-        BtwInvalidForArchetypeNodeConstraint
+        BtwInvalidForArchetypeNodeConstraint,
+        KeysetPagingNotSupported,
+        KeysetPagingRequiresNodeSort,
+        KeysetValueIsNull,
+        KeysetValueNotFound,
+        KeysetSortRequiresAlias
     }
 
     /**
@@ -23,6 +23,8 @@ import org.openvpms.component.model.object.IMObject;
 
 import java.util.Collection;
 
+import static org.openvpms.component.system.common.query.ArchetypeQueryException.ErrorCode.KeysetValueNotFound;
+
 
 /**
  * Iterates over the results of an {@link IMObject} query.
@@ -93,4 +95,24 @@ public class IMObjectQueryIterator<T extends IMObject> extends QueryIterator<T>
         result = (nodes == null) ? service.get(query) : service.get(query, nodes);
         return result;
     }
+
+    /**
+     * Returns the value of a sort node for an object, when using keyset paging.
+     * <p/>
+     * Only nodes of the primary archetype are supported. If the query is restricted to a set of nodes, these must
+     * include the sort nodes.
+     *
+     * @param object the object
+     * @param alias  the type alias of the node. May be {@code null}
+     * @param node   the node name
+     * @return the node value. May be {@code null}
+     * @throws ArchetypeQueryException if the node doesn't belong to the primary archetype
+     */
+    @Override
+    protected Object getValue(T object, String alias, String node) {
+        if (!isPrimary(alias)) {
+            throw new ArchetypeQueryException(KeysetValueNotFound, alias + "." + node);
+        }
+        return isId(node) ? object.getId() : getService().getBean(object).getValue(node);
+    }
 }
@@ -53,10 +53,21 @@ public interface IPage<T> {
 
     /**
      * Returns the total no. of results matching the query criteria.
+     * <p/>
+     * Implementations may defer calculating the total until this is first invoked.
      *
      * @return the total no. of results matching the query criteria, or
      *         <code>-1</code> if not calculated
      */
     public int getTotalResults();
 
+    /**
+     * Determines if there are more results after this page.
+     * <p/>
+     * This doesn't require the total no. of results to be calculated.
+     *
+     * @return {@code true} if there are more results after this page
+     */
+    public boolean hasMoreResults();
+
 }
\ No newline at end of file
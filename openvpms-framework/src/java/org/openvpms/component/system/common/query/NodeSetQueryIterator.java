@@ -73,4 +73,27 @@ public class NodeSetQueryIterator extends QueryIterator<NodeSet> {
                                      IArchetypeQuery query) {
         return service.getNodes(query, nodes);
     }
+
+    /**
+     * Returns the value of a sort node for a node set, when using keyset paging.
+     * <p/>
+     * Only nodes of the primary archetype are supported, and these must be included in the nodes to query.
+     *
+     * @param set   the node set
+     * @param alias the type alias of the node. May be {@code null}
+     * @param node  the node name
+     * @return the node value. May be {@code null}
+     * @throws ArchetypeQueryException if the node isn't available
+     */
+    @Override
+    protected Object getValue(NodeSet set, String alias, String node) {
+        if (isPrimary(alias)) {
+            if (isId(node)) {
+                return set.getObjectReference().getId();
+            } else if (set.getNames().contains(node)) {
+                return set.get(node);
+            }
+        }
+        throw new ArchetypeQueryException(ArchetypeQueryException.ErrorCode.KeysetValueNotFound, node);
+    }
 }
@@ -21,6 +21,8 @@ package org.openvpms.component.system.common.query;
 import org.openvpms.component.business.service.archetype.ArchetypeServiceException;
 import org.openvpms.component.business.service.archetype.ArchetypeServiceHelper;
 import org.openvpms.component.business.service.archetype.IArchetypeService;
+import org.openvpms.component.model.object.IMObject;
+import org.openvpms.component.model.object.Reference;
 
 
 /**
@@ -63,4 +65,39 @@ public class ObjectSetQueryIterator extends QueryIterator<ObjectSet> {
                                        IArchetypeQuery query) {
         return service.getObjects(query);
     }
+
+    /**
+     * Returns the value of a sort node for an object set, when using keyset paging.
+     * <p/>
+     * The value is taken from the selected node ({@code <alias>.<node>}), or for the {@code id} node, the
+     * selected reference ({@code <alias>.reference}). Failing that, it is read from the selected object
+     * ({@code <alias>}).
+     *
+     * @param set   the object set
+     * @param alias the type alias of the node. May be {@code null}
+     * @param node  the node name
+     * @return the node value. May be {@code null}
+     * @throws ArchetypeQueryException if the value isn't available
+     */
+    @Override
+    protected Object getValue(ObjectSet set, String alias, String node) {
+        if (alias != null) {
+            String name = alias + "." + node;
+            if (set.exists(name)) {
+                return set.get(name);
+            }
+            if (isId(node) && set.exists(alias + ".reference")) {
+                Reference reference = set.getReference(alias + ".reference");
+                return (reference != null) ? reference.getId() : null;
+            }
+            if (set.exists(alias)) {
+                Object object = set.get(alias);
+                if (object instanceof IMObject) {
+                    IMObject value = (IMObject) object;
+                    return isId(node) ? value.getId() : getService().getBean(value).getValue(node);
+                }
+            }
+        }
+        throw new ArchetypeQueryException(ArchetypeQueryException.ErrorCode.KeysetValueNotFound, node);
+    }
 }
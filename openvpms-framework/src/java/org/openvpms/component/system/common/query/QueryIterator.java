@@ -19,13 +19,37 @@ package org.openvpms.component.system.common.query;
 import org.openvpms.component.business.service.archetype.ArchetypeServiceException;
 import org.openvpms.component.business.service.archetype.IArchetypeService;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+import static org.openvpms.component.system.common.query.ArchetypeQueryException.ErrorCode.CloneNotSupported;
+import static org.openvpms.component.system.common.query.ArchetypeQueryException.ErrorCode.KeysetPagingNotSupported;
+import static org.openvpms.component.system.common.query.ArchetypeQueryException.ErrorCode.KeysetPagingRequiresNodeSort;
+import static org.openvpms.component.system.common.query.ArchetypeQueryException.ErrorCode.KeysetSortRequiresAlias;
+import static org.openvpms.component.system.common.query.ArchetypeQueryException.ErrorCode.KeysetValueIsNull;
+
 
 /**
  * Iterator for the results of an {@link IArchetypeQuery}.
  * This uses paging to limit the no. of results retrieved.
+ * <p/>
+ * By default, pages are retrieved by incrementing the first result. If the query is an {@link ArchetypeQuery} with
+ * {@link ArchetypeQuery#isKeysetPaging() keyset paging} enabled, each subsequent page is instead retrieved by
+ * constraining the query to those results that sort after the last result of the previous page. This avoids the
+ * database having to skip over all prior results, and isn't affected by objects being inserted or removed before
+ * the current position.
+ * <p/>
+ * Keyset paging requires that:
+ * <ul>
+ * <li>the query is only sorted by {@link NodeSortConstraint}s. Sort constraints on joined archetypes must be
+ * qualified by an alias, either their own or that of the join. If the last sort constraint is not on the
+ * {@code id} node of the primary archetype, one is added to ensure results are uniquely ordered; and</li>
+ * <li>the sort node values are non-null and available in the results.</li>
+ * </ul>
+ * The query is copied before it is paged, so the query passed to the iterator is never changed. The first page
+ * starts at the query's first result; subsequent pages start after the last result of the previous page.
  *
  * @author Tim Anderson
  */
@@ -37,7 +61,7 @@ public abstract class QueryIterator<T> implements Iterator<T> {
     private final IArchetypeService service;
 
     /**
-     * The query.
+     * The query. When using keyset paging, this is a copy of the query supplied at construction.
      */
     private IArchetypeQuery query;
 
@@ -51,16 +75,46 @@ public abstract class QueryIterator<T> implements Iterator<T> {
      */
     private Iterator<T> iterator;
 
+    /**
+     * The sort keys, when using keyset paging. {@code null} if paging by first result.
+     * <p/>
+     * Keys on joined archetypes are qualified by the alias of the join.
+     */
+    private List<NodeSortConstraint> keys;
+
+    /**
+     * The alias of the primary archetype, when using keyset paging. May be {@code null}.
+     */
+    private String alias;
+
+    /**
+     * The constraint limiting results to those after the previous page, when using keyset paging.
+     */
+    private IConstraint seek;
+
+    /**
+     * The id node name.
+     */
+    private static final String ID = "id";
+
 
     /**
      * Constructs a new {@code QueryIterator}.
      *
      * @param query   the query
      * @param service the archetype service
+     * @throws ArchetypeQueryException if keyset paging is enabled, but not supported by the query
      */
     public QueryIterator(IArchetypeService service, IArchetypeQuery query) {
         this.service = service;
-        this.query = query;
+        if (query instanceof ArchetypeQuery && ((ArchetypeQuery) query).isKeysetPaging()
+            && query.getMaxResults() != IArchetypeQuery.ALL_RESULTS) {
+            ArchetypeQuery copy = copy((ArchetypeQuery) query);
+            initKeys(copy);
+            this.query = copy;
+        } else {
+            this.query = query;
+        }
     }
 
     /**
@@ -69,15 +123,24 @@ public abstract class QueryIterator<T> implements Iterator<T> {
      *
      * @return {@code true} if the iterator has more elements.
      * @throws ArchetypeServiceException if a query fails
+     * @throws ArchetypeQueryException   if keyset paging is enabled and a sort node value cannot be determined
      */
     public boolean hasNext() {
         if (page == null || !iterator.hasNext()) {
             if (page == null || (query.getMaxResults() != IArchetypeQuery.ALL_RESULTS
                                  && page.getResults().size() >= query.getMaxResults())) {
-                page = getPage(service, query);
-                if (query.getMaxResults() != IArchetypeQuery.ALL_RESULTS) {
-                    int first = query.getFirstResult() + query.getMaxResults();
-                    query.setFirstResult(first);
+                if (keys != null) {
+                    if (page != null) {
+                        List<T> results = page.getResults();
+                        seek(results.get(results.size() - 1));
+                    }
+                    page = getPage(service, query);
+                } else {
+                    page = getPage(service, query);
+                    if (query.getMaxResults() != IArchetypeQuery.ALL_RESULTS) {
+                        int first = query.getFirstResult() + query.getMaxResults();
+                        query.setFirstResult(first);
+                    }
                 }
                 iterator = page.getResults().iterator();
             }
@@ -114,4 +177,167 @@ public abstract class QueryIterator<T> implements Iterator<T> {
      */
     protected abstract IPage<T> getPage(IArchetypeService service, IArchetypeQuery query);
 
+    /**
+     * Returns the archetype service.
+     *
+     * @return the archetype service
+     */
+    protected IArchetypeService getService() {
+        return service;
+    }
+
+    /**
+     * Returns the value of a sort node for an object, when using keyset paging.
+     * <p/>
+     * This implementation throws an exception; subclasses supporting keyset paging must override it.
+     *
+     * @param object the object
+     * @param alias  the type alias of the node. If the sort constraint has no alias, this is the alias of the
+     *               primary archetype. May be {@code null}
+     * @param node   the node name
+     * @return the node value. May be {@code null}
+     * @throws ArchetypeQueryException if the value cannot be determined
+     */
+    protected Object getValue(T object, String alias, String node) {
+        throw new ArchetypeQueryException(KeysetPagingNotSupported, getClass().getName());
+    }
+
+    /**
+     * Determines if an alias refers to the primary archetype of the query.
+     *
+     * @param alias the alias. May be {@code null}
+     * @return {@code true} if the alias refers to the primary archetype
+     */
+    protected boolean isPrimary(String alias) {
+        return alias == null || alias.equals(this.alias);
+    }
+
+    /**
+     * Determines if a node is the {@code id} node.
+     *
+     * @param node the node name
+     * @return {@code true} if the node is the {@code id} node
+     */
+    protected boolean isId(String node) {
+        return ID.equals(node);
+    }
+
+    /**
+     * Copies a query, so that the seek and {@code id} sort constraints can be added without changing it.
+     *
+     * @param query the query to copy
+     * @return a copy of the query
+     * @throws ArchetypeQueryException if the query cannot be copied
+     */
+    private ArchetypeQuery copy(ArchetypeQuery query) {
+        try {
+            return (ArchetypeQuery) query.clone();
+        } catch (CloneNotSupportedException exception) {
+            throw new ArchetypeQueryException(CloneNotSupported, exception, query.getClass());
+        }
+    }
+
+    /**
+     * Collects the sort keys of a query, for keyset paging.
+     * <p/>
+     * Keys are collected in the order the query sorts on them, including those of joined archetypes.
+     * If the last key is not the primary archetype {@code id}, it is added to ensure the ordering is unique.
+     *
+     * @param query the query
+     * @throws ArchetypeQueryException if the query is sorted on anything other than nodes, or a joined archetype
+     *                                 is sorted on without an alias
+     */
+    private void initKeys(ArchetypeQuery query) {
+        BaseArchetypeConstraint constraint = query.getArchetypeConstraint();
+        alias = constraint.getAlias();
+        keys = new ArrayList<>();
+        collectKeys(constraint, true);
+        NodeSortConstraint last = !keys.isEmpty() ? keys.get(keys.size() - 1) : null;
+        if (last == null || !isPrimary(last.getAlias()) || !isId(last.getNodeName())) {
+            NodeSortConstraint id = new NodeSortConstraint(alias, ID, last == null || last.isAscending());
+            query.add(id);
+            keys.add(id);
+        }
+    }
+
+    /**
+     * Collects the sort keys of an archetype constraint and its joins.
+     *
+     * @param constraint the archetype constraint
+     * @param primary    if {@code true}, the constraint is that of the primary archetype
+     * @throws ArchetypeQueryException if the constraint is sorted on anything other than nodes, or a joined
+     *                                 archetype is sorted on without an alias
+     */
+    private void collectKeys(BaseArchetypeConstraint constraint, boolean primary) {
+        for (IConstraint child : constraint.getConstraints()) {
+            if (child instanceof NodeSortConstraint) {
+                NodeSortConstraint sort = (NodeSortConstraint) child;
+                if (sort.getAlias() == null && !primary) {
+                    if (constraint.getAlias() == null) {
+                        throw new ArchetypeQueryException(KeysetSortRequiresAlias, sort.getNodeName());
+                    }
+                    sort = new NodeSortConstraint(constraint.getAlias(), sort.getNodeName(), sort.isAscending());
+                }
+                keys.add(sort);
+            } else if (child instanceof SortConstraint) {
+                throw new ArchetypeQueryException(KeysetPagingRequiresNodeSort, child);
+            } else if (child instanceof BaseArchetypeConstraint) {
+                collectKeys((BaseArchetypeConstraint) child, false);
+            } else if (child instanceof JoinConstraint) {
+                collectKeys(((JoinConstraint) child).getArchetypeConstraint(), false);
+            }
+        }
+    }
+
+    /**
+     * Constrains the query to return results that sort after the specified object.
+     * <p/>
+     * For sort keys k1..kn with values v1..vn, this generates:
+     * <pre>
+     *   k1 >= v1 and ((k1 > v1) or (k1 = v1 and k2 > v2) or ... or (k1 = v1 and ... and kn-1 = vn-1 and kn > vn))
+     * </pre>
+     * where {@code >} is replaced by {@code <} for descending keys. The leading {@code k1 >= v1} is redundant, but
+     * enables the database to use an index on k1 to limit the rows examined.
+     * <p/>
+     * The first result is reset, as any offset has already been applied to the first page.
+     *
+     * @param last the last object of the previous page
+     * @throws ArchetypeQueryException if a sort node value is {@code null}
+     */
+    private void seek(T last) {
+        ArchetypeQuery archetypeQuery = (ArchetypeQuery) query;
+        String[] names = new String[keys.size()];
+        Object[] values = new Object[keys.size()];
+        for (int i = 0; i < keys.size(); ++i) {
+            NodeSortConstraint key = keys.get(i);
+            String keyAlias = key.getAlias() != null ? key.getAlias() : alias;
+            Object value = getValue(last, keyAlias, key.getNodeName());
+            if (value == null) {
+                throw new ArchetypeQueryException(KeysetValueIsNull, key.getNodeName());
+            }
+            names[i] = (key.getAlias() != null) ? key.getAlias() + "." + key.getNodeName() : key.getNodeName();
+            values[i] = value;
+        }
+        AndConstraint bound = new AndConstraint();
+        RelationalOp first = keys.get(0).isAscending() ? RelationalOp.GTE : RelationalOp.LTE;
+        bound.add(new NodeConstraint(names[0], first, values[0]));
+        OrConstraint or = new OrConstraint();
+        for (int i = 0; i < keys.size(); ++i) {
+            AndConstraint and = new AndConstraint();
+            for (int j = 0; j < i; ++j) {
+                and.add(new NodeConstraint(names[j], RelationalOp.EQ, values[j]));
+            }
+            RelationalOp op = keys.get(i).isAscending() ? RelationalOp.GT : RelationalOp.LT;
+            and.add(new NodeConstraint(names[i], op, values[i]));
+            or.add(and);
+        }
+        bound.add(or);
+        if (seek != null) {
+            archetypeQuery.remove(seek);
+        }
+        seek = bound;
+        archetypeQuery.add(seek);
+        archetypeQuery.setFirstResult(0);
+    }
+
 }
@@ -60,6 +60,7 @@ public class NodeComparator extends AbstractComparator {
         compare(Field.DEFAULT_VALUE, oldVersion.getDefaultValue(), newVersion.getDefaultValue(), changes);
         compare(Field.READ_ONLY, oldVersion.isReadOnly(), newVersion.isReadOnly(), changes);
         compare(Field.HIDDEN, oldVersion.isHidden(), newVersion.isHidden(), changes);
+        compare(Field.INDEXED, oldVersion.isIndexed(), newVersion.isIndexed(), changes);
         compare(Field.DERIVED, oldVersion.isDerived(), newVersion.isDerived(), changes);
         compare(Field.DERIVED_VALUE, oldVersion.getDerivedValue(), newVersion.getDerivedValue(), changes);
         compareAssertions(oldVersion, newVersion, changes);
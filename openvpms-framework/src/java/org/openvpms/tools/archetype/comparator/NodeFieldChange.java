@@ -21,6 +21,7 @@ public class NodeFieldChange extends DescriptorChange<Object> {
         DEFAULT_VALUE("defaultValue"),
         READ_ONLY("readOnly"),
         HIDDEN("hidden"),
+        INDEXED("indexed"),
         DERIVED("derived"),
         DERIVED_VALUE("derivedValue"),
         ASSERTION("assertion");
@@ -0,0 +1,282 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.tools.archetype.loader;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Switch;
+import com.martiansoftware.jsap.stringparsers.IntegerStringParser;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.openvpms.component.business.dao.hibernate.im.common.DetailsIndexer;
+import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor;
+import org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.service.archetype.ArchetypeServiceException;
+import org.openvpms.component.business.service.archetype.IArchetypeService;
+import org.openvpms.component.system.common.query.ArchetypeQuery;
+import org.openvpms.component.system.common.query.IMObjectQueryIterator;
+import org.openvpms.component.system.common.query.NodeSortConstraint;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.context.support.FileSystemXmlApplicationContext;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Populates the details index for objects with {@link NodeDescriptor#isIndexed() indexed} nodes.
+ * <p>
+ * This is required when a node is flagged as indexed after objects using it have been saved, as the index is only
+ * maintained when objects are saved. Each object is re-saved, which updates its index.
+ *
+ * @author Tim Anderson
+ */
+public class DetailsIndexUpdater {
+
+    /**
+     * The archetype service.
+     */
+    private final IArchetypeService service;
+
+    /**
+     * The batch size.
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * The default name of the application context file.
+     */
+    private static final String APPLICATION_CONTEXT = "applicationContext.xml";
+
+    /**
+     * The default batch size.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * The logger.
+     */
+    private static final Logger log = Logger.getLogger(DetailsIndexUpdater.class);
+
+    /**
+     * Constructs a {@link DetailsIndexUpdater}.
+     *
+     * @param service the archetype service
+     */
+    public DetailsIndexUpdater(IArchetypeService service) {
+        this.service = service;
+    }
+
+    /**
+     * Sets the batch size.
+     *
+     * @param batchSize the batch size
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Updates the index for all archetypes that have indexed nodes.
+     *
+     * @return the no. of updated objects
+     * @throws ArchetypeServiceException for any archetype service error
+     */
+    public int update() {
+        return update("*");
+    }
+
+    /**
+     * Updates the index for all objects with the specified archetype.
+     * <p>
+     * Archetypes without indexed nodes are ignored.
+     *
+     * @param archetype the archetype short name. May contain wildcards
+     * @return the no. of updated objects
+     * @throws ArchetypeServiceException for any archetype service error
+     */
+    public int update(String archetype) {
+        int saved = 0;
+        for (ArchetypeDescriptor descriptor : service.getArchetypeDescriptors(archetype)) {
+            if (hasIndexedNodes(descriptor)) {
+                saved += updateArchetype(descriptor.getShortName());
+            }
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Updated " + saved + " objects");
+        }
+        return saved;
+    }
+
+    /**
+     * Main line.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        BasicConfigurator.configure();
+
+        // set the root logger level to error
+        Logger root = Logger.getRootLogger();
+        root.setLevel(Level.ERROR);
+        root.removeAllAppenders();
+        root.addAppender(new ConsoleAppender(new PatternLayout("%m%n")));
+
+        try {
+            JSAP parser = createParser();
+            JSAPResult config = parser.parse(args);
+            if (!config.success()) {
+                displayUsage(parser, config);
+            } else {
+                String contextPath = config.getString("context");
+
+                ApplicationContext context;
+                if (!new File(contextPath).exists()) {
+                    context = new ClassPathXmlApplicationContext(contextPath);
+                } else {
+                    context = new FileSystemXmlApplicationContext(contextPath);
+                }
+
+                IArchetypeService service = (IArchetypeService) context.getBean("archetypeService");
+
+                if (config.getBoolean("verbose")) {
+                    log.setLevel(Level.INFO);
+                }
+
+                DetailsIndexUpdater updater = new DetailsIndexUpdater(service);
+                updater.setBatchSize(config.getInt("batchSize"));
+                updater.update(config.getString("archetype"));
+            }
+        } catch (Throwable throwable) {
+            log.error(throwable, throwable);
+        }
+    }
+
+    /**
+     * Updates the index for all objects of an archetype.
+     *
+     * @param archetype the archetype short name
+     * @return the no. of updated objects
+     */
+    private int updateArchetype(String archetype) {
+        log.info("Updating: " + archetype);
+        int saved = 0;
+        ArchetypeQuery query = new ArchetypeQuery(archetype, false, false);
+        query.add(new NodeSortConstraint("id"));
+        query.setMaxResults(batchSize);
+        Iterator<IMObject> iterator = new IMObjectQueryIterator<>(service, query);
+        List<IMObject> batch = new ArrayList<>();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() >= batchSize) {
+                saved += saveBatch(batch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            saved += saveBatch(batch);
+        }
+        return saved;
+    }
+
+    /**
+     * Saves a batch of objects, updating their index.
+     *
+     * @param batch the batch to save
+     * @return the no. of saved objects
+     */
+    private int saveBatch(List<IMObject> batch) {
+        service.save(batch, false);
+        int saved = batch.size();
+        batch.clear();
+        return saved;
+    }
+
+    /**
+     * Determines if an archetype has indexed nodes.
+     *
+     * @param descriptor the archetype descriptor
+     * @return {@code true} if the archetype has indexed nodes
+     */
+    private boolean hasIndexedNodes(ArchetypeDescriptor descriptor) {
+        for (NodeDescriptor node : descriptor.getAllNodeDescriptors()) {
+            if (DetailsIndexer.getKey(node) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a new command line parser.
+     *
+     * @return a new parser
+     * @throws JSAPException if the parser can't be created
+     */
+    private static JSAP createParser() throws JSAPException {
+        JSAP parser = new JSAP();
+        parser.registerParameter(new FlaggedOption("archetype")
+                                         .setShortFlag('a')
+                                         .setLongFlag("archetype")
+                                         .setDefault("*")
+                                         .setHelp("The short name of the archetype to update. May contain wildcards. "
+                                                  + "Archetypes without indexed nodes are ignored"));
+        parser.registerParameter(new FlaggedOption("batchSize")
+                                         .setLongFlag("batchSize")
+                                         .setDefault("" + DEFAULT_BATCH_SIZE)
+                                         .setStringParser(IntegerStringParser.getParser())
+                                         .setHelp("The batch size"));
+        parser.registerParameter(new Switch("verbose")
+                                         .setShortFlag('v')
+                                         .setLongFlag("verbose")
+                                         .setDefault("false")
+                                         .setHelp("Displays verbose info to the console."));
+        parser.registerParameter(new FlaggedOption("context")
+                                         .setLongFlag("context")
+                                         .setDefault(APPLICATION_CONTEXT)
+                                         .setHelp("The application context path"));
+        return parser;
+    }
+
+    /**
+     * Prints usage information and exits.
+     *
+     * @param parser the parser
+     * @param result the parsed result
+     */
+    private static void displayUsage(JSAP parser, JSAPResult result) {
+        Iterator iter = result.getErrorMessageIterator();
+        while (iter.hasNext()) {
+            System.err.println(iter.next());
+        }
+        System.err.println();
+        System.err.println("Usage: java " + DetailsIndexUpdater.class.getName());
+        System.err.println("                " + parser.getUsage());
+        System.err.println();
+        System.err.println(parser.getHelp());
+        System.exit(1);
+    }
+
+}
@@ -0,0 +1,345 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.domain.im.lookup.Lookup;
+import org.openvpms.component.business.domain.im.party.Party;
+import org.openvpms.component.business.service.AbstractArchetypeServiceTest;
+import org.openvpms.component.business.service.archetype.helper.EntityBean;
+import org.openvpms.component.business.service.archetype.helper.IMObjectBean;
+import org.openvpms.component.business.service.cache.BasicEhcacheManager;
+import org.openvpms.component.business.service.lookup.LookupUtil;
+import org.openvpms.component.model.object.Reference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link AssembledObjectCache}.
+ *
+ * @author Tim Anderson
+ */
+@ContextConfiguration("/org/openvpms/component/business/service/archetype/archetype-service-appcontext.xml")
+public class AssembledObjectCacheTestCase extends AbstractArchetypeServiceTest {
+
+    /**
+     * The DAO.
+     */
+    @Autowired
+    private IMObjectDAOHibernate dao;
+
+    /**
+     * The cache manager.
+     */
+    private BasicEhcacheManager cacheManager;
+
+    /**
+     * The cache.
+     */
+    private AssembledObjectCache cache;
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp() {
+        cacheManager = new BasicEhcacheManager(100);
+        cache = new AssembledObjectCache(dao, cacheManager);
+        cache.setArchetypes("party.customer*");
+    }
+
+    /**
+     * Cleans up after the test.
+     */
+    @After
+    public void tearDown() {
+        cache.destroy();
+        cacheManager.destroy();
+    }
+
+    /**
+     * Verifies that objects are cached on retrieval, and that each retrieval returns a new instance.
+     */
+    @Test
+    public void testCache() {
+        Party person = createPerson("Jim");
+        save(person);
+        assertFalse(isCached(person.getObjectReference()));
+
+        Party person1 = (Party) get(person.getObjectReference());
+        assertTrue(isCached(person.getObjectReference()));
+        Party person2 = (Party) get(person.getObjectReference());
+        checkPerson(person2, person, "Jim");
+        assertNotSame(person1, person2);
+
+        // changes to a retrieved object shouldn't be reflected in the cache
+        person2.getDetails().put("firstName", "Bob");
+        person2.setActive(false);
+        checkPerson((Party) get(person.getObjectReference()), person, "Jim");
+
+        // verify active filtering is applied to cached objects
+        assertNotNull(getArchetypeService().get(person.getObjectReference(), true));
+        assertNull(getArchetypeService().get(person.getObjectReference(), false));
+    }
+
+    /**
+     * Verifies that saving an object invalidates it.
+     */
+    @Test
+    public void testInvalidateOnSave() {
+        Party person = createPerson("Jim");
+        save(person);
+        Party person1 = (Party) get(person.getObjectReference());
+
+        person1.getDetails().put("firstName", "Bob");
+        save(person1);
+        assertFalse(isCached(person.getObjectReference()));
+
+        Party person2 = (Party) get(person.getObjectReference());
+        checkPerson(person2, person1, "Bob");
+    }
+
+    /**
+     * Verifies that saving an object invalidates any cached object that refers to it.
+     */
+    @Test
+    public void testInvalidateDependent() {
+        Lookup staff = LookupUtil.createLookup(getArchetypeService(), "lookup.staff", "STAFF1");
+        staff.setDescription("Staff 1");
+        save(staff);
+        Party person = createPerson("Jim");
+        person.addClassification(staff);
+        save(person);
+
+        get(person.getObjectReference());
+        assertTrue(isCached(person.getObjectReference()));
+
+        staff.setDescription("Staff A");
+        save(staff);
+        assertFalse(isCached(person.getObjectReference()));
+
+        Party person2 = (Party) get(person.getObjectReference());
+        assertEquals(1, person2.getClassifications().size());
+        assertEquals("Staff A", person2.getClassifications().iterator().next().getDescription());
+    }
+
+    /**
+     * Verifies that retrieving objects by collection uses cached objects, and caches those loaded.
+     */
+    @Test
+    public void testGetCollection() {
+        Party person1 = createPerson("Jim");
+        Party person2 = createPerson("Bob");
+        save(person1, person2);
+        get(person1.getObjectReference());
+        assertTrue(isCached(person1.getObjectReference()));
+        assertFalse(isCached(person2.getObjectReference()));
+
+        Map<Reference, IMObject> objects = getArchetypeService().get(
+                Arrays.asList(person1.getObjectReference(), person2.getObjectReference()));
+        assertEquals(2, objects.size());
+        checkPerson((Party) objects.get(person1.getObjectReference()), person1, "Jim");
+        checkPerson((Party) objects.get(person2.getObjectReference()), person2, "Bob");
+        assertTrue(isCached(person2.getObjectReference()));
+    }
+
+    /**
+     * Verifies that within a transaction, each retrieval of an object returns the same instance, whether or not it
+     * was cached.
+     */
+    @Test
+    public void testSameInstanceInTransaction() {
+        Party person1 = createPerson("Jim");
+        Party person2 = createPerson("Bob");
+        save(person1, person2);
+        Reference ref1 = person1.getObjectReference();
+        Reference ref2 = person2.getObjectReference();
+        get(ref1);
+        assertTrue(isCached(ref1));
+        assertFalse(isCached(ref2));
+
+        PlatformTransactionManager txnManager = (PlatformTransactionManager) applicationContext.getBean("txnManager");
+        TransactionTemplate template = new TransactionTemplate(txnManager);
+        template.execute(status -> {
+            // cache hit
+            IMObject object1 = get(ref1);
+            assertSame(object1, get(ref1));
+            assertSame(object1, getArchetypeService().get(ref1, true));
+
+            // cache miss
+            IMObject object2 = get(ref2);
+            assertTrue(isCached(ref2));
+            assertSame(object2, get(ref2));
+
+            Map<Reference, IMObject> objects = getArchetypeService().get(Arrays.asList(ref1, ref2));
+            assertSame(object1, objects.get(ref1));
+            assertSame(object2, objects.get(ref2));
+            return null;
+        });
+
+        // outside a transaction, each retrieval returns a copy
+        assertNotSame(get(ref1), get(ref1));
+    }
+
+    /**
+     * Verifies that saving only the source of a new relationship invalidates a cached target.
+     */
+    @Test
+    public void testInvalidateNewRelationshipTarget() {
+        cache.setArchetypes("party.*");
+        Party person = createPerson("Jim");
+        Party pet = createPet();
+        save(person, pet);
+
+        Party pet1 = (Party) get(pet.getObjectReference());
+        assertTrue(isCached(pet.getObjectReference()));
+        assertEquals(0, pet1.getEntityRelationships().size());
+
+        EntityBean bean = new EntityBean(person);
+        bean.addNodeTarget("owns", pet);
+        save(person);
+        assertFalse(isCached(pet.getObjectReference()));
+
+        Party pet2 = (Party) get(pet.getObjectReference());
+        assertEquals(1, pet2.getEntityRelationships().size());
+    }
+
+    /**
+     * Verifies that the objects an entry refers to are no longer tracked when it is evicted.
+     */
+    @Test
+    public void testEviction() {
+        Lookup staff = LookupUtil.createLookup(getArchetypeService(), "lookup.staff", "STAFF3");
+        save(staff);
+        Party person1 = createPerson("Jim");
+        person1.addClassification(staff);
+        Party person2 = createPerson("Bob");
+        save(person1, person2);
+
+        cacheManager.setMaxElements(cache.getCache(), "assembledObjectCache", 1);
+        get(person1.getObjectReference());
+        assertTrue(isCached(person1.getObjectReference()));
+        assertTrue(cache.hasDependents(staff.getObjectReference()));
+
+        // evicts person1
+        get(person2.getObjectReference());
+        assertFalse(isCached(person1.getObjectReference()));
+        assertTrue(isCached(person2.getObjectReference()));
+        assertFalse(cache.hasDependents(staff.getObjectReference()));
+    }
+
+    /**
+     * Verifies that removing an object invalidates it.
+     */
+    @Test
+    public void testInvalidateOnRemove() {
+        Party person = createPerson("Jim");
+        save(person);
+        get(person.getObjectReference());
+        assertTrue(isCached(person.getObjectReference()));
+
+        getArchetypeService().remove(person);
+        assertFalse(isCached(person.getObjectReference()));
+        assertNull(get(person.getObjectReference()));
+    }
+
+    /**
+     * Verifies that only the configured archetypes are cached.
+     */
+    @Test
+    public void testArchetypes() {
+        Lookup staff = LookupUtil.createLookup(getArchetypeService(), "lookup.staff", "STAFF2");
+        save(staff);
+        assertNotNull(get(staff.getObjectReference()));
+        assertFalse(isCached(staff.getObjectReference()));
+
+        cache.setArchetypes("lookup.*");
+        assertNotNull(get(staff.getObjectReference()));
+        assertTrue(isCached(staff.getObjectReference()));
+    }
+
+    /**
+     * Verifies a person matches that expected.
+     *
+     * @param person    the person to check
+     * @param expected  the expected person
+     * @param firstName the expected first name
+     */
+    private void checkPerson(Party person, Party expected, String firstName) {
+        assertNotNull(person);
+        assertEquals(expected.getObjectReference(), person.getObjectReference());
+        assertEquals(expected.getVersion(), person.getVersion());
+        assertEquals(firstName, person.getDetails().get("firstName"));
+        assertTrue(person.isActive());
+    }
+
+    /**
+     * Determines if an object is cached.
+     *
+     * @param reference the object reference
+     * @return {@code true} if the object is cached
+     */
+    @SuppressWarnings("unchecked")
+    private boolean isCached(Reference reference) {
+        return cache.getCache().containsKey(reference.getArchetype() + ':' + reference.getId());
+    }
+
+    /**
+     * Creates a new pet.
+     *
+     * @return a new pet
+     */
+    private Party createPet() {
+        Party pet = (Party) create("party.patientpet");
+        IMObjectBean bean = new IMObjectBean(pet);
+        bean.setValue("name", "Fido");
+        bean.setValue("species", "CANINE");
+        return pet;
+    }
+
+    /**
+     * Creates a new person.
+     *
+     * @param firstName the person's first name
+     * @return a new person
+     */
+    private Party createPerson(String firstName) {
+        Party person = (Party) create("party.customerperson");
+        person.getClassifications().clear();
+        person.getDetails().put("lastName", "Smith");
+        person.getDetails().put("firstName", firstName);
+        person.getDetails().put("title", "MR");
+        return person;
+    }
+}
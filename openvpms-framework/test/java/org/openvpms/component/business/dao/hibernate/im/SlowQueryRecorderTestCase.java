@@ -0,0 +1,103 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link SlowQueryRecorder}.
+ *
+ * @author Tim Anderson
+ */
+public class SlowQueryRecorderTestCase {
+
+    /**
+     * Verifies that only queries at or above the threshold are slow.
+     */
+    @Test
+    public void testThreshold() {
+        SlowQueryRecorder recorder = new SlowQueryRecorder();
+        assertEquals(SlowQueryRecorder.DEFAULT_THRESHOLD, recorder.getThreshold());
+        recorder.setThreshold(250);
+        assertEquals(250, recorder.getThreshold());
+        assertFalse(recorder.isSlow(249999999));
+        assertTrue(recorder.isSlow(250000000));
+    }
+
+    /**
+     * Verifies that the recorder retains the most recent queries, up to its capacity.
+     */
+    @Test
+    public void testRingBuffer() {
+        SlowQueryRecorder recorder = new SlowQueryRecorder(3);
+        for (int i = 0; i < 5; ++i) {
+            record(recorder, "select " + i, i);
+        }
+        List<SlowQuery> queries = recorder.getQueries();
+        assertEquals(3, queries.size());
+        assertEquals("select 4", queries.get(0).getSQL());
+        assertEquals("select 3", queries.get(1).getSQL());
+        assertEquals("select 2", queries.get(2).getSQL());
+        assertEquals(4, queries.get(0).getRows());
+
+        recorder.clear();
+        assertTrue(recorder.getQueries().isEmpty());
+        record(recorder, "select 5", 5);
+        assertEquals(1, recorder.getQueries().size());
+    }
+
+    /**
+     * Verifies that named parameters in native SQL queries are replaced with positional parameters, and that the
+     * parameters are captured.
+     */
+    @Test
+    public void testNativeSQL() {
+        SlowQueryRecorder recorder = new SlowQueryRecorder();
+        recorder.record(null, "findActs", "select * from acts where arch_short_name = :shortName "
+                                          + "and activity_start_time >= :from and status::text = 'POSTED'",
+                        true, new String[]{"shortName", "from"}, new Object[]{"act.customerEstimation", null},
+                        10, 2000000000L);
+        SlowQuery query = recorder.getQueries().get(0);
+        assertEquals("findActs", query.getSource());
+        assertNull(query.getHQL());
+        assertEquals("select * from acts where arch_short_name = ? and activity_start_time >= ? "
+                     + "and status::text = 'POSTED'", query.getSQL());
+        assertEquals(2, query.getParameters().size());
+        assertEquals("act.customerEstimation", query.getParameters().get("shortName"));
+        assertEquals(2000, query.getElapsed());
+        assertNull(query.getPlan());
+    }
+
+    /**
+     * Records a native SQL query with no parameters.
+     *
+     * @param recorder the recorder
+     * @param sql      the query
+     * @param rows     the number of rows
+     */
+    private void record(SlowQueryRecorder recorder, String sql, int rows) {
+        recorder.record(null, null, sql, true, new String[0], new Object[0], rows, 1000000000L);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.dao.hibernate.im.common;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests the {@link IndexedValue} class.
+ *
+ * @author Tim Anderson
+ */
+public class IndexedValueTestCase {
+
+    /**
+     * Verifies that decimal values are held to the scale of the database column, so that a value read back from the
+     * database is equal to that created from the node value.
+     */
+    @Test
+    public void testDecimalScale() {
+        IndexedValue value = IndexedValue.create(new BigDecimal("1.23456"));
+        assertEquals(new BigDecimal("1.235"), value.getDecimalValue());
+
+        IndexedValue stored = new IndexedValue();
+        stored.setDecimalValue(new BigDecimal("1.235"));
+        assertEquals(stored, value);
+
+        stored.setDecimalValue(new BigDecimal("1.234"));
+        assertNotEquals(stored, value);
+
+        assertEquals(IndexedValue.create(new BigDecimal("10")), IndexedValue.create(new BigDecimal("10.000")));
+        assertEquals(new BigDecimal("-0.001"), IndexedValue.create(new BigDecimal("-0.0005")).getDecimalValue());
+    }
+}
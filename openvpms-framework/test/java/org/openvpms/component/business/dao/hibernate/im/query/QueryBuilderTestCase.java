@@ -830,6 +830,55 @@ public class QueryBuilderTestCase extends AbstractJUnit4SpringContextTests {
         }
     }
 
+    /**
+     * Verifies that constraints on indexed 'details' nodes are performed via the details index, and that
+     * integer parameters are converted to the type of the indexed column.
+     */
+    @Test
+    public void testIndexedDetailsConstraint() {
+        String expected = "select act0 from "
+                          + ActDO.class.getName() + " as act0 "
+                          + "left outer join act0.indexedDetails as indexedValue0 "
+                          + "with index(indexedValue0) = :name0 "
+                          + "where (act0.archetypeId.shortName = :shortName0 and "
+                          + "indexedValue0.longValue > :longValue0)";
+        ArchetypeQuery query = new ArchetypeQuery("act.patientReminder", false, false)
+                .add(Constraints.gt("reminderCount", 2));
+        checkQuery(query, expected);
+        QueryContext context = builder.build(query);
+        checkParameter(context, "reminderCount", "name0");
+        checkParameter(context, 2L, "longValue0");
+    }
+
+    /**
+     * Verifies that indexed 'details' nodes can be constrained and sorted on, and that the details index is only
+     * joined once per node.
+     */
+    @Test
+    public void testIndexedDetailsSort() {
+        String expected = "select act0 from "
+                          + ActDO.class.getName() + " as act0 "
+                          + "left outer join act0.indexedDetails as indexedValue0 "
+                          + "with index(indexedValue0) = :name0 "
+                          + "where (act0.archetypeId.shortName = :shortName0 and "
+                          + "indexedValue0.dateValue is NULL) "
+                          + "order by indexedValue0.dateValue asc";
+        ArchetypeQuery query = new ArchetypeQuery("act.patientReminder", false, false)
+                .add(Constraints.isNull("lastSent"))
+                .add(Constraints.sort("lastSent"));
+        checkQuery(query, expected);
+    }
+
+    /**
+     * Verifies that non-indexed 'details' nodes cannot be queried.
+     */
+    @Test(expected = QueryBuilderException.class)
+    public void testNonIndexedDetailsConstraint() {
+        ArchetypeQuery query = new ArchetypeQuery("act.patientReminder", false, false)
+                .add(Constraints.isNull("completedDate"));
+        builder.build(query);
+    }
+
     /**
      * Sets up the test case.
      */
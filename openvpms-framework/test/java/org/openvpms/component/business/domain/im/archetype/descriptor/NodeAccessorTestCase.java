@@ -0,0 +1,131 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.domain.im.archetype.descriptor;
+
+import org.junit.Test;
+import org.openvpms.component.business.domain.im.act.Act;
+import org.openvpms.component.business.domain.im.common.EntityIdentity;
+import org.openvpms.component.business.domain.im.party.Party;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link NodeAccessorFactory} and the {@link NodeAccessor}s it creates.
+ *
+ * @author Tim Anderson
+ */
+public class NodeAccessorTestCase {
+
+    /**
+     * Verifies that <em>/property</em> paths are accessed directly.
+     */
+    @Test
+    public void testProperty() {
+        NodeAccessor accessor = NodeAccessorFactory.create("/name", Party.class);
+        assertFalse(NodeAccessorFactory.isJXPath(accessor));
+
+        Party party = new Party();
+        accessor.setValue(party, "foo");
+        assertEquals("foo", party.getName());
+        assertEquals("foo", accessor.getValue(party));
+
+        accessor.setValue(party, null);
+        assertNull(party.getName());
+        assertNull(accessor.getValue(party));
+    }
+
+    /**
+     * Verifies that values are converted to the property type when set.
+     */
+    @Test
+    public void testConversion() {
+        NodeAccessor active = NodeAccessorFactory.create("/active", Party.class);
+        Party party = new Party();
+        party.setActive(true);
+        active.setValue(party, "false");
+        assertFalse(party.isActive());
+        assertEquals(Boolean.FALSE, active.getValue(party));
+
+        NodeAccessor startTime = NodeAccessorFactory.create("/activityStartTime", null);
+        Act act = new Act();
+        Date now = new Date();
+        startTime.setValue(act, now);
+        assertEquals(now, act.getActivityStartTime());
+        assertEquals(now, startTime.getValue(act));
+    }
+
+    /**
+     * Verifies that <em>/details/key</em> paths are accessed directly.
+     */
+    @Test
+    public void testDetails() {
+        NodeAccessor accessor = NodeAccessorFactory.create("/details/firstName", Party.class);
+        assertFalse(NodeAccessorFactory.isJXPath(accessor));
+
+        Party party = new Party();
+        assertNull(accessor.getValue(party));
+        accessor.setValue(party, "Foo");
+        assertEquals("Foo", party.getDetails().get("firstName"));
+        assertEquals("Foo", accessor.getValue(party));
+    }
+
+    /**
+     * Verifies that collection paths return the underlying collection.
+     */
+    @Test
+    public void testCollection() {
+        NodeAccessor accessor = NodeAccessorFactory.create("/identities", Party.class);
+        Party party = new Party();
+        EntityIdentity identity = new EntityIdentity();
+        party.addIdentity(identity);
+        assertEquals(party.getIdentities(), accessor.getValue(party));
+    }
+
+    /**
+     * Verifies that complex paths and unknown properties are evaluated using JXPath.
+     */
+    @Test
+    public void testFallback() {
+        assertTrue(NodeAccessorFactory.isJXPath(NodeAccessorFactory.create("/propertyMap/properties/type/value",
+                                                                           null)));
+        assertTrue(NodeAccessorFactory.isJXPath(NodeAccessorFactory.create("/details[1]", null)));
+
+        NodeAccessor unknown = NodeAccessorFactory.create("/nonexistent", Party.class);
+        assertNull(unknown.getValue(new Party()));
+    }
+
+    /**
+     * Verifies that direct access and JXPath access return the same values.
+     */
+    @Test
+    public void testSameAsJXPath() {
+        Party party = new Party();
+        party.setName("foo");
+        party.setDescription("bar");
+        party.getDetails().put("lastName", "Smith");
+        for (String path : new String[]{"/name", "/description", "/active", "/details/lastName",
+                                        "/details/firstName", "/identities"}) {
+            Object expected = new JXPathNodeAccessor(path).getValue(party);
+            assertEquals(path, expected, NodeAccessorFactory.create(path, null).getValue(party));
+        }
+    }
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import org.openvpms.component.business.domain.archetype.ArchetypeId;
+import org.openvpms.component.business.domain.im.act.ActRelationship;
 import org.openvpms.component.business.domain.im.party.Party;
 
 /**
@@ -51,4 +52,44 @@ public class IMObjectTestCase {
         assertFalse(obj1.equals(null));
     }
 
+    /**
+     * Verifies that objects are flagged as dirty when they change.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testDirty() throws Exception {
+        Participation participation = new Participation();
+        assertTrue(participation.isDirty());
+
+        participation.setDirty(false);
+        assertFalse(participation.isDirty());
+        participation.setName("foo");
+        assertTrue(participation.isDirty());
+
+        participation.setDirty(false);
+        participation.setEntity(new IMObjectReference(new ArchetypeId("party.customerperson.1.0"), 1));
+        assertTrue(participation.isDirty());
+
+        // changes made directly to the details are detected
+        participation.setDirty(false);
+        participation.getDetails().put("foo", "bar");
+        assertTrue(participation.isDirty());
+        participation.getDetails().remove("foo");
+        assertFalse(participation.isDirty());
+
+        // clones are always dirty
+        participation.setDirty(false);
+        IMObject copy = (IMObject) participation.clone();
+        assertTrue(copy.isDirty());
+        assertFalse(participation.isDirty());
+
+        ActRelationship relationship = new ActRelationship();
+        relationship.setDirty(false);
+        relationship.setActive(false);
+        assertTrue(relationship.isDirty());
+        relationship.setDirty(false);
+        relationship.setParentChildRelationship(true);
+        assertTrue(relationship.isDirty());
+    }
 }
@@ -50,6 +50,7 @@ import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
@@ -938,6 +939,87 @@ public class ArchetypeServiceActTestCase extends AbstractArchetypeServiceTest {
         assertEquals(2, parent.getVersion());
     }
 
+    /**
+     * Verifies that relationships and participations are flagged as dirty when changed, and that changes to them
+     * are saved, while unchanged ones are left as is.
+     */
+    @Test
+    public void testSaveDirtyRelationships() {
+        Party person = createPerson("MR", "Jim", "Alateras");
+        save(person);
+        Act parent = createSimpleAct("parent", "IN_PROGRESS");
+        Act act1 = createSimpleAct("act1", "IN_PROGRESS");
+        Act act2 = createSimpleAct("act2", "IN_PROGRESS");
+        addRelationship(parent, act1, "parent->act1", true);
+        addRelationship(parent, act2, "parent->act2", true);
+        parent.addParticipation(createSimpleParticipation("participation", person, parent));
+        save(Arrays.asList(parent, act1, act2));
+
+        // saved objects reflect the persistent state
+        assertFalse(((IMObject) parent.getParticipations().iterator().next()).isDirty());
+        for (ActRelationship relationship : parent.getSourceActRelationships()) {
+            assertFalse(((IMObject) relationship).isDirty());
+        }
+
+        // reloaded objects reflect the persistent state
+        parent = reload(parent);
+        Participation participation = (Participation) parent.getParticipations().iterator().next();
+        assertFalse(participation.isDirty());
+        ActRelationship rel1 = null;
+        for (ActRelationship relationship : parent.getSourceActRelationships()) {
+            assertFalse(((IMObject) relationship).isDirty());
+            if ("parent->act1".equals(relationship.getName())) {
+                rel1 = relationship;
+            }
+        }
+        assertNotNull(rel1);
+
+        // change a relationship and the participation, and verify they are saved
+        rel1.setDescription("changed");
+        participation.getDetails().put("foo", "bar");
+        assertTrue(((IMObject) rel1).isDirty());
+        assertTrue(participation.isDirty());
+        save(parent);
+        assertFalse(((IMObject) rel1).isDirty());
+        assertFalse(participation.isDirty());
+
+        parent = reload(parent);
+        for (ActRelationship relationship : parent.getSourceActRelationships()) {
+            if ("parent->act1".equals(relationship.getName())) {
+                assertEquals("changed", relationship.getDescription());
+            } else {
+                assertNotEquals("changed", relationship.getDescription());
+            }
+        }
+        participation = (Participation) parent.getParticipations().iterator().next();
+        assertEquals("bar", participation.getDetails().get("foo"));
+    }
+
+    /**
+     * Verifies that objects saved in a transaction that is rolled back are flagged as dirty, so that they are
+     * re-assembled on the next save.
+     */
+    @Test
+    public void testDirtyOnRollback() {
+        Act parent = createSimpleAct("parent", "IN_PROGRESS");
+        Act act1 = createSimpleAct("act1", "IN_PROGRESS");
+        ActRelationship relationship = addRelationship(parent, act1, "parent->act1", true);
+        save(Arrays.asList(parent, act1));
+        assertFalse(((IMObject) relationship).isDirty());
+
+        relationship.setDescription("changed");
+        template.execute(status -> {
+            save(parent);
+            assertFalse(((IMObject) relationship).isDirty());
+            status.setRollbackOnly();
+            return null;
+        });
+        assertTrue(((IMObject) relationship).isDirty());
+
+        save(parent);
+        Act reloaded = reload(parent);
+        assertEquals("changed", reloaded.getSourceActRelationships().iterator().next().getDescription());
+    }
     /**
      * Sets up the test case.
      */
@@ -0,0 +1,127 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.service.archetype;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openvpms.component.business.dao.hibernate.im.IMObjectDAOHibernate;
+import org.openvpms.component.business.domain.im.act.Act;
+import org.openvpms.component.business.service.AbstractArchetypeServiceTest;
+import org.openvpms.component.business.service.archetype.helper.ActBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests saving collections when the {@link IMObjectDAOHibernate#setFlushInterval(int) flush interval} is set.
+ *
+ * @author Tim Anderson
+ */
+@ContextConfiguration("archetype-service-appcontext.xml")
+public class ArchetypeServiceBulkSaveTestCase extends AbstractArchetypeServiceTest {
+
+    /**
+     * The DAO.
+     */
+    @Autowired
+    private IMObjectDAOHibernate dao;
+
+    /**
+     * The flush interval prior to the test.
+     */
+    private int interval;
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp() {
+        interval = dao.getFlushInterval();
+        dao.setFlushInterval(5);
+    }
+
+    /**
+     * Cleans up after the test.
+     */
+    @After
+    public void tearDown() {
+        dao.setFlushInterval(interval);
+    }
+
+    /**
+     * Verifies that a collection larger than the flush interval is saved, when there are no references between
+     * objects.
+     */
+    @Test
+    public void testSaveIndependentObjects() {
+        List<Act> acts = new ArrayList<>();
+        for (int i = 0; i < 23; ++i) {
+            acts.add(createAct("act" + i));
+        }
+        save(acts);
+        for (Act act : acts) {
+            assertFalse(act.isNew());
+            assertNotNull(get(act.getObjectReference()));
+        }
+    }
+
+    /**
+     * Verifies that a collection larger than the flush interval is saved, when objects refer to objects in
+     * subsequent batches.
+     */
+    @Test
+    public void testSaveForwardReferences() {
+        List<Act> acts = new ArrayList<>();
+        for (int i = 0; i < 23; ++i) {
+            acts.add(createAct("act" + i));
+        }
+        for (int i = 0; i < acts.size() - 1; ++i) {
+            ActBean bean = new ActBean(acts.get(i));
+            bean.addRelationship("actRelationship.simple", acts.get(i + 1));
+        }
+        save(acts);
+
+        for (int i = 0; i < acts.size(); ++i) {
+            Act act = get(acts.get(i));
+            assertNotNull(act);
+            int expected = (i == 0 || i == acts.size() - 1) ? 1 : 2;
+            assertEquals(expected, act.getActRelationships().size());
+        }
+    }
+
+    /**
+     * Creates a new <em>act.simple</em>.
+     *
+     * @param name the act name
+     * @return a new act
+     */
+    private Act createAct(String name) {
+        Act act = (Act) create("act.simple");
+        act.setName(name);
+        act.setStatus("IN_PROGRESS");
+        act.setActivityStartTime(new Date());
+        return act;
+    }
+}
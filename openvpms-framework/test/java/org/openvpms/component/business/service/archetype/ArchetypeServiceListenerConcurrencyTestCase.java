@@ -0,0 +1,192 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.service.archetype;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openvpms.component.business.dao.im.common.IMObjectDAO;
+import org.openvpms.component.business.domain.archetype.ArchetypeId;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.domain.im.party.Party;
+import org.openvpms.component.business.service.archetype.descriptor.cache.ArchetypeDescriptorCacheFS;
+import org.openvpms.component.business.service.archetype.descriptor.cache.IArchetypeDescriptorCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifies that {@link IArchetypeServiceListener} notification doesn't serialise concurrent saves.
+ *
+ * @author Tim Anderson
+ */
+public class ArchetypeServiceListenerConcurrencyTestCase {
+
+    /**
+     * The archetype service.
+     */
+    private ArchetypeService service;
+
+    /**
+     * The no. of saves each thread performs.
+     */
+    private static final int SAVES_PER_THREAD = 50;
+
+    /**
+     * The no. of threads saving concurrently.
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * The time to wait for all threads to be in a listener at once, in seconds.
+     */
+    private static final long TIMEOUT = 10;
+
+    /**
+     * The customer archetype.
+     */
+    private static final ArchetypeId CUSTOMER = new ArchetypeId("party.customerperson.1.0");
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp() {
+        IArchetypeDescriptorCache cache = new ArchetypeDescriptorCacheFS(
+                "org/openvpms/archetype", new String[]{"adl"}, "org/openvpms/archetype/assertionTypes.xml");
+        service = new ArchetypeService(cache);
+        service.setDao(mock(IMObjectDAO.class));
+    }
+
+    /**
+     * Verifies that listeners for concurrent saves are notified concurrently.
+     * <p/>
+     * Each listener callback waits until a callback is in progress on every thread. If notification were
+     * serialised, only one thread could be in a callback at a time, and the wait would time out.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testListenersNotifiedConcurrently() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        service.addListener("party.customer*", new AbstractArchetypeServiceListener() {
+            @Override
+            public void saved(IMObject object) {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    barrier.await(TIMEOUT, TimeUnit.SECONDS);
+                    saved.incrementAndGet();
+                } catch (Exception exception) {
+                    failed.incrementAndGet();
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; ++i) {
+            tasks.add(() -> {
+                for (int j = 0; j < SAVES_PER_THREAD; ++j) {
+                    service.save(createCustomer(), false);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, failed.get());
+        assertEquals(THREADS, maxActive.get());
+        assertEquals(THREADS * SAVES_PER_THREAD, saved.get());
+    }
+
+    /**
+     * Verifies that listeners can be added and removed while saves are in progress, and that a listener registered
+     * for the duration receives every event.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testAddRemoveListenersDuringSave() throws Exception {
+        AtomicInteger saved = new AtomicInteger();
+        service.addListener("party.customerperson", new AbstractArchetypeServiceListener() {
+            @Override
+            public void saved(IMObject object) {
+                saved.incrementAndGet();
+            }
+        });
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            Future<?> changer = executor.submit(() -> {
+                IArchetypeServiceListener listener = new AbstractArchetypeServiceListener() {
+                };
+                while (!done.get()) {
+                    service.addListener("party.customer*", listener);
+                    service.removeListener("party.customer*", listener);
+                }
+            });
+            List<Future<?>> savers = new ArrayList<>();
+            for (int i = 0; i < 4; ++i) {
+                savers.add(executor.submit(() -> {
+                    for (int j = 0; j < SAVES_PER_THREAD * 10; ++j) {
+                        service.save(createCustomer(), false);
+                    }
+                }));
+            }
+            for (Future<?> future : savers) {
+                future.get();
+            }
+            done.set(true);
+            changer.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4 * SAVES_PER_THREAD * 10, saved.get());
+    }
+
+    /**
+     * Creates a customer.
+     *
+     * @return a new customer
+     */
+    private Party createCustomer() {
+        Party party = new Party();
+        party.setArchetypeId(CUSTOMER);
+        return party;
+    }
+}
@@ -31,10 +31,16 @@ import org.openvpms.component.business.service.AbstractArchetypeServiceTest;
 import org.openvpms.component.business.service.lookup.LookupServiceHelper;
 import org.openvpms.component.model.bean.IMObjectBean;
 import org.openvpms.component.model.lookup.Lookup;
+import org.openvpms.component.model.object.Reference;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -275,6 +281,37 @@ public class ArchetypeServiceTestCase extends AbstractArchetypeServiceTest {
         assertNull(object);
     }
 
+    /**
+     * Tests the {@link IArchetypeService#get(Collection)} method.
+     */
+    @Test
+    public void testGetReferences() {
+        Lookup lookup1 = createStaffLookup();
+        Lookup lookup2 = createStaffLookup();
+        Lookup lookup3 = createStaffLookup();
+        Lookup unsaved = (Lookup) create("lookup.staff");
+
+        // references with the id of a saved lookup but a different archetype, and for objects that don't exist
+        IMObjectReference country = new IMObjectReference(new ArchetypeId("lookup.country"), lookup1.getId());
+        IMObjectReference missing = new IMObjectReference(new ArchetypeId("lookup.staff"), Long.MAX_VALUE);
+
+        List<Reference> references = Arrays.asList(lookup3.getObjectReference(), country, lookup1.getObjectReference(),
+                                                   missing, unsaved.getObjectReference(), lookup2.getObjectReference(),
+                                                   lookup3.getObjectReference());
+        Map<Reference, IMObject> objects = getArchetypeService().get(references);
+
+        // verify the objects are returned in the order that the references were supplied, excluding those that
+        // don't exist
+        List<Reference> expected = Arrays.asList(lookup3.getObjectReference(), lookup1.getObjectReference(),
+                                                 lookup2.getObjectReference());
+        assertEquals(expected, new ArrayList<>(objects.keySet()));
+        assertEquals(lookup1, objects.get(lookup1.getObjectReference()));
+        assertEquals(lookup2, objects.get(lookup2.getObjectReference()));
+        assertEquals(lookup3, objects.get(lookup3.getObjectReference()));
+
+        assertTrue(getArchetypeService().get(Collections.emptyList()).isEmpty());
+    }
+
     /**
      * Verifies that the {@link IMObjectBean} returned by
      * {@link ArchetypeService#getBean(org.openvpms.component.model.object.IMObject)}
@@ -298,6 +335,20 @@ public class ArchetypeServiceTestCase extends AbstractArchetypeServiceTest {
         }
     }
 
+    /**
+     * Creates and saves a new <em>lookup.staff</em>.
+     *
+     * @return a new lookup
+     */
+    private Lookup createStaffLookup() {
+        Lookup lookup = (Lookup) create("lookup.staff");
+        lookup.setCode("CODE" + System.nanoTime());
+        lookup.setName(lookup.getCode());
+        lookup.setDescription(lookup.getCode());
+        save(lookup);
+        return lookup;
+    }
+
     /**
      * This will create an entity identtiy with the specified identity
      *
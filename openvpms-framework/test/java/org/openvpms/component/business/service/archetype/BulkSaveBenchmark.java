@@ -0,0 +1,101 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.service.archetype;
+
+import org.openvpms.component.business.dao.hibernate.im.IMObjectDAOHibernate;
+import org.openvpms.component.business.domain.im.act.Act;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Measures the throughput of {@link IArchetypeService#save(java.util.Collection)} for large collections of acts,
+ * with and without a {@link IMObjectDAOHibernate#setFlushInterval(int) flush interval}.
+ * <p/>
+ * This requires the test database. Usage:
+ * <pre>
+ *   BulkSaveBenchmark [count] [flushInterval]
+ * </pre>
+ * where {@code count} defaults to 100000 and {@code flushInterval} to 300.
+ *
+ * @author Tim Anderson
+ */
+public class BulkSaveBenchmark {
+
+    /**
+     * Main line.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int interval = (args.length > 1) ? Integer.parseInt(args[1]) : 300;
+        ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(
+                "org/openvpms/component/business/service/archetype/archetype-service-appcontext.xml");
+        try {
+            IArchetypeService service = context.getBean("archetypeService", IArchetypeService.class);
+            IMObjectDAOHibernate dao = context.getBean(IMObjectDAOHibernate.class);
+
+            // warm up
+            dao.setFlushInterval(0);
+            save(service, 1000);
+
+            dao.setFlushInterval(0);
+            report("no flush interval", count, save(service, count));
+            dao.setFlushInterval(interval);
+            report("flush interval=" + interval, count, save(service, count));
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Saves acts in a single call.
+     *
+     * @param service the archetype service
+     * @param count   the number of acts to save
+     * @return the elapsed time, in milliseconds
+     */
+    private static long save(IArchetypeService service, int count) {
+        List<Act> acts = new ArrayList<>(count);
+        Date now = new Date();
+        for (int i = 0; i < count; ++i) {
+            Act act = (Act) service.create("act.simple");
+            act.setName("act" + i);
+            act.setStatus("IN_PROGRESS");
+            act.setActivityStartTime(now);
+            acts.add(act);
+        }
+        long start = System.currentTimeMillis();
+        service.save(acts);
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Reports the throughput.
+     *
+     * @param name    the run name
+     * @param count   the number of objects saved
+     * @param elapsed the elapsed time, in milliseconds
+     */
+    private static void report(String name, int count, long elapsed) {
+        double rate = (elapsed > 0) ? count * 1000.0 / elapsed : count;
+        System.out.printf("%s: saved %d acts in %dms (%.1f objects/sec)\n", name, count, elapsed, rate);
+    }
+}
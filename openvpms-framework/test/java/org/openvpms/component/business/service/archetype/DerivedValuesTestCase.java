@@ -0,0 +1,200 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.archetype;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor;
+import org.openvpms.component.business.domain.im.archetype.descriptor.NodeDescriptor;
+import org.openvpms.component.business.domain.im.party.Party;
+import org.openvpms.component.business.service.archetype.descriptor.cache.ArchetypeDescriptorCacheFS;
+import org.openvpms.component.business.service.archetype.descriptor.cache.IArchetypeDescriptorCache;
+import org.openvpms.component.system.common.jxpath.JXPathHelper;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link DerivedValues} class.
+ *
+ * @author Tim Anderson
+ */
+public class DerivedValuesTestCase {
+
+    /**
+     * The archetype service.
+     */
+    private ArchetypeService service;
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp() {
+        IArchetypeDescriptorCache cache = new ArchetypeDescriptorCacheFS(
+                "org/openvpms/archetype", new String[]{"adl"}, "org/openvpms/archetype/assertionTypes.xml");
+        service = new ArchetypeService(cache);
+    }
+
+    /**
+     * Verifies that literals, simple paths and concatenations of these are compiled, and that expressions that
+     * reference the context node are neither compiled nor tracked.
+     */
+    @Test
+    public void testCompile() {
+        DerivedValues person = DerivedValues.create(service.getArchetypeDescriptor("party.person"));
+        assertNotNull(person);
+        assertTrue(person.isCompiled("name"));
+        assertTrue(person.isTracked("name"));
+        assertTrue(person.isCompiled("description"));
+
+        DerivedValues customer = DerivedValues.create(service.getArchetypeDescriptor("party.customerperson"));
+        assertNotNull(customer);
+        assertTrue(customer.isCompiled("name"));
+        assertFalse(customer.isCompiled("description"));
+        assertFalse(customer.isTracked("description"));
+
+        DerivedValues link = DerivedValues.create(service.getArchetypeDescriptor("entityLink.customerLocation"));
+        assertNotNull(link);
+        assertTrue(link.isCompiled("name"));
+        assertTrue(link.isCompiled("description"));
+
+        assertNull(DerivedValues.create(service.getArchetypeDescriptor("act.simple")));
+    }
+
+    /**
+     * Verifies that compiled expressions produce the same values as JXPath.
+     */
+    @Test
+    public void testCompiledMatchesJXPath() {
+        Party person = (Party) service.create("party.person");
+        person.getDetails().put("firstName", "Jo");
+        person.getDetails().put("lastName", "Smith");
+        service.deriveValues(person);
+        assertEquals("Smith,Jo", person.getName());
+        checkJXPath(person);
+
+        person.getDetails().put("initials", "K");
+        service.deriveValues(person);
+        checkJXPath(person);
+    }
+
+    /**
+     * Verifies that values are only re-derived when their inputs change, or the derived value has been changed
+     * directly.
+     */
+    @Test
+    public void testIncremental() {
+        Party person = (Party) service.create("party.person");
+        person.getDetails().put("firstName", "Jo");
+        person.getDetails().put("lastName", "Smith");
+        service.deriveValues(person);
+        assertEquals("Smith,Jo", person.getName());
+
+        // deriving again with the same inputs shouldn't change the object
+        person.setDirty(false);
+        service.deriveValues(person);
+        assertFalse(person.isDirty());
+
+        // changing an input should re-derive the value
+        person.getDetails().put("firstName", "Jane");
+        service.deriveValues(person);
+        assertEquals("Smith,Jane", person.getName());
+
+        // changing the derived value directly should re-derive it
+        person.setName("foo");
+        service.deriveValues(person);
+        assertEquals("Smith,Jane", person.getName());
+
+        // validation also derives values
+        person.getDetails().put("lastName", "Jones");
+        service.validate(person);
+        assertEquals("Jones,Jane", person.getName());
+    }
+
+    /**
+     * Verifies that derived nodes that read other derived nodes are evaluated after them, regardless of the order
+     * they are declared in.
+     */
+    @Test
+    public void testDependencyOrder() {
+        ArchetypeDescriptor archetype = new ArchetypeDescriptor();
+        archetype.setName("party.derivedOrder.1.0");
+        archetype.setClassName(Party.class.getName());
+        archetype.addNodeDescriptor(createNode("description", "/description", "concat('Person: ', /name)"));
+        archetype.addNodeDescriptor(createNode("name", "/name", "concat(/details/lastName, ',', /details/firstName)"));
+
+        DerivedValues values = DerivedValues.create(archetype);
+        assertNotNull(values);
+        List<NodeDescriptor> nodes = values.getNodes();
+        assertEquals(2, nodes.size());
+        assertEquals("name", nodes.get(0).getName());
+        assertEquals("description", nodes.get(1).getName());
+
+        Party party = new Party();
+        party.getDetails().put("firstName", "Jo");
+        party.getDetails().put("lastName", "Smith");
+        values.derive(party);
+        assertEquals("Smith,Jo", party.getName());
+        assertEquals("Person: Smith,Jo", party.getDescription());
+
+        // changing an input should update both nodes
+        party.getDetails().put("lastName", "Jones");
+        values.derive(party);
+        assertEquals("Jones,Jo", party.getName());
+        assertEquals("Person: Jones,Jo", party.getDescription());
+    }
+
+    /**
+     * Verifies that each derived node of an object has the value that JXPath would derive.
+     *
+     * @param object the object
+     */
+    private void checkJXPath(Party object) {
+        ArchetypeDescriptor archetype = service.getArchetypeDescriptor(object.getArchetype());
+        for (NodeDescriptor node : archetype.getAllNodeDescriptors()) {
+            if (node.isDerived()) {
+                Object expected = JXPathHelper.getValue(JXPathHelper.newContext(object), node.getDerivedValue());
+                assertEquals(expected, node.getAccessor().getValue(object));
+            }
+        }
+    }
+
+    /**
+     * Creates a derived node.
+     *
+     * @param name         the node name
+     * @param path         the node path
+     * @param derivedValue the derived value expression
+     * @return a new node
+     */
+    private NodeDescriptor createNode(String name, String path, String derivedValue) {
+        NodeDescriptor node = new NodeDescriptor();
+        node.setName(name);
+        node.setPath(path);
+        node.setType(String.class.getName());
+        node.setDerived(true);
+        node.setDerivedValue(derivedValue);
+        return node;
+    }
+}
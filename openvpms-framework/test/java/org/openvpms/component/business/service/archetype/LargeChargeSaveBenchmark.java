@@ -0,0 +1,171 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.archetype;
+
+import org.openvpms.component.business.domain.im.act.Act;
+import org.openvpms.component.business.domain.im.act.ActRelationship;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.domain.im.common.Participation;
+import org.openvpms.component.business.domain.im.party.Party;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Measures the latency of re-saving a large charge-like act graph where only one item has changed, with and
+ * without {@link IMObject#isDirty() dirty tracking}.
+ * <p/>
+ * The graph consists of a parent act with {@code count} child acts, linked by parent/child relationships. The parent
+ * and each child has a participation. Each iteration changes one child, and saves the parent and all children, as
+ * the charge editors do.
+ * <p/>
+ * The untracked run flags every relationship and participation as dirty prior to each save, to give the latency when
+ * every object is re-assembled.
+ * <p/>
+ * This requires the test database. Usage:
+ * <pre>
+ *   LargeChargeSaveBenchmark [count] [iterations]
+ * </pre>
+ * where {@code count} defaults to 500 and {@code iterations} to 20.
+ *
+ * @author Tim Anderson
+ */
+public class LargeChargeSaveBenchmark {
+
+    /**
+     * Main line.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+        ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(
+                "org/openvpms/component/business/service/archetype/archetype-service-appcontext.xml");
+        try {
+            IArchetypeService service = context.getBean("archetypeService", IArchetypeService.class);
+            Party person = (Party) service.create("party.person");
+            person.getDetails().put("lastName", "Bar");
+            person.getDetails().put("firstName", "Foo");
+            person.getDetails().put("title", "MR");
+            service.save(person);
+
+            List<Act> charge = createCharge(service, person, count);
+            service.save(charge);
+
+            // warm up
+            save(service, charge, iterations, false);
+
+            report("untracked", count, iterations, save(service, charge, iterations, true));
+            report("tracked", count, iterations, save(service, charge, iterations, false));
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Creates a charge.
+     *
+     * @param service the archetype service
+     * @param person  the participant
+     * @param count   the number of items
+     * @return the parent act, followed by its items
+     */
+    private static List<Act> createCharge(IArchetypeService service, Party person, int count) {
+        List<Act> result = new ArrayList<>();
+        Act parent = createAct(service, person, "charge");
+        result.add(parent);
+        for (int i = 0; i < count; ++i) {
+            Act item = createAct(service, person, "item" + i);
+            ActRelationship relationship = (ActRelationship) service.create("actRelationship.simple");
+            relationship.setSource(parent.getObjectReference());
+            relationship.setTarget(item.getObjectReference());
+            relationship.setParentChildRelationship(true);
+            parent.addActRelationship(relationship);
+            item.addActRelationship(relationship);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * Creates an act with a participation.
+     *
+     * @param service the archetype service
+     * @param person  the participant
+     * @param name    the act name
+     * @return a new act
+     */
+    private static Act createAct(IArchetypeService service, Party person, String name) {
+        Act act = (Act) service.create("act.simple");
+        act.setName(name);
+        act.setStatus("IN_PROGRESS");
+        act.setActivityStartTime(new Date());
+        Participation participation = (Participation) service.create("participation.simple");
+        participation.setEntity(person.getObjectReference());
+        participation.setAct(act.getObjectReference());
+        act.addParticipation(participation);
+        return act;
+    }
+
+    /**
+     * Repeatedly changes an item and saves the charge.
+     *
+     * @param service    the archetype service
+     * @param charge     the charge
+     * @param iterations the number of iterations
+     * @param untracked  if {@code true}, flag all relationships and participations as dirty prior to each save
+     * @return the elapsed time, in milliseconds
+     */
+    private static long save(IArchetypeService service, List<Act> charge, int iterations, boolean untracked) {
+        long elapsed = 0;
+        for (int i = 0; i < iterations; ++i) {
+            Act item = charge.get(1 + i % (charge.size() - 1));
+            item.setDescription("iteration " + i);
+            if (untracked) {
+                for (Act act : charge) {
+                    for (org.openvpms.component.model.act.ActRelationship relationship : act.getActRelationships()) {
+                        ((IMObject) relationship).setDirty(true);
+                    }
+                    for (org.openvpms.component.model.act.Participation participation : act.getParticipations()) {
+                        ((IMObject) participation).setDirty(true);
+                    }
+                }
+            }
+            long start = System.currentTimeMillis();
+            service.save(charge);
+            elapsed += System.currentTimeMillis() - start;
+        }
+        return elapsed;
+    }
+
+    /**
+     * Reports the latency.
+     *
+     * @param name       the run name
+     * @param count      the number of items
+     * @param iterations the number of iterations
+     * @param elapsed    the elapsed time, in milliseconds
+     */
+    private static void report(String name, int count, int iterations, long elapsed) {
+        System.out.printf("%s: saved a charge with %d items %d times in %dms (%.1fms/save)\n", name, count,
+                          iterations, elapsed, (double) elapsed / iterations);
+    }
+}
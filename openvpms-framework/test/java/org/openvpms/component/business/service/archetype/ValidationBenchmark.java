@@ -0,0 +1,132 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.archetype;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openvpms.component.business.service.archetype.descriptor.cache.ArchetypeDescriptorCacheFS;
+import org.openvpms.component.business.service.archetype.descriptor.cache.IArchetypeDescriptorCache;
+import org.openvpms.component.business.service.archetype.helper.IMObjectBean;
+import org.openvpms.component.model.object.IMObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of validating objects individually via {@link ArchetypeService#validate(IMObject)}, and in a
+ * single pass via {@link ArchetypeService#validate(java.util.Collection)}, as performed by bulk saves.
+ * <p/>
+ * This is not a test case. Run it via {@link #main(String[])} with the test classpath.
+ *
+ * @author Tim Anderson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    /**
+     * The number of objects to validate.
+     */
+    @Param({"100", "1000"})
+    public int count;
+
+    /**
+     * The archetype service.
+     */
+    private ArchetypeService service;
+
+    /**
+     * The objects to validate.
+     */
+    private List<IMObject> objects;
+
+    /**
+     * Sets up the benchmark.
+     */
+    @Setup
+    public void setUp() {
+        IArchetypeDescriptorCache cache = new ArchetypeDescriptorCacheFS(
+                "org/openvpms/archetype", new String[]{"adl"}, "org/openvpms/archetype/assertionTypes.xml");
+        service = new ArchetypeService(cache);
+        objects = new ArrayList<>();
+        Date now = new Date();
+        for (int i = 0; i < count; ++i) {
+            IMObjectBean act = new IMObjectBean(service.create("act.simple"), service);
+            act.setValue("name", "act" + i);
+            act.setValue("status", "IN_PROGRESS");
+            act.setValue("startTime", now);
+            objects.add(act.getObject());
+
+            IMObjectBean party = new IMObjectBean(service.create("party.customerperson"), service);
+            party.setValue("firstName", "J" + i);
+            party.setValue("lastName", "Smith");
+            objects.add(party.getObject());
+        }
+    }
+
+    /**
+     * Validates each object individually.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void validateEach(Blackhole blackhole) {
+        for (IMObject object : objects) {
+            blackhole.consume(service.validate(object));
+        }
+    }
+
+    /**
+     * Validates the objects in a single call.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void validateBatch(Blackhole blackhole) {
+        blackhole.consume(service.validate(objects));
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the command line arguments
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ValidationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -27,9 +27,12 @@ import org.openvpms.component.business.domain.im.party.Party;
 import org.openvpms.component.business.service.archetype.descriptor.cache.ArchetypeDescriptorCacheFS;
 import org.openvpms.component.business.service.archetype.descriptor.cache.IArchetypeDescriptorCache;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -427,6 +430,20 @@ public class ValidationErrorTestCase {
         }
     }
 
+    /**
+     * Verifies that control characters are permitted in strings containing line terminators, for compatibility with
+     * the regular expression previously used to detect them.
+     */
+    @Test
+    public void testControlCharsWithLineTerminators() {
+        assertTrue(IMObjectValidator.hasControlChars("abc\u0001def"));
+        assertTrue(IMObjectValidator.hasControlChars("abc\tdef\u007F"));
+        assertFalse(IMObjectValidator.hasControlChars("abc\tdef"));
+        assertFalse(IMObjectValidator.hasControlChars("abc\ndef\u0001"));
+        assertFalse(IMObjectValidator.hasControlChars("abc\u0001\r\ndef"));
+        assertFalse(IMObjectValidator.hasControlChars("abc\u2028\u0001"));
+    }
+
     /**
      * Verifies that validation fails if an archetype doesn't exist
      */
@@ -446,6 +463,58 @@ public class ValidationErrorTestCase {
         }
     }
 
+    /**
+     * Verifies that a collection of objects can be validated in a single call, and that the errors are reported
+     * against the invalid objects.
+     */
+    @Test
+    public void testValidateCollection() {
+        Party valid1 = createPerson("MR", "Jim", "Alateras");
+        Party invalid1 = (Party) service.create("party.person");    // no last name
+        Party valid2 = createPerson("MS", "Jane", "Smith");
+        Party invalid2 = createPerson("Mister", "Joe", "Bloggs");    // invalid title
+        Entity noArchetype = new Entity();
+        noArchetype.setArchetypeId(new ArchetypeId("entity.invalidArchetype"));
+
+        assertTrue(service.validate(Arrays.asList(valid1, valid2)).isEmpty());
+
+        List<org.openvpms.component.service.archetype.ValidationError> errors
+                = service.validate(Arrays.asList(valid1, invalid1, valid2, invalid2, noArchetype));
+        assertEquals(3, errors.size());
+        assertEquals(invalid1.getObjectReference(), errors.get(0).getReference());
+        assertEquals("lastName", errors.get(0).getNode());
+        assertEquals(invalid2.getObjectReference(), errors.get(1).getReference());
+        assertEquals("title", errors.get(1).getNode());
+        assertEquals("entity.invalidArchetype", errors.get(2).getArchetype());
+        assertNull(errors.get(2).getNode());
+    }
+
+    /**
+     * Verifies that validating a collection of objects gives the same results as validating each object
+     * individually, including parent-child collections.
+     */
+    @Test
+    public void testValidateCollectionMatchesValidate() {
+        Party pet = (Party) service.create("party.animalpet");
+        pet.setName("abc\u0001def");
+        pet.getDetails().put("sex", "MALE");
+        pet.getDetails().put("dateOfBirth", new Date());
+        Party person = createPerson("MR", "Jim", "Alateras");
+        person.addIdentity(createEntityIdentity("entityIdentity.personAlias", "jimmy"));
+
+        List<org.openvpms.component.service.archetype.ValidationError> petErrors = service.validate(pet);
+        assertEquals(2, petErrors.size());   // invalid characters, and no identities
+        assertTrue(service.validate(person).isEmpty());
+
+        List<org.openvpms.component.service.archetype.ValidationError> errors
+                = service.validate(Arrays.asList(pet, person));
+        assertEquals(petErrors.size(), errors.size());
+        for (int i = 0; i < errors.size(); ++i) {
+            assertEquals(petErrors.get(i).getNode(), errors.get(i).getNode());
+            assertEquals(petErrors.get(i).getMessage(), errors.get(i).getMessage());
+        }
+    }
+
     /**
      * Sets up the test case.
      */
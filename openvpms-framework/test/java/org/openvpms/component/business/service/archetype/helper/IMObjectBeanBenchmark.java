@@ -0,0 +1,241 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.business.service.archetype.helper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.service.archetype.ArchetypeService;
+import org.openvpms.component.business.service.archetype.descriptor.cache.ArchetypeDescriptorCacheFS;
+import org.openvpms.component.business.service.archetype.descriptor.cache.IArchetypeDescriptorCache;
+import org.openvpms.component.system.common.jxpath.JXPathHelper;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link IMObjectBean#getValue(String)}, which uses compiled node accessors, with the per-call JXPath
+ * evaluation that it replaced.
+ * <p/>
+ * This is not a test case. Run it via {@link #main(String[])} with the test classpath.
+ *
+ * @author Tim Anderson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IMObjectBeanBenchmark {
+
+    /**
+     * The act.
+     */
+    private IMObjectBean act;
+
+    /**
+     * The party.
+     */
+    private IMObjectBean party;
+
+    /**
+     * The product.
+     */
+    private IMObjectBean product;
+
+    /**
+     * The act node paths.
+     */
+    private String[] actPaths;
+
+    /**
+     * The party node paths.
+     */
+    private String[] partyPaths;
+
+    /**
+     * The product node paths.
+     */
+    private String[] productPaths;
+
+    /**
+     * The act nodes.
+     */
+    private static final String[] ACT_NODES = {"name", "status", "startTime", "participations"};
+
+    /**
+     * The party nodes.
+     */
+    private static final String[] PARTY_NODES = {"name", "firstName", "lastName", "active", "contacts"};
+
+    /**
+     * The product nodes.
+     */
+    private static final String[] PRODUCT_NODES = {"name", "active", "productPrices"};
+
+    /**
+     * Sets up the benchmark.
+     */
+    @Setup
+    public void setUp() {
+        IArchetypeDescriptorCache cache = new ArchetypeDescriptorCacheFS(
+                "org/openvpms/archetype", new String[]{"adl"}, "org/openvpms/archetype/assertionTypes.xml");
+        ArchetypeService service = new ArchetypeService(cache);
+
+        act = new IMObjectBean(service.create("act.simple"), service);
+        act.setValue("name", "act");
+        act.setValue("status", "IN_PROGRESS");
+        act.setValue("startTime", new Date());
+
+        party = new IMObjectBean(service.create("party.customerperson"), service);
+        party.setValue("firstName", "J");
+        party.setValue("lastName", "Smith");
+
+        product = new IMObjectBean(service.create("product.product"), service);
+        product.setValue("name", "product");
+
+        actPaths = getPaths(act, ACT_NODES);
+        partyPaths = getPaths(party, PARTY_NODES);
+        productPaths = getPaths(product, PRODUCT_NODES);
+    }
+
+    /**
+     * Reads act nodes via the bean.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void actBean(Blackhole blackhole) {
+        getValues(act, ACT_NODES, blackhole);
+    }
+
+    /**
+     * Reads act nodes via JXPath.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void actJXPath(Blackhole blackhole) {
+        getValues(act.getObject(), actPaths, blackhole);
+    }
+
+    /**
+     * Reads party nodes via the bean.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void partyBean(Blackhole blackhole) {
+        getValues(party, PARTY_NODES, blackhole);
+    }
+
+    /**
+     * Reads party nodes via JXPath.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void partyJXPath(Blackhole blackhole) {
+        getValues(party.getObject(), partyPaths, blackhole);
+    }
+
+    /**
+     * Reads product nodes via the bean.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void productBean(Blackhole blackhole) {
+        getValues(product, PRODUCT_NODES, blackhole);
+    }
+
+    /**
+     * Reads product nodes via JXPath.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void productJXPath(Blackhole blackhole) {
+        getValues(product.getObject(), productPaths, blackhole);
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the command line arguments
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IMObjectBeanBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Reads node values via a bean.
+     *
+     * @param bean      the bean
+     * @param nodes     the node names
+     * @param blackhole the blackhole
+     */
+    private void getValues(IMObjectBean bean, String[] nodes, Blackhole blackhole) {
+        for (String node : nodes) {
+            blackhole.consume(bean.getValue(node));
+        }
+    }
+
+    /**
+     * Reads node values via JXPath, as {@code NodeDescriptor} did prior to the introduction of node accessors.
+     *
+     * @param object    the object
+     * @param paths     the node paths
+     * @param blackhole the blackhole
+     */
+    private void getValues(IMObject object, String[] paths, Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(JXPathHelper.newContext(object).getValue(path));
+        }
+    }
+
+    /**
+     * Returns the paths for a set of nodes.
+     *
+     * @param bean  the bean
+     * @param nodes the node names
+     * @return the corresponding paths
+     */
+    private String[] getPaths(IMObjectBean bean, String[] nodes) {
+        ArchetypeDescriptor archetype = bean.getArchetype();
+        String[] result = new String[nodes.length];
+        for (int i = 0; i < nodes.length; ++i) {
+            result[i] = archetype.getNodeDescriptor(nodes[i]).getPath();
+        }
+        return result;
+    }
+}
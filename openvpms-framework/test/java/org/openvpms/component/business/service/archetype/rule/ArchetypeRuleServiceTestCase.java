@@ -24,6 +24,9 @@ import org.openvpms.component.business.domain.im.common.IMObject;
 import org.openvpms.component.business.domain.im.party.Contact;
 import org.openvpms.component.business.domain.im.party.Party;
 import org.openvpms.component.model.act.ActRelationship;
+import org.openvpms.component.business.service.metrics.MetricsRegistry;
+import org.openvpms.component.business.service.ruleengine.IRuleEngine;
+import org.openvpms.component.business.service.ruleengine.RuleSetUriHelper;
 import org.openvpms.component.model.object.Reference;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -65,6 +68,17 @@ public class ArchetypeRuleServiceTestCase extends AbstractJUnit4SpringContextTes
     @Autowired
     private PlatformTransactionManager txnManager;
 
+    /**
+     * The rule engine.
+     */
+    @Autowired
+    private IRuleEngine ruleEngine;
+
+    /**
+     * The metrics registry.
+     */
+    @Autowired
+    private MetricsRegistry metrics;
 
     /**
      * Verifies that rule engine is called when an object is being saved.
@@ -181,6 +195,37 @@ public class ArchetypeRuleServiceTestCase extends AbstractJUnit4SpringContextTes
         checkException(act, "EXCEPTION_AFTER");
     }
 
+    /**
+     * Verifies that rule executions and failures are recorded for each rule set, and that the rule engine reports
+     * the registered rule sets.
+     */
+    @Test
+    public void testStatistics() {
+        String before = RuleSetUriHelper.getRuleSetURI("archetypeService", "save", true, "party.person");
+        String after = RuleSetUriHelper.getRuleSetURI("archetypeService", "save", false, "party.person");
+        assertTrue(ruleEngine.getRuleSetURIs().contains(before));
+        assertTrue(ruleEngine.getRuleSetURIs().contains(after));
+
+        long beforeCount = getCount(before);
+        long afterCount = getCount(after);
+        long beforeFailed = getFailed(before);
+        for (int i = 0; i < 3; ++i) {
+            Party person = createPerson("MR", "Jim", "Alateras");
+            service.save(person);
+            checkPerson(person);
+        }
+        assertEquals(beforeCount + 3, getCount(before));
+        assertEquals(afterCount + 3, getCount(after));
+        assertEquals(beforeFailed, getFailed(before));
+
+        String actBefore = RuleSetUriHelper.getRuleSetURI("archetypeService", "save", true, "act.simple");
+        long actCount = getCount(actBefore);
+        long actFailed = getFailed(actBefore);
+        checkException((Act) service.create("act.simple"), "EXCEPTION_BEFORE");
+        assertEquals(actCount + 1, getCount(actBefore));
+        assertEquals(actFailed + 1, getFailed(actBefore));
+    }
+
     /**
      * Verifies that if a rule throws an exception, all changes are rolled
      * back.
@@ -310,6 +355,26 @@ public class ArchetypeRuleServiceTestCase extends AbstractJUnit4SpringContextTes
         }
     }
 
+    /**
+     * Returns the no. of times a rule set has been executed.
+     *
+     * @param uri the rule set URI
+     * @return the execution count
+     */
+    private long getCount(String uri) {
+        return metrics.timer("rule.execute", uri).getCount();
+    }
+
+    /**
+     * Returns the no. of times execution of a rule set has failed.
+     *
+     * @param uri the rule set URI
+     * @return the failure count
+     */
+    private long getFailed(String uri) {
+        return metrics.timer("rule.failed", uri).getCount();
+    }
+
     /**
      * Helper to retrieve an object given its reference.
      *
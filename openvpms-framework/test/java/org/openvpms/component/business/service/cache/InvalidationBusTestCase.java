@@ -0,0 +1,170 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openvpms.component.business.domain.im.common.IMObjectReference;
+import org.openvpms.component.model.object.Reference;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link LocalInvalidationBus}, using two instances to simulate two nodes.
+ *
+ * @author Tim Anderson
+ */
+public class InvalidationBusTestCase {
+
+    /**
+     * The first node.
+     */
+    private LocalInvalidationBus node1;
+
+    /**
+     * The second node.
+     */
+    private LocalInvalidationBus node2;
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp() {
+        node1 = new LocalInvalidationBus();
+        node2 = new LocalInvalidationBus();
+    }
+
+    /**
+     * Cleans up after the test.
+     */
+    @After
+    public void tearDown() {
+        node1.destroy();
+        node2.destroy();
+    }
+
+    /**
+     * Verifies that invalidations are delivered to other nodes, but not to the publishing node.
+     */
+    @Test
+    public void testDispatch() {
+        assertNotEquals(node1.getNode(), node2.getNode());
+        List<Invalidation> received1 = new ArrayList<>();
+        List<Invalidation> received2 = new ArrayList<>();
+        node1.addListener("party.customerperson", received1::add);
+        node2.addListener("party.customerperson", received2::add);
+
+        Reference reference = new IMObjectReference("party.customerperson", 10);
+        node1.publish(Invalidation.Type.SAVED, reference);
+        assertTrue(received1.isEmpty());
+        assertEquals(1, received2.size());
+        Invalidation invalidation = received2.get(0);
+        assertEquals(Invalidation.Type.SAVED, invalidation.getType());
+        assertEquals(reference, invalidation.getReference());
+        assertEquals("party.customerperson", invalidation.getArchetype());
+        assertEquals(node1.getNode(), invalidation.getNode());
+
+        node2.publish(Invalidation.Type.REMOVED, reference);
+        assertEquals(1, received1.size());
+        assertEquals(Invalidation.Type.REMOVED, received1.get(0).getType());
+        assertEquals(1, received2.size());
+    }
+
+    /**
+     * Verifies that listeners registered with wildcards receive invalidations for matching archetypes only.
+     */
+    @Test
+    public void testWildcards() {
+        List<Invalidation> received = new ArrayList<>();
+        node2.addListener("lookup.*", received::add);
+
+        node1.publish(Invalidation.Type.SAVED, new IMObjectReference("lookup.species", 1));
+        node1.publish(Invalidation.Type.SAVED, new IMObjectReference("party.patientpet", 2));
+        node1.publish(Invalidation.Type.REMOVED, new IMObjectReference("lookup.breed", 3));
+        assertEquals(2, received.size());
+        assertEquals("lookup.species", received.get(0).getArchetype());
+        assertEquals("lookup.breed", received.get(1).getArchetype());
+    }
+
+    /**
+     * Verifies that removed listeners are no longer notified.
+     */
+    @Test
+    public void testRemoveListener() {
+        List<Invalidation> received = new ArrayList<>();
+        InvalidationListener listener = received::add;
+        node2.addListener("lookup.*", listener);
+        node1.publish(Invalidation.Type.SAVED, new IMObjectReference("lookup.species", 1));
+        assertEquals(1, received.size());
+
+        node2.removeListener("lookup.*", listener);
+        node1.publish(Invalidation.Type.SAVED, new IMObjectReference("lookup.species", 1));
+        assertEquals(1, received.size());
+    }
+
+    /**
+     * Verifies that the eviction listener is notified of every invalidation, before any other listener.
+     */
+    @Test
+    public void testEvictionListener() {
+        List<String> events = new ArrayList<>();
+        node2.setEvictionListener(invalidation -> events.add("evict " + invalidation.getArchetype()));
+        node2.addListener("lookup.species", invalidation -> events.add("listener " + invalidation.getArchetype()));
+
+        node1.publish(Invalidation.Type.SAVED, new IMObjectReference("lookup.species", 1));
+        node1.publish(Invalidation.Type.SAVED, new IMObjectReference("party.patientpet", 2));
+        assertEquals(3, events.size());
+        assertEquals("evict lookup.species", events.get(0));
+        assertEquals("listener lookup.species", events.get(1));
+        assertEquals("evict party.patientpet", events.get(2));
+    }
+
+    /**
+     * Verifies that a failing listener doesn't prevent other listeners being notified.
+     */
+    @Test
+    public void testListenerFailure() {
+        List<Invalidation> received = new ArrayList<>();
+        node2.addListener("lookup.*", invalidation -> {
+            throw new IllegalStateException("test");
+        });
+        node2.addListener("lookup.*", received::add);
+        node1.publish(Invalidation.Type.SAVED, new IMObjectReference("lookup.species", 1));
+        assertEquals(1, received.size());
+    }
+
+    /**
+     * Verifies that a bus only has subscribers when there is another node.
+     */
+    @Test
+    public void testHasSubscribers() {
+        assertTrue(node1.hasSubscribers());
+        assertTrue(node2.hasSubscribers());
+
+        node2.destroy();
+        assertFalse(node1.hasSubscribers());
+    }
+}
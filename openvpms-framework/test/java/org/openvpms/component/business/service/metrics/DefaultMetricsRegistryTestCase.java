@@ -0,0 +1,137 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.metrics;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the {@link DefaultMetricsRegistry}.
+ *
+ * @author Tim Anderson
+ */
+public class DefaultMetricsRegistryTestCase {
+
+    /**
+     * Verifies that meters are created on first use and returned on subsequent lookups, ordered on name and tag.
+     */
+    @Test
+    public void testMeters() {
+        MetricsRegistry registry = new DefaultMetricsRegistry();
+        assertTrue(registry.isEnabled());
+        Histogram save = registry.timer("archetype.save", "party.customerperson");
+        assertSame(save, registry.timer("archetype.save", "party.customerperson"));
+        Histogram get = registry.timer("archetype.get", "party.customerperson");
+        HitRatio cache = registry.hitRatio("dao.objectCache", "product.medication");
+
+        List<Meter> meters = registry.getMeters();
+        assertEquals(3, meters.size());
+        assertSame(get, meters.get(0));
+        assertSame(save, meters.get(1));
+        assertSame(cache, meters.get(2));
+        assertTrue(save.isTimer());
+        assertFalse(registry.distribution("dao.query.rows", "*").isTimer());
+
+        try {
+            registry.hitRatio("archetype.save", "party.customerperson");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // no-op
+        }
+    }
+
+    /**
+     * Tests the {@link Histogram} statistics.
+     */
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram("dao.query.rows", "*", false);
+        assertEquals(0, histogram.getPercentile(0.95));
+        for (int i = 1; i <= 100; ++i) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getTotal());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0);
+
+        // percentiles are approximated by the upper bound of the power-of-two bucket, limited to the max
+        assertEquals(63, histogram.getPercentile(0.5));
+        assertEquals(100, histogram.getPercentile(0.95));
+        assertEquals(1, histogram.getPercentile(0.01));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    /**
+     * Tests the {@link HitRatio} meter.
+     */
+    @Test
+    public void testHitRatio() {
+        HitRatio ratio = new HitRatio("dao.objectCache", "product.medication");
+        assertEquals(0, ratio.getRatio(), 0);
+        ratio.hit();
+        ratio.hit();
+        ratio.hit();
+        ratio.miss();
+        assertEquals(3, ratio.getHits());
+        assertEquals(1, ratio.getMisses());
+        assertEquals(0.75, ratio.getRatio(), 0);
+    }
+
+    /**
+     * Verifies that {@link MetricsRegistry#reset()} resets all meters, but retains them.
+     */
+    @Test
+    public void testReset() {
+        MetricsRegistry registry = new DefaultMetricsRegistry();
+        registry.timer("rule.execute", "archetypeService.save.act.customerAccountPayment.before").record(1000);
+        registry.hitRatio("dao.objectCache", "product.medication").hit();
+        registry.reset();
+        assertEquals(2, registry.getMeters().size());
+        assertEquals(0, registry.timer("rule.execute", "archetypeService.save.act.customerAccountPayment.before")
+                .getCount());
+        assertEquals(0, registry.hitRatio("dao.objectCache", "product.medication").getHits());
+    }
+
+    /**
+     * Verifies that the {@link NoOpMetricsRegistry} discards metrics.
+     */
+    @Test
+    public void testNoOp() {
+        MetricsRegistry registry = NoOpMetricsRegistry.INSTANCE;
+        assertFalse(registry.isEnabled());
+        Histogram timer = registry.timer("archetype.save", "party.customerperson");
+        timer.record(1000);
+        assertEquals(0, timer.getCount());
+        HitRatio ratio = registry.hitRatio("dao.objectCache", "product.medication");
+        ratio.hit();
+        assertEquals(0, ratio.getHits());
+        assertTrue(registry.getMeters().isEmpty());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openvpms.component.business.domain.archetype.ArchetypeId;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.domain.im.security.ArchetypeAwareGrantedAuthority;
+import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the security overhead of saving a collection of 200 objects, as performed by the
+ * {@link OpenVPMSMethodSecurityInterceptor} via an {@link AffirmativeBased} decision manager.
+ * <p/>
+ * The {@code cold} benchmark discards the voter's decision tables before each save, so that every archetype is
+ * matched against the user's authorities, as was the case prior to the tables being introduced.
+ * <p/>
+ * This is not a test case. Run it via {@link #main(String[])} with the test classpath.
+ *
+ * @author Tim Anderson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchetypeAwareVoterBenchmark {
+
+    /**
+     * The voter.
+     */
+    private ArchetypeAwareVoter voter;
+
+    /**
+     * The access decision manager.
+     */
+    private AccessDecisionManager manager;
+
+    /**
+     * The authentication.
+     */
+    private Authentication authentication;
+
+    /**
+     * The save invocation.
+     */
+    private MethodInvocation invocation;
+
+    /**
+     * The config attributes for the save.
+     */
+    private Collection<ConfigAttribute> attributes;
+
+    /**
+     * The number of objects to save.
+     */
+    private static final int OBJECTS = 200;
+
+    /**
+     * The archetypes of the saved objects.
+     */
+    private static final String[] ARCHETYPES = {
+            "act.customerAccountChargesInvoice", "act.customerAccountInvoiceItem", "act.patientMedication",
+            "act.patientInvestigation", "act.patientDocumentForm", "act.patientReminder", "act.customerAlert",
+            "act.stockMovement", "party.patientpet", "party.customerperson"};
+
+    /**
+     * The archetypes that the user has been granted access to. The act.* authorities are granted last, to
+     * represent a user whose roles are checked in an unfavourable order.
+     */
+    private static final String[] GRANTED = {
+            "party.organisation*", "party.supplier*", "contact.*", "lookup.*", "entity.*", "entityLink.*",
+            "entityRelationship.*", "product.*", "productPrice.*", "security.*", "document.*", "participation.*",
+            "actRelationship.*", "party.patient*", "party.customer*", "act.customer*", "act.patient*", "act.stock*"};
+
+    /**
+     * Sets up the benchmark.
+     */
+    @Setup
+    public void setUp() {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String method : new String[]{"create", "remove", "save"}) {
+            for (String archetype : GRANTED) {
+                authorities.add(new ArchetypeAwareGrantedAuthority(
+                        "archetype:archetypeService." + method + ":" + archetype));
+            }
+        }
+        authentication = new UsernamePasswordAuthenticationToken("user", "password", authorities);
+
+        List<IMObject> objects = new ArrayList<>();
+        for (int i = 0; i < OBJECTS; ++i) {
+            objects.add(new IMObject(new ArchetypeId(ARCHETYPES[i % ARCHETYPES.length])));
+        }
+        invocation = TestMethodInvocation.save(Collections.unmodifiableList(objects));
+        attributes = SecurityConfig.createList("archetypeService.save");
+
+        voter = new ArchetypeAwareVoter();
+        List<AccessDecisionVoter<?>> voters = new ArrayList<>();
+        voters.add(voter);
+        manager = new AffirmativeBased(voters);
+    }
+
+    /**
+     * Votes on the save, using the decisions cached by earlier invocations.
+     */
+    @Benchmark
+    public void cached() {
+        manager.decide(authentication, invocation, attributes);
+    }
+
+    /**
+     * Votes on the save, with no cached decisions.
+     */
+    @Benchmark
+    public void cold() {
+        voter.invalidate();
+        manager.decide(authentication, invocation, attributes);
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the command line arguments
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ArchetypeAwareVoterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
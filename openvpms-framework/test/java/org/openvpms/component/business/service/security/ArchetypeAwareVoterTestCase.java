@@ -0,0 +1,230 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openvpms.component.business.domain.archetype.ArchetypeId;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.domain.im.security.ArchetypeAwareGrantedAuthority;
+import org.openvpms.component.business.service.cache.Invalidation;
+import org.openvpms.component.business.service.cache.LocalInvalidationBus;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.security.access.AccessDecisionVoter.ACCESS_ABSTAIN;
+import static org.springframework.security.access.AccessDecisionVoter.ACCESS_DENIED;
+import static org.springframework.security.access.AccessDecisionVoter.ACCESS_GRANTED;
+
+/**
+ * Tests the {@link ArchetypeAwareVoter}.
+ *
+ * @author Tim Anderson
+ */
+public class ArchetypeAwareVoterTestCase {
+
+    /**
+     * The voter.
+     */
+    private ArchetypeAwareVoter voter;
+
+    /**
+     * The save attributes.
+     */
+    private Collection<ConfigAttribute> save;
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp() {
+        voter = new ArchetypeAwareVoter();
+        save = SecurityConfig.createList("archetypeService.save");
+    }
+
+    /**
+     * Verifies that access is granted if the user has an authority matching each archetype, and that the decisions
+     * are the same when they are cached.
+     */
+    @Test
+    public void testVote() {
+        Authentication user = createAuthentication("user", "archetype:archetypeService.save:party.customer*",
+                                                   "archetype:archetypeService.create:act.*");
+        IMObject customer = create("party.customerperson");
+        IMObject patient = create("party.patientpet");
+        for (int i = 0; i < 2; ++i) {
+            assertEquals(ACCESS_GRANTED, voter.vote(user, TestMethodInvocation.save(customer), save));
+            assertEquals(ACCESS_DENIED, voter.vote(user, TestMethodInvocation.save(patient), save));
+            assertEquals(ACCESS_DENIED, voter.vote(user, TestMethodInvocation.save(Arrays.asList(customer, patient)),
+                                                   save));
+        }
+
+        // verify the voter abstains if the attribute isn't supported
+        assertEquals(ACCESS_ABSTAIN, voter.vote(user, TestMethodInvocation.save(customer),
+                                                SecurityConfig.createList("ROLE_USER")));
+    }
+
+    /**
+     * Verifies that the decisions for a user are discarded if they log in with different authorities.
+     */
+    @Test
+    public void testChangeAuthorities() {
+        IMObject patient = create("party.patientpet");
+        Authentication user1 = createAuthentication("user", "archetype:archetypeService.save:party.customer*");
+        assertEquals(ACCESS_DENIED, voter.vote(user1, TestMethodInvocation.save(patient), save));
+
+        Authentication user2 = createAuthentication("user", "archetype:archetypeService.save:party.*");
+        assertEquals(ACCESS_GRANTED, voter.vote(user2, TestMethodInvocation.save(patient), save));
+    }
+
+    /**
+     * Verifies that authentications with the same authorities share a decision table, regardless of user or
+     * the authorities collection instance.
+     */
+    @Test
+    public void testSameAuthoritiesShareDecisions() {
+        IMObject customer = create("party.customerperson");
+        Authentication session1 = createAuthentication("user", "archetype:archetypeService.save:party.customer*",
+                                                       "archetype:archetypeService.create:act.*");
+        Authentication session2 = createAuthentication("user", "archetype:archetypeService.create:act.*",
+                                                       "archetype:archetypeService.save:party.customer*");
+        Authentication other = createAuthentication("other", "archetype:archetypeService.save:party.customer*",
+                                                    "archetype:archetypeService.create:act.*");
+        for (int i = 0; i < 2; ++i) {
+            assertEquals(ACCESS_GRANTED, voter.vote(session1, TestMethodInvocation.save(customer), save));
+            assertEquals(ACCESS_GRANTED, voter.vote(session2, TestMethodInvocation.save(customer), save));
+            assertEquals(ACCESS_GRANTED, voter.vote(other, TestMethodInvocation.save(customer), save));
+        }
+        assertEquals(1, voter.getDecisionTables());
+
+        Authentication admin = createAuthentication("user", "archetype:archetypeService.save:*");
+        assertEquals(ACCESS_GRANTED, voter.vote(admin, TestMethodInvocation.save(customer), save));
+        assertEquals(2, voter.getDecisionTables());
+    }
+
+    /**
+     * Verifies that a change to an authority held by an authentication is reflected in subsequent decisions.
+     */
+    @Test
+    public void testAuthorityChange() {
+        IMObject patient = create("party.patientpet");
+        ArchetypeAwareGrantedAuthority authority = new ArchetypeAwareGrantedAuthority(
+                "archetype:archetypeService.save:party.customer*");
+        Authentication user = createAuthentication("user", authority);
+        Authentication unchanged = createAuthentication("other", "archetype:archetypeService.save:party.customer*");
+
+        assertEquals(ACCESS_DENIED, voter.vote(user, TestMethodInvocation.save(patient), save));
+
+        authority.setShortName("party.*");
+        assertEquals(ACCESS_GRANTED, voter.vote(user, TestMethodInvocation.save(patient), save));
+
+        // the decisions for the original authorities are unaffected
+        assertEquals(ACCESS_DENIED, voter.vote(unchanged, TestMethodInvocation.save(patient), save));
+    }
+
+    /**
+     * Verifies that saving an authority doesn't discard decisions, as they depend only on the authorities held by
+     * each authentication.
+     */
+    @Test
+    public void testSaveAuthorityDoesNotInvalidate() {
+        IMObject patient = create("party.patientpet");
+        Authentication admin = createAuthentication("admin", "archetype:archetypeService.save:*");
+        ArchetypeAwareGrantedAuthority authority = new ArchetypeAwareGrantedAuthority(
+                "archetype:archetypeService.save:party.customer*");
+        authority.setArchetypeId(new ArchetypeId("security.archetypeAuthority"));
+
+        assertEquals(ACCESS_GRANTED, voter.vote(admin, TestMethodInvocation.save(patient), save));
+        assertEquals(ACCESS_GRANTED, voter.vote(admin, TestMethodInvocation.save(authority), save));
+        assertEquals(1, voter.getDecisionTables());
+    }
+
+    /**
+     * Verifies that decisions are discarded when an authority changes on another node.
+     */
+    @Test
+    public void testInvalidationFromOtherNode() {
+        LocalInvalidationBus local = new LocalInvalidationBus();
+        LocalInvalidationBus other = new LocalInvalidationBus();
+        try {
+            voter.setInvalidationBus(local);
+            IMObject patient = create("party.patientpet");
+            ArchetypeAwareGrantedAuthority authority = new ArchetypeAwareGrantedAuthority(
+                    "archetype:archetypeService.save:party.customer*");
+            authority.setArchetypeId(new ArchetypeId("security.archetypeAuthority"));
+            Authentication user = createAuthentication("user", authority);
+            assertEquals(ACCESS_DENIED, voter.vote(user, TestMethodInvocation.save(patient), save));
+
+            assertEquals(1, voter.getDecisionTables());
+
+            other.publish(Invalidation.Type.SAVED, authority.getObjectReference());
+            assertEquals(0, voter.getDecisionTables());
+        } finally {
+            voter.destroy();
+            local.destroy();
+            other.destroy();
+        }
+    }
+
+    /**
+     * Creates an authentication.
+     *
+     * @param name        the user name
+     * @param authorities the user's authorities
+     * @return a new authentication
+     */
+    private Authentication createAuthentication(String name, String... authorities) {
+        List<GrantedAuthority> list = new ArrayList<>();
+        for (String authority : authorities) {
+            list.add(new ArchetypeAwareGrantedAuthority(authority));
+        }
+        return new UsernamePasswordAuthenticationToken(name, name, list);
+    }
+
+    /**
+     * Creates an authentication.
+     *
+     * @param name      the user name
+     * @param authority the user's authority
+     * @return a new authentication
+     */
+    private Authentication createAuthentication(String name, GrantedAuthority authority) {
+        List<GrantedAuthority> list = new ArrayList<>();
+        list.add(authority);
+        return new UsernamePasswordAuthenticationToken(name, name, list);
+    }
+
+    /**
+     * Creates an object.
+     *
+     * @param archetype the archetype
+     * @return a new object
+     */
+    private IMObject create(String archetype) {
+        return new IMObject(new ArchetypeId(archetype));
+    }
+}
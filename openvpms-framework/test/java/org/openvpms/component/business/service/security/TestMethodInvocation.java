@@ -0,0 +1,142 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.business.service.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.openvpms.component.business.service.archetype.IArchetypeService;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.util.Collection;
+
+/**
+ * A {@link MethodInvocation} of an {@link IArchetypeService} method, for voting on.
+ * <p/>
+ * The invocation cannot proceed.
+ *
+ * @author Tim Anderson
+ */
+class TestMethodInvocation implements MethodInvocation {
+
+    /**
+     * The method.
+     */
+    private final Method method;
+
+    /**
+     * The arguments.
+     */
+    private final Object[] arguments;
+
+    /**
+     * Constructs a {@link TestMethodInvocation}.
+     *
+     * @param method    the method
+     * @param arguments the arguments
+     */
+    TestMethodInvocation(Method method, Object... arguments) {
+        this.method = method;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Creates an invocation of {@link IArchetypeService#save(org.openvpms.component.model.object.IMObject)}.
+     *
+     * @param object the object to save
+     * @return a new invocation
+     */
+    static TestMethodInvocation save(org.openvpms.component.model.object.IMObject object) {
+        return create("save", org.openvpms.component.model.object.IMObject.class, object);
+    }
+
+    /**
+     * Creates an invocation of {@link IArchetypeService#save(Collection)}.
+     *
+     * @param objects the objects to save
+     * @return a new invocation
+     */
+    static TestMethodInvocation save(Collection<? extends org.openvpms.component.model.object.IMObject> objects) {
+        return create("save", Collection.class, objects);
+    }
+
+    /**
+     * Returns the method.
+     *
+     * @return the method
+     */
+    @Override
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the arguments.
+     *
+     * @return the arguments
+     */
+    @Override
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Proceeds with the invocation. This is a no-op.
+     *
+     * @return {@code null}
+     */
+    @Override
+    public Object proceed() {
+        return null;
+    }
+
+    /**
+     * Returns the object that holds the joinpoint.
+     *
+     * @return {@code null}
+     */
+    @Override
+    public Object getThis() {
+        return null;
+    }
+
+    /**
+     * Returns the static part of the joinpoint.
+     *
+     * @return the method
+     */
+    @Override
+    public AccessibleObject getStaticPart() {
+        return method;
+    }
+
+    /**
+     * Creates an invocation of a single argument {@link IArchetypeService} method.
+     *
+     * @param name     the method name
+     * @param type     the argument type
+     * @param argument the argument
+     * @return a new invocation
+     */
+    private static TestMethodInvocation create(String name, Class<?> type, Object argument) {
+        try {
+            return new TestMethodInvocation(IArchetypeService.class.getMethod(name, type), argument);
+        } catch (NoSuchMethodException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
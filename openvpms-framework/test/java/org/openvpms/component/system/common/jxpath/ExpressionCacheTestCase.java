@@ -0,0 +1,100 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.system.common.jxpath;
+
+import org.apache.commons.jxpath.CompiledExpression;
+import org.apache.commons.jxpath.JXPathContext;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link ExpressionCache}.
+ *
+ * @author Tim Anderson
+ */
+public class ExpressionCacheTestCase {
+
+    /**
+     * Verifies that expressions are compiled once, and that hits and misses are recorded.
+     */
+    @Test
+    public void testHitsAndMisses() {
+        ExpressionCache cache = new ExpressionCache(10);
+        CompiledExpression expr1 = cache.get("1 + 1");
+        CompiledExpression expr2 = cache.get("1 + 1");
+        CompiledExpression expr3 = cache.get("2 + 2");
+        assertSame(expr1, expr2);
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+
+        JXPathContext context = JXPathHelper.newContext(new Object());
+        checkEquals(new BigDecimal("2"), expr1.getValue(context));
+        checkEquals(new BigDecimal("4"), expr3.getValue(context));
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    /**
+     * Verifies that the cache doesn't exceed its maximum size.
+     */
+    @Test
+    public void testEviction() {
+        ExpressionCache cache = new ExpressionCache(5);
+        for (int i = 0; i < 20; ++i) {
+            cache.get(i + " * 2");
+        }
+        assertTrue(cache.getSize() <= 5);
+        assertEquals(15, cache.getEvictions());
+        assertEquals(20, cache.getMisses());
+    }
+
+    /**
+     * Verifies that compiled expressions use the BigDecimal operations, and resolve variables from the context they
+     * are evaluated against.
+     */
+    @Test
+    public void testEvaluate() {
+        JXPathContext context1 = JXPathHelper.newContext(new Object());
+        JXPathContext context2 = JXPathHelper.newContext(new Object());
+        context1.getVariables().declareVariable("x", new BigDecimal("0.7"));
+        context2.getVariables().declareVariable("x", new BigDecimal("0.2"));
+        checkEquals(new BigDecimal("0.8"), JXPathHelper.getValue(context1, "$x + 0.1"));
+        checkEquals(new BigDecimal("0.3"), JXPathHelper.getValue(context2, "$x + 0.1"));
+    }
+
+    /**
+     * Verifies two BigDecimals are equal.
+     *
+     * @param expected the expected value
+     * @param actual   the actual value
+     */
+    private void checkEquals(BigDecimal expected, Object actual) {
+        assertTrue(actual instanceof BigDecimal);
+        assertEquals(0, expected.compareTo((BigDecimal) actual));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.component.system.common.query;
+
+import org.junit.Test;
+import org.openvpms.component.business.dao.im.Page;
+import org.openvpms.component.business.domain.im.common.IMObject;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link IPage#getTotalResults()} and {@link IPage#hasMoreResults()} methods.
+ *
+ * @author Tim Anderson
+ */
+public class PageQueryTestCase extends AbstractQueryTest {
+
+    /**
+     * Verifies that {@link IPage#hasMoreResults()} is determined without counting results.
+     */
+    @Test
+    public void testHasMoreResults() {
+        checkPage(0, 3, false, 3, true, -1);
+        checkPage(9, 3, false, 1, false, -1);
+        checkPage(0, ACT_COUNT, false, ACT_COUNT, false, -1);
+        checkPage(ACT_COUNT, 3, false, 0, false, -1);
+        checkPage(0, IArchetypeQuery.ALL_RESULTS, false, ACT_COUNT, false, ACT_COUNT);
+    }
+
+    /**
+     * Verifies that the total no. of results is correct when counting is requested, whether or not a count query
+     * is required.
+     */
+    @Test
+    public void testTotalResults() {
+        checkPage(0, 3, true, 3, true, ACT_COUNT);
+        checkPage(3, 3, true, 3, true, ACT_COUNT);
+        checkPage(9, 3, true, 1, false, ACT_COUNT);
+        checkPage(0, ACT_COUNT, true, ACT_COUNT, false, ACT_COUNT);
+        checkPage(ACT_COUNT, 3, true, 0, false, ACT_COUNT);
+        checkPage(0, 0, true, 0, true, ACT_COUNT);
+    }
+
+    /**
+     * Verifies that a {@link Page} copied from another page evaluates the total lazily, once.
+     */
+    @Test
+    public void testLazyTotal() {
+        AtomicInteger calls = new AtomicInteger();
+        Page<String> page = new Page<>(Arrays.asList("A", "B"), 0, 2, -1);
+        page.setTotalResults(() -> {
+            calls.incrementAndGet();
+            return 5;
+        });
+        page.setMoreResults(true);
+
+        Page<Integer> copy = new Page<>(Arrays.asList(1, 2), page);
+        assertEquals(0, calls.get());
+        assertTrue(copy.hasMoreResults());
+        assertEquals(0, calls.get());
+        assertEquals(5, copy.getTotalResults());
+        assertEquals(5, copy.getTotalResults());
+        assertEquals(5, page.getTotalResults());
+        assertEquals(1, calls.get());
+
+        Page<String> all = new Page<>(Collections.singletonList("A"), 0, IArchetypeQuery.ALL_RESULTS, 1);
+        assertFalse(all.hasMoreResults());
+    }
+
+    /**
+     * Queries a page of acts and verifies the results.
+     *
+     * @param firstResult the first result
+     * @param maxResults  the maximum no. of results
+     * @param count       if {@code true}, count the results
+     * @param size        the expected page size
+     * @param more        the expected value of {@link IPage#hasMoreResults()}
+     * @param total       the expected total results
+     */
+    private void checkPage(int firstResult, int maxResults, boolean count, int size, boolean more, int total) {
+        ArchetypeQuery query = createQuery();
+        query.setFirstResult(firstResult);
+        query.setMaxResults(maxResults);
+        query.setCountResults(count);
+        IPage<IMObject> page = getArchetypeService().get(query);
+        assertEquals(size, page.getResults().size());
+        assertEquals(more, page.hasMoreResults());
+        assertEquals(total, page.getTotalResults());
+    }
+}
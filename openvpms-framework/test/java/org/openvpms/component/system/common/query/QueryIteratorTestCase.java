@@ -19,12 +19,19 @@ package org.openvpms.component.system.common.query;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.openvpms.component.business.domain.im.act.Act;
+import org.openvpms.component.business.domain.im.common.IMObject;
 import org.openvpms.component.business.service.archetype.IArchetypeService;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 
 /**
@@ -102,6 +109,139 @@ public class QueryIteratorTestCase extends AbstractQueryTest {
         checkIterator(iterator, check);
     }
 
+    /**
+     * Tests the {@link IMObjectQueryIterator} with keyset paging.
+     * <p/>
+     * The acts may share the same start time, so this verifies that the id is used to order results uniquely.
+     */
+    @Test
+    public void testIMObjectQueryIteratorKeysetPaging() {
+        ArchetypeQuery query = createQuery();
+        query.add(new NodeSortConstraint("startTime"));
+        query.setMaxResults(3);
+        query.setKeysetPaging(true);
+
+        final Set<Long> ids = new HashSet<Long>();
+        Check<Act> check = new Check<Act>() {
+            public void check(Act object) {
+                assertTrue(ids.add(object.getId()));
+            }
+        };
+        checkIterator(new IMObjectQueryIterator<Act>(query), check);
+
+        // verify the iterator hasn't changed the query
+        List<IConstraint> constraints = query.getArchetypeConstraint().getConstraints();
+        assertEquals(2, constraints.size());
+        assertEquals(new NodeSortConstraint("startTime"), constraints.get(1));
+        assertEquals(0, query.getFirstResult());
+    }
+
+    /**
+     * Verifies that keyset paging starts at the query's first result.
+     */
+    @Test
+    public void testKeysetPagingWithFirstResult() {
+        ArchetypeQuery query = createQuery();
+        query.add(new NodeSortConstraint("id"));
+        query.setFirstResult(2);
+        query.setMaxResults(3);
+        query.setKeysetPaging(true);
+
+        List<IMObject> all = getArchetypeService().get(createQuery().add(new NodeSortConstraint("id"))).getResults();
+        assertEquals(ACT_COUNT, all.size());
+
+        IMObjectQueryIterator<Act> iterator = new IMObjectQueryIterator<Act>(query);
+        int index = 2;
+        while (iterator.hasNext()) {
+            assertEquals(all.get(index++), iterator.next());
+        }
+        assertEquals(ACT_COUNT, index);
+        assertEquals(2, query.getFirstResult());
+        assertEquals(2, query.getArchetypeConstraint().getConstraints().size());
+    }
+
+    /**
+     * Verifies that keyset paging isn't affected by objects being excluded from the query as they are iterated.
+     */
+    @Test
+    public void testKeysetPagingWithUpdates() {
+        ArchetypeQuery query = createQuery();
+        query.add(new NodeSortConstraint("id"));
+        query.setMaxResults(2);
+        query.setKeysetPaging(true);
+
+        Check<Act> check = new Check<Act>() {
+            public void check(Act object) {
+                // exclude the act from subsequent pages
+                object.setName("excluded");
+                save(object);
+            }
+        };
+        checkIterator(new IMObjectQueryIterator<Act>(query), check);
+    }
+
+    /**
+     * Tests the {@link NodeSetQueryIterator} with keyset paging.
+     */
+    @Test
+    public void testNodeSetQueryIteratorKeysetPaging() {
+        ArchetypeQuery query = createQuery();
+        query.add(new NodeSortConstraint("startTime", false));
+        query.setMaxResults(3);
+        query.setKeysetPaging(true);
+        final Set<Long> ids = new HashSet<Long>();
+        Check<NodeSet> check = new Check<NodeSet>() {
+            public void check(NodeSet set) {
+                assertNotNull(set.get("startTime"));
+                assertTrue(ids.add(set.getObjectReference().getId()));
+            }
+        };
+        checkIterator(new NodeSetQueryIterator(query, Arrays.asList("startTime")), check);
+    }
+
+    /**
+     * Tests the {@link ObjectSetQueryIterator} with keyset paging.
+     */
+    @Test
+    public void testObjectSetQueryIteratorKeysetPaging() {
+        ArchetypeQuery query = createQuery();
+        query.add(new NodeSelectConstraint("act.startTime"));
+        query.add(new ObjectRefSelectConstraint("act"));
+        query.add(new NodeSortConstraint("act.startTime"));
+        query.setMaxResults(3);
+        query.setKeysetPaging(true);
+        final Set<Long> ids = new HashSet<Long>();
+        Check<ObjectSet> check = new Check<ObjectSet>() {
+            public void check(ObjectSet set) {
+                assertNotNull(set.get("act.startTime"));
+                assertTrue(ids.add(set.getReference("act.reference").getId()));
+            }
+        };
+        checkIterator(new ObjectSetQueryIterator(query), check);
+    }
+
+    /**
+     * Verifies that keyset paging fails if a sort node is not available in the results.
+     */
+    @Test
+    public void testKeysetPagingWithMissingSortNode() {
+        ArchetypeQuery query = createQuery();
+        query.add(new NodeSelectConstraint("act.name"));
+        query.add(new NodeSortConstraint("act.startTime"));
+        query.setMaxResults(3);
+        query.setKeysetPaging(true);
+        ObjectSetQueryIterator iterator = new ObjectSetQueryIterator(query);
+        try {
+            for (int i = 0; i < ACT_COUNT; ++i) {
+                iterator.hasNext();
+                iterator.next();
+            }
+            fail("Expected ArchetypeQueryException");
+        } catch (ArchetypeQueryException expected) {
+            assertEquals(ArchetypeQueryException.ErrorCode.KeysetValueNotFound, expected.getErrorCode());
+        }
+    }
+
     /**
      * Verifies that the archetype service is only accessed as many times as is necessary.
      *
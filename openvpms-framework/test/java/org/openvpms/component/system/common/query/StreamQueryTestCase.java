@@ -0,0 +1,129 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.component.system.common.query;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openvpms.component.business.dao.hibernate.im.IMObjectDAOHibernate;
+import org.openvpms.component.business.domain.im.act.Act;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link org.openvpms.component.business.service.archetype.IArchetypeService#stream(IArchetypeQuery)}
+ * and {@link org.openvpms.component.business.service.archetype.IArchetypeService#streamObjects(IArchetypeQuery)}
+ * methods.
+ *
+ * @author Tim Anderson
+ */
+public class StreamQueryTestCase extends AbstractQueryTest {
+
+    /**
+     * The DAO.
+     */
+    @Autowired
+    private IMObjectDAOHibernate dao;
+
+    /**
+     * Restores the stream batch size.
+     */
+    @After
+    public void tearDown() {
+        dao.setStreamBatchSize(0);
+    }
+
+    /**
+     * Verifies that objects can be streamed, when the results span multiple batches.
+     */
+    @Test
+    public void testStream() {
+        dao.setStreamBatchSize(3);
+        ArchetypeQuery query = createQuery();
+        query.add(new NodeSortConstraint("id"));
+        List<IMObject> expected = getArchetypeService().get(query).getResults();
+        assertEquals(ACT_COUNT, expected.size());
+
+        try (Stream<IMObject> stream = getArchetypeService().stream(query)) {
+            List<IMObject> actual = stream.collect(Collectors.toList());
+            assertEquals(expected, actual);
+            for (IMObject object : actual) {
+                assertTrue(object instanceof Act);
+                assertNotNull(((Act) object).getActivityStartTime());
+            }
+        }
+    }
+
+    /**
+     * Verifies that object sets can be streamed.
+     */
+    @Test
+    public void testStreamObjects() {
+        dao.setStreamBatchSize(4);
+        ArchetypeQuery query = createQuery();
+        query.add(new NodeSelectConstraint("act.startTime"));
+        query.add(new ObjectRefSelectConstraint("act"));
+        Set<Long> ids = new HashSet<>();
+        try (Stream<ObjectSet> stream = getArchetypeService().streamObjects(query)) {
+            stream.forEach(set -> {
+                assertNotNull(set.get("act.startTime"));
+                assertTrue(ids.add(set.getReference("act.reference").getId()));
+            });
+        }
+        assertEquals(ACT_COUNT, ids.size());
+    }
+
+    /**
+     * Verifies that the query first and maximum results are honoured.
+     */
+    @Test
+    public void testStreamPage() {
+        dao.setStreamBatchSize(2);
+        ArchetypeQuery query = createQuery();
+        query.add(new NodeSortConstraint("id"));
+        query.setFirstResult(2);
+        query.setMaxResults(5);
+        List<IMObject> expected = getArchetypeService().get(query).getResults();
+        try (Stream<IMObject> stream = getArchetypeService().stream(query)) {
+            assertEquals(expected, stream.collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Verifies that a stream can be closed before it is exhausted.
+     */
+    @Test
+    public void testCloseBeforeExhausted() {
+        dao.setStreamBatchSize(2);
+        ArchetypeQuery query = createQuery();
+        try (Stream<IMObject> stream = getArchetypeService().stream(query)) {
+            Iterator<IMObject> iterator = stream.iterator();
+            assertTrue(iterator.hasNext());
+            assertNotNull(iterator.next());
+        }
+    }
+}
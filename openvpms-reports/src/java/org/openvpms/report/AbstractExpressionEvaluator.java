@@ -154,7 +154,7 @@ public abstract class AbstractExpressionEvaluator<T> implements ExpressionEvalua
      * @return the result of the expression
      */
     public Object evaluate(String expression) {
-        return getContext().getValue(expression);
+        return JXPathHelper.getValue(getContext(), expression);
     }
 
     /**
@@ -166,7 +166,7 @@ public abstract class AbstractExpressionEvaluator<T> implements ExpressionEvalua
      */
     @Override
     public Object evaluate(Object object, String expression) {
-        return getContext(object).getValue(expression);
+        return JXPathHelper.getValue(getContext(object), expression);
     }
 
     /**
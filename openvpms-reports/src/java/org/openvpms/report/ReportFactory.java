@@ -29,6 +29,7 @@ import org.openvpms.component.business.service.archetype.ReadOnlyArchetypeServic
 import org.openvpms.component.business.service.archetype.helper.DescriptorHelper;
 import org.openvpms.component.business.service.lookup.ILookupService;
 import org.openvpms.component.system.common.query.ObjectSet;
+import org.openvpms.report.jasper.JasperReportCache;
 import org.openvpms.report.jasper.TemplatedJasperIMObjectReport;
 import org.openvpms.report.jasper.TemplatedJasperObjectSetReport;
 import org.openvpms.report.msword.MsWordIMReport;
@@ -65,6 +66,11 @@ public class ReportFactory {
      */
     private final ArchetypeFunctionsFactory factory;
 
+    /**
+     * The compiled JasperReports cache. May be {@code null}.
+     */
+    private JasperReportCache jasperReports;
+
     /**
      * Constructs an {@link ReportFactory}.
      *
@@ -81,6 +87,17 @@ public class ReportFactory {
         this.factory = factory;
     }
 
+    /**
+     * Sets the cache of compiled JasperReports.
+     * <p/>
+     * If set, JasperReports templates are only compiled once per document version, rather than for each report.
+     *
+     * @param cache the cache. May be {@code null}
+     */
+    public void setJasperReportCache(JasperReportCache cache) {
+        this.jasperReports = cache;
+    }
+
     /**
      * Creates a new report.
      *
@@ -94,7 +111,8 @@ public class ReportFactory {
         if (DocFormats.hasExtension(template, DocFormats.JRXML_EXT)) {
             IArchetypeService serviceProxy = proxy(service);
             Functions functions = factory.create(serviceProxy, true);
-            report = new TemplatedJasperIMObjectReport(template, serviceProxy, lookups, handlers, functions);
+            report = new TemplatedJasperIMObjectReport(template, serviceProxy, lookups, handlers, functions,
+                                                       jasperReports);
         } else {
             throw new ReportException(UnsupportedTemplate, name);
         }
@@ -127,7 +145,8 @@ public class ReportFactory {
         String ext = FilenameUtils.getExtension(template.getName());
         if (ext != null) {
             if (isJRXML(ext)) {
-                report = new TemplatedJasperIMObjectReport(template, serviceProxy, lookups, handlers, functions);
+                report = new TemplatedJasperIMObjectReport(template, serviceProxy, lookups, handlers, functions,
+                                                           jasperReports);
             } else if (isODT(ext)) {
                 report = new OpenOfficeIMReport<>(template, serviceProxy, lookups, handlers, functions);
             } else if (isDOC(ext)) {
@@ -192,7 +211,8 @@ public class ReportFactory {
             IArchetypeService serviceProxy = proxy(service);
             Functions functions = factory.create(serviceProxy, true);
             if (isJRXML(ext)) {
-                report = new TemplatedJasperObjectSetReport(template, serviceProxy, lookups, handlers, functions);
+                report = new TemplatedJasperObjectSetReport(template, serviceProxy, lookups, handlers, functions,
+                                                            jasperReports);
             } else if (isODT(ext)) {
                 report = new OpenOfficeIMReport<>(template, serviceProxy, lookups, handlers, functions);
             } else {
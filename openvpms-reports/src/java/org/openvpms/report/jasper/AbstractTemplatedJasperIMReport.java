@@ -69,9 +69,25 @@ public abstract class AbstractTemplatedJasperIMReport<T> extends AbstractJasperI
      */
     public AbstractTemplatedJasperIMReport(Document template, IArchetypeService service, ILookupService lookups,
                                            DocumentHandlers handlers, Functions functions) {
+        this(template, service, lookups, handlers, functions, null);
+    }
+
+    /**
+     * Constructs an {@link AbstractTemplatedJasperIMReport}.
+     *
+     * @param template  the document template
+     * @param service   the archetype service
+     * @param lookups   the lookup service
+     * @param handlers  the document handlers
+     * @param functions the JXPath extension functions
+     * @param cache     the compiled report cache. May be {@code null}
+     * @throws ReportException if the report cannot be created
+     */
+    public AbstractTemplatedJasperIMReport(Document template, IArchetypeService service, ILookupService lookups,
+                                           DocumentHandlers handlers, Functions functions, JasperReportCache cache) {
         super(service, lookups, handlers, functions);
         SimpleJasperReportsContext context = getJasperReportsContext();
-        loader = init(new JasperTemplateLoader(template, service, handlers, context), context);
+        loader = init(new JasperTemplateLoader(template, service, handlers, context, cache), context);
         this.name = template.getName();
     }
 
@@ -0,0 +1,487 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.report.jasper;
+
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSaver;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openvpms.component.business.domain.im.common.IMObject;
+import org.openvpms.component.business.domain.im.document.Document;
+import org.openvpms.component.business.service.archetype.AbstractArchetypeServiceListener;
+import org.openvpms.component.business.service.archetype.IArchetypeService;
+import org.openvpms.component.business.service.archetype.IArchetypeServiceListener;
+import org.openvpms.component.model.object.Reference;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of compiled JasperReports, keyed on the reference and version of their template {@link Document}.
+ * <p/>
+ * Compiling a report from its JRXML is expensive, so reports are compiled once per document version and shared.
+ * <br/>
+ * If a directory is specified, compiled reports are also saved to it as <em>.jasper</em> files, so that they don't
+ * need to be recompiled when the application is restarted. The directory must be private to the application, as
+ * the files are deserialized when loaded; one that is writable by other users is ignored. The file names include a
+ * hash of the template content, so a file is never loaded for a different template that happens to share the same
+ * reference and version, e.g. when another instance using a different database shares the directory.
+ * <p/>
+ * Reports are evicted when their documents are saved or removed.
+ *
+ * @author Tim Anderson
+ */
+public class JasperReportCache implements DisposableBean {
+
+    /**
+     * The maximum number of reports to cache in memory.
+     */
+    private final int maxSize;
+
+    /**
+     * The archetype service.
+     */
+    private final IArchetypeService service;
+
+    /**
+     * The compiled reports, in least recently used order.
+     */
+    private final Map<Key, JasperReport> reports;
+
+    /**
+     * The listener for document changes.
+     */
+    private final IArchetypeServiceListener listener;
+
+    /**
+     * The directory to save compiled reports to. May be {@code null}.
+     */
+    private volatile File directory;
+
+    /**
+     * The document archetypes to monitor for changes.
+     */
+    private static final String DOCUMENTS = "document.*";
+
+    /**
+     * The compiled report file extension.
+     */
+    private static final String EXTENSION = ".jasper";
+
+    /**
+     * The algorithm used to hash template content.
+     */
+    private static final String DIGEST = "SHA-256";
+
+    /**
+     * The permissions of a created directory.
+     */
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(JasperReportCache.class);
+
+    /**
+     * Constructs a {@link JasperReportCache}.
+     *
+     * @param maxSize the maximum number of reports to cache in memory
+     * @param service the archetype service, used to monitor document changes
+     */
+    public JasperReportCache(int maxSize, IArchetypeService service) {
+        this.maxSize = maxSize;
+        this.service = service;
+        reports = new LinkedHashMap<Key, JasperReport>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, JasperReport> eldest) {
+                return size() > JasperReportCache.this.maxSize;
+            }
+        };
+        listener = new AbstractArchetypeServiceListener() {
+            @Override
+            public void saved(IMObject object) {
+                JasperReportCache.this.remove(object.getObjectReference());
+            }
+
+            @Override
+            public void removed(IMObject object) {
+                JasperReportCache.this.remove(object.getObjectReference());
+            }
+        };
+        service.addListener(DOCUMENTS, listener);
+    }
+
+    /**
+     * Sets the directory to save compiled reports to.
+     * <p/>
+     * If the directory doesn't exist, it is created, accessible only to the current user.
+     *
+     * @param directory the directory. If {@code null} or empty, compiled reports are only cached in memory
+     */
+    public void setDirectory(String directory) {
+        File dir = null;
+        if (directory != null && !directory.trim().isEmpty()) {
+            dir = new File(directory);
+            if (!dir.isDirectory() && !create(dir)) {
+                log.warn("Cannot create directory " + dir + ". Compiled reports will not be saved");
+                dir = null;
+            } else if (!isPrivate(dir)) {
+                log.warn("Directory " + dir + " is writable by other users. Compiled reports will not be saved");
+                dir = null;
+            }
+        }
+        this.directory = dir;
+    }
+
+    /**
+     * Returns the compiled report for a template document, compiling it if it isn't cached.
+     *
+     * @param document the template document
+     * @param compiler compiles the document, if it isn't cached
+     * @return the compiled report
+     */
+    public JasperReport getReport(Document document, Supplier<JasperReport> compiler) {
+        if (document.isNew()) {
+            return compiler.get();
+        }
+        Key key = new Key(document.getObjectReference(), document.getVersion());
+        JasperReport report;
+        synchronized (reports) {
+            report = reports.get(key);
+        }
+        if (report == null) {
+            File dir = directory;
+            File file = (dir != null) ? getFile(dir, key, document) : null;
+            report = (file != null) ? load(file) : null;
+            if (report == null) {
+                report = compiler.get();
+                if (file != null) {
+                    save(key, file, report);
+                }
+            }
+            synchronized (reports) {
+                reports.put(key, report);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Removes all versions of the report for a template document.
+     *
+     * @param reference the template document reference
+     */
+    public void remove(Reference reference) {
+        synchronized (reports) {
+            reports.keySet().removeIf(key -> key.reference.equals(reference));
+        }
+        delete(reference);
+    }
+
+    /**
+     * Removes all cached reports.
+     */
+    public void clear() {
+        synchronized (reports) {
+            reports.clear();
+        }
+        File dir = directory;
+        if (dir != null) {
+            File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+            if (files != null) {
+                for (File file : files) {
+                    delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of reports cached in memory.
+     *
+     * @return the number of reports
+     */
+    public int size() {
+        synchronized (reports) {
+            return reports.size();
+        }
+    }
+
+    /**
+     * Stops monitoring document changes.
+     */
+    @Override
+    public void destroy() {
+        service.removeListener(DOCUMENTS, listener);
+    }
+
+    /**
+     * Returns the file used to save a compiled report.
+     *
+     * @param dir      the directory
+     * @param key      the report key
+     * @param document the template document
+     * @return the file, or {@code null} if the template content cannot be hashed
+     */
+    private File getFile(File dir, Key key, Document document) {
+        File result = null;
+        byte[] contents = document.getContents();
+        if (contents != null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance(DIGEST);
+                result = new File(dir, key.getFileName(toHex(digest.digest(contents))));
+            } catch (NoSuchAlgorithmException exception) {
+                log.warn("Cannot hash " + document.getName() + ": " + exception.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads a compiled report.
+     *
+     * @param file the file to load
+     * @return the report, or {@code null} if it isn't present or can't be loaded
+     */
+    private JasperReport load(File file) {
+        JasperReport result = null;
+        if (file.exists()) {
+            try {
+                result = (JasperReport) JRLoader.loadObject(file);
+            } catch (Throwable exception) {
+                // may have been compiled by a different version of JasperReports
+                log.warn("Failed to load " + file + ". It will be recompiled: " + exception.getMessage());
+                delete(file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Saves a compiled report.
+     * <p/>
+     * Any other versions of the report are deleted.
+     *
+     * @param key    the report key
+     * @param file   the file to save to
+     * @param report the report
+     */
+    private void save(Key key, File file, JasperReport report) {
+        delete(key.reference);
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            JRSaver.saveObject(report, tmp);
+            if (!tmp.renameTo(file)) {
+                delete(tmp);
+            }
+        } catch (Throwable exception) {
+            log.warn("Failed to save " + file + ": " + exception.getMessage());
+            delete(tmp);
+        }
+    }
+
+    /**
+     * Creates a directory, accessible only to the current user where the file system supports it.
+     *
+     * @param dir the directory
+     * @return {@code true} if the directory was created
+     */
+    private boolean create(File dir) {
+        boolean result = false;
+        try {
+            Path path = dir.toPath().toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            if (supportsPosix(path)) {
+                Files.createDirectory(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            } else {
+                Files.createDirectory(path);
+            }
+            result = true;
+        } catch (IOException | UnsupportedOperationException exception) {
+            log.warn("Failed to create " + dir + ": " + exception.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a directory is private to the current user, i.e. it isn't writable by other users.
+     * <p/>
+     * This is only checked on file systems supporting POSIX permissions.
+     *
+     * @param dir the directory
+     * @return {@code true} if the directory is private
+     */
+    private boolean isPrivate(File dir) {
+        boolean result = true;
+        Path path = dir.toPath();
+        if (supportsPosix(path)) {
+            try {
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+                result = !permissions.contains(PosixFilePermission.GROUP_WRITE)
+                         && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+            } catch (IOException exception) {
+                log.warn("Failed to determine the permissions of " + dir + ": " + exception.getMessage());
+                result = false;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if the file system of a path supports POSIX permissions.
+     *
+     * @param path the path
+     * @return {@code true} if POSIX permissions are supported
+     */
+    private boolean supportsPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Converts bytes to a lowercase hexadecimal string.
+     *
+     * @param bytes the bytes
+     * @return the hexadecimal string
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Deletes all saved versions of a report.
+     *
+     * @param reference the template document reference
+     */
+    private void delete(Reference reference) {
+        File dir = directory;
+        if (dir != null) {
+            String prefix = Key.getPrefix(reference);
+            File[] files = dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(EXTENSION));
+            if (files != null) {
+                for (File file : files) {
+                    delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes a file.
+     *
+     * @param file the file to delete
+     */
+    private void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("Failed to delete " + file);
+        }
+    }
+
+    /**
+     * Compiled report key.
+     */
+    private static class Key {
+
+        /**
+         * The template document reference.
+         */
+        private final Reference reference;
+
+        /**
+         * The template document version.
+         */
+        private final long version;
+
+        /**
+         * Constructs a {@link Key}.
+         *
+         * @param reference the template document reference
+         * @param version   the template document version
+         */
+        Key(Reference reference, long version) {
+            this.reference = reference;
+            this.version = version;
+        }
+
+        /**
+         * Returns the name of the file used to save the compiled report.
+         *
+         * @param hash the hash of the template content
+         * @return the file name
+         */
+        String getFileName(String hash) {
+            return getPrefix(reference) + version + "-" + hash + EXTENSION;
+        }
+
+        /**
+         * Returns the file name prefix for all versions of a report.
+         *
+         * @param reference the template document reference
+         * @return the file name prefix
+         */
+        static String getPrefix(Reference reference) {
+            return reference.getArchetype() + "-" + reference.getId() + "-";
+        }
+
+        /**
+         * Indicates whether some other object is "equal to" this one.
+         *
+         * @param obj the reference object with which to compare
+         * @return {@code true} if this object is the same as the obj argument
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                return version == other.version && reference.equals(other.reference);
+            }
+            return false;
+        }
+
+        /**
+         * Returns a hash code value for the object.
+         *
+         * @return a hash code value for this object
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(reference, version);
+        }
+    }
+}
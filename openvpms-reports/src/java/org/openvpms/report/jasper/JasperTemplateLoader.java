@@ -30,6 +30,7 @@ import org.apache.commons.io.IOUtils;
 import org.openvpms.archetype.rules.doc.DocumentException;
 import org.openvpms.archetype.rules.doc.DocumentHandler;
 import org.openvpms.archetype.rules.doc.DocumentHandlers;
+import org.openvpms.archetype.rules.doc.TemplateHelper;
 import org.openvpms.component.business.domain.im.document.Document;
 import org.openvpms.component.business.service.archetype.IArchetypeService;
 import org.openvpms.report.ReportException;
@@ -73,6 +74,11 @@ public class JasperTemplateLoader implements RepositoryService {
      */
     private final JasperReportsContext context;
 
+    /**
+     * The compiled report cache. May be {@code null}.
+     */
+    private final JasperReportCache cache;
+
     /**
      * The compiled report.
      */
@@ -99,21 +105,30 @@ public class JasperTemplateLoader implements RepositoryService {
      */
     public JasperTemplateLoader(Document template, IArchetypeService service, DocumentHandlers handlers,
                                 JasperReportsContext context) {
+        this(template, service, handlers, context, null);
+    }
+
+    /**
+     * Constructs a {@link JasperTemplateLoader}.
+     *
+     * @param template the document template
+     * @param service  the archetype service
+     * @param handlers the document handlers
+     * @param context  the jasper reports context
+     * @param cache    the compiled report cache. May be {@code null}
+     * @throws ReportException if the report cannot be created
+     */
+    public JasperTemplateLoader(Document template, IArchetypeService service, DocumentHandlers handlers,
+                                JasperReportsContext context, JasperReportCache cache) {
         this.name = template.getName();
         this.service = service;
         this.context = context;
         this.handlers = handlers;
-
-        InputStream stream = null;
-        try {
-            DocumentHandler handler = handlers.get(template);
-            stream = handler.getContent(template);
-            JasperDesign design = JRXmlLoader.load(context, stream);
-            report = compile(design);
-        } catch (DocumentException | JRException exception) {
-            throw new ReportException(exception, FailedToCreateReport, template.getName(), exception.getMessage());
-        } finally {
-            IOUtils.closeQuietly(stream);
+        this.cache = cache;
+        if (cache != null) {
+            report = cache.getReport(template, () -> compile(template));
+        } else {
+            report = compile(template);
         }
     }
 
@@ -132,6 +147,7 @@ public class JasperTemplateLoader implements RepositoryService {
         this.service = service;
         this.handlers = handlers;
         this.context = context;
+        this.cache = null;
         report = compile(design);
     }
 
@@ -215,6 +231,27 @@ public class JasperTemplateLoader implements RepositoryService {
         return null;
     }
 
+    /**
+     * Loads and compiles the master report.
+     *
+     * @param template the document template
+     * @return the compiled report
+     * @throws ReportException if the report cannot be loaded or compiled
+     */
+    protected JasperReport compile(Document template) {
+        InputStream stream = null;
+        try {
+            DocumentHandler handler = handlers.get(template);
+            stream = handler.getContent(template);
+            JasperDesign design = JRXmlLoader.load(context, stream);
+            return compile(design);
+        } catch (DocumentException | JRException exception) {
+            throw new ReportException(exception, FailedToCreateReport, template.getName(), exception.getMessage());
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
     /**
      * Compiles the master report.
      *
@@ -233,6 +270,8 @@ public class JasperTemplateLoader implements RepositoryService {
 
     /**
      * Gets a sub-report, given its name.
+     * <p/>
+     * If there is a cache, sub-reports are compiled once per template document version.
      *
      * @param name the sub-report name
      * @return the corresponding report
@@ -240,18 +279,42 @@ public class JasperTemplateLoader implements RepositoryService {
     protected JasperReport getSubreport(String name) {
         JasperReport compiled = subReports.get(name);
         if (compiled == null) {
-            try {
-                JasperDesign report = JasperReportHelper.getReport(name, service, handlers, context);
-                if (report == null) {
+            if (cache != null) {
+                Document document = new TemplateHelper(service).getDocument(name);
+                if (document == null) {
                     throw new ReportException(FailedToFindSubReport, name, this.name);
                 }
-                compiled = JasperCompileManager.compileReport(report);
-                subReports.put(name, compiled);
-            } catch (JRException exception) {
-                throw new ReportException(FailedToFindSubReport, exception, name, this.name);
+                compiled = cache.getReport(document, () -> compileSubreport(document, name));
+            } else {
+                try {
+                    JasperDesign report = JasperReportHelper.getReport(name, service, handlers, context);
+                    if (report == null) {
+                        throw new ReportException(FailedToFindSubReport, name, this.name);
+                    }
+                    compiled = JasperCompileManager.compileReport(report);
+                } catch (JRException exception) {
+                    throw new ReportException(FailedToFindSubReport, exception, name, this.name);
+                }
             }
+            subReports.put(name, compiled);
         }
         return compiled;
     }
 
+    /**
+     * Loads and compiles a sub-report.
+     *
+     * @param document the sub-report template document
+     * @param name     the sub-report name
+     * @return the compiled sub-report
+     * @throws ReportException if the sub-report cannot be loaded or compiled
+     */
+    private JasperReport compileSubreport(Document document, String name) {
+        try {
+            return JasperCompileManager.compileReport(JasperReportHelper.getReport(document, handlers, context));
+        } catch (DocumentException | JRException exception) {
+            throw new ReportException(FailedToFindSubReport, exception, name, this.name);
+        }
+    }
+
 }
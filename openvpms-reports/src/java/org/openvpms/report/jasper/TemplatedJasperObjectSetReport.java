@@ -51,6 +51,22 @@ public class TemplatedJasperObjectSetReport extends AbstractTemplatedJasperIMRep
         super(template, service, lookups, handlers, functions);
     }
 
+    /**
+     * Constructs a {@link TemplatedJasperObjectSetReport}.
+     *
+     * @param template  the document template
+     * @param service   the archetype service
+     * @param lookups   the lookup service
+     * @param handlers  the document handlers
+     * @param functions the JXPath extension functions
+     * @param cache     the compiled report cache. May be {@code null}
+     * @throws ReportException if the report cannot be created
+     */
+    public TemplatedJasperObjectSetReport(Document template, IArchetypeService service, ILookupService lookups,
+                                          DocumentHandlers handlers, Functions functions, JasperReportCache cache) {
+        super(template, service, lookups, handlers, functions, cache);
+    }
+
     /**
      * Creates a data source for a collection of objects.
      *
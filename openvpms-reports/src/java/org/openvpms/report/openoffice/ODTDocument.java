@@ -0,0 +1,416 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.report.openoffice;
+
+import org.apache.commons.io.IOUtils;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.openvpms.report.openoffice.OpenOfficeException.ErrorCode.FailedToCreateDoc;
+import static org.openvpms.report.openoffice.OpenOfficeException.ErrorCode.FailedToExportDoc;
+
+/**
+ * An OpenDocument text (.odt) document whose user fields can be populated without using OpenOffice.
+ * <p/>
+ * This reads and rewrites the user field declarations and references in the document <em>content.xml</em> and
+ * <em>styles.xml</em>.
+ * <br/>
+ * OpenOffice recalculates fields that depend on user fields when a document is refreshed. This can't be done here,
+ * so documents containing input fields, conditional or hidden text, variables, formulae, or non-string user fields
+ * are not {@link #isSupported() supported}. These must be populated using {@link OpenOfficeDocument}.
+ * <p/>
+ * Instances are single use; each populated document must be created from the template content.
+ *
+ * @author Tim Anderson
+ */
+public class ODTDocument {
+
+    /**
+     * The document name.
+     */
+    private final String name;
+
+    /**
+     * The document content.
+     */
+    private final byte[] content;
+
+    /**
+     * The parsed XML parts, keyed on part name.
+     */
+    private final Map<String, org.w3c.dom.Document> parts = new LinkedHashMap<>();
+
+    /**
+     * The user field declarations, keyed on name.
+     */
+    private final Map<String, Element> userFields = new LinkedHashMap<>();
+
+    /**
+     * The user field values that have been set, keyed on name.
+     */
+    private final Map<String, String> values = new LinkedHashMap<>();
+
+    /**
+     * Determines if the document can be populated.
+     */
+    private boolean supported = true;
+
+    /**
+     * The OpenDocument text namespace.
+     */
+    private static final String TEXT_NS = "urn:oasis:names:tc:opendocument:xmlns:text:1.0";
+
+    /**
+     * The OpenDocument office namespace.
+     */
+    private static final String OFFICE_NS = "urn:oasis:names:tc:opendocument:xmlns:office:1.0";
+
+    /**
+     * The XML parts containing fields.
+     */
+    private static final String[] PARTS = {"content.xml", "styles.xml"};
+
+    /**
+     * The mimetype entry name. This must be the first entry, and be stored uncompressed.
+     */
+    private static final String MIMETYPE = "mimetype";
+
+    /**
+     * Text elements whose content depends on fields evaluated by OpenOffice.
+     */
+    private static final Set<String> UNSUPPORTED = new HashSet<>(Arrays.asList(
+            "text-input", "conditional-text", "hidden-text", "hidden-paragraph", "variable-decls", "variable-set",
+            "variable-get", "variable-input", "expression", "database-display", "database-next",
+            "database-row-select", "database-row-number", "database-name"));
+
+    /**
+     * Attributes whose values are evaluated by OpenOffice.
+     */
+    private static final Set<String> UNSUPPORTED_ATTRIBUTES = new HashSet<>(Arrays.asList("condition", "formula"));
+
+    /**
+     * Constructs an {@link ODTDocument}.
+     *
+     * @param name    the document name
+     * @param content the document content
+     * @throws OpenOfficeException if the document cannot be read
+     */
+    public ODTDocument(String name, byte[] content) {
+        this.name = name;
+        this.content = content;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(content))) {
+            DocumentBuilder builder = createBuilder();
+            List<String> names = Arrays.asList(PARTS);
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (names.contains(entry.getName())) {
+                    byte[] xml = IOUtils.toByteArray(zip);
+                    parts.put(entry.getName(), builder.parse(new ByteArrayInputStream(xml)));
+                }
+            }
+        } catch (Exception exception) {
+            throw new OpenOfficeException(exception, FailedToCreateDoc, name);
+        }
+        if (!parts.containsKey(PARTS[0])) {
+            throw new OpenOfficeException(FailedToCreateDoc, name);
+        }
+        for (org.w3c.dom.Document part : parts.values()) {
+            init(part);
+        }
+    }
+
+    /**
+     * Determines if the document can be populated without OpenOffice.
+     *
+     * @return {@code true} if the document can be populated
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Returns the user field names.
+     *
+     * @return the user field names
+     */
+    public List<String> getUserFieldNames() {
+        return new ArrayList<>(userFields.keySet());
+    }
+
+    /**
+     * Determines if the document has a user field.
+     *
+     * @param name the user field name
+     * @return {@code true} if the document has the field
+     */
+    public boolean hasUserField(String name) {
+        return userFields.containsKey(name);
+    }
+
+    /**
+     * Returns the value of a user field.
+     *
+     * @param name the user field name
+     * @return the user field value. May be {@code null}
+     */
+    public String getUserField(String name) {
+        String result = values.get(name);
+        if (result == null) {
+            Element field = userFields.get(name);
+            if (field != null) {
+                result = field.getAttributeNS(OFFICE_NS, "string-value");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the value of a user field.
+     *
+     * @param name  the user field name
+     * @param value the value. May be {@code null}
+     */
+    public void setUserField(String name, String value) {
+        Element field = userFields.get(name);
+        if (field != null) {
+            value = (value != null) ? value : "";
+            Attr attribute = field.getAttributeNodeNS(OFFICE_NS, "string-value");
+            if (attribute != null) {
+                attribute.setValue(value);
+            } else {
+                field.setAttributeNS(OFFICE_NS, "office:string-value", value);
+            }
+            values.put(name, value);
+        }
+    }
+
+    /**
+     * Exports the document, with any user fields updated.
+     *
+     * @return the document content
+     * @throws OpenOfficeException if the document cannot be exported
+     */
+    public byte[] export() {
+        for (org.w3c.dom.Document part : parts.values()) {
+            updateReferences(part);
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream(content.length);
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(content));
+             ZipOutputStream out = new ZipOutputStream(result)) {
+            Transformer transformer = createTransformer();
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                String entryName = entry.getName();
+                byte[] data;
+                org.w3c.dom.Document part = parts.get(entryName);
+                if (part != null) {
+                    ByteArrayOutputStream xml = new ByteArrayOutputStream();
+                    transformer.transform(new DOMSource(part), new StreamResult(xml));
+                    data = xml.toByteArray();
+                } else {
+                    data = IOUtils.toByteArray(in);
+                }
+                ZipEntry copy = new ZipEntry(entryName);
+                if (MIMETYPE.equals(entryName)) {
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    copy.setMethod(ZipEntry.STORED);
+                    copy.setSize(data.length);
+                    copy.setCompressedSize(data.length);
+                    copy.setCrc(crc.getValue());
+                }
+                out.putNextEntry(copy);
+                out.write(data);
+                out.closeEntry();
+            }
+        } catch (Exception exception) {
+            throw new OpenOfficeException(exception, FailedToExportDoc, name);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Collects user field declarations and determines if the part contains unsupported features.
+     *
+     * @param part the XML part
+     */
+    private void init(org.w3c.dom.Document part) {
+        NodeList elements = part.getElementsByTagNameNS("*", "*");
+        for (int i = 0; i < elements.getLength(); ++i) {
+            Element element = (Element) elements.item(i);
+            boolean declaration = false;
+            if (TEXT_NS.equals(element.getNamespaceURI())) {
+                String localName = element.getLocalName();
+                if ("user-field-decl".equals(localName)) {
+                    // string user fields are displayed using their string value, so any formula can be ignored
+                    String valueType = element.getAttributeNS(OFFICE_NS, "value-type");
+                    if (!valueType.isEmpty() && !"string".equals(valueType)) {
+                        supported = false;
+                    }
+                    userFields.put(element.getAttributeNS(TEXT_NS, "name"), element);
+                    declaration = true;
+                } else if (UNSUPPORTED.contains(localName)) {
+                    supported = false;
+                }
+            }
+            NamedNodeMap attributes = declaration ? null : element.getAttributes();
+            for (int j = 0; attributes != null && j < attributes.getLength(); ++j) {
+                Attr attribute = (Attr) attributes.item(j);
+                if (UNSUPPORTED_ATTRIBUTES.contains(attribute.getLocalName())) {
+                    supported = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the displayed values of references to user fields that have been set.
+     *
+     * @param part the XML part
+     */
+    private void updateReferences(org.w3c.dom.Document part) {
+        for (String localName : new String[]{"user-field-get", "user-field-input"}) {
+            NodeList references = part.getElementsByTagNameNS(TEXT_NS, localName);
+            for (int i = 0; i < references.getLength(); ++i) {
+                Element reference = (Element) references.item(i);
+                String value = values.get(reference.getAttributeNS(TEXT_NS, "name"));
+                if (value != null) {
+                    Node child;
+                    while ((child = reference.getFirstChild()) != null) {
+                        reference.removeChild(child);
+                    }
+                    appendText(reference, value, part);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends text to an element.
+     * <p/>
+     * OpenDocument collapses whitespace in text content, so line breaks, tabs and runs of spaces are written as
+     * {@code <text:line-break/>}, {@code <text:tab/>} and {@code <text:s/>} elements respectively.
+     *
+     * @param element the element
+     * @param value   the text to append
+     * @param part    the XML part
+     */
+    private void appendText(Element element, String value, org.w3c.dom.Document part) {
+        StringBuilder text = new StringBuilder();
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            char ch = value.charAt(i);
+            if (ch == '\n' || ch == '\r' || ch == '\t') {
+                appendText(element, text, part);
+                if (ch == '\t') {
+                    element.appendChild(part.createElementNS(TEXT_NS, "text:tab"));
+                } else {
+                    if (ch == '\r' && i + 1 < length && value.charAt(i + 1) == '\n') {
+                        ++i;
+                    }
+                    element.appendChild(part.createElementNS(TEXT_NS, "text:line-break"));
+                }
+                ++i;
+            } else if (ch == ' ') {
+                // the first space is preserved, with any that follow written as a single <text:s text:c="n"/>
+                int end = i + 1;
+                while (end < length && value.charAt(end) == ' ') {
+                    ++end;
+                }
+                text.append(ch);
+                if (end - i > 1) {
+                    appendText(element, text, part);
+                    Element spaces = part.createElementNS(TEXT_NS, "text:s");
+                    spaces.setAttributeNS(TEXT_NS, "text:c", Integer.toString(end - i - 1));
+                    element.appendChild(spaces);
+                }
+                i = end;
+            } else {
+                text.append(ch);
+                ++i;
+            }
+        }
+        appendText(element, text, part);
+    }
+
+    /**
+     * Appends any pending text to an element as a text node.
+     *
+     * @param element the element
+     * @param text    the pending text. This is cleared on return
+     * @param part    the XML part
+     */
+    private void appendText(Element element, StringBuilder text, org.w3c.dom.Document part) {
+        if (text.length() != 0) {
+            element.appendChild(part.createTextNode(text.toString()));
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * Creates a namespace aware document builder that doesn't resolve external entities.
+     *
+     * @return a new document builder
+     * @throws Exception for any error
+     */
+    private DocumentBuilder createBuilder() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setExpandEntityReferences(false);
+        return factory.newDocumentBuilder();
+    }
+
+    /**
+     * Creates a transformer to serialize XML parts.
+     *
+     * @return a new transformer
+     * @throws Exception for any error
+     */
+    private Transformer createTransformer() throws Exception {
+        TransformerFactory factory = TransformerFactory.newInstance();
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        return factory.newTransformer();
+    }
+}
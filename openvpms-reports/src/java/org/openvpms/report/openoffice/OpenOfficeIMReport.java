@@ -17,10 +17,12 @@
 package org.openvpms.report.openoffice;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.jxpath.Functions;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openvpms.archetype.rules.doc.DocumentHandler;
 import org.openvpms.archetype.rules.doc.DocumentHandlers;
 import org.openvpms.component.business.domain.im.document.Document;
 import org.openvpms.component.business.service.archetype.ArchetypeServiceException;
@@ -34,10 +36,13 @@ import org.openvpms.report.ParameterType;
 import org.openvpms.report.PrintProperties;
 import org.openvpms.report.ReportException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -84,6 +89,15 @@ public class OpenOfficeIMReport<T> implements IMReport<T> {
      */
     private final Functions functions;
 
+    /**
+     * The template content, if the template can be populated without OpenOffice.
+     */
+    private byte[] content;
+
+    /**
+     * Determines if the template can be populated without OpenOffice. If {@code null}, this hasn't been determined.
+     */
+    private Boolean mergeable;
     /**
      * The logger.
      */
@@ -248,6 +262,10 @@ public class OpenOfficeIMReport<T> implements IMReport<T> {
      */
     public Document generate(Iterable<T> objects, Map<String, Object> parameters, Map<String, Object> fields,
                              String mimeType) {
+        if (DocFormats.ODT_TYPE.equals(mimeType) && isMergeable()) {
+            // no conversion required, so OpenOffice isn't needed
+            return merge(objects, parameters, fields);
+        }
         OpenOfficeDocument doc = null;
         OOConnection connection = null;
         try {
@@ -274,19 +292,17 @@ public class OpenOfficeIMReport<T> implements IMReport<T> {
      */
     public void generate(Iterable<T> objects, Map<String, Object> parameters, Map<String, Object> fields,
                          String mimeType, OutputStream stream) {
+        if (DocFormats.ODT_TYPE.equals(mimeType) && isMergeable()) {
+            write(populate(getObject(objects), parameters, fields).export(), stream);
+            return;
+        }
         OpenOfficeDocument doc = null;
         OOConnection connection = null;
         try {
             OOConnectionPool pool = OpenOfficeHelper.getConnectionPool();
             connection = pool.getConnection();
             doc = create(objects, parameters, fields, connection);
-            byte[] content = doc.export(mimeType);
-            try {
-                stream.write(content);
-            } catch (IOException exception) {
-                throw new ReportException(exception, FailedToGenerateReport, template.getName(),
-                                          exception.getMessage());
-            }
+            write(doc.export(mimeType), stream);
         } finally {
             close(doc, connection);
         }
@@ -355,16 +371,12 @@ public class OpenOfficeIMReport<T> implements IMReport<T> {
      */
     protected OpenOfficeDocument create(Iterable<T> objects, Map<String, Object> parameters, Map<String, Object> fields,
                                         OOConnection connection) {
-        OpenOfficeDocument doc = null;
-        Iterator<T> iter = objects.iterator();
-        T object = null;
-        if (iter.hasNext()) {
-            object = iter.next();
-        }
-        if (object == null || iter.hasNext()) {
-            throw new ReportException(FailedToGenerateReport, template.getName(), "Can only report on single objects");
+        if (isMergeable()) {
+            // populate the fields without OpenOffice, and only use it to convert or print the result
+            return createDocument(merge(objects, parameters, fields), connection, handlers);
         }
-
+        OpenOfficeDocument doc = null;
+        T object = getObject(objects);
         try {
             doc = createDocument(template, connection, handlers);
             if (parameters != null) {
@@ -452,6 +464,125 @@ public class OpenOfficeIMReport<T> implements IMReport<T> {
         }
     }
 
+    /**
+     * Determines if the template can be populated without OpenOffice.
+     * <p/>
+     * This is only possible for OpenDocument text templates that contain user fields, but no input fields or
+     * other fields that OpenOffice must evaluate.
+     *
+     * @return {@code true} if the template can be populated without OpenOffice
+     */
+    protected boolean isMergeable() {
+        if (mergeable == null) {
+            boolean result = false;
+            if (DocFormats.ODT_EXT.equalsIgnoreCase(FilenameUtils.getExtension(template.getName()))) {
+                byte[] bytes = getContent();
+                try {
+                    result = new ODTDocument(template.getName(), bytes).isSupported();
+                } catch (OpenOfficeException exception) {
+                    log.warn("Failed to read " + template.getName() + ". It will be populated using OpenOffice: "
+                             + exception.getMessage(), exception);
+                }
+                content = result ? bytes : null;
+            }
+            mergeable = result;
+        }
+        return mergeable;
+    }
+
+    /**
+     * Populates the template without OpenOffice.
+     *
+     * @param objects    the objects to generate the document from. Must contain a single object
+     * @param parameters a map of parameter names and their values, to pass to the report. May be {@code null}
+     * @param fields     a map of additional field names and their values, to pass to the report. May be {@code null}
+     * @return a new document
+     * @throws ReportException           for any report error
+     * @throws ArchetypeServiceException for any archetype service error
+     */
+    protected Document merge(Iterable<T> objects, Map<String, Object> parameters, Map<String, Object> fields) {
+        byte[] merged = populate(getObject(objects), parameters, fields).export();
+        String name = template.getName();
+        DocumentHandler handler = handlers.get(name, DocFormats.ODT_TYPE);
+        return handler.create(name, new ByteArrayInputStream(merged), DocFormats.ODT_TYPE, merged.length);
+    }
+
+    /**
+     * Populates the user fields of a copy of the template.
+     * <p/>
+     * If a field exists with the same name as a parameter, then this will be populated with the parameter value.
+     *
+     * @param object     the object to evaluate expressions with
+     * @param parameters the parameters. May be {@code null}
+     * @param fields     a map of additional field names and their values, to pass to the report. May be {@code null}
+     * @return the populated document
+     */
+    private ODTDocument populate(T object, Map<String, Object> parameters, Map<String, Object> fields) {
+        ODTDocument document = new ODTDocument(template.getName(), content);
+        ExpressionEvaluator eval = ExpressionEvaluatorFactory.create(object, fields, service, lookups, functions);
+        for (String name : document.getUserFieldNames()) {
+            String value = getParameter(name, parameters);
+            if (value == null) {
+                value = document.getUserField(name);
+                if (value != null) {
+                    value = eval.getFormattedValue(value);
+                }
+            }
+            document.setUserField(name, value);
+        }
+        return document;
+    }
+
+    /**
+     * Returns the object to report on.
+     *
+     * @param objects the objects. Must contain a single object
+     * @return the object
+     * @throws ReportException if there isn't exactly one object
+     */
+    private T getObject(Iterable<T> objects) {
+        Iterator<T> iter = objects.iterator();
+        T object = null;
+        if (iter.hasNext()) {
+            object = iter.next();
+        }
+        if (object == null || iter.hasNext()) {
+            throw new ReportException(FailedToGenerateReport, template.getName(), "Can only report on single objects");
+        }
+        return object;
+    }
+
+    /**
+     * Returns the template content.
+     *
+     * @return the template content
+     * @throws ReportException if the content cannot be read
+     */
+    private byte[] getContent() {
+        DocumentHandler handler = handlers.get(template);
+        try (InputStream stream = handler.getContent(template)) {
+            return IOUtils.toByteArray(stream);
+        } catch (IOException exception) {
+            throw new ReportException(exception, FailedToGenerateReport, template.getName(),
+                                      exception.getMessage());
+        }
+    }
+
+    /**
+     * Writes report content to a stream.
+     *
+     * @param content the content
+     * @param stream  the stream
+     * @throws ReportException if the content cannot be written
+     */
+    private void write(byte[] content, OutputStream stream) {
+        try {
+            stream.write(content);
+        } catch (IOException exception) {
+            throw new ReportException(exception, FailedToGenerateReport, template.getName(), exception.getMessage());
+        }
+    }
+
     /**
      * Helper to return the string value of a parameter, if it exists.
      *
@@ -477,6 +608,13 @@ public class OpenOfficeIMReport<T> implements IMReport<T> {
      * @return the document parameters
      */
     private Map<String, ParameterType> getParameters() {
+        if (parameters == null && isMergeable()) {
+            // mergeable templates have no input fields
+            parameters = new LinkedHashMap<>();
+            if (new ODTDocument(template.getName(), content).hasUserField(IS_EMAIL)) {
+                parameters.put(IS_EMAIL, new ParameterType(IS_EMAIL, boolean.class, IS_EMAIL, true, false));
+            }
+        }
         if (parameters == null) {
             OpenOfficeDocument doc = null;
             OOConnection connection = null;
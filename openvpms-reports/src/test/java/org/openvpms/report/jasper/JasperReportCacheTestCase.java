@@ -0,0 +1,198 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.report.jasper;
+
+import net.sf.jasperreports.engine.DefaultJasperReportsContext;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openvpms.component.business.domain.im.document.Document;
+import org.openvpms.report.AbstractReportTest;
+import org.openvpms.report.DocFormats;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the {@link JasperReportCache} class.
+ *
+ * @author Tim Anderson
+ */
+public class JasperReportCacheTestCase extends AbstractReportTest {
+
+    /**
+     * Temporary folder for compiled reports.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The cache under test.
+     */
+    private JasperReportCache cache;
+
+    /**
+     * The template document.
+     */
+    private Document document;
+
+    /**
+     * The number of times the template has been compiled.
+     */
+    private int compiled;
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp() {
+        cache = new JasperReportCache(10, getArchetypeService());
+        document = getDocument("src/test/reports/party.customerperson.jrxml", DocFormats.XML_TYPE);
+        save(document);
+    }
+
+    /**
+     * Cleans up after the test.
+     */
+    @After
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    /**
+     * Verifies that a template is only compiled once.
+     */
+    @Test
+    public void testCache() {
+        JasperReport report1 = cache.getReport(document, compiler());
+        JasperReport report2 = cache.getReport(document, compiler());
+        assertNotNull(report1);
+        assertSame(report1, report2);
+        assertEquals(1, compiled);
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Verifies that a report is recompiled when its document is saved or removed.
+     */
+    @Test
+    public void testInvalidation() {
+        JasperReport report1 = cache.getReport(document, compiler());
+
+        document.setDescription("updated");
+        save(document);
+        assertEquals(0, cache.size());
+
+        JasperReport report2 = cache.getReport(document, compiler());
+        assertNotSame(report1, report2);
+        assertEquals(2, compiled);
+
+        remove(document);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Verifies that compiled reports are saved to, and loaded from, the directory, when one is configured.
+     */
+    @Test
+    public void testDirectory() {
+        File dir = folder.getRoot();
+        cache.setDirectory(dir.getPath());
+        assertNotNull(cache.getReport(document, compiler()));
+        assertEquals(1, compiled);
+        assertEquals(1, dir.listFiles().length);
+
+        // verify a new cache doesn't recompile the report
+        JasperReportCache other = new JasperReportCache(10, getArchetypeService());
+        try {
+            other.setDirectory(dir.getPath());
+            assertNotNull(other.getReport(document, compiler()));
+            assertEquals(1, compiled);
+        } finally {
+            other.destroy();
+        }
+
+        // verify the saved report is deleted when the cache is cleared
+        cache.clear();
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    /**
+     * Verifies that a directory is created accessible only to the current user, and that compiled reports aren't
+     * saved to a directory writable by other users.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testDirectoryPermissions() throws IOException {
+        Path root = folder.getRoot().toPath();
+        Assume.assumeTrue(root.getFileSystem().supportedFileAttributeViews().contains("posix"));
+
+        File created = new File(folder.getRoot(), "jasper");
+        cache.setDirectory(created.getPath());
+        assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(created.toPath()));
+        assertNotNull(cache.getReport(document, compiler()));
+        assertEquals(1, created.listFiles().length);
+
+        File shared = folder.newFolder("shared");
+        Files.setPosixFilePermissions(shared.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        JasperReportCache other = new JasperReportCache(10, getArchetypeService());
+        try {
+            other.setDirectory(shared.getPath());
+            assertNotNull(other.getReport(document, compiler()));
+            assertEquals(0, shared.listFiles().length);
+        } finally {
+            other.destroy();
+        }
+    }
+
+    /**
+     * Returns a compiler for the template document, that counts the number of times it is invoked.
+     *
+     * @return the compiler
+     */
+    private Supplier<JasperReport> compiler() {
+        return () -> {
+            compiled++;
+            try {
+                JasperReportsContext context = DefaultJasperReportsContext.getInstance();
+                JasperDesign design = JasperReportHelper.getReport(document, getHandlers(), context);
+                return JasperCompileManager.compileReport(design);
+            } catch (JRException exception) {
+                throw new IllegalStateException(exception);
+            }
+        };
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.report.openoffice;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link ODTDocument} class.
+ *
+ * @author Tim Anderson
+ */
+public class ODTDocumentTestCase {
+
+    /**
+     * Content with user fields.
+     */
+    private static final String USER_FIELDS
+            = "<text:user-field-decls>"
+              + "<text:user-field-decl office:value-type=\"string\" office:string-value=\"customer.entity.name\" "
+              + "text:name=\"name\"/>"
+              + "<text:user-field-decl office:value-type=\"string\" office:string-value=\"[1 + 1]\" "
+              + "text:name=\"expression\"/>"
+              + "</text:user-field-decls>"
+              + "<text:p>Dear <text:user-field-get text:name=\"name\">customer.entity.name</text:user-field-get>"
+              + "</text:p>";
+
+    /**
+     * Tests the {@link ODTDocument#getUserFieldNames()}, {@link ODTDocument#getUserField(String)},
+     * {@link ODTDocument#setUserField(String, String)} and {@link ODTDocument#export()} methods.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUserFields() throws Exception {
+        ODTDocument document = new ODTDocument("test.odt", createODT(USER_FIELDS));
+        assertTrue(document.isSupported());
+        assertEquals(Arrays.asList("name", "expression"), document.getUserFieldNames());
+        assertTrue(document.hasUserField("name"));
+        assertFalse(document.hasUserField("IsEmail"));
+        assertEquals("customer.entity.name", document.getUserField("name"));
+        assertEquals("[1 + 1]", document.getUserField("expression"));
+
+        document.setUserField("name", "Foo & Bar");
+        document.setUserField("expression", null);
+        byte[] exported = document.export();
+
+        // verify the mimetype is the first entry, and isn't compressed
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(exported))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertEquals("mimetype", entry.getName());
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+        }
+
+        // verify the declarations and displayed values have been updated
+        ODTDocument reloaded = new ODTDocument("test.odt", exported);
+        assertEquals("Foo & Bar", reloaded.getUserField("name"));
+        assertEquals("", reloaded.getUserField("expression"));
+        String content = getContent(exported);
+        assertTrue(content.contains(">Foo &amp; Bar</text:user-field-get>"));
+    }
+
+    /**
+     * Verifies that line breaks, tabs and runs of spaces in user field values are written as OpenDocument elements,
+     * so that they aren't collapsed when the document is displayed.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testMultiLineUserField() throws Exception {
+        ODTDocument document = new ODTDocument("test.odt", createODT(USER_FIELDS));
+        String value = "Foo Bar\n12 Smith St\r\nSuburb\tVIC   3000";
+        document.setUserField("name", value);
+        byte[] exported = document.export();
+
+        ODTDocument reloaded = new ODTDocument("test.odt", exported);
+        assertEquals(value, reloaded.getUserField("name"));
+        String content = getContent(exported);
+        assertTrue(content.contains(">Foo Bar<text:line-break/>12 Smith St<text:line-break/>Suburb<text:tab/>"
+                                    + "VIC <text:s text:c=\"2\"/>3000</text:user-field-get>"));
+    }
+
+    /**
+     * Verifies that documents with fields that must be evaluated by OpenOffice are not supported.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnsupported() throws Exception {
+        checkUnsupported("<text:p><text:text-input text:description=\"hint\">value</text:text-input></text:p>");
+        checkUnsupported("<text:p><text:conditional-text text:condition=\"ooow:IsEmail == 1\" "
+                         + "text:string-value-if-true=\"a\" text:string-value-if-false=\"b\">b"
+                         + "</text:conditional-text></text:p>");
+        checkUnsupported("<text:user-field-decls>"
+                         + "<text:user-field-decl office:value-type=\"float\" office:value=\"1\" text:name=\"x\"/>"
+                         + "</text:user-field-decls>");
+
+        // the estimation template has input fields
+        File file = new File("src/test/reports/act.customerEstimation.odt");
+        ODTDocument document = new ODTDocument(file.getName(), FileUtils.readFileToByteArray(file));
+        assertFalse(document.isSupported());
+    }
+
+    /**
+     * Verifies a document is not supported.
+     *
+     * @param body the document body
+     * @throws IOException for any I/O error
+     */
+    private void checkUnsupported(String body) throws IOException {
+        ODTDocument document = new ODTDocument("test.odt", createODT(body));
+        assertFalse(document.isSupported());
+    }
+
+    /**
+     * Returns the content.xml of a document.
+     *
+     * @param document the document
+     * @return the content
+     * @throws IOException for any I/O error
+     */
+    private String getContent(byte[] document) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(document))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if ("content.xml".equals(entry.getName())) {
+                    ByteArrayOutputStream result = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[1024];
+                    int read;
+                    while ((read = zip.read(buffer)) != -1) {
+                        result.write(buffer, 0, read);
+                    }
+                    return new String(result.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        throw new IOException("content.xml not found");
+    }
+
+    /**
+     * Creates a minimal OpenDocument text document.
+     *
+     * @param body the document body
+     * @return the document content
+     * @throws IOException for any I/O error
+     */
+    private byte[] createODT(String body) throws IOException {
+        String content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                         + "<office:document-content "
+                         + "xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\" "
+                         + "xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\" office:version=\"1.2\">"
+                         + "<office:body><office:text>" + body + "</office:text></office:body>"
+                         + "</office:document-content>";
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(result)) {
+            zip.putNextEntry(new ZipEntry("mimetype"));
+            zip.write("application/vnd.oasis.opendocument.text".getBytes(StandardCharsets.US_ASCII));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("content.xml"));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return result.toByteArray();
+    }
+}
@@ -68,7 +68,7 @@ public abstract class AbstractExpressionMacroRunner extends MacroRunner {
         Object result;
         try {
             jxPathContext.getVariables().declareVariable("number", number);
-            result = jxPathContext.getValue(macro.getExpression());
+            result = JXPathHelper.getValue(jxPathContext, macro.getExpression());
         } catch (MacroException exception) {
             throw exception;
         } catch (Throwable exception) {
@@ -26,8 +26,12 @@ import org.openvpms.component.business.service.archetype.ArchetypeServiceExcepti
 import org.openvpms.component.business.service.archetype.IArchetypeService;
 import org.openvpms.component.business.service.archetype.IArchetypeServiceListener;
 import org.openvpms.component.business.service.archetype.ReadOnlyArchetypeService;
+import org.openvpms.component.business.service.cache.Invalidation;
+import org.openvpms.component.business.service.cache.InvalidationBus;
+import org.openvpms.component.business.service.cache.InvalidationListener;
 import org.openvpms.component.business.service.lookup.ILookupService;
 import org.openvpms.component.model.lookup.Lookup;
+import org.openvpms.component.model.object.Reference;
 import org.openvpms.component.system.common.util.Variables;
 import org.openvpms.macro.MacroException;
 import org.openvpms.macro.Macros;
@@ -81,6 +85,16 @@ public class LookupMacros implements Macros, InitializingBean, DisposableBean {
      */
     private final IArchetypeServiceListener listener;
 
+    /**
+     * The listener to monitor macro updates made by other nodes.
+     */
+    private final InvalidationListener invalidationListener = this::invalidate;
+
+    /**
+     * The bus to receive macro updates from other nodes. May be {@code null}
+     */
+    private InvalidationBus bus;
+
     /**
      * The per-thread variables. These are required so that variables may be supplied to nested macros when they
      * are invoked via macro:eval().
@@ -320,6 +334,21 @@ public class LookupMacros implements Macros, InitializingBean, DisposableBean {
     public void destroy() {
         for (String shortName : MacroArchetypes.LOOKUP_MACROS) {
             service.removeListener(shortName, listener);
+            if (bus != null) {
+                bus.removeListener(shortName, invalidationListener);
+            }
+        }
+    }
+
+    /**
+     * Registers a bus to receive macro updates made by other nodes.
+     *
+     * @param bus the invalidation bus
+     */
+    public void setInvalidationBus(InvalidationBus bus) {
+        this.bus = bus;
+        for (String shortName : MacroArchetypes.LOOKUP_MACROS) {
+            bus.addListener(shortName, invalidationListener);
         }
     }
 
@@ -351,6 +380,26 @@ public class LookupMacros implements Macros, InitializingBean, DisposableBean {
         }
     }
 
+    /**
+     * Invoked when a macro lookup is changed by another node.
+     * <p/>
+     * Any existing macro for the lookup is removed, as its code may have changed.
+     *
+     * @param invalidation the invalidation
+     */
+    private void invalidate(Invalidation invalidation) {
+        Reference reference = invalidation.getReference();
+        synchronized (macros) {
+            macros.values().removeIf(macro -> reference.equals(macro.getReference()));
+        }
+        if (invalidation.getType() == Invalidation.Type.SAVED) {
+            Lookup lookup = (Lookup) service.get(reference);
+            if (lookup != null) {
+                onSaved(lookup);
+            }
+        }
+    }
+
     /**
      * Adds a macro to the cache.
      *
@@ -17,6 +17,7 @@
 package org.openvpms.macro.impl;
 
 import org.openvpms.component.model.lookup.Lookup;
+import org.openvpms.component.model.object.Reference;
 
 
 /**
@@ -36,6 +37,11 @@ abstract class Macro {
      */
     private final String name;
 
+    /**
+     * The macro lookup reference.
+     */
+    private final Reference reference;
+
     /**
      * Constructs a {@code Macro} from a lookup.
      *
@@ -44,6 +50,7 @@ abstract class Macro {
     public Macro(Lookup lookup) {
         this.code = lookup.getCode();
         this.name = lookup.getName();
+        this.reference = lookup.getObjectReference();
     }
 
     /**
@@ -63,4 +70,13 @@ abstract class Macro {
     public String getName() {
         return name;
     }
+
+    /**
+     * Returns the reference of the macro lookup.
+     *
+     * @return the lookup reference
+     */
+    public Reference getReference() {
+        return reference;
+    }
 }
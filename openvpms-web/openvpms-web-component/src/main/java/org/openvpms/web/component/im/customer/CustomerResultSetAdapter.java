@@ -53,6 +53,6 @@ public class CustomerResultSetAdapter extends ResultSetAdapter<ObjectSet, Party>
             Party customer = (Party) set.get("customer");
             objects.add(customer);
         }
-        return new Page<Party>(objects, page.getFirstResult(), page.getPageSize(), page.getTotalResults());
+        return new Page<>(objects, page);
     }
 }
\ No newline at end of file
@@ -229,7 +229,7 @@ public abstract class AbstractCachingResultSet<T> extends AbstractResultSet<T> {
                 int lastResult = firstResult + results.size();
                 if (lastResult > count) {
                     count = lastResult;
-                    estimation = (results.size() == maxResults);
+                    estimation = matches.hasMoreResults();
                 }
             }
         } catch (OpenVPMSException exception) {
@@ -63,6 +63,6 @@ public class EntityResultSetAdapter<T extends Entity> extends ResultSetAdapter<O
             T entity = (T) IMObjectHelper.getObject(ref, context);
             objects.add(entity);
         }
-        return new Page<T>(objects, page.getFirstResult(), page.getPageSize(), page.getTotalResults());
+        return new Page<>(objects, page);
     }
 }
@@ -74,7 +74,6 @@ public class ObjectSetResultSetAdapter<T>
         for (ObjectSet set : page.getResults()) {
             objects.add(type.cast(set.get(name)));
         }
-        return new Page<T>(objects, page.getFirstResult(), page.getPageSize(),
-                           page.getTotalResults());
+        return new Page<>(objects, page);
     }
 }
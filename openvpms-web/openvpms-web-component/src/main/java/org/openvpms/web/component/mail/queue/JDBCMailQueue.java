@@ -0,0 +1,208 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A {@link MailQueue} that persists messages in the {@code mail_queue} table, so that they survive restarts.
+ * <p/>
+ * Messages are claimed by conditionally updating their status from {@code PENDING} to {@code SENDING}, so that
+ * multiple nodes sharing a database can dispatch from the same queue without sending a message twice.
+ * <br/>
+ * Messages left in the {@code SENDING} state for longer than the claim timeout (e.g. due to a node shutting down
+ * mid-delivery) are returned to the {@code PENDING} state.
+ * <p/>
+ * Sent messages are deleted. Failed messages are retained with their error for reporting purposes.
+ *
+ * @author Tim Anderson
+ */
+public class JDBCMailQueue implements MailQueue {
+
+    /**
+     * The JDBC template.
+     */
+    private final JdbcTemplate template;
+
+    /**
+     * The time a message may remain claimed before it is returned to the queue, in seconds.
+     */
+    private int claimTimeout = DEFAULT_CLAIM_TIMEOUT;
+
+    /**
+     * The default claim timeout, in seconds.
+     */
+    public static final int DEFAULT_CLAIM_TIMEOUT = 600;
+
+    /**
+     * Pending status.
+     */
+    private static final String PENDING = "PENDING";
+
+    /**
+     * Sending status.
+     */
+    private static final String SENDING = "SENDING";
+
+    /**
+     * Failed status.
+     */
+    private static final String FAILED = "FAILED";
+
+    /**
+     * The maximum length of the recipients and error columns.
+     */
+    private static final int MAX_TEXT_LENGTH = 1024;
+
+    /**
+     * The maximum length of the subject column.
+     */
+    private static final int MAX_SUBJECT_LENGTH = 255;
+
+    /**
+     * Constructs a {@link JDBCMailQueue}.
+     *
+     * @param dataSource the data source
+     */
+    public JDBCMailQueue(DataSource dataSource) {
+        template = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Sets the time a message may remain claimed before it is returned to the queue.
+     * <p/>
+     * This must be longer than the time taken to deliver a message.
+     *
+     * @param timeout the timeout, in seconds
+     */
+    public void setClaimTimeout(int timeout) {
+        this.claimTimeout = timeout;
+    }
+
+    /**
+     * Adds a message to the queue.
+     *
+     * @param server     the identifier of the <em>entity.mailServer</em> to send the message with
+     * @param recipients the message recipients, for reporting purposes
+     * @param subject    the message subject, for reporting purposes. May be {@code null}
+     * @param content    the raw MIME content of the message
+     * @param reference  identifies what the message was sent for. May be {@code null}
+     * @return the message identifier
+     */
+    @Override
+    public long add(long server, String recipients, String subject, byte[] content, String reference) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        KeyHolder key = new GeneratedKeyHolder();
+        template.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "insert into mail_queue (server_id, recipients, subject, reference, content, status, attempts, "
+                    + "next_attempt, created) values (?, ?, ?, ?, ?, ?, 0, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            statement.setLong(1, server);
+            statement.setString(2, StringUtils.abbreviate(recipients, MAX_TEXT_LENGTH));
+            statement.setString(3, StringUtils.abbreviate(subject, MAX_SUBJECT_LENGTH));
+            statement.setString(4, reference);
+            statement.setBytes(5, content);
+            statement.setString(6, PENDING);
+            statement.setTimestamp(7, now);
+            statement.setTimestamp(8, now);
+            return statement;
+        }, key);
+        return key.getKey().longValue();
+    }
+
+    /**
+     * Claims messages that are due for delivery.
+     * <p/>
+     * Claimed messages won't be returned by subsequent calls, unless they are not completed within the claim timeout.
+     *
+     * @param max the maximum no. of messages to claim
+     * @return the claimed messages, in the order they were queued
+     */
+    @Override
+    public List<QueuedMail> claim(int max) {
+        long now = System.currentTimeMillis();
+        Timestamp timestamp = new Timestamp(now);
+        template.update("update mail_queue set status = ?, claimed = null where status = ? and claimed < ?",
+                        PENDING, SENDING, new Timestamp(now - claimTimeout * 1000L));
+        List<QueuedMail> result = new ArrayList<>();
+        List<QueuedMail> due = template.query(
+                "select id, server_id, attempts, reference from mail_queue where status = ? and next_attempt <= ? "
+                + "order by id limit ?", (set, row) -> new QueuedMail(set.getLong("id"), set.getLong("server_id"),
+                                                                      null, set.getInt("attempts"),
+                                                                      set.getString("reference")),
+                PENDING, timestamp, max);
+        for (QueuedMail mail : due) {
+            // another node may have claimed the message in the interim
+            if (template.update("update mail_queue set status = ?, claimed = ? where id = ? and status = ?",
+                                SENDING, timestamp, mail.getId(), PENDING) == 1) {
+                byte[] content = template.queryForObject("select content from mail_queue where id = ?",
+                                                         byte[].class, mail.getId());
+                result.add(new QueuedMail(mail.getId(), mail.getServer(), content, mail.getAttempts(),
+                                          mail.getReference()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Invoked when a message has been sent. This removes it from the queue.
+     *
+     * @param mail the message
+     */
+    @Override
+    public void sent(QueuedMail mail) {
+        template.update("delete from mail_queue where id = ?", mail.getId());
+    }
+
+    /**
+     * Invoked when a message couldn't be sent, but may be retried.
+     *
+     * @param mail  the message
+     * @param error the error message
+     * @param next  the time to next attempt delivery
+     */
+    @Override
+    public void retry(QueuedMail mail, String error, Date next) {
+        template.update("update mail_queue set status = ?, attempts = ?, next_attempt = ?, claimed = null, error = ? "
+                        + "where id = ?", PENDING, mail.getAttempts() + 1, new Timestamp(next.getTime()),
+                        StringUtils.abbreviate(error, MAX_TEXT_LENGTH), mail.getId());
+    }
+
+    /**
+     * Invoked when a message couldn't be sent, and won't be retried.
+     *
+     * @param mail  the message
+     * @param error the error message
+     */
+    @Override
+    public void failed(QueuedMail mail, String error) {
+        template.update("update mail_queue set status = ?, attempts = ?, claimed = null, error = ? where id = ?",
+                        FAILED, mail.getAttempts() + 1, StringUtils.abbreviate(error, MAX_TEXT_LENGTH),
+                        mail.getId());
+    }
+}
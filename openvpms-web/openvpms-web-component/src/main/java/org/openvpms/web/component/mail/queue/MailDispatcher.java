@@ -0,0 +1,601 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openvpms.archetype.rules.practice.MailServer;
+import org.openvpms.component.business.domain.im.common.Entity;
+import org.openvpms.component.business.domain.im.common.IMObjectReference;
+import org.openvpms.component.business.service.archetype.IArchetypeService;
+import org.openvpms.web.component.service.DefaultMailService;
+import org.openvpms.web.component.service.MailService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers messages from a {@link MailQueue}.
+ * <p/>
+ * A background thread claims messages that are due for delivery, and hands them to a pool of worker threads.
+ * Each mail server has its own {@link TransportPool}, so that connected, authenticated transports are reused for
+ * many messages, and the no. of connections and the send rate can be limited per server.
+ * <p/>
+ * Messages that fail with a transient error are retried with exponential backoff, up to a maximum no. of attempts.
+ * Messages that can never be sent (e.g. due to invalid recipients, or a deleted mail server) fail immediately.
+ * <p/>
+ * As senders are told that a message has been sent once it is queued, they should supply a reference when queuing
+ * it, and register a {@link MailListener} to be notified of messages that fail.
+ *
+ * @author Tim Anderson
+ */
+public class MailDispatcher implements InitializingBean, DisposableBean {
+
+    /**
+     * The queue.
+     */
+    private final MailQueue queue;
+
+    /**
+     * The archetype service.
+     */
+    private final IArchetypeService service;
+
+    /**
+     * The transport pools, keyed on mail server identifier.
+     */
+    private final Map<Long, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * The no. of messages handed to the workers, but not yet completed.
+     */
+    private final AtomicInteger inProgress = new AtomicInteger();
+
+    /**
+     * The listeners to notify of failed messages.
+     */
+    private final List<MailListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * The executor used to poll the queue.
+     */
+    private ScheduledExecutorService poller;
+
+    /**
+     * The executor used to send messages.
+     */
+    private ExecutorService workers;
+
+    /**
+     * The no. of worker threads.
+     */
+    private int threads = 2;
+
+    /**
+     * The maximum no. of connections per mail server.
+     */
+    private int maxConnections = 2;
+
+    /**
+     * The maximum no. of messages to send per minute, per mail server, or {@code 0} for no limit.
+     */
+    private int rate = 0;
+
+    /**
+     * The maximum no. of delivery attempts.
+     */
+    private int maxAttempts = 8;
+
+    /**
+     * The delay before the first retry, in seconds. This doubles for each subsequent retry.
+     */
+    private int retryDelay = 60;
+
+    /**
+     * The maximum delay between retries, in seconds.
+     */
+    private int maxRetryDelay = 3600;
+
+    /**
+     * The interval between polls, in milliseconds.
+     */
+    private long pollInterval = 5000;
+
+    /**
+     * The time after which idle connections are closed, in milliseconds.
+     */
+    private long idleTimeout = 60000;
+
+    /**
+     * The timeout for establishing a connection, in seconds, or {@code 0} to use the mail server timeout.
+     */
+    private int connectionTimeout = 0;
+
+    /**
+     * Determines if JavaMail debugging is enabled.
+     */
+    private boolean debug;
+
+    /**
+     * The mail server archetype.
+     */
+    private static final String MAIL_SERVER = "entity.mailServer";
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(MailDispatcher.class);
+
+    /**
+     * Constructs a {@link MailDispatcher}.
+     *
+     * @param queue   the queue
+     * @param service the archetype service
+     */
+    public MailDispatcher(MailQueue queue, IArchetypeService service) {
+        this.queue = queue;
+        this.service = service;
+    }
+
+    /**
+     * Sets the no. of threads used to send messages.
+     *
+     * @param threads the no. of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the maximum no. of concurrent connections to each mail server.
+     *
+     * @param maxConnections the maximum no. of connections
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Sets the maximum no. of messages to send to each mail server per minute.
+     *
+     * @param rate the no. of messages per minute, or {@code 0} for no limit
+     */
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Sets the maximum no. of attempts to deliver a message, before it is marked as failed.
+     *
+     * @param maxAttempts the maximum no. of attempts
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Sets the delay before the first retry. This doubles for each subsequent retry, up to the maximum retry delay.
+     *
+     * @param delay the delay, in seconds
+     */
+    public void setRetryDelay(int delay) {
+        this.retryDelay = delay;
+    }
+
+    /**
+     * Sets the maximum delay between retries.
+     *
+     * @param delay the delay, in seconds
+     */
+    public void setMaxRetryDelay(int delay) {
+        this.maxRetryDelay = delay;
+    }
+
+    /**
+     * Sets the interval between polls of the queue.
+     *
+     * @param interval the interval, in milliseconds
+     */
+    public void setPollInterval(long interval) {
+        this.pollInterval = interval;
+    }
+
+    /**
+     * Sets the time after which idle connections are closed.
+     *
+     * @param timeout the timeout, in milliseconds
+     */
+    public void setIdleTimeout(long timeout) {
+        this.idleTimeout = timeout;
+    }
+
+    /**
+     * Sets the timeout for establishing a connection.
+     *
+     * @param timeout the timeout, in seconds. Use {@code <= 0} to use the mail server timeout
+     */
+    public void setConnectionTimeout(int timeout) {
+        this.connectionTimeout = timeout;
+    }
+
+    /**
+     * Determines if JavaMail debugging output is enabled.
+     *
+     * @param debug if {@code true} turn on debugging output
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    /**
+     * Adds a listener to be notified of messages that fail.
+     *
+     * @param listener the listener
+     */
+    public void addListener(MailListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(MailListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts polling the queue.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MailDispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "MailDispatcher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling the queue, and closes connections.
+     * <p/>
+     * Messages that are being sent are given a short time to complete. Any still claimed will be re-queued by the
+     * {@link MailQueue}.
+     */
+    @Override
+    public void destroy() {
+        if (poller != null) {
+            poller.shutdown();
+            workers.shutdown();
+            try {
+                poller.awaitTermination(pollInterval, TimeUnit.MILLISECONDS);
+                workers.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            poller = null;
+            workers = null;
+        }
+        for (Pool pool : pools.values()) {
+            pool.transports.close();
+        }
+        pools.clear();
+    }
+
+    /**
+     * Queues a message for delivery.
+     * <p/>
+     * This returns as soon as the message is queued.
+     *
+     * @param server    the mail server to send the message with
+     * @param message   the message
+     * @param reference identifies what the message is being sent for, so {@link MailListener}s can determine what to
+     *                  update if it fails. May be {@code null}
+     * @throws MailException if the message cannot be queued
+     */
+    public void queue(MailServer server, MimeMessage message, String reference) {
+        String recipients;
+        String subject;
+        byte[] content;
+        try {
+            recipients = toString(message.getAllRecipients());
+            subject = message.getSubject();
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            message.writeTo(stream);
+            content = stream.toByteArray();
+        } catch (MessagingException | IOException exception) {
+            throw new MailPreparationException("Failed to queue message: " + exception.getMessage(), exception);
+        }
+        queue.add(server.getId(), recipients, subject, content, reference);
+        wakeup();
+    }
+
+    /**
+     * Schedules an immediate poll of the queue.
+     */
+    public void wakeup() {
+        ScheduledExecutorService executor = poller;
+        if (executor != null) {
+            try {
+                executor.execute(this::poll);
+            } catch (Throwable exception) {
+                // executor has been shut down. The message will be sent on restart
+                log.debug("Failed to schedule poll: " + exception.getMessage(), exception);
+            }
+        }
+    }
+
+    /**
+     * Claims messages due for delivery, and hands them to the worker threads.
+     * <p/>
+     * No more messages are claimed than the workers can process before the next poll, to avoid claiming messages
+     * that other nodes could be sending.
+     */
+    protected void poll() {
+        try {
+            int max = threads * 2 - inProgress.get();
+            if (max > 0) {
+                closeIdle();
+                List<QueuedMail> messages = queue.claim(max);
+                Map<Long, TransportPool> servers = new HashMap<>();
+                for (QueuedMail mail : messages) {
+                    long id = mail.getServer();
+                    TransportPool pool = servers.containsKey(id) ? servers.get(id) : getPool(id);
+                    servers.put(id, pool);
+                    if (pool == null) {
+                        failed(mail, "Mail server " + id + " not found", null);
+                    } else {
+                        inProgress.incrementAndGet();
+                        workers.execute(() -> send(mail, pool));
+                    }
+                }
+            }
+        } catch (Throwable exception) {
+            log.error("Failed to poll mail queue: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Returns the transport pool for a mail server.
+     * <p/>
+     * If the mail server settings have changed, the existing pool is closed, and a new one created.
+     *
+     * @param id the mail server identifier
+     * @return the pool, or {@code null} if the mail server doesn't exist
+     */
+    protected TransportPool getPool(long id) {
+        MailServer settings = getMailServer(id);
+        Pool pool = pools.get(id);
+        if (settings == null) {
+            if (pool != null) {
+                pools.remove(id);
+                pool.transports.close();
+            }
+            return null;
+        }
+        if (pool == null || !pool.settings.equals(settings)) {
+            if (pool != null) {
+                pool.transports.close();
+            }
+            pool = new Pool(settings, new TransportPool(createMailService(settings), maxConnections, rate));
+            pools.put(id, pool);
+        }
+        return pool.transports;
+    }
+
+    /**
+     * Returns the mail server settings.
+     *
+     * @param id the mail server identifier
+     * @return the settings, or {@code null} if the mail server doesn't exist
+     */
+    protected MailServer getMailServer(long id) {
+        Entity entity = (Entity) service.get(new IMObjectReference(MAIL_SERVER, id));
+        return (entity != null) ? new MailServer(entity, service) : null;
+    }
+
+    /**
+     * Creates a mail service to send messages with.
+     *
+     * @param settings the mail server settings
+     * @return a new mail service
+     */
+    protected MailService createMailService(MailServer settings) {
+        DefaultMailService result = new DefaultMailService(settings);
+        result.setConnectionTimeout(connectionTimeout);
+        result.setDebug(debug);
+        return result;
+    }
+
+    /**
+     * Sends a message.
+     *
+     * @param mail the message
+     * @param pool the transport pool to send the message with
+     */
+    private void send(QueuedMail mail, TransportPool pool) {
+        try {
+            pool.send(mail.getContent());
+            queue.sent(mail);
+        } catch (SendFailedException exception) {
+            Address[] invalid = exception.getInvalidAddresses();
+            Address[] unsent = exception.getValidUnsentAddresses();
+            if (invalid != null && invalid.length != 0 && (unsent == null || unsent.length == 0)) {
+                // the recipients were rejected, so the message can never be delivered
+                failed(mail, exception);
+            } else {
+                retry(mail, exception);
+            }
+        } catch (MailParseException exception) {
+            failed(mail, exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            retry(mail, exception);
+        } catch (Throwable exception) {
+            retry(mail, exception);
+        } finally {
+            inProgress.decrementAndGet();
+        }
+    }
+
+    /**
+     * Schedules a message to be retried, or marks it as failed if the maximum no. of attempts has been reached.
+     *
+     * @param mail      the message
+     * @param exception the reason for the failure
+     */
+    private void retry(QueuedMail mail, Throwable exception) {
+        int attempt = mail.getAttempts() + 1;
+        if (attempt >= maxAttempts) {
+            failed(mail, exception);
+        } else {
+            long delay = Math.min(retryDelay * (1L << Math.min(attempt - 1, 30)), maxRetryDelay);
+            Date next = new Date(System.currentTimeMillis() + delay * 1000);
+            String error = getError(exception);
+            log.warn("Failed to send mail " + mail.getId() + ", attempt " + attempt + ", retrying at " + next + ": "
+                     + error);
+            try {
+                queue.retry(mail, error, next);
+            } catch (Throwable queueException) {
+                log.error("Failed to update mail " + mail.getId() + ": " + queueException.getMessage(),
+                          queueException);
+            }
+        }
+    }
+
+    /**
+     * Marks a message as failed.
+     *
+     * @param mail      the message
+     * @param exception the reason for the failure
+     */
+    private void failed(QueuedMail mail, Throwable exception) {
+        failed(mail, getError(exception), exception);
+    }
+
+    /**
+     * Marks a message as failed, and notifies any listeners.
+     *
+     * @param mail      the message
+     * @param error     the reason for the failure
+     * @param exception the exception. May be {@code null}
+     */
+    private void failed(QueuedMail mail, String error, Throwable exception) {
+        log.error("Failed to send mail " + mail.getId() + ": " + error, exception);
+        try {
+            queue.failed(mail, error);
+        } catch (Throwable queueException) {
+            log.error("Failed to update mail " + mail.getId() + ": " + queueException.getMessage(), queueException);
+        }
+        for (MailListener listener : listeners) {
+            try {
+                listener.failed(mail, error);
+            } catch (Throwable listenerException) {
+                log.error("Failed to notify listener of failure of mail " + mail.getId() + ": "
+                          + listenerException.getMessage(), listenerException);
+            }
+        }
+    }
+
+    /**
+     * Closes connections that have been idle longer than the idle timeout.
+     */
+    private void closeIdle() {
+        for (Pool pool : pools.values()) {
+            pool.transports.closeIdle(idleTimeout);
+        }
+    }
+
+    /**
+     * Returns an error message for an exception.
+     *
+     * @param exception the exception
+     * @return the error message
+     */
+    private String getError(Throwable exception) {
+        String message = exception.getMessage();
+        return (message != null) ? message : exception.getClass().getName();
+    }
+
+    /**
+     * Formats addresses as a comma separated string.
+     *
+     * @param addresses the addresses. May be {@code null}
+     * @return the formatted addresses
+     */
+    private String toString(Address[] addresses) {
+        StringBuilder result = new StringBuilder();
+        if (addresses != null) {
+            for (Address address : addresses) {
+                if (result.length() != 0) {
+                    result.append(", ");
+                }
+                String value = (address instanceof InternetAddress) ? ((InternetAddress) address).getAddress()
+                                                                    : address.toString();
+                result.append(StringUtils.trimToEmpty(value));
+            }
+        }
+        return result.toString();
+    }
+
+    private static class Pool {
+
+        /**
+         * The mail server settings.
+         */
+        private final MailServer settings;
+
+        /**
+         * The transports.
+         */
+        private final TransportPool transports;
+
+        Pool(MailServer settings, TransportPool transports) {
+            this.settings = settings;
+            this.transports = transports;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+/**
+ * Listener for messages that a {@link MailDispatcher} could not deliver.
+ *
+ * @author Tim Anderson
+ */
+public interface MailListener {
+
+    /**
+     * Invoked when a message has failed, and won't be retried.
+     * <p/>
+     * This is invoked on a dispatcher thread. Implementations should ignore messages whose
+     * {@link QueuedMail#getReference() reference} they don't recognise.
+     *
+     * @param mail  the message
+     * @param error the reason for the failure
+     */
+    void failed(QueuedMail mail, String error);
+}
@@ -0,0 +1,77 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A queue of outbound mail messages.
+ * <p/>
+ * Messages are added as raw MIME content, and claimed in batches by a {@link MailDispatcher} for delivery.
+ * A claimed message must subsequently be passed to one of {@link #sent}, {@link #retry} or {@link #failed}.
+ *
+ * @author Tim Anderson
+ */
+public interface MailQueue {
+
+    /**
+     * Adds a message to the queue.
+     *
+     * @param server     the identifier of the <em>entity.mailServer</em> to send the message with
+     * @param recipients the message recipients, for reporting purposes
+     * @param subject    the message subject, for reporting purposes. May be {@code null}
+     * @param content    the raw MIME content of the message
+     * @param reference  identifies what the message was sent for. May be {@code null}
+     * @return the message identifier
+     */
+    long add(long server, String recipients, String subject, byte[] content, String reference);
+
+    /**
+     * Claims messages that are due for delivery.
+     * <p/>
+     * Claimed messages won't be returned by subsequent calls, unless they are not completed within a timeout.
+     *
+     * @param max the maximum no. of messages to claim
+     * @return the claimed messages, in the order they were queued
+     */
+    List<QueuedMail> claim(int max);
+
+    /**
+     * Invoked when a message has been sent. This removes it from the queue.
+     *
+     * @param mail the message
+     */
+    void sent(QueuedMail mail);
+
+    /**
+     * Invoked when a message couldn't be sent, but may be retried.
+     *
+     * @param mail  the message
+     * @param error the error message
+     * @param next  the time to next attempt delivery
+     */
+    void retry(QueuedMail mail, String error, Date next);
+
+    /**
+     * Invoked when a message couldn't be sent, and won't be retried.
+     *
+     * @param mail  the message
+     * @param error the error message
+     */
+    void failed(QueuedMail mail, String error);
+}
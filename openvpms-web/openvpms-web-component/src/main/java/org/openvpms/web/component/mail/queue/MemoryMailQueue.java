@@ -0,0 +1,165 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link MailQueue} that holds messages in memory.
+ * <p/>
+ * Messages are lost on restart. This is intended for testing purposes.
+ *
+ * @author Tim Anderson
+ */
+public class MemoryMailQueue implements MailQueue {
+
+    /**
+     * The queued messages, keyed on identifier.
+     */
+    private final Map<Long, Entry> messages = new LinkedHashMap<>();
+
+    /**
+     * The failed messages, and their errors.
+     */
+    private final Map<QueuedMail, String> failed = new LinkedHashMap<>();
+
+    /**
+     * The next message identifier.
+     */
+    private long nextId = 1;
+
+    /**
+     * Adds a message to the queue.
+     *
+     * @param server     the identifier of the <em>entity.mailServer</em> to send the message with
+     * @param recipients the message recipients, for reporting purposes
+     * @param subject    the message subject, for reporting purposes. May be {@code null}
+     * @param content    the raw MIME content of the message
+     * @param reference  identifies what the message was sent for. May be {@code null}
+     * @return the message identifier
+     */
+    @Override
+    public synchronized long add(long server, String recipients, String subject, byte[] content, String reference) {
+        long id = nextId++;
+        messages.put(id, new Entry(new QueuedMail(id, server, content, 0, reference), System.currentTimeMillis()));
+        return id;
+    }
+
+    /**
+     * Claims messages that are due for delivery.
+     *
+     * @param max the maximum no. of messages to claim
+     * @return the claimed messages, in the order they were queued
+     */
+    @Override
+    public synchronized List<QueuedMail> claim(int max) {
+        List<QueuedMail> result = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = messages.values().iterator();
+        while (iterator.hasNext() && result.size() < max) {
+            Entry entry = iterator.next();
+            if (!entry.claimed && entry.next <= now) {
+                entry.claimed = true;
+                result.add(entry.mail);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Invoked when a message has been sent. This removes it from the queue.
+     *
+     * @param mail the message
+     */
+    @Override
+    public synchronized void sent(QueuedMail mail) {
+        messages.remove(mail.getId());
+    }
+
+    /**
+     * Invoked when a message couldn't be sent, but may be retried.
+     *
+     * @param mail  the message
+     * @param error the error message
+     * @param next  the time to next attempt delivery
+     */
+    @Override
+    public synchronized void retry(QueuedMail mail, String error, Date next) {
+        QueuedMail retry = new QueuedMail(mail.getId(), mail.getServer(), mail.getContent(), mail.getAttempts() + 1,
+                                          mail.getReference());
+        messages.put(mail.getId(), new Entry(retry, next.getTime()));
+    }
+
+    /**
+     * Invoked when a message couldn't be sent, and won't be retried.
+     *
+     * @param mail  the message
+     * @param error the error message
+     */
+    @Override
+    public synchronized void failed(QueuedMail mail, String error) {
+        messages.remove(mail.getId());
+        failed.put(new QueuedMail(mail.getId(), mail.getServer(), mail.getContent(), mail.getAttempts() + 1,
+                                  mail.getReference()), error);
+    }
+
+    /**
+     * Returns the no. of messages in the queue, excluding those that have failed.
+     *
+     * @return the no. of messages
+     */
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    /**
+     * Returns the messages that have failed.
+     *
+     * @return the failed messages, and their errors
+     */
+    public synchronized Map<QueuedMail, String> getFailed() {
+        return new LinkedHashMap<>(failed);
+    }
+
+    private static class Entry {
+
+        /**
+         * The message.
+         */
+        private final QueuedMail mail;
+
+        /**
+         * The time when delivery may next be attempted.
+         */
+        private final long next;
+
+        /**
+         * Determines if the message has been claimed.
+         */
+        private boolean claimed;
+
+        Entry(QueuedMail mail, long next) {
+            this.mail = mail;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+/**
+ * A mail message claimed from a {@link MailQueue} for delivery.
+ *
+ * @author Tim Anderson
+ */
+public class QueuedMail {
+
+    /**
+     * The message identifier.
+     */
+    private final long id;
+
+    /**
+     * The mail server identifier.
+     */
+    private final long server;
+
+    /**
+     * The raw MIME content of the message.
+     */
+    private final byte[] content;
+
+    /**
+     * The no. of prior delivery attempts.
+     */
+    private final int attempts;
+
+    /**
+     * The reference supplied when the message was queued. May be {@code null}
+     */
+    private final String reference;
+
+    /**
+     * Constructs a {@link QueuedMail}.
+     *
+     * @param id        the message identifier
+     * @param server    the mail server identifier
+     * @param content   the raw MIME content of the message
+     * @param attempts  the no. of prior delivery attempts
+     * @param reference the reference supplied when the message was queued. May be {@code null}
+     */
+    public QueuedMail(long id, long server, byte[] content, int attempts, String reference) {
+        this.id = id;
+        this.server = server;
+        this.content = content;
+        this.attempts = attempts;
+        this.reference = reference;
+    }
+
+    /**
+     * Returns the message identifier.
+     *
+     * @return the message identifier
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the identifier of the <em>entity.mailServer</em> to send the message with.
+     *
+     * @return the mail server identifier
+     */
+    public long getServer() {
+        return server;
+    }
+
+    /**
+     * Returns the raw MIME content of the message.
+     *
+     * @return the message content
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Returns the no. of prior delivery attempts.
+     *
+     * @return the no. of prior delivery attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the reference supplied when the message was queued.
+     * <p/>
+     * This identifies what the message was sent for, so that {@link MailListener}s can act on delivery failures.
+     *
+     * @return the reference. May be {@code null}
+     */
+    public String getReference() {
+        return reference;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+import org.openvpms.archetype.rules.practice.MailServer;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.io.InputStream;
+
+/**
+ * A {@link JavaMailSender} that queues messages with a {@link MailDispatcher}, rather than sending them directly.
+ * <p/>
+ * The send methods return as soon as the messages are queued. Messages are queued with a reference, so that
+ * {@link MailListener}s registered with the dispatcher can update what they were sent for, should delivery fail.
+ *
+ * @author Tim Anderson
+ */
+public class QueuedMailSender implements JavaMailSender {
+
+    /**
+     * The sender used to create messages.
+     */
+    private final JavaMailSender sender;
+
+    /**
+     * The mail server to send messages with.
+     */
+    private final MailServer server;
+
+    /**
+     * The dispatcher.
+     */
+    private final MailDispatcher dispatcher;
+
+    /**
+     * The reference to queue messages with. May be {@code null}
+     */
+    private final String reference;
+
+    /**
+     * Constructs a {@link QueuedMailSender}.
+     *
+     * @param sender     the sender used to create messages
+     * @param server     the mail server to send messages with
+     * @param dispatcher the dispatcher to queue messages with
+     * @param reference  identifies what the messages are being sent for. May be {@code null}
+     */
+    public QueuedMailSender(JavaMailSender sender, MailServer server, MailDispatcher dispatcher, String reference) {
+        this.sender = sender;
+        this.server = server;
+        this.dispatcher = dispatcher;
+        this.reference = reference;
+    }
+
+    /**
+     * Creates a new MIME message.
+     *
+     * @return a new message
+     */
+    @Override
+    public MimeMessage createMimeMessage() {
+        return sender.createMimeMessage();
+    }
+
+    /**
+     * Creates a new MIME message, using the given input stream as the message source.
+     *
+     * @param contentStream the raw MIME input stream for the message
+     * @return a new message
+     * @throws MailParseException in case of message creation failure
+     */
+    @Override
+    public MimeMessage createMimeMessage(InputStream contentStream) throws MailException {
+        return sender.createMimeMessage(contentStream);
+    }
+
+    /**
+     * Queues a MIME message.
+     *
+     * @param mimeMessage the message to queue
+     * @throws MailException if the message cannot be queued
+     */
+    @Override
+    public void send(MimeMessage mimeMessage) throws MailException {
+        dispatcher.queue(server, mimeMessage, reference);
+    }
+
+    /**
+     * Queues MIME messages.
+     *
+     * @param mimeMessages the messages to queue
+     * @throws MailException if a message cannot be queued
+     */
+    @Override
+    public void send(MimeMessage[] mimeMessages) throws MailException {
+        for (MimeMessage mimeMessage : mimeMessages) {
+            send(mimeMessage);
+        }
+    }
+
+    /**
+     * Queues a MIME message prepared by the given preparator.
+     *
+     * @param mimeMessagePreparator the preparator to use
+     * @throws MailException if the message cannot be prepared or queued
+     */
+    @Override
+    public void send(MimeMessagePreparator mimeMessagePreparator) throws MailException {
+        MimeMessage message = createMimeMessage();
+        try {
+            mimeMessagePreparator.prepare(message);
+        } catch (MailException exception) {
+            throw exception;
+        } catch (MessagingException exception) {
+            throw new MailParseException(exception);
+        } catch (Exception exception) {
+            throw new MailPreparationException(exception);
+        }
+        send(message);
+    }
+
+    /**
+     * Queues MIME messages prepared by the given preparators.
+     *
+     * @param mimeMessagePreparators the preparators to use
+     * @throws MailException if a message cannot be prepared or queued
+     */
+    @Override
+    public void send(MimeMessagePreparator[] mimeMessagePreparators) throws MailException {
+        for (MimeMessagePreparator preparator : mimeMessagePreparators) {
+            send(preparator);
+        }
+    }
+
+    /**
+     * Queues a simple mail message.
+     *
+     * @param simpleMessage the message to queue
+     * @throws MailException if the message cannot be queued
+     */
+    @Override
+    public void send(SimpleMailMessage simpleMessage) throws MailException {
+        MimeMailMessage message = new MimeMailMessage(createMimeMessage());
+        simpleMessage.copyTo(message);
+        send(message.getMimeMessage());
+    }
+
+    /**
+     * Queues simple mail messages.
+     *
+     * @param simpleMessages the messages to queue
+     * @throws MailException if a message cannot be queued
+     */
+    @Override
+    public void send(SimpleMailMessage[] simpleMessages) throws MailException {
+        for (SimpleMailMessage simpleMessage : simpleMessages) {
+            send(simpleMessage);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openvpms.web.component.service.MailService;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pools connected {@link Transport}s to a single mail server, so that many messages may be sent over the same
+ * authenticated connection.
+ * <p/>
+ * The no. of concurrent connections is limited, as is the rate at which messages are sent.
+ *
+ * @author Tim Anderson
+ */
+class TransportPool {
+
+    /**
+     * The mail service used to connect and parse messages.
+     */
+    private final MailService service;
+
+    /**
+     * Limits the no. of concurrent connections.
+     */
+    private final Semaphore permits;
+
+    /**
+     * The idle transports. The most recently used is at the head.
+     */
+    private final Deque<PooledTransport> idle = new ArrayDeque<>();
+
+    /**
+     * The minimum interval between sends, in milliseconds, or {@code 0} if sends aren't rate limited.
+     */
+    private final long interval;
+
+    /**
+     * The time when the next send may start.
+     */
+    private long next;
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(TransportPool.class);
+
+    /**
+     * Constructs a {@link TransportPool}.
+     *
+     * @param service        the mail service used to connect and parse messages
+     * @param maxConnections the maximum no. of concurrent connections
+     * @param rate           the maximum no. of messages to send per minute, or {@code 0} for no limit
+     */
+    TransportPool(MailService service, int maxConnections, int rate) {
+        this.service = service;
+        this.permits = new Semaphore(maxConnections);
+        this.interval = (rate > 0) ? 60000L / rate : 0;
+    }
+
+    /**
+     * Sends a message.
+     * <p/>
+     * This blocks until a connection is available. A transport that fails is closed rather than being returned
+     * to the pool.
+     *
+     * @param content the raw MIME content of the message
+     * @throws MessagingException   if the message cannot be sent
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void send(byte[] content) throws MessagingException, InterruptedException {
+        MimeMessage message = service.createMimeMessage(new ByteArrayInputStream(content));
+        permits.acquire();
+        try {
+            PooledTransport transport = borrow();
+            boolean success = false;
+            try {
+                throttle();
+                transport.transport.sendMessage(message, message.getAllRecipients());
+                success = true;
+            } finally {
+                if (success) {
+                    release(transport);
+                } else {
+                    close(transport);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes transports that have been idle longer than the specified time.
+     *
+     * @param timeout the idle timeout, in milliseconds
+     */
+    public void closeIdle(long timeout) {
+        long expiry = System.currentTimeMillis() - timeout;
+        synchronized (idle) {
+            Iterator<PooledTransport> iterator = idle.descendingIterator();
+            while (iterator.hasNext()) {
+                PooledTransport transport = iterator.next();
+                if (transport.lastUsed < expiry) {
+                    iterator.remove();
+                    close(transport);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes all idle transports.
+     */
+    public void close() {
+        closeIdle(-1);
+    }
+
+    /**
+     * Returns an idle transport, connecting a new one if none is available.
+     *
+     * @return a connected transport
+     * @throws MessagingException if a transport cannot be connected
+     */
+    private PooledTransport borrow() throws MessagingException {
+        PooledTransport result;
+        synchronized (idle) {
+            result = idle.pollFirst();
+        }
+        if (result != null && !result.transport.isConnected()) {
+            close(result);
+            result = null;
+        }
+        if (result == null) {
+            result = new PooledTransport(service.connect());
+        }
+        return result;
+    }
+
+    /**
+     * Returns a transport to the pool.
+     *
+     * @param transport the transport
+     */
+    private void release(PooledTransport transport) {
+        transport.lastUsed = System.currentTimeMillis();
+        synchronized (idle) {
+            idle.addFirst(transport);
+        }
+    }
+
+    /**
+     * Waits until the next send is permitted by the rate limit.
+     *
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private void throttle() throws InterruptedException {
+        if (interval > 0) {
+            long wait;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                long start = Math.max(now, next);
+                next = start + interval;
+                wait = start - now;
+            }
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+        }
+    }
+
+    /**
+     * Closes a transport, logging any error.
+     *
+     * @param transport the transport to close
+     */
+    private void close(PooledTransport transport) {
+        try {
+            transport.transport.close();
+        } catch (MessagingException exception) {
+            log.debug("Failed to close transport: " + exception.getMessage(), exception);
+        }
+    }
+
+    private static class PooledTransport {
+
+        /**
+         * The transport.
+         */
+        private final Transport transport;
+
+        /**
+         * The time the transport was last used.
+         */
+        private long lastUsed;
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
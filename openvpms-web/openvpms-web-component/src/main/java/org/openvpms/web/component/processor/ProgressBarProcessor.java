@@ -234,8 +234,7 @@ public abstract class ProgressBarProcessor<T>
         if (!isSuspended() && (lastRefresh == 0 || ((time - lastRefresh) > REFRESH_INTERVAL))) {
             // enable a refresh of the progress bar
             setSuspend(true);
-            final ApplicationInstance app = ApplicationInstance.getActive();
-            app.enqueueTask(getTaskQueue(), new Runnable() {
+            schedule(new Runnable() {
                 public void run() {
                     process();
                 }
@@ -298,6 +297,18 @@ public abstract class ProgressBarProcessor<T>
         return bar;
     }
 
+    /**
+     * Schedules a task to be run on the next client callback.
+     * <p/>
+     * This can be used to poll work being performed in the background, without blocking the client.
+     *
+     * @param task the task to run
+     */
+    protected void schedule(Runnable task) {
+        ApplicationInstance app = ApplicationInstance.getActive();
+        app.enqueueTask(getTaskQueue(), task);
+    }
+
     /**
      * Returns the task queue, creating it if it doesn't exist.
      *
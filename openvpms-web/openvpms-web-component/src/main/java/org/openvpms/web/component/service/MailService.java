@@ -30,6 +30,8 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessagePreparator;
 
+import javax.mail.MessagingException;
+import javax.mail.Transport;
 import javax.mail.internet.MimeMessage;
 import java.io.InputStream;
 import java.util.Properties;
@@ -264,6 +266,21 @@ public abstract class MailService implements JavaMailSender {
     public void setDebugAuth(boolean debug) {
         this.debugAuth = debug;
     }
+    /**
+     * Connects a transport to the mail server.
+     * <p>
+     * The transport may be used to send multiple messages, avoiding the overhead of connecting and authenticating
+     * for each. The caller is responsible for closing it.
+     *
+     * @return a connected transport
+     * @throws MessagingException if the transport cannot be connected
+     */
+    public Transport connect() throws MessagingException {
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) getSender();
+        Transport transport = sender.getSession().getTransport(sender.getProtocol());
+        transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        return transport;
+    }
 
     /**
      * Returns a mail sender, creating it if none is present, or the settings have changed.
@@ -292,7 +309,7 @@ public abstract class MailService implements JavaMailSender {
      * @param settings the mail server settings
      * @return a new mail sender
      */
-    protected JavaMailSender createMailSender(MailServer settings) {
+    protected JavaMailSenderImpl createMailSender(MailServer settings) {
         JavaMailSenderImpl result;
         result = createMailSender();
         Properties properties = result.getJavaMailProperties();
@@ -0,0 +1,229 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal SMTP server for testing purposes.
+ * <p/>
+ * This records the messages it receives, and can be configured to reject senders and recipients.
+ *
+ * @author Tim Anderson
+ */
+class FakeSMTPServer {
+
+    /**
+     * The server socket.
+     */
+    private final ServerSocket socket;
+
+    /**
+     * The received messages.
+     */
+    private final List<String> messages = new ArrayList<>();
+
+    /**
+     * Recipients to reject with a permanent error.
+     */
+    private final Set<String> rejected = new HashSet<>();
+
+    /**
+     * The no. of connections accepted.
+     */
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * The no. of MAIL commands to reject with a transient error.
+     */
+    private final AtomicInteger rejectMail = new AtomicInteger();
+
+    /**
+     * Constructs a {@link FakeSMTPServer} listening on a free port.
+     *
+     * @throws IOException for any I/O error
+     */
+    FakeSMTPServer() throws IOException {
+        socket = new ServerSocket(0);
+        Thread thread = new Thread(this::accept, "FakeSMTPServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Returns the received messages.
+     *
+     * @return the messages
+     */
+    public synchronized List<String> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    /**
+     * Returns the no. of connections accepted.
+     *
+     * @return the no. of connections
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Rejects a recipient with a permanent error.
+     *
+     * @param address the recipient address
+     */
+    public synchronized void reject(String address) {
+        rejected.add(address);
+    }
+
+    /**
+     * Rejects the next MAIL commands with a transient error.
+     *
+     * @param count the no. of MAIL commands to reject
+     */
+    public void rejectMail(int count) {
+        rejectMail.set(count);
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignore) {
+            // no-op
+        }
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                connections.incrementAndGet();
+                Thread thread = new Thread(() -> handle(client), "FakeSMTPServer-" + connections.get());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException ignore) {
+                // socket closed
+            }
+        }
+    }
+
+    /**
+     * Handles an SMTP conversation.
+     *
+     * @param client the client socket
+     */
+    private void handle(Socket client) {
+        try (Socket ignore = client) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(),
+                                                                             StandardCharsets.ISO_8859_1));
+            OutputStream out = client.getOutputStream();
+            reply(out, "220 localhost ESMTP");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                    reply(out, "250 localhost");
+                } else if (command.startsWith("MAIL")) {
+                    if (rejectMail.getAndDecrement() > 0) {
+                        reply(out, "451 Try again later");
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                } else if (command.startsWith("RCPT")) {
+                    if (isRejected(line)) {
+                        reply(out, "550 No such user");
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    StringBuilder message = new StringBuilder();
+                    while ((line = reader.readLine()) != null && !line.equals(".")) {
+                        message.append(line.startsWith("..") ? line.substring(1) : line).append("\r\n");
+                    }
+                    synchronized (this) {
+                        messages.add(message.toString());
+                    }
+                    reply(out, "250 OK");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    break;
+                } else if (command.equals("RSET") || command.equals("NOOP")) {
+                    reply(out, "250 OK");
+                } else {
+                    reply(out, "500 Unrecognised command");
+                }
+            }
+        } catch (IOException ignore) {
+            // client disconnected
+        }
+    }
+
+    /**
+     * Determines if a RCPT command refers to a rejected recipient.
+     *
+     * @param line the RCPT command
+     * @return {@code true} if the recipient is rejected
+     */
+    private synchronized boolean isRejected(String line) {
+        for (String address : rejected) {
+            if (line.contains("<" + address + ">")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends a reply.
+     *
+     * @param out   the stream to write to
+     * @param reply the reply
+     * @throws IOException for any I/O error
+     */
+    private void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+}
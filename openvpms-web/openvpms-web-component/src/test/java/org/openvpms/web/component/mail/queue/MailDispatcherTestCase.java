@@ -0,0 +1,243 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.component.mail.queue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openvpms.archetype.rules.practice.MailServer;
+import org.openvpms.web.component.service.DefaultMailService;
+
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the {@link MailDispatcher}.
+ *
+ * @author Tim Anderson
+ */
+public class MailDispatcherTestCase {
+
+    /**
+     * The SMTP server.
+     */
+    private FakeSMTPServer server;
+
+    /**
+     * The mail server settings.
+     */
+    private MailServer settings;
+
+    /**
+     * The queue.
+     */
+    private MemoryMailQueue queue;
+
+    /**
+     * The dispatcher.
+     */
+    private MailDispatcher dispatcher;
+
+    /**
+     * The mail service.
+     */
+    private DefaultMailService mailService;
+
+    /**
+     * The sender, configured to queue messages.
+     */
+    private QueuedMailSender sender;
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws Exception for any error
+     */
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeSMTPServer();
+        settings = mock(MailServer.class);
+        when(settings.getId()).thenReturn(1L);
+        when(settings.getHost()).thenReturn("localhost");
+        when(settings.getPort()).thenReturn(server.getPort());
+        when(settings.getSecurity()).thenReturn(MailServer.Security.NONE);
+        when(settings.getTimeout()).thenReturn(10);
+
+        queue = new MemoryMailQueue();
+        dispatcher = new MailDispatcher(queue, null) {
+            @Override
+            protected MailServer getMailServer(long id) {
+                return (id == settings.getId()) ? settings : null;
+            }
+        };
+        dispatcher.setThreads(4);
+        dispatcher.setMaxConnections(2);
+        dispatcher.setRetryDelay(0);
+        dispatcher.setPollInterval(50);
+        dispatcher.afterPropertiesSet();
+
+        mailService = new DefaultMailService(settings);
+        sender = new QueuedMailSender(mailService, settings, dispatcher, "test");
+    }
+
+    /**
+     * Cleans up after the test.
+     */
+    @After
+    public void tearDown() {
+        dispatcher.destroy();
+        server.close();
+    }
+
+    /**
+     * Verifies that messages are queued, and sent over a limited no. of connections.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSend() throws Exception {
+        for (int i = 0; i < 20; ++i) {
+            sender.send(createMessage("foo" + i + "@localhost", "message " + i));
+        }
+        waitForQueue();
+        assertEquals(20, server.getMessages().size());
+        assertTrue(server.getConnections() <= 2);
+        assertTrue(queue.getFailed().isEmpty());
+    }
+
+    /**
+     * Verifies that messages that fail with a transient error are retried.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testRetry() throws Exception {
+        server.rejectMail(2);
+        sender.send(createMessage("foo@localhost", "retry"));
+        waitForQueue();
+        assertEquals(1, server.getMessages().size());
+        assertTrue(queue.getFailed().isEmpty());
+    }
+
+    /**
+     * Verifies that a message is marked as failed once the maximum no. of attempts is reached.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testMaxAttempts() throws Exception {
+        dispatcher.setMaxAttempts(3);
+        server.rejectMail(100);
+        sender.send(createMessage("foo@localhost", "max attempts"));
+        waitForQueue();
+        assertEquals(0, server.getMessages().size());
+        Map<QueuedMail, String> failed = queue.getFailed();
+        assertEquals(1, failed.size());
+        assertEquals(3, failed.keySet().iterator().next().getAttempts());
+    }
+
+    /**
+     * Verifies that a message to a rejected recipient fails without being retried.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testRejectedRecipient() throws Exception {
+        server.reject("bar@localhost");
+        sender.send(createMessage("bar@localhost", "rejected"));
+        waitForQueue();
+        assertEquals(0, server.getMessages().size());
+        Map<QueuedMail, String> failed = queue.getFailed();
+        assertEquals(1, failed.size());
+        assertEquals(1, failed.keySet().iterator().next().getAttempts());
+    }
+
+    /**
+     * Verifies that a message for an unknown mail server fails.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnknownServer() throws Exception {
+        queue.add(2, "foo@localhost", "unknown", new byte[0], null);
+        dispatcher.wakeup();
+        waitForQueue();
+        assertEquals(1, queue.getFailed().size());
+    }
+
+    /**
+     * Verifies that listeners are notified of failed messages, with the reference they were queued with.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testListener() throws Exception {
+        Map<String, String> failed = new ConcurrentHashMap<>();
+        dispatcher.addListener((mail, error) -> failed.put(mail.getReference(), error));
+        server.reject("bar@localhost");
+        new QueuedMailSender(mailService, settings, dispatcher, "rejected").send(
+                createMessage("bar@localhost", "rejected"));
+        sender.send(createMessage("foo@localhost", "sent"));
+        waitForQueue();
+
+        // listeners are notified after the queue is updated
+        long timeout = System.currentTimeMillis() + 10000;
+        while (failed.isEmpty() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, server.getMessages().size());
+        assertEquals(1, failed.size());
+        assertTrue(failed.containsKey("rejected"));
+    }
+
+    /**
+     * Creates a message.
+     *
+     * @param to      the recipient
+     * @param subject the subject
+     * @return a new message
+     * @throws Exception for any error
+     */
+    private MimeMessage createMessage(String to, String subject) throws Exception {
+        MimeMessage message = mailService.createMimeMessage();
+        message.setFrom(new InternetAddress("sender@localhost"));
+        message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress(to));
+        message.setSubject(subject);
+        message.setText(subject);
+        return message;
+    }
+
+    /**
+     * Waits for the queue to empty.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    private void waitForQueue() throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (queue.size() != 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, queue.size());
+    }
+}
@@ -18,6 +18,7 @@ package org.openvpms.web.jobs.reminder;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openvpms.archetype.component.processor.PipelineStage;
 import org.openvpms.archetype.rules.doc.DocumentHandlers;
 import org.openvpms.archetype.rules.patient.PatientRules;
 import org.openvpms.archetype.rules.patient.reminder.GroupingReminderIterator;
@@ -44,6 +45,7 @@ import org.openvpms.web.component.im.report.ReporterFactory;
 import org.openvpms.web.component.mail.DefaultMailerFactory;
 import org.openvpms.web.component.mail.EmailTemplateEvaluator;
 import org.openvpms.web.component.mail.MailerFactory;
+import org.openvpms.web.component.mail.queue.MailDispatcher;
 import org.openvpms.web.component.service.MailService;
 import org.openvpms.web.component.service.PracticeMailService;
 import org.openvpms.web.jobs.JobCompletionNotifier;
@@ -62,9 +64,16 @@ import org.quartz.Trigger;
 
 import java.util.Date;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A job to send patient email and SMS reminders.
+ * <p/>
+ * Reminders are sent via a pipeline: the job thread reads and prepares groups of reminders, which are rendered
+ * on one pool of threads, and delivered on another. Email and SMS are sent separately, each with their own delivery
+ * pool. The stages are bounded, so a slow mail server or SMS gateway throttles reading and rendering, rather than
+ * reminders accumulating in memory.
  *
  * @author Tim Anderson
  */
@@ -105,6 +114,11 @@ public class PatientReminderSenderJob implements InterruptableJob, SingletonJob
      */
     private final MailerFactory mailerFactory;
 
+    /**
+     * The dispatcher to queue reminder emails with. May be {@code null}
+     */
+    private final MailDispatcher dispatcher;
+
     /**
      * The email template evaluator.
      */
@@ -130,6 +144,11 @@ public class PatientReminderSenderJob implements InterruptableJob, SingletonJob
      */
     private final CommunicationLogger communicationLogger;
 
+    /**
+     * The pipeline configuration.
+     */
+    private final ReminderSenderConfig senderConfig;
+
     /**
      * Used to send messages to users on completion or failure.
      */
@@ -154,20 +173,23 @@ public class PatientReminderSenderJob implements InterruptableJob, SingletonJob
      * @param reminderRules          the reminder rules
      * @param patientRules           the patient rules
      * @param mailService            the mail service
+     * @param dispatcher             the dispatcher to queue reminder emails with. May be {@code null}
      * @param handlers               the document handlers
      * @param emailTemplateEvaluator the email template evaluator
      * @param reporterFactory        the reporter factory
      * @param connectionFactory      the connection factory
      * @param smsEvaluator           the SMS template evaluator
      * @param communicationLogger    the communication logger
+     * @param senderConfig           the pipeline configuration
      */
     public PatientReminderSenderJob(Entity configuration, IArchetypeRuleService service,
                                     PracticeService practiceService, ReminderRules reminderRules,
                                     PatientRules patientRules, PracticeRules practiceRules,
-                                    PracticeMailService mailService, DocumentHandlers handlers,
+                                    PracticeMailService mailService, MailDispatcher dispatcher,
+                                    DocumentHandlers handlers,
                                     EmailTemplateEvaluator emailTemplateEvaluator, ReporterFactory reporterFactory,
                                     ConnectionFactory connectionFactory, ReminderSMSEvaluator smsEvaluator,
-                                    CommunicationLogger communicationLogger) {
+                                    CommunicationLogger communicationLogger, ReminderSenderConfig senderConfig) {
         this.configuration = configuration;
         this.service = service;
         this.practiceService = practiceService;
@@ -175,11 +197,13 @@ public class PatientReminderSenderJob implements InterruptableJob, SingletonJob
         this.patientRules = patientRules;
         this.practiceRules = practiceRules;
         this.mailerFactory = getMailerFactory(mailService, handlers);
+        this.dispatcher = dispatcher;
         this.emailTemplateEvaluator = emailTemplateEvaluator;
         this.reporterFactory = reporterFactory;
         this.connectionFactory = connectionFactory;
         this.smsEvaluator = smsEvaluator;
         this.communicationLogger = communicationLogger;
+        this.senderConfig = senderConfig;
         notifier = new JobCompletionNotifier(service);
     }
 
@@ -244,9 +268,10 @@ public class PatientReminderSenderJob implements InterruptableJob, SingletonJob
                                                                       reporterFactory, reminderTypes, practice,
                                                                       reminderRules, patientRules, practiceRules,
                                                                       service, config, logger);
+        processor.setDispatcher(dispatcher);
         GroupingReminderIterator iterator = createIterator(ReminderArchetypes.EMAIL_REMINDER, reminderTypes, date,
                                                            config);
-        return send(cancelDate, processor, iterator);
+        return send(cancelDate, processor, iterator, "PatientReminderEmail", getEmailThreads());
     }
 
     /**
@@ -267,7 +292,7 @@ public class PatientReminderSenderJob implements InterruptableJob, SingletonJob
                                                                service, config, logger);
         GroupingReminderIterator iterator = createIterator(ReminderArchetypes.SMS_REMINDER, reminderTypes, date,
                                                            config);
-        return send(cancelDate, sender, iterator);
+        return send(cancelDate, sender, iterator, "PatientReminderSMS", getSMSThreads());
     }
 
     /**
@@ -311,6 +336,42 @@ public class PatientReminderSenderJob implements InterruptableJob, SingletonJob
         return 1000;
     }
 
+    /**
+     * Returns the no. of threads used to render reminders.
+     *
+     * @return the no. of render threads
+     */
+    protected int getRenderThreads() {
+        return senderConfig.getRenderThreads();
+    }
+
+    /**
+     * Returns the no. of threads used to send email reminders.
+     *
+     * @return the no. of email threads
+     */
+    protected int getEmailThreads() {
+        return senderConfig.getEmailThreads();
+    }
+
+    /**
+     * Returns the no. of threads used to send SMS reminders.
+     *
+     * @return the no. of SMS threads
+     */
+    protected int getSMSThreads() {
+        return senderConfig.getSmsThreads();
+    }
+
+    /**
+     * Returns the maximum no. of reminder groups that may be waiting to be rendered, or waiting to be sent.
+     *
+     * @return the queue size
+     */
+    protected int getQueueSize() {
+        return senderConfig.getQueueSize();
+    }
+
     /**
      * Creates a mailer factory.
      *
@@ -324,62 +385,158 @@ public class PatientReminderSenderJob implements InterruptableJob, SingletonJob
 
     /**
      * Sends reminders.
+     * <p/>
+     * The iterator is only accessed by the calling thread. As updates made by the delivery threads alter the
+     * paging of the underlying query, reminders may be skipped; once the pipeline drains, the query is re-issued from
+     * the start if anything was updated. The iterator excludes reminders it has already returned.
+     * <p/>
+     * If the job is interrupted, no further reminders are read, and those waiting to be rendered or sent are
+     * discarded. Reminders already being sent are allowed to complete.
      *
      * @param cancelDate all reminders with a startTime + cancel interval prior to this will be cancelled
      * @param processor  the processor to use
      * @param iterator   the reminder iterator
+     * @param name       the name used to identify pipeline threads
+     * @param threads    the no. of threads to send reminders on
      * @return the statistics
      */
-    private Stats send(Date cancelDate, PatientReminderProcessor processor, GroupingReminderIterator iterator) {
-        Stats total = new Stats();
-        while (!stop && iterator.hasNext()) {
-            Reminders reminders = iterator.next();
-            try {
-                PatientReminders state = processor.prepare(reminders.getReminders(), reminders.getGroupBy(), cancelDate,
-                                                           false);
-                Stats stats = send(state, processor, iterator);
-                total = total.add(stats);
-            } catch (Throwable exception) {
-                log.error("Failed to send reminders", exception);
-                total = total.add(new Stats(0, 0, reminders.getReminders().size()));
+    private Stats send(Date cancelDate, PatientReminderProcessor processor, GroupingReminderIterator iterator,
+                       String name, int threads) {
+        AtomicReference<Stats> total = new AtomicReference<>(new Stats());
+        AtomicBoolean updated = new AtomicBoolean();
+        int queueSize = getQueueSize();
+        int renderThreads = getRenderThreads();
+        PipelineStage<PatientReminders> sender = new PipelineStage<>(name + "Sender", state -> {
+            if (!stop) {
+                total.accumulateAndGet(send(state, processor, updated), Stats::add);
+            }
+        }, threads, Math.max(queueSize, threads));
+        PipelineStage<PatientReminders> renderer = new PipelineStage<>(name + "Renderer", state -> {
+            if (!stop) {
+                try {
+                    if (!state.getReminders().isEmpty()) {
+                        processor.render(state);
+                    }
+                } catch (Throwable exception) {
+                    total.accumulateAndGet(failed(state, processor, exception, updated), Stats::add);
+                    return;
+                }
+                sender.process(state);
+            }
+        }, renderThreads, Math.max(queueSize, renderThreads));
+        try {
+            boolean done = false;
+            while (!done) {
+                while (!stop && iterator.hasNext()) {
+                    if (updated.getAndSet(false)) {
+                        iterator.updated();
+                    }
+                    Reminders reminders = iterator.next();
+                    try {
+                        PatientReminders state = processor.prepare(reminders.getReminders(), reminders.getGroupBy(),
+                                                                   cancelDate, false);
+                        renderer.process(state);
+                    } catch (Throwable exception) {
+                        log.error("Failed to send reminders", exception);
+                        total.accumulateAndGet(new Stats(0, 0, reminders.getReminders().size()), Stats::add);
+                    }
+                }
+                waitForPipeline(renderer, sender);
+                if (!stop && updated.getAndSet(false)) {
+                    // re-query from the start to pick up any reminders skipped due to paging
+                    iterator.updated();
+                } else {
+                    done = true;
+                }
             }
+        } finally {
+            close(renderer);
+            close(sender);
         }
-        return total;
+        return total.get();
     }
 
     /**
-     * Sends reminders.
+     * Sends reminders that have been rendered.
      *
      * @param reminders the reminders to send
      * @param processor the processor to use
-     * @param iterator  the reminder iterator
+     * @param updated   flagged if any reminders are updated
      * @return the send statistics
      */
-    private Stats send(PatientReminders reminders, PatientReminderProcessor processor,
-                       GroupingReminderIterator iterator) {
+    private Stats send(PatientReminders reminders, PatientReminderProcessor processor, AtomicBoolean updated) {
         int processed;
         int errors;
-        boolean updated;
         try {
             if (!reminders.getReminders().isEmpty()) {
-                processor.process(reminders);
+                processor.send(reminders);
+            }
+            if (processor.complete(reminders)) {
+                updated.set(true);
             }
-            updated = processor.complete(reminders);
             processed = reminders.getProcessed();
             errors = reminders.getErrors().size();
         } catch (Throwable exception) {
-            // give each of the reminders that failed to be sent ERROR status
-            processed = 0;
-            errors = reminders.getErrors().size() + reminders.getReminders().size();
-            updated = processor.failed(reminders, exception);
-        }
-        if (updated) {
-            iterator.updated();
+            return failed(reminders, processor, exception, updated);
         }
         int cancelled = reminders.getCancelled().size();
         return new Stats(processed, cancelled, errors);
     }
 
+    /**
+     * Invoked when reminders fail to be rendered or sent.
+     *
+     * @param reminders the reminders
+     * @param processor the processor
+     * @param exception the reason for the failure
+     * @param updated   flagged if any reminders are updated
+     * @return the statistics
+     */
+    private Stats failed(PatientReminders reminders, PatientReminderProcessor processor, Throwable exception,
+                         AtomicBoolean updated) {
+        // give each of the reminders that failed to be sent ERROR status
+        int errors = reminders.getErrors().size() + reminders.getReminders().size();
+        if (processor.failed(reminders, exception)) {
+            updated.set(true);
+        }
+        int cancelled = reminders.getCancelled().size();
+        return new Stats(0, cancelled, errors);
+    }
+
+    /**
+     * Waits for all reminders in the pipeline to be rendered and sent.
+     * <p/>
+     * The renderer is checked first, as it hands reminders to the sender before they are no longer pending.
+     *
+     * @param renderer the render stage
+     * @param sender   the send stage
+     */
+    private void waitForPipeline(PipelineStage<PatientReminders> renderer, PipelineStage<PatientReminders> sender) {
+        try {
+            while (renderer.getPending() != 0 || sender.getPending() != 0) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            stop = true;
+        }
+    }
+
+    /**
+     * Closes a pipeline stage, waiting for queued reminders to be processed.
+     *
+     * @param stage the stage
+     */
+    private void close(PipelineStage<PatientReminders> stage) {
+        try {
+            stage.close();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            stop = true;
+            stage.cancel();
+        }
+    }
+
     /**
      * Invoked when the job completes.
      *
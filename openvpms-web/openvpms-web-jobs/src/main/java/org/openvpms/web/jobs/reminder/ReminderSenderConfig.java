@@ -0,0 +1,118 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.jobs.reminder;
+
+/**
+ * Configuration for the {@link PatientReminderSenderJob} pipeline.
+ *
+ * @author Tim Anderson
+ */
+public class ReminderSenderConfig {
+
+    /**
+     * The no. of threads used to render reminders.
+     */
+    private int renderThreads = 2;
+
+    /**
+     * The no. of threads used to send email reminders.
+     */
+    private int emailThreads = 2;
+
+    /**
+     * The no. of threads used to send SMS reminders.
+     */
+    private int smsThreads = 2;
+
+    /**
+     * The maximum no. of reminder groups that may be waiting to be rendered or sent, per stage.
+     */
+    private int queueSize = 20;
+
+    /**
+     * Returns the no. of threads used to render reminders.
+     *
+     * @return the no. of threads
+     */
+    public int getRenderThreads() {
+        return renderThreads;
+    }
+
+    /**
+     * Sets the no. of threads used to render reminders.
+     *
+     * @param renderThreads the no. of threads
+     */
+    public void setRenderThreads(int renderThreads) {
+        this.renderThreads = Math.max(1, renderThreads);
+    }
+
+    /**
+     * Returns the no. of threads used to send email reminders.
+     *
+     * @return the no. of threads
+     */
+    public int getEmailThreads() {
+        return emailThreads;
+    }
+
+    /**
+     * Sets the no. of threads used to send email reminders.
+     *
+     * @param emailThreads the no. of threads
+     */
+    public void setEmailThreads(int emailThreads) {
+        this.emailThreads = Math.max(1, emailThreads);
+    }
+
+    /**
+     * Returns the no. of threads used to send SMS reminders.
+     *
+     * @return the no. of threads
+     */
+    public int getSmsThreads() {
+        return smsThreads;
+    }
+
+    /**
+     * Sets the no. of threads used to send SMS reminders.
+     *
+     * @param smsThreads the no. of threads
+     */
+    public void setSmsThreads(int smsThreads) {
+        this.smsThreads = Math.max(1, smsThreads);
+    }
+
+    /**
+     * Returns the maximum no. of reminder groups that may be waiting to be rendered or sent, per stage.
+     *
+     * @return the queue size
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Sets the maximum no. of reminder groups that may be waiting to be rendered or sent, per stage.
+     *
+     * @param queueSize the queue size
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+}
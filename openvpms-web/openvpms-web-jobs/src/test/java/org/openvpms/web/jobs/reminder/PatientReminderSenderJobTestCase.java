@@ -52,7 +52,9 @@ import org.openvpms.web.workspace.reporting.reminder.ReminderSMSEvaluator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -99,6 +101,16 @@ public class PatientReminderSenderJobTestCase extends ArchetypeServiceTest {
      */
     private PatientReminderSenderJob job;
 
+    /**
+     * The mailer.
+     */
+    private Mailer mailer;
+
+    /**
+     * The query page size.
+     */
+    private int pageSize = 1000;
+
     /**
      * Sets up the test case.
      */
@@ -136,20 +148,26 @@ public class PatientReminderSenderJobTestCase extends ArchetypeServiceTest {
                                                                       Mockito.mock(Converter.class));
 
         MailerFactory mailerFactory = Mockito.mock(MailerFactory.class);
-        Mailer mailer = Mockito.mock(Mailer.class);
+        mailer = Mockito.mock(Mailer.class);
         Mockito.when(mailerFactory.create(any(), any())).thenReturn(mailer);
 
         job = new PatientReminderSenderJob(configuration, service, practiceService,
                                            reminderRules, patientRules, practiceRules,
-                                           mailService, handlers, evaluator,
+                                           mailService, null, handlers, evaluator,
                                            Mockito.mock(ReporterFactory.class),
                                            Mockito.mock(ConnectionFactory.class),
                                            Mockito.mock(ReminderSMSEvaluator.class),
-                                           Mockito.mock(CommunicationLogger.class)) {
+                                           Mockito.mock(CommunicationLogger.class),
+                                           new ReminderSenderConfig()) {
             @Override
             MailerFactory getMailerFactory(MailService mailService, DocumentHandlers handlers) {
                 return mailerFactory;
             }
+
+            @Override
+            protected int getPageSize() {
+                return pageSize;
+            }
         };
     }
 
@@ -215,6 +233,50 @@ public class PatientReminderSenderJobTestCase extends ArchetypeServiceTest {
         checkReminder(reminder2, 1);
     }
 
+    /**
+     * Verifies that when reminders are sent concurrently, none are skipped when the query results span multiple
+     * pages.
+     */
+    @Test
+    public void testSendMultiplePages() {
+        pageSize = 3;
+        Party location = TestHelper.createLocation();
+        Entity reminderConfig = (Entity) create(ReminderArchetypes.CONFIGURATION);
+        IMObjectBean configBean = new IMObjectBean(reminderConfig);
+        configBean.setValue("emailCancelInterval", 1);
+        configBean.setValue("emailCancelUnits", DateUnits.DAYS.toString());
+        configBean.setValue("emailAttachments", false);
+        configBean.setTarget("location", location);
+        configBean.save();
+        IMObjectBean practiceBean = new IMObjectBean(practice);
+        practiceBean.setTarget("reminderConfiguration", reminderConfig);
+
+        Entity reminderType = ReminderTestHelper.createReminderType();
+        Entity template = ReminderTestHelper.createDocumentTemplate();
+        ReminderTestHelper.addEmailTemplate(template, ReminderTestHelper.createEmailTemplate("Foo", "Bar"));
+        ReminderTestHelper.addReminderCount(reminderType, 0, -30, DateUnits.DAYS, template);
+
+        Date today = DateRules.getToday();
+        Date tomorrow = DateRules.getTomorrow();
+        List<Act> items = new ArrayList<>();
+        List<Act> reminders = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            Party customer = TestHelper.createCustomer(TestHelper.createEmailContact("foo" + i + "@bar.com"));
+            Party patient = TestHelper.createPatient(customer);
+            Act item = ReminderTestHelper.createEmailReminder(today, today, ReminderItemStatus.PENDING, 0);
+            reminders.add(ReminderTestHelper.createReminder(tomorrow, patient, reminderType, item));
+            items.add(item);
+        }
+
+        job.execute(null);
+
+        for (int i = 0; i < items.size(); ++i) {
+            checkItem(items.get(i), ReminderItemStatus.COMPLETED, null);
+            checkReminder(reminders.get(i), 1);
+        }
+        Mockito.verify(mailer, Mockito.times(items.size())).send();
+    }
+
     /**
      * Verifies a reminder item matches that expected.
      *
@@ -0,0 +1,405 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.web.workspace.admin.system;
+
+import nextapp.echo2.app.Column;
+import nextapp.echo2.app.Component;
+import nextapp.echo2.app.Label;
+import nextapp.echo2.app.SplitPane;
+import nextapp.echo2.app.Table;
+import nextapp.echo2.app.event.ActionEvent;
+import nextapp.echo2.app.table.DefaultTableColumnModel;
+import nextapp.echo2.app.table.TableCellRenderer;
+import nextapp.echo2.app.table.TableColumn;
+import org.apache.commons.collections.Transformer;
+import org.openvpms.component.business.service.metrics.Histogram;
+import org.openvpms.component.business.service.metrics.HitRatio;
+import org.openvpms.component.business.service.metrics.Meter;
+import org.openvpms.component.business.service.metrics.MetricsRegistry;
+import org.openvpms.component.system.common.query.SortConstraint;
+import org.openvpms.web.component.im.query.ListResultSet;
+import org.openvpms.web.component.im.table.AbstractIMTableModel;
+import org.openvpms.web.component.im.table.PagedIMTable;
+import org.openvpms.web.component.im.util.VirtualNodeSortConstraint;
+import org.openvpms.web.echo.button.ButtonSet;
+import org.openvpms.web.echo.dialog.ConfirmationDialog;
+import org.openvpms.web.echo.dialog.PopupDialogListener;
+import org.openvpms.web.echo.event.ActionListener;
+import org.openvpms.web.echo.factory.ColumnFactory;
+import org.openvpms.web.echo.factory.LabelFactory;
+import org.openvpms.web.echo.factory.SplitPaneFactory;
+import org.openvpms.web.echo.focus.FocusGroup;
+import org.openvpms.web.echo.help.HelpContext;
+import org.openvpms.web.echo.style.Styles;
+import org.openvpms.web.echo.table.EvenOddTableCellRenderer;
+import org.openvpms.web.echo.table.TableHelper;
+import org.openvpms.web.resource.i18n.Messages;
+import org.openvpms.web.resource.i18n.format.NumberFormatter;
+import org.openvpms.web.system.ServiceHelper;
+
+import java.util.List;
+
+/**
+ * Browser for the performance metrics collected by the {@link MetricsRegistry}.
+ * <p/>
+ * This displays the timings of archetype service operations, queries and rules, and cache hit ratios.
+ *
+ * @author Tim Anderson
+ */
+public class MetricsBrowser extends AbstractTabComponent {
+
+    /**
+     * The metrics registry.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * The metrics table.
+     */
+    private PagedIMTable<Meter> table;
+
+    /**
+     * The browser component.
+     */
+    private Component component;
+
+    /**
+     * The refresh button identifier.
+     */
+    private static final String REFRESH_ID = "button.refresh";
+
+    /**
+     * The reset button identifier.
+     */
+    private static final String RESET_ID = "button.resetstatistics";
+
+    /**
+     * Constructs a {@link MetricsBrowser}.
+     *
+     * @param help the help context
+     */
+    public MetricsBrowser(HelpContext help) {
+        super(help);
+        registry = ServiceHelper.getBean(MetricsRegistry.class);
+    }
+
+    /**
+     * Invoked when the tab is displayed.
+     */
+    @Override
+    public void show() {
+        refresh();
+    }
+
+    /**
+     * Returns the tab component.
+     *
+     * @return the tab component
+     */
+    @Override
+    public Component getComponent() {
+        if (component == null) {
+            FocusGroup focus = getFocusGroup();
+            table = new PagedIMTable<>(new MetricsTableModel());
+            ButtonSet buttons = getButtonSet();
+            buttons.add(REFRESH_ID, new ActionListener() {
+                @Override
+                public void onAction(ActionEvent event) {
+                    refresh();
+                }
+            });
+            buttons.add(RESET_ID, new ActionListener() {
+                @Override
+                public void onAction(ActionEvent event) {
+                    onReset();
+                }
+            });
+            Label units = LabelFactory.create("admin.system.metrics.units");
+            Column column = ColumnFactory.create(Styles.INSET, ColumnFactory.create(Styles.WIDE_CELL_SPACING, units,
+                                                                                    table.getComponent()));
+            focus.add(table.getComponent());
+            focus.add(buttons.getFocusGroup());
+            component = SplitPaneFactory.create(SplitPane.ORIENTATION_VERTICAL_BOTTOM_TOP, "SplitPaneWithButtonRow",
+                                                getButtons(), column);
+        }
+        return component;
+    }
+
+    /**
+     * Invoked when the reset button is pressed. Resets all metrics, after confirmation.
+     */
+    private void onReset() {
+        String title = Messages.get("admin.system.metrics.reset.title");
+        String message = Messages.get("admin.system.metrics.reset.message");
+        ConfirmationDialog dialog = new ConfirmationDialog(title, message, ConfirmationDialog.YES_NO);
+        dialog.addWindowPaneListener(new PopupDialogListener() {
+            @Override
+            public void onYes() {
+                registry.reset();
+                refresh();
+            }
+        });
+        dialog.show();
+    }
+
+    /**
+     * Refreshes the metrics table.
+     */
+    private void refresh() {
+        List<Meter> meters = registry.getMeters();
+        table.setResultSet(new ListResultSet<>(meters, 20));
+    }
+
+    private static class MetricsTableModel extends AbstractIMTableModel<Meter> {
+
+        /**
+         * The name column index.
+         */
+        private static final int NAME_INDEX = 0;
+
+        /**
+         * The tag column index.
+         */
+        private static final int TAG_INDEX = NAME_INDEX + 1;
+
+        /**
+         * The count column index.
+         */
+        private static final int COUNT_INDEX = TAG_INDEX + 1;
+
+        /**
+         * The mean column index.
+         */
+        private static final int MEAN_INDEX = COUNT_INDEX + 1;
+
+        /**
+         * The 95th percentile column index.
+         */
+        private static final int P95_INDEX = MEAN_INDEX + 1;
+
+        /**
+         * The maximum column index.
+         */
+        private static final int MAX_INDEX = P95_INDEX + 1;
+
+        /**
+         * The total column index.
+         */
+        private static final int TOTAL_INDEX = MAX_INDEX + 1;
+
+        /**
+         * The hit ratio column index.
+         */
+        private static final int HIT_RATIO_INDEX = TOTAL_INDEX + 1;
+
+        /**
+         * Nanoseconds per millisecond.
+         */
+        private static final double NANOS_PER_MILLI = 1000000d;
+
+        /**
+         * Constructs a {@link MetricsTableModel}.
+         */
+        public MetricsTableModel() {
+            DefaultTableColumnModel model = new DefaultTableColumnModel();
+            TableCellRenderer numericRenderer = new EvenOddTableCellRenderer() {
+                @Override
+                protected Component getComponent(Table table, Object value, int column, int row) {
+                    if (value instanceof Number) {
+                        return TableHelper.rightAlign(NumberFormatter.format((Number) value));
+                    } else {
+                        return super.getComponent(table, value, column, row);
+                    }
+                }
+            };
+            TableCellRenderer percentRenderer = new EvenOddTableCellRenderer() {
+                @Override
+                protected Component getComponent(Table table, Object value, int column, int row) {
+                    if (value instanceof Integer) {
+                        return TableHelper.rightAlign(NumberFormatter.format((Integer) value) + "%");
+                    } else {
+                        return super.getComponent(table, value, column, row);
+                    }
+                }
+            };
+            model.addColumn(createTableColumn(NAME_INDEX, "admin.system.metrics.name"));
+            model.addColumn(createTableColumn(TAG_INDEX, "admin.system.metrics.tag"));
+            model.addColumn(createTableColumn(COUNT_INDEX, "admin.system.metrics.count", numericRenderer));
+            model.addColumn(createTableColumn(MEAN_INDEX, "admin.system.metrics.mean", numericRenderer));
+            model.addColumn(createTableColumn(P95_INDEX, "admin.system.metrics.p95", numericRenderer));
+            model.addColumn(createTableColumn(MAX_INDEX, "admin.system.metrics.max", numericRenderer));
+            model.addColumn(createTableColumn(TOTAL_INDEX, "admin.system.metrics.total", numericRenderer));
+            model.addColumn(createTableColumn(HIT_RATIO_INDEX, "admin.system.metrics.hitratio", percentRenderer));
+            setTableColumnModel(model);
+        }
+
+        /**
+         * Returns the sort criteria.
+         *
+         * @param column    the primary sort column
+         * @param ascending if {@code true} sort in ascending order; otherwise sort in {@code descending} order
+         * @return the sort criteria, or {@code null} if the column isn't sortable
+         */
+        @Override
+        public SortConstraint[] getSortConstraints(int column, boolean ascending) {
+            if (column == NAME_INDEX) {
+                return createSortConstraint("name", ascending, input -> ((Meter) input).getName());
+            } else if (column == TAG_INDEX) {
+                return createSortConstraint("tag", ascending, input -> ((Meter) input).getTag());
+            } else if (column == COUNT_INDEX) {
+                return createSortConstraint("count", ascending, input -> getCount((Meter) input));
+            } else if (column == MEAN_INDEX) {
+                return createSortConstraint("mean", ascending, input -> toDouble(getMean((Meter) input)));
+            } else if (column == MAX_INDEX) {
+                return createSortConstraint("max", ascending, input -> toDouble(getMax((Meter) input)));
+            } else if (column == TOTAL_INDEX) {
+                return createSortConstraint("total", ascending, input -> toDouble(getTotal((Meter) input)));
+            }
+            return null;
+        }
+
+        /**
+         * Returns the value found at the given coordinate within the table.
+         *
+         * @param object the object
+         * @param column the column
+         * @param row    the row
+         * @return the value at the given coordinate.
+         */
+        @Override
+        protected Object getValue(Meter object, TableColumn column, int row) {
+            Object result = null;
+            switch (column.getModelIndex()) {
+                case NAME_INDEX:
+                    result = object.getName();
+                    break;
+                case TAG_INDEX:
+                    result = object.getTag();
+                    break;
+                case COUNT_INDEX:
+                    result = getCount(object);
+                    break;
+                case MEAN_INDEX:
+                    result = getMean(object);
+                    break;
+                case P95_INDEX:
+                    if (object instanceof Histogram) {
+                        Histogram histogram = (Histogram) object;
+                        result = scale(histogram, histogram.getPercentile(0.95));
+                    }
+                    break;
+                case MAX_INDEX:
+                    result = getMax(object);
+                    break;
+                case TOTAL_INDEX:
+                    result = getTotal(object);
+                    break;
+                case HIT_RATIO_INDEX:
+                    if (object instanceof HitRatio) {
+                        result = (int) Math.round(((HitRatio) object).getRatio() * 100);
+                    }
+                    break;
+            }
+            return result;
+        }
+
+        /**
+         * Returns the no. of values recorded by a meter.
+         *
+         * @param meter the meter
+         * @return the no. of values
+         */
+        private static Long getCount(Meter meter) {
+            long result;
+            if (meter instanceof Histogram) {
+                result = ((Histogram) meter).getCount();
+            } else {
+                HitRatio ratio = (HitRatio) meter;
+                result = ratio.getHits() + ratio.getMisses();
+            }
+            return result;
+        }
+
+        /**
+         * Returns the mean value of a histogram, in milliseconds if it records times.
+         *
+         * @param meter the meter
+         * @return the mean, or {@code null} if the meter isn't a histogram
+         */
+        private static Double getMean(Meter meter) {
+            if (meter instanceof Histogram) {
+                Histogram histogram = (Histogram) meter;
+                return histogram.isTimer() ? histogram.getMean() / NANOS_PER_MILLI : histogram.getMean();
+            }
+            return null;
+        }
+
+        /**
+         * Returns the maximum value of a histogram, in milliseconds if it records times.
+         *
+         * @param meter the meter
+         * @return the maximum, or {@code null} if the meter isn't a histogram
+         */
+        private static Number getMax(Meter meter) {
+            return (meter instanceof Histogram) ? scale((Histogram) meter, ((Histogram) meter).getMax()) : null;
+        }
+
+        /**
+         * Returns the total of a histogram, in milliseconds if it records times.
+         *
+         * @param meter the meter
+         * @return the total, or {@code null} if the meter isn't a histogram
+         */
+        private static Number getTotal(Meter meter) {
+            return (meter instanceof Histogram) ? scale((Histogram) meter, ((Histogram) meter).getTotal()) : null;
+        }
+
+        /**
+         * Converts a histogram value to milliseconds, if the histogram records times.
+         *
+         * @param histogram the histogram
+         * @param value     the value
+         * @return the value in milliseconds, if the histogram records times, otherwise the value
+         */
+        private static Number scale(Histogram histogram, long value) {
+            return histogram.isTimer() ? (Number) (value / NANOS_PER_MILLI) : (Number) value;
+        }
+
+        /**
+         * Converts a value to a double, so that timers and distributions can be sorted together.
+         *
+         * @param value the value. May be {@code null}
+         * @return the value as a double, or {@code 0} if it is {@code null}
+         */
+        private static Double toDouble(Number value) {
+            return (value != null) ? value.doubleValue() : 0d;
+        }
+
+        /**
+         * Helper to create a sort constraint.
+         *
+         * @param name        the constraint name
+         * @param ascending   determines whether to sort in ascending or descending order
+         * @param transformer a transformer to get the node value
+         * @return an array containing the sort constraint
+         */
+        private SortConstraint[] createSortConstraint(String name, boolean ascending, Transformer transformer) {
+            return new SortConstraint[]{new VirtualNodeSortConstraint(name, ascending, transformer)};
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.web.workspace.admin.system;
+
+import nextapp.echo2.app.Column;
+import nextapp.echo2.app.Component;
+import nextapp.echo2.app.Label;
+import nextapp.echo2.app.SplitPane;
+import nextapp.echo2.app.event.ActionEvent;
+import nextapp.echo2.app.table.DefaultTableColumnModel;
+import nextapp.echo2.app.table.TableColumn;
+import nextapp.echo2.app.table.TableColumnModel;
+import org.apache.commons.lang.StringUtils;
+import org.openvpms.component.business.dao.hibernate.im.SlowQuery;
+import org.openvpms.component.business.dao.hibernate.im.SlowQueryRecorder;
+import org.openvpms.component.system.common.query.SortConstraint;
+import org.openvpms.web.component.im.query.ListResultSet;
+import org.openvpms.web.component.im.table.AbstractIMTableModel;
+import org.openvpms.web.component.im.table.PagedIMTable;
+import org.openvpms.web.echo.button.ButtonSet;
+import org.openvpms.web.echo.event.ActionListener;
+import org.openvpms.web.echo.factory.ColumnFactory;
+import org.openvpms.web.echo.factory.LabelFactory;
+import org.openvpms.web.echo.factory.SplitPaneFactory;
+import org.openvpms.web.echo.factory.TextComponentFactory;
+import org.openvpms.web.echo.focus.FocusGroup;
+import org.openvpms.web.echo.help.HelpContext;
+import org.openvpms.web.echo.style.Styles;
+import org.openvpms.web.echo.text.TextArea;
+import org.openvpms.web.resource.i18n.Messages;
+import org.openvpms.web.resource.i18n.format.DateFormatter;
+import org.openvpms.web.system.ServiceHelper;
+
+import java.util.Map;
+
+/**
+ * Browser for the queries captured by the {@link SlowQueryRecorder}.
+ * <p/>
+ * Selecting a query displays its HQL, SQL, bind parameters and query plan.
+ *
+ * @author Tim Anderson
+ */
+public class SlowQueryBrowser extends AbstractTabComponent {
+
+    /**
+     * The slow query recorder.
+     */
+    private final SlowQueryRecorder recorder;
+
+    /**
+     * The queries.
+     */
+    private PagedIMTable<SlowQuery> queries;
+
+    /**
+     * Displays the details of the selected query.
+     */
+    private TextArea details;
+
+    /**
+     * The browser component.
+     */
+    private Component component;
+
+    /**
+     * The refresh button identifier.
+     */
+    private static final String REFRESH_ID = "button.refresh";
+
+    /**
+     * The clear button identifier.
+     */
+    private static final String CLEAR_ID = "button.clear";
+
+    /**
+     * Constructs a {@link SlowQueryBrowser}.
+     *
+     * @param help the help context
+     */
+    public SlowQueryBrowser(HelpContext help) {
+        super(help);
+        recorder = ServiceHelper.getBean(SlowQueryRecorder.class);
+    }
+
+    /**
+     * Invoked when the tab is displayed.
+     */
+    @Override
+    public void show() {
+        refresh();
+    }
+
+    /**
+     * Returns the tab component.
+     *
+     * @return the tab component
+     */
+    @Override
+    public Component getComponent() {
+        if (component == null) {
+            FocusGroup focus = getFocusGroup();
+            queries = new PagedIMTable<>(new SlowQueryTableModel());
+            queries.getTable().addActionListener(new ActionListener() {
+                @Override
+                public void onAction(ActionEvent event) {
+                    showDetails();
+                }
+            });
+            details = TextComponentFactory.createTextArea(120, 15);
+            details.setEnabled(false);
+
+            ButtonSet buttons = getButtonSet();
+            buttons.add(REFRESH_ID, new ActionListener() {
+                @Override
+                public void onAction(ActionEvent event) {
+                    refresh();
+                }
+            });
+            buttons.add(CLEAR_ID, new ActionListener() {
+                @Override
+                public void onAction(ActionEvent event) {
+                    recorder.clear();
+                    refresh();
+                }
+            });
+
+            Label threshold = LabelFactory.text(Messages.format("admin.system.slowquery.threshold",
+                                                                recorder.getThreshold()));
+            Column column = ColumnFactory.create(Styles.INSET, ColumnFactory.create(
+                    Styles.WIDE_CELL_SPACING, threshold, queries.getComponent(), details));
+            focus.add(queries.getComponent());
+            focus.add(buttons.getFocusGroup());
+            component = SplitPaneFactory.create(SplitPane.ORIENTATION_VERTICAL_BOTTOM_TOP, "SplitPaneWithButtonRow",
+                                                getButtons(), column);
+        }
+        return component;
+    }
+
+    /**
+     * Refreshes the queries table.
+     */
+    private void refresh() {
+        queries.setResultSet(new ListResultSet<>(recorder.getQueries(), 10));
+        showDetails();
+    }
+
+    /**
+     * Displays the details of the selected query.
+     */
+    private void showDetails() {
+        SlowQuery query = queries.getSelected();
+        StringBuilder text = new StringBuilder();
+        if (query != null) {
+            append(text, "admin.system.slowquery.source", query.getSource());
+            append(text, "admin.system.slowquery.hql", query.getHQL());
+            append(text, "admin.system.slowquery.sql", query.getSQL());
+            if (!query.getParameters().isEmpty()) {
+                StringBuilder parameters = new StringBuilder();
+                for (Map.Entry<String, Object> entry : query.getParameters().entrySet()) {
+                    parameters.append(entry.getKey()).append(" = ").append(entry.getValue()).append('\n');
+                }
+                append(text, "admin.system.slowquery.parameters", parameters.toString().trim());
+            }
+            append(text, "admin.system.slowquery.plan", query.getPlan());
+        }
+        details.setText(text.toString());
+    }
+
+    /**
+     * Appends a labelled value, if it is non-empty.
+     *
+     * @param text  the text to append to
+     * @param key   the label resource bundle key
+     * @param value the value. May be {@code null}
+     */
+    private void append(StringBuilder text, String key, String value) {
+        if (!StringUtils.isEmpty(value)) {
+            text.append(Messages.get(key)).append(":\n").append(value).append("\n\n");
+        }
+    }
+
+    private static class SlowQueryTableModel extends AbstractIMTableModel<SlowQuery> {
+
+        /**
+         * The time column index.
+         */
+        private static final int TIME_INDEX = 0;
+
+        /**
+         * The elapsed time column index.
+         */
+        private static final int ELAPSED_INDEX = TIME_INDEX + 1;
+
+        /**
+         * The rows column index.
+         */
+        private static final int ROWS_INDEX = ELAPSED_INDEX + 1;
+
+        /**
+         * The query column index.
+         */
+        private static final int QUERY_INDEX = ROWS_INDEX + 1;
+
+        /**
+         * The maximum length of the query to display.
+         */
+        private static final int MAX_QUERY_LENGTH = 150;
+
+        /**
+         * Constructs a {@link SlowQueryTableModel}.
+         */
+        public SlowQueryTableModel() {
+            TableColumnModel model = new DefaultTableColumnModel();
+            model.addColumn(createTableColumn(TIME_INDEX, "admin.system.slowquery.time"));
+            model.addColumn(createTableColumn(ELAPSED_INDEX, "admin.system.slowquery.elapsed"));
+            model.addColumn(createTableColumn(ROWS_INDEX, "admin.system.slowquery.rows"));
+            model.addColumn(createTableColumn(QUERY_INDEX, "admin.system.slowquery.query"));
+            setTableColumnModel(model);
+        }
+
+        /**
+         * Returns the sort criteria.
+         *
+         * @param column    the primary sort column
+         * @param ascending if {@code true} sort in ascending order; otherwise sort in {@code descending} order
+         * @return {@code null}, as the queries are displayed most recent first
+         */
+        @Override
+        public SortConstraint[] getSortConstraints(int column, boolean ascending) {
+            return null;
+        }
+
+        /**
+         * Returns the value found at the given coordinate within the table.
+         *
+         * @param object the object
+         * @param column the column
+         * @param row    the row
+         * @return the value at the given coordinate.
+         */
+        @Override
+        protected Object getValue(SlowQuery object, TableColumn column, int row) {
+            Object result = null;
+            switch (column.getModelIndex()) {
+                case TIME_INDEX:
+                    result = DateFormatter.formatDateTimeAbbrev(object.getTime());
+                    break;
+                case ELAPSED_INDEX:
+                    result = object.getElapsed();
+                    break;
+                case ROWS_INDEX:
+                    result = object.getRows();
+                    break;
+                case QUERY_INDEX:
+                    String query = (object.getHQL() != null) ? object.getHQL() : object.getSQL();
+                    result = StringUtils.abbreviate(query, MAX_QUERY_LENGTH);
+                    break;
+            }
+            return result;
+        }
+    }
+}
@@ -58,6 +58,8 @@ public class SystemWorkspace extends TabbedWorkspace<IMObject> {
         addInfoBrowser(model);
         addPluginBrowser(model);
         addDocumentLockBrowser(model);
+        addMetricsBrowser(model);
+        addSlowQueryBrowser(model);
     }
 
     /**
@@ -90,4 +92,24 @@ public class SystemWorkspace extends TabbedWorkspace<IMObject> {
         addTab("admin.system.webdav", model, new WebDAVLockBrowser(help));
     }
 
+    /**
+     * Adds a performance metrics browser to the tabbed pane.
+     *
+     * @param model the tab pane model
+     */
+    private void addMetricsBrowser(ObjectTabPaneModel<TabComponent> model) {
+        HelpContext help = subtopic("metrics");
+        addTab("admin.system.metrics", model, new MetricsBrowser(help));
+    }
+
+    /**
+     * Adds a slow query browser to the tabbed pane.
+     *
+     * @param model the tab pane model
+     */
+    private void addSlowQueryBrowser(ObjectTabPaneModel<TabComponent> model) {
+        HelpContext help = subtopic("slowquery");
+        addTab("admin.system.slowquery", model, new SlowQueryBrowser(help));
+    }
+
 }
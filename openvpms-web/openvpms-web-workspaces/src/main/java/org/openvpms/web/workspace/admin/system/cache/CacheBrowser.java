@@ -20,13 +20,16 @@ import nextapp.echo2.app.Alignment;
 import nextapp.echo2.app.Component;
 import nextapp.echo2.app.event.ActionListener;
 import org.ehcache.core.spi.service.StatisticsService;
+import org.openvpms.archetype.rules.doc.DocumentArchetypes;
 import org.openvpms.archetype.rules.patient.PatientArchetypes;
+import org.openvpms.archetype.rules.practice.PracticeArchetypes;
 import org.openvpms.archetype.rules.product.ProductArchetypes;
 import org.openvpms.archetype.rules.user.UserArchetypes;
 import org.openvpms.archetype.rules.workflow.CalendarService;
 import org.openvpms.archetype.rules.workflow.ScheduleArchetypes;
 import org.openvpms.archetype.rules.workflow.roster.RosterArchetypes;
 import org.openvpms.archetype.rules.workflow.roster.RosterService;
+import org.openvpms.component.business.dao.hibernate.im.AssembledObjectCache;
 import org.openvpms.component.business.domain.im.common.IMObject;
 import org.openvpms.component.business.service.archetype.ArchetypeServiceHelper;
 import org.openvpms.component.business.service.archetype.IArchetypeService;
@@ -123,6 +126,11 @@ class CacheBrowser {
      */
     private static final String LOOKUP_CACHE = "lookupCache";
 
+    /**
+     * The assembled object cache name.
+     */
+    private static final String OBJECT_CACHE = "assembledObjectCache";
+
     /**
      * Multiplier for schedule cache sizes. ~2 months per schedule.
      */
@@ -144,6 +152,11 @@ class CacheBrowser {
      */
     private static final int LOOKUP_MULTIPLIER = 2;
 
+    /**
+     * Multiplier for the assembled object cache size. 1 * no. of cached objects.
+     */
+    private static final int OBJECT_MULTIPLIER = 1;
+
 
     /**
      * Constructs a {@link CacheBrowser}.
@@ -161,6 +174,8 @@ class CacheBrowser {
         addCache(rosterService.getUserCache(), ROSTER_USER_CACHE, "admin.system.cache.rosteruser", caches);
 
         addCache((EhCacheable) ServiceHelper.getLookupService(), "lookupCache", "admin.system.cache.lookup", caches);
+        addCache(ServiceHelper.getBean(AssembledObjectCache.class), OBJECT_CACHE, "admin.system.cache.object",
+                 caches);
 
         table = new PagedIMTable<>(new CacheTableModel());
         ListResultSet<CacheState> set = new ListResultSet<CacheState>(caches, 20) {
@@ -281,6 +296,10 @@ class CacheBrowser {
             result = getSuggestedCacheSize(LOOKUP_MULTIPLIER, PatientArchetypes.SPECIES, PatientArchetypes.BREED,
                                            "lookup.state", "lookup.suburb", "lookup.diagnosis*",
                                            "lookup.visitReason*", "lookup.presentingComplaint*");
+        } else if (OBJECT_CACHE.equals(cache.getName())) {
+            result = getSuggestedCacheSize(OBJECT_MULTIPLIER, "product.*", PracticeArchetypes.LOCATION,
+                                           UserArchetypes.USER,
+                                           DocumentArchetypes.DOCUMENT_TEMPLATE);
         }
         return result;
     }
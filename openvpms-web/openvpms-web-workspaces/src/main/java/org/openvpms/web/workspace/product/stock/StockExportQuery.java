@@ -125,7 +125,7 @@ public class StockExportQuery extends QueryAdapter<ObjectSet, StockData> {
                     StockData data = createStockData(stockLocation, product, relationship, zeroNegativeQuantities);
                     objects.add(data);
                 }
-                return new Page<>(objects, page.getFirstResult(), page.getPageSize(), page.getTotalResults());
+                return new Page<>(objects, page);
             }
         };
     }
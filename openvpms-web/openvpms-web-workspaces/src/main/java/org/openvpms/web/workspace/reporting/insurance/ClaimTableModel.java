@@ -23,6 +23,7 @@ import org.openvpms.archetype.rules.insurance.InsuranceArchetypes;
 import org.openvpms.archetype.rules.insurance.InsuranceRules;
 import org.openvpms.component.business.domain.im.act.Act;
 import org.openvpms.component.business.domain.im.archetype.descriptor.ArchetypeDescriptor;
+import org.openvpms.component.business.domain.im.common.IMObject;
 import org.openvpms.component.business.service.archetype.helper.DescriptorHelper;
 import org.openvpms.component.business.service.archetype.rule.IArchetypeRuleService;
 import org.openvpms.component.model.bean.IMObjectBean;
@@ -34,7 +35,10 @@ import org.openvpms.web.component.im.table.DescriptorTableModel;
 import org.openvpms.web.component.im.view.IMObjectReferenceViewer;
 import org.openvpms.web.system.ServiceHelper;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Insurance claim table model that displays the customer and patient.
@@ -73,6 +77,11 @@ public class ClaimTableModel extends DescriptorTableModel<Act> {
      */
     private State state;
 
+    /**
+     * The policies for the current objects, keyed on reference.
+     */
+    private Map<Reference, IMObject> policies = Collections.emptyMap();
+
     /**
      * Constructs a {@link DescriptorTableModel}.
      *
@@ -88,6 +97,27 @@ public class ClaimTableModel extends DescriptorTableModel<Act> {
         setTableColumnModel(createColumnModel(new String[]{InsuranceArchetypes.CLAIM}, context));
     }
 
+    /**
+     * Sets the objects to display.
+     * <p/>
+     * The policies for the claims are retrieved in a single query, rather than one per row.
+     *
+     * @param objects the objects to display
+     */
+    @Override
+    public void setObjects(List<Act> objects) {
+        List<Reference> references = new ArrayList<>();
+        for (Act claim : objects) {
+            Reference policy = service.getBean(claim).getTargetRef("policy");
+            if (policy != null) {
+                references.add(policy);
+            }
+        }
+        policies = !references.isEmpty() ? service.get(references) : Collections.emptyMap();
+        state = null;
+        super.setObjects(objects);
+    }
+
     /**
      * Returns an {@link ArchetypeNodes} that determines what nodes appear in the table.
      * This is only used when {@link #getNodeNames()} returns null or empty.
@@ -198,7 +228,12 @@ public class ClaimTableModel extends DescriptorTableModel<Act> {
         private final int row;
 
         public State(Act claim, int row) {
-            Act policy = service.getBean(claim).getTarget("policy", Act.class);
+            IMObjectBean claimBean = service.getBean(claim);
+            Reference reference = claimBean.getTargetRef("policy");
+            Act policy = (Act) policies.get(reference);
+            if (policy == null && reference != null) {
+                policy = claimBean.getTarget("policy", Act.class);
+            }
             if (policy != null) {
                 policyNumber = rules.getPolicyNumber(policy);
                 IMObjectBean bean = service.getBean(policy);
@@ -34,6 +34,7 @@ import org.openvpms.web.component.im.report.ReportContextFactory;
 import org.openvpms.web.component.im.report.Reporter;
 import org.openvpms.web.component.im.report.ReporterFactory;
 import org.openvpms.web.component.mail.EmailTemplateEvaluator;
+import org.openvpms.web.component.mail.Mailer;
 import org.openvpms.web.workspace.reporting.ReportingException;
 
 import java.util.ArrayList;
@@ -63,6 +64,11 @@ public class EmailReminders extends GroupedReminders {
      */
     private final ReporterFactory factory;
 
+    /**
+     * The mailer, once the reminders have been rendered. May be {@code null}
+     */
+    private Mailer mailer;
+
     /**
      * Constructs a {@link EmailReminders}.
      *
@@ -91,6 +97,24 @@ public class EmailReminders extends GroupedReminders {
         this.factory = factory;
     }
 
+    /**
+     * Registers the mailer containing the rendered reminders.
+     *
+     * @param mailer the mailer. May be {@code null}
+     */
+    public void setMailer(Mailer mailer) {
+        this.mailer = mailer;
+    }
+
+    /**
+     * Returns the mailer containing the rendered reminders.
+     *
+     * @return the mailer, or {@code null} if the reminders haven't been rendered
+     */
+    public Mailer getMailer() {
+        return mailer;
+    }
+
     /**
      * Returns the email address.
      *
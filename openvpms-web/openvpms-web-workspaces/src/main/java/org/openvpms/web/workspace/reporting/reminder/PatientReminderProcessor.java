@@ -190,6 +190,30 @@ public abstract class PatientReminderProcessor {
      */
     public abstract void process(PatientReminders reminders);
 
+    /**
+     * Renders reminders, prior to them being sent by {@link #send}.
+     * <p>
+     * This allows reminders to be rendered and sent on different threads. Invoking {@code render} followed by
+     * {@code send} is equivalent to invoking {@link #process}.
+     * <p>
+     * This implementation is a no-op.
+     *
+     * @param reminders the reminders
+     */
+    public void render(PatientReminders reminders) {
+    }
+
+    /**
+     * Sends reminders rendered by {@link #render}.
+     * <p>
+     * This implementation invokes {@link #process}.
+     *
+     * @param reminders the reminders
+     */
+    public void send(PatientReminders reminders) {
+        process(reminders);
+    }
+
     /**
      * Completes processing.
      *
@@ -38,6 +38,7 @@ import org.openvpms.web.component.im.report.ReporterFactory;
 import org.openvpms.web.component.mail.EmailTemplateEvaluator;
 import org.openvpms.web.component.mail.Mailer;
 import org.openvpms.web.component.mail.MailerFactory;
+import org.openvpms.web.component.mail.queue.MailDispatcher;
 import org.openvpms.web.workspace.customer.communication.CommunicationHelper;
 import org.openvpms.web.workspace.customer.communication.CommunicationLogger;
 import org.openvpms.web.workspace.reporting.ReportingException;
@@ -96,6 +97,18 @@ public class ReminderEmailProcessor extends GroupedReminderProcessor {
         mailServices = new ReminderMailerFactory(practice, practiceRules, service, factory);
     }
 
+    /**
+     * Registers a dispatcher to queue reminder emails with, rather than sending them directly.
+     * <p>
+     * Reminders are completed once their email is queued. If it subsequently can't be delivered, the
+     * {@link ReminderMailListener} reverts the reminder items to the error state.
+     *
+     * @param dispatcher the dispatcher. May be {@code null}
+     */
+    public void setDispatcher(MailDispatcher dispatcher) {
+        mailServices.setDispatcher(dispatcher);
+    }
+
     /**
      * Returns the reminder item archetype that this processes.
      *
@@ -123,11 +136,44 @@ public class ReminderEmailProcessor extends GroupedReminderProcessor {
      */
     @Override
     public void process(PatientReminders reminders) {
+        render(reminders);
+        send(reminders);
+    }
+
+    /**
+     * Renders reminders, prior to them being sent by {@link #send}.
+     * <p>
+     * This evaluates the email subject and body, and generates any attachment.
+     *
+     * @param reminders the reminders
+     */
+    @Override
+    public void render(PatientReminders reminders) {
         EmailReminders reminderState = (EmailReminders) reminders;
-        Mailer mailer;
+        try {
+            reminderState.setMailer(createMailer(reminderState));
+        } catch (OpenVPMSException exception) {
+            throw exception;
+        } catch (Throwable exception) {
+            throw new ReportingException(FailedToProcessReminder, exception, exception.getMessage());
+        }
+    }
 
+    /**
+     * Sends reminders rendered by {@link #render}.
+     *
+     * @param reminders the reminders
+     */
+    @Override
+    public void send(PatientReminders reminders) {
+        EmailReminders reminderState = (EmailReminders) reminders;
+        Mailer mailer = reminderState.getMailer();
+        if (mailer == null) {
+            render(reminderState);
+            mailer = reminderState.getMailer();
+        }
         try {
-            mailer = send(reminderState);
+            mailer.send();
         } catch (OpenVPMSException exception) {
             throw exception;
         } catch (Throwable exception) {
@@ -221,11 +267,12 @@ public class ReminderEmailProcessor extends GroupedReminderProcessor {
     }
 
     /**
-     * Emails reminders.
+     * Creates a mailer to email reminders.
      *
      * @param reminders the reminders to email
+     * @return the mailer, populated with the rendered reminders
      */
-    protected Mailer send(EmailReminders reminders) {
+    protected Mailer createMailer(EmailReminders reminders) {
         ReminderEvent event = reminders.getReminders().get(0);
         Party location = reminders.getLocation();
         if (location == null) {
@@ -233,7 +280,7 @@ public class ReminderEmailProcessor extends GroupedReminderProcessor {
                                             + event.getReminder().getId());
         }
         Context context = createContext(event, location);
-        Mailer mailer = mailServices.create(location, context);
+        Mailer mailer = mailServices.create(location, context, ReminderMailListener.getReference(reminders));
 
         String body = reminders.getMessage(context);
         String to = reminders.getEmailAddress();
@@ -248,8 +295,6 @@ public class ReminderEmailProcessor extends GroupedReminderProcessor {
             Document document = reminders.createAttachment(context);
             mailer.addAttachment(document);
         }
-
-        mailer.send();
         return mailer;
     }
 
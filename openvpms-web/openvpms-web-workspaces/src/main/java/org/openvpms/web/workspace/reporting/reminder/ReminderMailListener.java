@@ -0,0 +1,202 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.workspace.reporting.reminder;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openvpms.archetype.rules.patient.reminder.ReminderArchetypes;
+import org.openvpms.archetype.rules.patient.reminder.ReminderEvent;
+import org.openvpms.archetype.rules.patient.reminder.ReminderItemStatus;
+import org.openvpms.archetype.rules.practice.PracticeService;
+import org.openvpms.component.business.domain.im.act.Act;
+import org.openvpms.component.business.domain.im.common.IMObjectReference;
+import org.openvpms.component.business.domain.im.security.User;
+import org.openvpms.component.business.service.archetype.IArchetypeService;
+import org.openvpms.component.business.service.archetype.helper.ActBean;
+import org.openvpms.component.business.service.security.RunAs;
+import org.openvpms.web.component.mail.queue.MailDispatcher;
+import org.openvpms.web.component.mail.queue.MailListener;
+import org.openvpms.web.component.mail.queue.QueuedMail;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Marks email reminder items as {@link ReminderItemStatus#ERROR} when the {@link MailDispatcher} fails to deliver
+ * the email they were queued for.
+ * <p/>
+ * Reminder emails are queued with a reference produced by {@link #getReference(PatientReminders)}, identifying the
+ * reminder items they were sent for. These will have been {@link ReminderItemStatus#COMPLETED completed} when the
+ * email was queued, so this reverts them to the error state, to be resent from the Reminders workspace.
+ * <p/>
+ * The dispatcher notifies listeners from its own threads, so the items are updated as the practice service user.
+ *
+ * @author Tim Anderson
+ */
+public class ReminderMailListener implements MailListener, InitializingBean, DisposableBean {
+
+    /**
+     * The dispatcher.
+     */
+    private final MailDispatcher dispatcher;
+
+    /**
+     * The archetype service.
+     */
+    private final IArchetypeService service;
+
+    /**
+     * The practice service.
+     */
+    private final PracticeService practiceService;
+    /**
+     * The reference prefix.
+     */
+    private static final String PREFIX = "reminder:";
+
+    /**
+     * The logger.
+     */
+    private static final Log log = LogFactory.getLog(ReminderMailListener.class);
+
+    /**
+     * Constructs a {@link ReminderMailListener}.
+     *
+     * @param dispatcher      the dispatcher
+     * @param service         the archetype service
+     * @param practiceService the practice service
+     */
+    public ReminderMailListener(MailDispatcher dispatcher, IArchetypeService service,
+                                PracticeService practiceService) {
+        this.dispatcher = dispatcher;
+        this.service = service;
+        this.practiceService = practiceService;
+    }
+
+    /**
+     * Returns the reference to queue a reminder email with.
+     *
+     * @param reminders the reminders being emailed
+     * @return the reference, or {@code null} if the reminders are being resent, and therefore have no items to update
+     */
+    public static String getReference(PatientReminders reminders) {
+        String result = null;
+        if (!reminders.getResend()) {
+            List<Act> items = new ArrayList<>();
+            for (ReminderEvent event : reminders.getReminders()) {
+                items.add(event.getItem());
+            }
+            result = getReference(items);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the reference to queue a reminder email with.
+     *
+     * @param items the reminder items being emailed
+     * @return the reference
+     */
+    static String getReference(List<Act> items) {
+        StringBuilder result = new StringBuilder(PREFIX);
+        for (int i = 0; i < items.size(); ++i) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append(items.get(i).getId());
+        }
+        return result.toString();
+    }
+
+    /**
+     * Registers this with the dispatcher.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        dispatcher.addListener(this);
+    }
+
+    /**
+     * Deregisters this from the dispatcher.
+     */
+    @Override
+    public void destroy() {
+        dispatcher.removeListener(this);
+    }
+
+    /**
+     * Invoked when a message has failed, and won't be retried.
+     *
+     * @param mail  the message
+     * @param error the reason for the failure
+     */
+    @Override
+    public void failed(QueuedMail mail, String error) {
+        String reference = mail.getReference();
+        if (reference != null && reference.startsWith(PREFIX)) {
+            User user = practiceService.getServiceUser();
+            if (user == null) {
+                log.error("Cannot update reminder items for failed mail " + mail.getId()
+                          + " until a Practice Service User is configured");
+            } else {
+                String[] ids = StringUtils.split(reference.substring(PREFIX.length()), ',');
+                RunAs.run(user, () -> failed(mail, ids, error));
+            }
+        }
+    }
+
+    /**
+     * Marks the reminder items a message was queued for as failed.
+     *
+     * @param mail  the message
+     * @param ids   the reminder item identifiers
+     * @param error the reason for the failure
+     */
+    private void failed(QueuedMail mail, String[] ids, String error) {
+        for (String id : ids) {
+            try {
+                failed(Long.parseLong(id), error);
+            } catch (Throwable exception) {
+                log.error("Failed to update reminder item " + id + " for failed mail " + mail.getId() + ": "
+                          + exception.getMessage(), exception);
+            }
+        }
+    }
+
+    /**
+     * Marks a reminder item as failed.
+     * <p/>
+     * Items that are already in error or have been cancelled are left unchanged.
+     *
+     * @param id    the reminder item identifier
+     * @param error the reason for the failure
+     */
+    private void failed(long id, String error) {
+        Act item = (Act) service.get(new IMObjectReference(ReminderArchetypes.EMAIL_REMINDER, id));
+        if (item != null && !ReminderItemStatus.ERROR.equals(item.getStatus())
+            && !ReminderItemStatus.CANCELLED.equals(item.getStatus())) {
+            item.setStatus(ReminderItemStatus.ERROR);
+            ActBean bean = new ActBean(item, service);
+            int maxLength = bean.getDescriptor("error").getMaxLength();
+            bean.setValue("error", StringUtils.abbreviate(error, maxLength));
+            bean.save();
+        }
+    }
+}
@@ -28,6 +28,8 @@ import org.openvpms.web.component.app.Context;
 import org.openvpms.web.component.mail.EmailAddress;
 import org.openvpms.web.component.mail.Mailer;
 import org.openvpms.web.component.mail.MailerFactory;
+import org.openvpms.web.component.mail.queue.MailDispatcher;
+import org.openvpms.web.component.mail.queue.QueuedMailSender;
 import org.openvpms.web.component.service.DefaultMailService;
 import org.openvpms.web.workspace.customer.CustomerMailContext;
 import org.openvpms.web.workspace.reporting.ReportingException;
@@ -42,6 +44,8 @@ import static org.openvpms.web.workspace.reporting.ReportingException.ErrorCode.
 
 /**
  * Creates a {@link Mailer}s for sending reminders.
+ * <p/>
+ * Mailers may be created concurrently by multiple threads.
  *
  * @author Tim Anderson
  */
@@ -82,6 +86,11 @@ class ReminderMailerFactory {
      */
     private final Map<Long, JavaMailSender> senders = new HashMap<>();
 
+    /**
+     * The dispatcher to queue messages with. May be {@code null}
+     */
+    private MailDispatcher dispatcher;
+
     /**
      * The logger.
      */
@@ -111,6 +120,15 @@ class ReminderMailerFactory {
         }
     }
 
+    /**
+     * Registers a dispatcher to queue messages with, rather than sending them directly.
+     *
+     * @param dispatcher the dispatcher. May be {@code null}
+     */
+    public void setDispatcher(MailDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
     /**
      * Creates a {@link Mailer} for sending reminders.
      * <p>
@@ -129,6 +147,21 @@ class ReminderMailerFactory {
      * @throws ReportingException if no mail server settings can be found, or there is no reminder contact
      */
     public Mailer create(Party location, Context context) {
+        return create(location, context, null);
+    }
+
+    /**
+     * Creates a {@link Mailer} for sending reminders.
+     * <p>
+     * If a dispatcher is registered, the mailer will queue messages with the supplied reference.
+     *
+     * @param location  the practice location
+     * @param context   the context
+     * @param reference identifies what the message is being sent for. May be {@code null}
+     * @return a new mailer, with the {@code from} address populated
+     * @throws ReportingException if no mail server settings can be found, or there is no reminder contact
+     */
+    public Mailer create(Party location, Context context, String reference) {
         MailServer settings;
         EmailAddress from;
         settings = getMailSettings(location);
@@ -138,20 +171,26 @@ class ReminderMailerFactory {
             from = addresses.getPracticeAddress();
             settings = getMailSettings(practice);
         }
-        Mailer mailer = create(context, settings);
+        Mailer mailer = create(context, settings, reference);
         mailer.setFrom(from.toString(true));
         return mailer;
     }
 
     /**
      * Creates a mailer for the specified context and mail server.
+     * <p>
+     * If a dispatcher is registered, the mailer will queue messages rather than sending them directly.
      *
-     * @param context  the context
-     * @param settings the mail server settings
+     * @param context   the context
+     * @param settings  the mail server settings
+     * @param reference identifies what the message is being sent for. May be {@code null}
      * @return a new mailer
      */
-    protected Mailer create(Context context, MailServer settings) {
+    protected Mailer create(Context context, MailServer settings, String reference) {
         JavaMailSender sender = getMailSender(settings);
+        if (dispatcher != null) {
+            sender = new QueuedMailSender(sender, settings, dispatcher, reference);
+        }
         return factory.create(new CustomerMailContext(context), sender);
     }
 
@@ -161,7 +200,7 @@ class ReminderMailerFactory {
      * @param settings the settings
      * @return a mail service
      */
-    protected JavaMailSender getMailSender(MailServer settings) {
+    protected synchronized JavaMailSender getMailSender(MailServer settings) {
         Long id = settings.getId();
         JavaMailSender result = senders.get(id);
         if (result == null) {
@@ -189,7 +189,7 @@ public abstract class AbstractStatementGenerator extends AbstractBatchProcessor
             public void onClose(WindowPaneEvent e) {
                 if (ConfirmationDialog.OK_ID.equals(dialog.getAction())) {
                     action.veto(false);
-                    onCompletion();
+                    processor.cancel(); // notifies the listener of completion
                 } else {
                     action.veto(true);
                     processor.setCancel(false);
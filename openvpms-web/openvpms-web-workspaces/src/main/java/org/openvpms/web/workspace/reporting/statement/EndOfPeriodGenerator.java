@@ -27,6 +27,7 @@ import org.openvpms.component.business.service.archetype.IArchetypeService;
 import org.openvpms.component.system.common.query.ArchetypeQuery;
 import org.openvpms.component.system.common.query.IPage;
 import org.openvpms.component.system.common.query.IterableIMObjectQuery;
+import org.openvpms.component.system.common.query.NodeSortConstraint;
 import org.openvpms.web.component.app.Context;
 import org.openvpms.web.echo.help.HelpContext;
 import org.openvpms.web.resource.i18n.Messages;
@@ -34,9 +35,18 @@ import org.openvpms.web.system.ServiceHelper;
 
 import java.util.Date;
 
+import static org.openvpms.component.system.common.query.Constraints.gt;
+
 
 /**
  * End-of-period generator.
+ * <p/>
+ * Customers are processed in order of identifier. If {@link StatementConfig#getThreads()} is greater than {@code 1},
+ * they are processed in parallel.
+ * <p/>
+ * If processing is interrupted, it can be resumed from the {@link #getCheckpoint() checkpoint}. As end-of-period
+ * processing skips customers that already have a statement for the statement date, re-running it from the start
+ * is also safe, but slower.
  *
  * @author Tim Anderson
  */
@@ -47,6 +57,20 @@ class EndOfPeriodGenerator extends AbstractStatementGenerator {
      */
     private StatementProgressBarProcessor progressBarProcessor;
 
+    /**
+     * The parallel processor, or {@code null} if customers are processed sequentially.
+     */
+    private ParallelStatementProgressBarProcessor parallel;
+
+    /**
+     * The identifier of the customer processing was resumed after, or {@code -1} if all customers are processed.
+     */
+    private final long after;
+
+    /**
+     * The identifier of the last customer processed sequentially.
+     */
+    private long last;
 
     /**
      * Constructs an {@link EndOfPeriodGenerator}.
@@ -57,6 +81,21 @@ class EndOfPeriodGenerator extends AbstractStatementGenerator {
      * @param help                 the help context
      */
     public EndOfPeriodGenerator(Date date, boolean postCompletedCharges, Context context, HelpContext help) {
+        this(date, postCompletedCharges, -1, context, help);
+    }
+
+    /**
+     * Constructs an {@link EndOfPeriodGenerator} that resumes an interrupted run.
+     *
+     * @param date                 the statement date
+     * @param postCompletedCharges if {@code true} post completed charge acts
+     * @param after                the identifier of the customer to resume after, or {@code -1} to process all
+     *                             customers
+     * @param context              the context
+     * @param help                 the help context
+     */
+    public EndOfPeriodGenerator(Date date, boolean postCompletedCharges, long after, Context context,
+                                HelpContext help) {
         super(Messages.get("reporting.statements.eop.title"),
               Messages.get("reporting.statements.eop.cancel.title"),
               Messages.get("reporting.statements.eop.cancel.message"),
@@ -67,15 +106,59 @@ class EndOfPeriodGenerator extends AbstractStatementGenerator {
                                                   "Context has no practice");
         }
 
+        this.after = after;
+        last = after;
         ArchetypeQuery query = new ArchetypeQuery("party.customer*", false, false);
+        if (after != -1) {
+            query.add(gt("id", after));
+        }
         int size = countCustomers(query);
+        query.add(new NodeSortConstraint("id"));
         query.setMaxResults(1000);
 
         IterableIMObjectQuery<Party> customers = new IterableIMObjectQuery<>(query);
-        Processor<Party> processor = new EndOfPeriodProcessor(date, postCompletedCharges, practice,
-                                                              ServiceHelper.getArchetypeService(),
-                                                              ServiceHelper.getBean(CustomerAccountRules.class));
-        progressBarProcessor = new StatementProgressBarProcessor(processor, customers, size);
+        final Processor<Party> processor = new EndOfPeriodProcessor(date, postCompletedCharges, practice,
+                                                                    ServiceHelper.getArchetypeService(),
+                                                                    ServiceHelper.getBean(CustomerAccountRules.class));
+        StatementConfig config = ServiceHelper.getBean(StatementConfig.class);
+        if (config.getThreads() > 1) {
+            parallel = new ParallelStatementProgressBarProcessor(processor, customers, size,
+                                                                 ServiceHelper.getTransactionManager(), config);
+            progressBarProcessor = parallel;
+        } else {
+            progressBarProcessor = new StatementProgressBarProcessor(new Processor<Party>() {
+                @Override
+                public void process(Party customer) {
+                    processor.process(customer);
+                    last = customer.getId();
+                }
+            }, customers, size);
+        }
+    }
+
+    /**
+     * Determines if the run was cancelled.
+     *
+     * @return {@code true} if the run was cancelled
+     */
+    public boolean isCancelled() {
+        return progressBarProcessor.isCancelled();
+    }
+
+    /**
+     * Returns the identifier of the last customer for which it and all prior customers have been processed.
+     * <p/>
+     * This may be used to resume an interrupted run.
+     *
+     * @return the customer identifier, or {@code -1} if no customers have been processed
+     */
+    public long getCheckpoint() {
+        long result = last;
+        if (parallel != null) {
+            Party checkpoint = parallel.getCheckpoint();
+            result = (checkpoint != null) ? checkpoint.getId() : after;
+        }
+        return result;
     }
 
     /**
@@ -0,0 +1,183 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.web.workspace.reporting.statement;
+
+import org.apache.commons.lang.time.DurationFormatUtils;
+import org.openvpms.archetype.component.processor.BatchProcessorListener;
+import org.openvpms.archetype.component.processor.ParallelBatchProcessor;
+import org.openvpms.archetype.component.processor.Processor;
+import org.openvpms.component.business.domain.im.party.Party;
+import org.openvpms.web.resource.i18n.Messages;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A {@link StatementProgressBarProcessor} that processes customers in parallel, using a {@link ParallelBatchProcessor}.
+ * <p/>
+ * The customers are processed on a background thread. The progress bar polls it for progress, and completes when
+ * it finishes. Each customer is processed in its own transaction.
+ *
+ * @author Tim Anderson
+ */
+class ParallelStatementProgressBarProcessor extends StatementProgressBarProcessor {
+
+    /**
+     * The parallel processor.
+     */
+    private final ParallelBatchProcessor<Party> processor;
+
+    /**
+     * The expected no. of customers.
+     */
+    private final int size;
+
+    /**
+     * The thread running the parallel processor, or {@code null} if it hasn't been started.
+     */
+    private Thread thread;
+
+    /**
+     * The error that terminated processing, or {@code null} if no error has occurred.
+     */
+    private volatile Throwable error;
+
+    /**
+     * Constructs a {@link ParallelStatementProgressBarProcessor}.
+     *
+     * @param processor          the statement processor. Must be thread safe
+     * @param customers          the customers to process
+     * @param size               the expected no. of customers. This need not be exact
+     * @param transactionManager the transaction manager
+     * @param config             the statement configuration
+     */
+    public ParallelStatementProgressBarProcessor(Processor<Party> processor, Iterable<Party> customers, int size,
+                                                 PlatformTransactionManager transactionManager,
+                                                 StatementConfig config) {
+        super(processor, Collections.<Party>emptyList(), size);
+        this.size = size;
+        this.processor = new ParallelBatchProcessor<>(customers.iterator(), processor, transactionManager,
+                                                      config.getThreads(), config.getPartitionSize());
+        this.processor.setListener(new BatchProcessorListener() {
+            @Override
+            public void completed() {
+            }
+
+            @Override
+            public void error(Throwable exception) {
+                error = exception;
+            }
+        });
+    }
+
+    /**
+     * Returns the no. of customers processed.
+     *
+     * @return the no. of customers processed
+     */
+    @Override
+    public int getProcessed() {
+        return processor.getProcessed();
+    }
+
+    /**
+     * Returns the last customer for which it and all prior customers have been processed.
+     *
+     * @return the checkpoint customer, or {@code null} if none has been processed
+     */
+    public Party getCheckpoint() {
+        return processor.getCheckpoint();
+    }
+
+    /**
+     * Cancels processing.
+     */
+    @Override
+    public void cancel() {
+        processor.cancel();
+        super.cancel();
+    }
+
+    /**
+     * Determines if statements are being processed in the background.
+     * <p/>
+     * This starts the parallel processor on first invocation, and updates the progress bar on each subsequent
+     * invocation.
+     *
+     * @return {@code true} if statements are being processed in the background
+     */
+    @Override
+    protected boolean isBusy() {
+        if (thread == null) {
+            start();
+        }
+        int done = processor.getProcessed() + processor.getFailed();
+        if (done > getProgressBar().getMaximum()) {
+            getProgressBar().setMaximum(done);
+        }
+        getProgressBar().setValue(done);
+        if (!processor.isFinished()) {
+            long remaining = processor.getEstimatedRemaining(size);
+            if (remaining >= 0) {
+                setStatus(Messages.format("reporting.statements.progress", done, size,
+                                          DurationFormatUtils.formatDuration(remaining, "H:mm:ss")));
+            }
+            return true;
+        }
+        return super.isBusy();
+    }
+
+    /**
+     * Collects the failures that occurred processing statements in the background.
+     *
+     * @param failures the list to add failures to
+     */
+    @Override
+    protected void getFailures(List<Throwable> failures) {
+        if (error != null) {
+            failures.add(error);
+        }
+        failures.addAll(processor.getFailures().values());
+        super.getFailures(failures);
+    }
+
+    /**
+     * Starts the parallel processor on a background thread, in the security context of the current user.
+     */
+    private void start() {
+        final SecurityContext context = SecurityContextHolder.getContext();
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                SecurityContextHolder.setContext(context);
+                try {
+                    processor.process();
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }
+        }, "EndOfPeriod");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+
+package org.openvpms.web.workspace.reporting.statement;
+
+/**
+ * Configuration for End Period and statement runs.
+ * <p/>
+ * If {@link #getThreads() threads} is {@code 1}, customers are processed sequentially, as they were prior to
+ * parallel processing being supported.
+ *
+ * @author Tim Anderson
+ */
+public class StatementConfig {
+
+    /**
+     * The no. of threads used to run End Period.
+     */
+    private int threads = 4;
+
+    /**
+     * The no. of customers assigned to a thread at a time.
+     */
+    private int partitionSize = 50;
+
+    /**
+     * The no. of threads used to render emailed statements.
+     */
+    private int renderThreads = 2;
+
+    /**
+     * The no. of threads used to send emailed statements.
+     */
+    private int emailThreads = 2;
+
+    /**
+     * The maximum no. of statements that may be waiting to be rendered or sent, per stage.
+     */
+    private int queueSize = 20;
+
+    /**
+     * Returns the no. of threads used to run End Period.
+     *
+     * @return the no. of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the no. of threads used to run End Period.
+     *
+     * @param threads the no. of threads. If {@code 1}, customers are processed sequentially
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Returns the no. of customers assigned to a thread at a time.
+     *
+     * @return the partition size
+     */
+    public int getPartitionSize() {
+        return partitionSize;
+    }
+
+    /**
+     * Sets the no. of customers assigned to a thread at a time.
+     *
+     * @param partitionSize the partition size
+     */
+    public void setPartitionSize(int partitionSize) {
+        this.partitionSize = Math.max(1, partitionSize);
+    }
+
+    /**
+     * Returns the no. of threads used to render emailed statements.
+     *
+     * @return the no. of threads. If {@code 0}, statements are rendered and sent as they are generated
+     */
+    public int getRenderThreads() {
+        return renderThreads;
+    }
+
+    /**
+     * Sets the no. of threads used to render emailed statements.
+     *
+     * @param renderThreads the no. of threads. If {@code 0}, statements are rendered and sent as they are generated
+     */
+    public void setRenderThreads(int renderThreads) {
+        this.renderThreads = Math.max(0, renderThreads);
+    }
+
+    /**
+     * Returns the no. of threads used to send emailed statements.
+     *
+     * @return the no. of threads
+     */
+    public int getEmailThreads() {
+        return emailThreads;
+    }
+
+    /**
+     * Sets the no. of threads used to send emailed statements.
+     *
+     * @param emailThreads the no. of threads
+     */
+    public void setEmailThreads(int emailThreads) {
+        this.emailThreads = Math.max(1, emailThreads);
+    }
+
+    /**
+     * Returns the maximum no. of statements that may be waiting to be rendered or sent, per stage.
+     *
+     * @return the queue size
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Sets the maximum no. of statements that may be waiting to be rendered or sent, per stage.
+     *
+     * @param queueSize the queue size
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+}
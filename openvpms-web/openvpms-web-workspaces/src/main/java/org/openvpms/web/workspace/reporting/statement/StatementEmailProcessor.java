@@ -143,6 +143,20 @@ public class StatementEmailProcessor extends AbstractStatementProcessorListener
      * @throws OpenVPMSException for any error
      */
     public void process(Statement statement) {
+        send(render(statement));
+    }
+
+    /**
+     * Renders a statement to an email, ready to send.
+     * <p/>
+     * This may be invoked concurrently with {@link #send}, so that rendering and sending can occur in separate
+     * stages.
+     *
+     * @param statement the statement to render
+     * @return the email
+     * @throws OpenVPMSException for any error
+     */
+    public StatementEmail render(Statement statement) {
         try {
             MimeMessage message = sender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true);
@@ -185,7 +199,24 @@ public class StatementEmailProcessor extends AbstractStatementProcessorListener
                             return handler.getContent(doc);
                         }
                     });
-            sender.send(message);
+            return new StatementEmail(statement, message);
+        } catch (ArchetypeServiceException | StatementProcessorException exception) {
+            throw exception;
+        } catch (Throwable exception) {
+            throw new StatementProcessorException(exception, FailedToProcessStatement, exception.getMessage());
+        }
+    }
+
+    /**
+     * Sends a statement email, and marks the statement as printed.
+     *
+     * @param email the email to send
+     * @throws OpenVPMSException for any error
+     */
+    public void send(StatementEmail email) {
+        try {
+            Statement statement = email.getStatement();
+            sender.send(email.getMessage());
             if (!statement.isPreview() && !statement.isPrinted()) {
                 setPrinted(statement);
             }
@@ -207,4 +238,59 @@ public class StatementEmailProcessor extends AbstractStatementProcessorListener
         return (Iterable) event.getActs();
     }
 
+    /**
+     * A statement rendered to an email.
+     */
+    public static class StatementEmail {
+
+        /**
+         * The statement.
+         */
+        private final Statement statement;
+
+        /**
+         * The email.
+         */
+        private final MimeMessage message;
+
+        /**
+         * Constructs a {@link StatementEmail}.
+         *
+         * @param statement the statement
+         * @param message   the email
+         */
+        public StatementEmail(Statement statement, MimeMessage message) {
+            this.statement = statement;
+            this.message = message;
+        }
+
+        /**
+         * Returns the statement.
+         *
+         * @return the statement
+         */
+        public Statement getStatement() {
+            return statement;
+        }
+
+        /**
+         * Returns the email.
+         *
+         * @return the email
+         */
+        public MimeMessage getMessage() {
+            return message;
+        }
+
+        /**
+         * Returns a string representation of this, for logging purposes.
+         *
+         * @return the customer the statement is for
+         */
+        @Override
+        public String toString() {
+            return statement.getCustomer().getName();
+        }
+    }
+
 }
@@ -16,6 +16,7 @@
 
 package org.openvpms.web.workspace.reporting.statement;
 
+import org.openvpms.archetype.component.processor.PipelineStage;
 import org.openvpms.archetype.component.processor.ProcessorListener;
 import org.openvpms.archetype.rules.finance.account.CustomerAccountRules;
 import org.openvpms.archetype.rules.finance.account.CustomerBalanceSummaryQuery;
@@ -39,6 +40,7 @@ import org.openvpms.web.component.service.PracticeMailService;
 import org.openvpms.web.echo.help.HelpContext;
 import org.openvpms.web.resource.i18n.Messages;
 import org.openvpms.web.system.ServiceHelper;
+import org.openvpms.web.workspace.reporting.statement.StatementEmailProcessor.StatementEmail;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -176,10 +178,37 @@ class StatementGenerator extends AbstractStatementGenerator {
             EmailTemplateEvaluator evaluator = ServiceHelper.getBean(EmailTemplateEvaluator.class);
             StatementEmailProcessor mailer = new StatementEmailProcessor(mailService, evaluator, factory, practice,
                                                                          context);
-            processor.addListener(new StatementDelegator(printer, mailer));
+            processor.addListener(new StatementDelegator(printer, getEmailer(mailer)));
         }
     }
 
+    /**
+     * Returns the listener to email statements.
+     * <p/>
+     * If configured, statements are rendered and sent in separate stages running in the background, so that
+     * neither blocks statement generation.
+     *
+     * @param mailer the statement email processor
+     * @return the listener to email statements
+     */
+    private ProcessorListener<Statement> getEmailer(final StatementEmailProcessor mailer) {
+        ProcessorListener<Statement> result = mailer;
+        StatementConfig config = ServiceHelper.getBean(StatementConfig.class);
+        if (config.getRenderThreads() > 0) {
+            int emailThreads = config.getEmailThreads();
+            final PipelineStage<StatementEmail> sender = new PipelineStage<>(
+                    "StatementSender", mailer::send, emailThreads, Math.max(emailThreads, config.getQueueSize()));
+            int renderThreads = config.getRenderThreads();
+            PipelineStage<Statement> renderer = new PipelineStage<>(
+                    "StatementRenderer", statement -> sender.process(mailer.render(statement)), renderThreads,
+                    Math.max(renderThreads, config.getQueueSize()));
+            progressBarProcessor.addStage(renderer);
+            progressBarProcessor.addStage(sender);
+            result = renderer;
+        }
+        return result;
+    }
+
     private class StatementDelegator implements ProcessorListener<Statement> {
 
         private ProcessorListener<Statement> printer;
@@ -18,7 +18,9 @@ package org.openvpms.web.workspace.reporting.statement;
 
 import nextapp.echo2.app.Component;
 import nextapp.echo2.app.Label;
+import org.openvpms.archetype.component.processor.PipelineStage;
 import org.openvpms.archetype.component.processor.Processor;
+import org.openvpms.archetype.rules.finance.statement.StatementProcessorException;
 import org.openvpms.component.business.domain.im.party.Party;
 import org.openvpms.web.component.processor.ProgressBarProcessor;
 import org.openvpms.web.component.processor.RetryListener;
@@ -26,8 +28,11 @@ import org.openvpms.web.echo.factory.ColumnFactory;
 import org.openvpms.web.echo.factory.LabelFactory;
 import org.openvpms.web.resource.i18n.Messages;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import static org.openvpms.archetype.rules.finance.statement.StatementProcessorException.ErrorCode.FailedToProcessStatement;
+
 
 /**
  * Processes statements, displaying progress in a progress bar.
@@ -59,6 +64,16 @@ class StatementProgressBarProcessor extends ProgressBarProcessor<Party> {
      */
     private Component component;
 
+    /**
+     * The stages processing statements in the background, in pipeline order.
+     */
+    private final List<PipelineStage<?>> stages = new ArrayList<>();
+
+    /**
+     * Determines if processing has been cancelled.
+     */
+    private boolean cancelled;
+
 
     /**
      * Constructs a new <tt>StatementProgressBarProcessor</tt>.
@@ -98,6 +113,38 @@ class StatementProgressBarProcessor extends ProgressBarProcessor<Party> {
         return component;
     }
 
+    /**
+     * Adds a stage that processes statements in the background.
+     * <p/>
+     * Completion is deferred until the stage is idle. Stages must be added in pipeline order.
+     *
+     * @param stage the stage
+     */
+    public void addStage(PipelineStage<?> stage) {
+        stages.add(stage);
+    }
+
+    /**
+     * Cancels processing.
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+        for (PipelineStage<?> stage : stages) {
+            stage.cancel();
+        }
+        super.cancel();
+    }
+
+    /**
+     * Determines if processing was cancelled.
+     *
+     * @return {@code true} if processing was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
     /**
      * To be invoked when processing of an object is complete.
      * This periodically updates the progress bar.
@@ -152,6 +199,62 @@ class StatementProgressBarProcessor extends ProgressBarProcessor<Party> {
         this.cancel = cancel;
     }
 
+    /**
+     * Invoked when batch processing has completed.
+     * <p/>
+     * If statements are still being processed in the background, completion is deferred until they finish.
+     * If any of these fail, the listener is notified of the error.
+     */
+    @Override
+    protected void processingCompleted() {
+        if (!cancelled && isBusy()) {
+            schedule(new Runnable() {
+                public void run() {
+                    process();
+                }
+            });
+        } else {
+            setStatus(null);
+            for (PipelineStage<?> stage : stages) {
+                stage.cancel();
+            }
+            Throwable failure = (!cancelled) ? getFailure() : null;
+            if (failure != null) {
+                processingError(failure);
+            } else {
+                super.processingCompleted();
+            }
+        }
+    }
+
+    /**
+     * Determines if statements are being processed in the background.
+     *
+     * @return {@code true} if statements are being processed in the background
+     */
+    protected boolean isBusy() {
+        int pending = 0;
+        for (PipelineStage<?> stage : stages) {
+            pending += stage.getPending();
+        }
+        if (pending != 0) {
+            setStatus(Messages.format("reporting.statements.pending", pending));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Collects the failures that occurred processing statements in the background.
+     *
+     * @param failures the list to add failures to
+     */
+    protected void getFailures(List<Throwable> failures) {
+        for (PipelineStage<?> stage : stages) {
+            failures.addAll(stage.getFailures().values());
+        }
+    }
+
     /**
      * Processes a customer.
      *
@@ -167,4 +270,21 @@ class StatementProgressBarProcessor extends ProgressBarProcessor<Party> {
         }
     }
 
+    /**
+     * Returns an exception summarising the failures that occurred processing statements in the background.
+     *
+     * @return the exception, or {@code null} if there were no failures
+     */
+    private Throwable getFailure() {
+        Throwable result = null;
+        List<Throwable> failures = new ArrayList<>();
+        getFailures(failures);
+        if (!failures.isEmpty()) {
+            Throwable first = failures.get(0);
+            String message = Messages.format("reporting.statements.failures", failures.size(), first.getMessage());
+            result = new StatementProcessorException(first, FailedToProcessStatement, message);
+        }
+        return result;
+    }
+
 }
@@ -76,6 +76,15 @@ public class StatementWorkspace extends AbstractReportingWorkspace<Act> {
      */
     private boolean rendered;
 
+    /**
+     * The statement date of a cancelled End Period run, or {@code null} if there is no run to resume.
+     */
+    private Date resumeDate;
+
+    /**
+     * The identifier of the customer to resume a cancelled End Period run after.
+     */
+    private long resumeAfter = -1;
 
     /**
      * Constructs a {@code StatementWorkspace}.
@@ -230,14 +239,24 @@ public class StatementWorkspace extends AbstractReportingWorkspace<Act> {
      * @param help                  the help context
      */
     private void doEndPeriod(boolean postCompletedInvoices, HelpContext help) {
-        EndOfPeriodGenerator generator = new EndOfPeriodGenerator(query.getDate(), postCompletedInvoices,
-                                                                  getContext(), help);
+        final Date date = query.getDate();
+        long after = (resumeDate != null && resumeDate.equals(date)) ? resumeAfter : -1;
+        final EndOfPeriodGenerator generator = new EndOfPeriodGenerator(date, postCompletedInvoices, after,
+                                                                        getContext(), help);
         generator.setListener(new BatchProcessorListener() {
             public void completed() {
+                if (generator.isCancelled()) {
+                    // the next run for the same date resumes where this one left off
+                    resumeDate = date;
+                    resumeAfter = generator.getCheckpoint();
+                } else {
+                    resumeDate = null;
+                }
                 browser.query();
             }
 
             public void error(Throwable exception) {
+                resumeDate = null;
                 ErrorHelper.show(exception);
             }
         });
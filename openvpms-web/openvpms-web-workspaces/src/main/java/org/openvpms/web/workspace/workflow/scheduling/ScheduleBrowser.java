@@ -82,6 +82,10 @@ public abstract class ScheduleBrowser extends AbstractBrowser<PropertySet> {
      */
     private Map<Entity, ScheduleEvents> results;
 
+    /**
+     * Refreshed events to display on the next query, in place of querying the service.
+     */
+    private Map<Entity, ScheduleEvents> refreshed;
     /**
      * The browser component.
      */
@@ -351,8 +355,14 @@ public abstract class ScheduleBrowser extends AbstractBrowser<PropertySet> {
      */
     public void refresh() {
         if (results != null) {
-            if (query.updated(results)) {
-                query();
+            Map<Entity, ScheduleEvents> events = query.refresh(results);
+            if (events != null) {
+                refreshed = events;
+                try {
+                    query();
+                } finally {
+                    refreshed = null;
+                }
             }
         }
     }
@@ -595,7 +605,7 @@ public abstract class ScheduleBrowser extends AbstractBrowser<PropertySet> {
      * @param reselect if {@code true} try and reselect the selected cell
      */
     private void doQueryWithView(boolean reselect) {
-        results = query.query();
+        results = (refreshed != null) ? refreshed : query.query();
 
         ScheduleEventGrid grid = createEventGrid(query.getDate(), results);
         ScheduleTableModel.State state = null;
@@ -20,6 +20,7 @@ import nextapp.echo2.app.Component;
 import nextapp.echo2.app.SelectField;
 import nextapp.echo2.app.event.ActionEvent;
 import org.openvpms.archetype.rules.prefs.Preferences;
+import org.openvpms.archetype.rules.workflow.ScheduleChanges;
 import org.openvpms.archetype.rules.workflow.ScheduleEvents;
 import org.openvpms.archetype.rules.workflow.ScheduleService;
 import org.openvpms.component.business.domain.im.common.IMObjectReference;
@@ -136,6 +137,31 @@ public abstract class ScheduleServiceQuery extends ScheduleQuery {
         return false;
     }
 
+    /**
+     * Refreshes events, applying any changes made since they were returned.
+     * <p>
+     * This assumes that none of the query criteria have changed since the events were returned.
+     *
+     * @param events the events to refresh
+     * @return the refreshed events, keyed on schedule, or {@code null} if none of the events have changed
+     */
+    public Map<Entity, ScheduleEvents> refresh(Map<Entity, ScheduleEvents> events) {
+        Map<Entity, ScheduleEvents> result = new LinkedHashMap<>();
+        boolean changed = false;
+        Date date = getDate();
+        for (Map.Entry<Entity, ScheduleEvents> entry : events.entrySet()) {
+            Entity schedule = entry.getKey();
+            ScheduleEvents refreshed = refresh(schedule, entry.getValue(), date);
+            if (refreshed != null) {
+                changed = true;
+                result.put(schedule, refreshed);
+            } else {
+                result.put(schedule, entry.getValue());
+            }
+        }
+        return changed ? result : null;
+    }
+
     /**
      * Returns the selected clinician.
      *
@@ -184,6 +210,41 @@ public abstract class ScheduleServiceQuery extends ScheduleQuery {
         return hash == -1 || hash != events.getModHash();
     }
 
+    /**
+     * Refreshes the events for a schedule.
+     * <p>
+     * Where the events support it, only the changes since they were returned are fetched. Otherwise, all of the events
+     * are re-fetched if they have been updated.
+     *
+     * @param schedule the schedule
+     * @param events   the events
+     * @param date     the date the event query was based on
+     * @return the refreshed events, or {@code null} if they haven't changed
+     */
+    protected ScheduleEvents refresh(Entity schedule, ScheduleEvents events, Date date) {
+        ScheduleEvents result = null;
+        if (events.getSequence() != -1) {
+            ScheduleChanges changes = service.getChanges(schedule, date, events.getSequence());
+            if (!changes.isEmpty()) {
+                result = apply(events, changes);
+            }
+        } else if (updated(schedule, events, date)) {
+            result = getEvents(schedule, date);
+        }
+        return result;
+    }
+
+    /**
+     * Applies changes to events.
+     *
+     * @param events  the events
+     * @param changes the changes to apply
+     * @return the updated events
+     */
+    protected ScheduleEvents apply(ScheduleEvents events, ScheduleChanges changes) {
+        return events.apply(changes);
+    }
+
     /**
      * Returns the default clinician.
      *
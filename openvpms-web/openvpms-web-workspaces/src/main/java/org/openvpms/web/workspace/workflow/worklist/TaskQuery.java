@@ -23,6 +23,7 @@ import org.openvpms.archetype.rules.prefs.PreferenceArchetypes;
 import org.openvpms.archetype.rules.prefs.Preferences;
 import org.openvpms.archetype.rules.util.DateRules;
 import org.openvpms.archetype.rules.workflow.ScheduleEvent;
+import org.openvpms.archetype.rules.workflow.ScheduleChanges;
 import org.openvpms.archetype.rules.workflow.ScheduleEvents;
 import org.openvpms.archetype.rules.workflow.TaskStatus;
 import org.openvpms.component.business.domain.im.common.IMObjectReference;
@@ -170,8 +171,29 @@ public class TaskQuery extends ScheduleServiceQuery {
      */
     @Override
     protected ScheduleEvents getEvents(Entity schedule, Date date) {
+        return filter(super.getEvents(schedule, date));
+    }
+
+    /**
+     * Applies changes to events.
+     *
+     * @param events  the events
+     * @param changes the changes to apply
+     * @return the updated events
+     */
+    @Override
+    protected ScheduleEvents apply(ScheduleEvents events, ScheduleChanges changes) {
+        return filter(super.apply(events, changes));
+    }
+
+    /**
+     * Filters events by the selected status range.
+     *
+     * @param events the events to filter
+     * @return the filtered events
+     */
+    private ScheduleEvents filter(ScheduleEvents events) {
         ScheduleEvents result;
-        ScheduleEvents events = super.getEvents(schedule, date);
         StatusRange range = getStatusRange();
         if (!events.getEvents().isEmpty() && range != StatusRange.ALL) {
             boolean complete = range == StatusRange.COMPLETE;
@@ -188,7 +210,7 @@ public class TaskQuery extends ScheduleServiceQuery {
                     }
                 }
             }
-            result = new ScheduleEvents(filtered, events.getModHash());
+            result = new ScheduleEvents(filtered, events.getModHash(), events.getSequence());
         } else {
             result = events;
         }
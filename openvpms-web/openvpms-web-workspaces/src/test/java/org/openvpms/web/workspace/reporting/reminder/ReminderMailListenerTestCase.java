@@ -0,0 +1,170 @@
+/*
+ * Version: 1.0
+ *
+ * The contents of this file are subject to the OpenVPMS License Version
+ * 1.0 (the 'License'); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.openvpms.org/license/
+ *
+ * Software distributed under the License is distributed on an 'AS IS' basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Copyright 2019 (C) OpenVPMS Ltd. All Rights Reserved.
+ */
+
+package org.openvpms.web.workspace.reporting.reminder;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.openvpms.archetype.rules.patient.reminder.ReminderItemStatus;
+import org.openvpms.archetype.rules.patient.reminder.ReminderTestHelper;
+import org.openvpms.archetype.rules.practice.PracticeService;
+import org.openvpms.archetype.rules.util.DateUnits;
+import org.openvpms.archetype.test.ArchetypeServiceTest;
+import org.openvpms.archetype.test.TestHelper;
+import org.openvpms.component.business.domain.im.act.Act;
+import org.openvpms.component.business.domain.im.common.Entity;
+import org.openvpms.component.business.domain.im.party.Party;
+import org.openvpms.component.business.domain.im.security.User;
+import org.openvpms.component.business.service.archetype.DelegatingArchetypeService;
+import org.openvpms.component.business.service.archetype.IArchetypeService;
+import org.openvpms.component.business.service.archetype.helper.IMObjectBean;
+import org.openvpms.web.component.mail.queue.MailDispatcher;
+import org.openvpms.web.component.mail.queue.MemoryMailQueue;
+import org.openvpms.web.component.mail.queue.QueuedMail;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link ReminderMailListener}.
+ *
+ * @author Tim Anderson
+ */
+public class ReminderMailListenerTestCase extends ArchetypeServiceTest {
+
+    /**
+     * Verifies that the reminder items a failed email was queued for are marked as being in error, and that
+     * cancelled items, and messages queued by others, are ignored.
+     */
+    @Test
+    public void testFailed() {
+        Party patient = TestHelper.createPatient(TestHelper.createCustomer());
+        Entity reminderType = ReminderTestHelper.createReminderType(1, DateUnits.MONTHS, 1, DateUnits.DAYS);
+        Date now = new Date();
+        Act item1 = ReminderTestHelper.createEmailReminder(now, now, ReminderItemStatus.COMPLETED, 0);
+        Act item2 = ReminderTestHelper.createEmailReminder(now, now, ReminderItemStatus.COMPLETED, 0);
+        Act item3 = ReminderTestHelper.createEmailReminder(now, now, ReminderItemStatus.CANCELLED, 0);
+        ReminderTestHelper.createReminder(now, patient, reminderType, item1, item2, item3);
+
+        ReminderMailListener listener = createListener(getArchetypeService(), TestHelper.createUser());
+
+        // a message not queued for a reminder
+        listener.failed(new QueuedMail(1, 1, null, 1, "other:" + item2.getId()), "other failure");
+        checkItem(item2, ReminderItemStatus.COMPLETED, null);
+
+        String reference = ReminderMailListener.getReference(Arrays.asList(item1, item3));
+        listener.failed(new QueuedMail(2, 1, null, 1, reference), "550 mailbox unavailable");
+        checkItem(item1, ReminderItemStatus.ERROR, "550 mailbox unavailable");
+        checkItem(item2, ReminderItemStatus.COMPLETED, null);
+        checkItem(item3, ReminderItemStatus.CANCELLED, null);
+    }
+
+    /**
+     * Verifies that reminder items are updated as the practice service user via a secured archetype service, as the
+     * dispatcher notifies listeners from threads with no security context.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testFailedUpdatesAsServiceUser() throws Exception {
+        Party patient = TestHelper.createPatient(TestHelper.createCustomer());
+        Entity reminderType = ReminderTestHelper.createReminderType(1, DateUnits.MONTHS, 1, DateUnits.DAYS);
+        Date now = new Date();
+        Act item = ReminderTestHelper.createEmailReminder(now, now, ReminderItemStatus.COMPLETED, 0);
+        ReminderTestHelper.createReminder(now, patient, reminderType, item);
+        String reference = ReminderMailListener.getReference(Collections.singletonList(item));
+
+        // the secured archetype service rejects saves when there is no authenticated user
+        List<Object> principals = new ArrayList<>();
+        IArchetypeService secured = new DelegatingArchetypeService(getArchetypeService()) {
+            @Override
+            public void save(org.openvpms.component.model.object.IMObject object, boolean validate) {
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                if (authentication == null) {
+                    throw new AuthenticationCredentialsNotFoundException("No authenticated user");
+                }
+                principals.add(authentication.getPrincipal());
+                super.save(object, validate);
+            }
+        };
+
+        // no service user, so the item can't be updated
+        notifyFailed(createListener(secured, null), new QueuedMail(1, 1, null, 1, reference));
+        checkItem(item, ReminderItemStatus.COMPLETED, null);
+        assertTrue(principals.isEmpty());
+
+        User user = TestHelper.createUser();
+        notifyFailed(createListener(secured, user), new QueuedMail(2, 1, null, 1, reference));
+        checkItem(item, ReminderItemStatus.ERROR, "550 mailbox unavailable");
+        assertEquals(Collections.singletonList(user), principals);
+    }
+
+    /**
+     * Creates a listener.
+     *
+     * @param service     the archetype service
+     * @param serviceUser the practice service user. May be {@code null}
+     * @return a new listener
+     */
+    private ReminderMailListener createListener(IArchetypeService service, User serviceUser) {
+        PracticeService practiceService = Mockito.mock(PracticeService.class);
+        Mockito.when(practiceService.getServiceUser()).thenReturn(serviceUser);
+        return new ReminderMailListener(new MailDispatcher(new MemoryMailQueue(), service), service,
+                                        practiceService);
+    }
+
+    /**
+     * Notifies a listener that a message has failed, from a thread with no security context, as the
+     * {@link MailDispatcher} does.
+     *
+     * @param listener the listener
+     * @param mail     the failed message
+     * @throws Exception for any error
+     */
+    private void notifyFailed(ReminderMailListener listener, QueuedMail mail) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> listener.failed(mail, "550 mailbox unavailable")).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Verifies a reminder item matches that expected.
+     *
+     * @param item   the item
+     * @param status the expected status
+     * @param error  the expected error. May be {@code null}
+     */
+    private void checkItem(Act item, String status, String error) {
+        item = get(item);
+        assertEquals(status, item.getStatus());
+        IMObjectBean bean = new IMObjectBean(item);
+        assertEquals(error, bean.getString("error"));
+    }
+}
@@ -395,13 +395,14 @@ public class ReminderMailerFactoryTestCase extends ArchetypeServiceTest {
         /**
          * Creates a mailer for the specified context and mail server.
          *
-         * @param context  the context
-         * @param settings the mail server settings
+         * @param context   the context
+         * @param settings  the mail server settings
+         * @param reference identifies what the message is being sent for. May be {@code null}
          * @return a new mailer
          */
         @Override
-        protected Mailer create(Context context, MailServer settings) {
-            return new TestMailer(super.create(context, settings), settings);
+        protected Mailer create(Context context, MailServer settings, String reference) {
+            return new TestMailer(super.create(context, settings, reference), settings);
         }
     }
 }
@@ -28,6 +28,7 @@ import org.openvpms.archetype.rules.doc.TemplateHelper;
 import org.openvpms.archetype.rules.finance.account.CustomerAccountArchetypes;
 import org.openvpms.archetype.rules.finance.account.CustomerAccountRules;
 import org.openvpms.archetype.rules.finance.statement.AbstractStatementTest;
+import org.openvpms.archetype.rules.finance.statement.EndOfPeriodProcessor;
 import org.openvpms.archetype.rules.finance.statement.Statement;
 import org.openvpms.archetype.rules.finance.statement.StatementProcessor;
 import org.openvpms.archetype.rules.finance.statement.StatementRules;
@@ -59,7 +60,9 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.openvpms.archetype.rules.act.ActStatus.POSTED;
@@ -160,6 +163,82 @@ public class StatementEmailProcessorTestCase extends AbstractStatementTest {
         Mockito.verify(sender, times(1)).send(mimeMessage);
     }
 
+    /**
+     * Verifies that a statement can be rendered and sent in separate steps, and that it is only marked printed
+     * once sent.
+     */
+    @Test
+    public void testRenderAndSend() {
+        JavaMailSender sender = mock(JavaMailSender.class);
+        MimeMessage mimeMessage = mock(MimeMessage.class);
+        when(sender.createMimeMessage()).thenReturn(mimeMessage);
+
+        Date statementDate = getDate("2007-01-01");
+        Party practice = getPractice();
+        Party customer = getCustomer();
+        addCustomerEmail(customer);
+        save(customer);
+        save(createChargesInvoice(new Money(100), getDatetime("2007-01-01 10:00:00")));
+
+        // run end of period, so the statement can be marked printed
+        new EndOfPeriodProcessor(statementDate, true, practice, getArchetypeService(),
+                                 ServiceHelper.getBean(CustomerAccountRules.class)).process(customer);
+        Statement statement = getStatement(customer, statementDate);
+        assertFalse(statement.isPrinted());
+        StatementEmailProcessor emailProcessor = createEmailProcessor(sender, practice);
+        StatementEmailProcessor.StatementEmail email = emailProcessor.render(statement);
+        assertEquals(statement, email.getStatement());
+        assertEquals(mimeMessage, email.getMessage());
+        Mockito.verify(sender, never()).send(mimeMessage);
+
+        emailProcessor.send(email);
+        Mockito.verify(sender, times(1)).send(mimeMessage);
+        assertTrue(getStatement(customer, statementDate).isPrinted());
+    }
+
+    /**
+     * Generates the statement for a customer, for a statement date that has already been processed by end of period.
+     *
+     * @param customer      the customer
+     * @param statementDate the statement date
+     * @return the statement
+     */
+    private Statement getStatement(Party customer, Date statementDate) {
+        final List<Statement> statements = new ArrayList<>();
+        StatementProcessor processor = new StatementProcessor(statementDate, getPractice(), getArchetypeService(),
+                                                              ServiceHelper.getBean(CustomerAccountRules.class));
+        processor.setReprint(true);
+        processor.addListener(new ProcessorListener<Statement>() {
+            public void process(Statement statement) {
+                statements.add(statement);
+            }
+        });
+        processor.process(customer);
+        assertEquals(1, statements.size());
+        return statements.get(0);
+    }
+
+    /**
+     * Creates a statement email processor.
+     *
+     * @param sender   the mail sender
+     * @param practice the practice
+     * @return a new processor
+     */
+    private StatementEmailProcessor createEmailProcessor(JavaMailSender sender, Party practice) {
+        Converter converter = Mockito.mock(Converter.class);
+        EmailTemplateEvaluator evaluator = new EmailTemplateEvaluator(getArchetypeService(), getLookupService(),
+                                                                      ServiceHelper.getMacros(),
+                                                                      ServiceHelper.getBean(ReportFactory.class), converter);
+        FileNameFormatter formatter = Mockito.mock(FileNameFormatter.class);
+        DocumentHandlers handlers = ServiceHelper.getBean(DocumentHandlers.class);
+        ReportFactory factory = new ReportFactory(getArchetypeService(), getLookupService(), handlers,
+                                                  ServiceHelper.getBean(ArchetypeFunctionsFactory.class));
+        ReporterFactory reporterFactory = new ReporterFactory(factory, formatter, getArchetypeService(),
+                                                              getLookupService(), converter);
+        return new StatementEmailProcessor(sender, evaluator, reporterFactory, practice, new LocalContext());
+    }
+
     /**
      * Helper to create an email contact.
      *